@@ -0,0 +1,89 @@
+package com.sourcekraft.documentburster.common.db;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+/**
+ * Maps each row to a LinkedHashMap keyed by the column labels, so aliases like
+ * AS "Revenue" keep their case (JDBI's default mapToMap() lowercases all the
+ * keys). The column labels are read from the ResultSetMetaData once per result
+ * set and not for each row.
+ */
+public class ColumnLabelRowMapper implements RowMapper<LinkedHashMap<String, Object>> {
+
+	private String[] columnLabels;
+
+	@Override
+	public RowMapper<LinkedHashMap<String, Object>> specialize(ResultSet rs, StatementContext ctx)
+			throws SQLException {
+
+		String[] labels = getColumnLabels(rs.getMetaData());
+		this.columnLabels = labels;
+
+		return (resultSet, statementContext) -> _map(resultSet, labels);
+
+	}
+
+	@Override
+	public LinkedHashMap<String, Object> map(ResultSet rs, StatementContext ctx) throws SQLException {
+
+		if (columnLabels == null)
+			columnLabels = getColumnLabels(rs.getMetaData());
+
+		return _map(rs, columnLabels);
+
+	}
+
+	/**
+	 * The column names (as they are used for the keys of the mapped rows) of the
+	 * result set which was mapped last, empty if no result set was mapped yet.
+	 */
+	public List<String> getColumnNames() {
+
+		if (columnLabels == null)
+			return new ArrayList<>();
+
+		return new ArrayList<>(new LinkedHashSet<>(Arrays.asList(columnLabels)));
+
+	}
+
+	/**
+	 * Uses getColumnLabel for potential aliases, falls back to getColumnName.
+	 */
+	public static String[] getColumnLabels(ResultSetMetaData md) throws SQLException {
+
+		String[] labels = new String[md.getColumnCount()];
+
+		for (int i = 1; i <= labels.length; i++) {
+			String columnName = md.getColumnLabel(i);
+			if (StringUtils.isBlank(columnName))
+				columnName = md.getColumnName(i);
+			labels[i - 1] = columnName;
+		}
+
+		return labels;
+
+	}
+
+	private static LinkedHashMap<String, Object> _map(ResultSet rs, String[] labels) throws SQLException {
+
+		LinkedHashMap<String, Object> row = new LinkedHashMap<>((int) (labels.length / 0.75f) + 1);
+
+		for (int i = 0; i < labels.length; i++)
+			row.put(labels[i], rs.getObject(i + 1));
+
+		return row;
+
+	}
+
+}
@@ -0,0 +1,281 @@
+package com.sourcekraft.documentburster.common.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Process-wide, reference-counted registry of HikariCP pools keyed by
+ * connection code. DatabaseConnectionManager instances are short lived (one
+ * per REST call / per burst job) while the pools they lease from here are kept
+ * warm and shared, so repeated calls do not pay the pool bootstrap latency.
+ *
+ * A pool is replaced when the connection details it was created with change
+ * (different fingerprint) or when it is explicitly invalidated (e.g. the
+ * connection XML was saved). Replaced pools are closed once the last lease on
+ * them is released, in-flight queries are never cut off.
+ */
+public final class ConnectionPoolRegistry {
+
+	private static final Logger log = LoggerFactory.getLogger(ConnectionPoolRegistry.class);
+
+	private static final ConnectionPoolRegistry INSTANCE = new ConnectionPoolRegistry();
+
+	// current pool for each connection code
+	private final Map<String, SharedPool> pools = new HashMap<>();
+
+	// all the pools which are not closed yet (current + invalidated but still
+	// leased)
+	private final Map<HikariDataSource, SharedPool> openPools = new IdentityHashMap<>();
+
+	@FunctionalInterface
+	public interface PoolConfigFactory {
+		HikariConfig createConfig() throws Exception;
+	}
+
+	private ConnectionPoolRegistry() {
+		Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "ConnectionPoolRegistry-shutdown"));
+	}
+
+	public static ConnectionPoolRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Leases the pool for the given connection code, creating it if required.
+	 * Every acquire must be paired with a {@link #release(HikariDataSource)}.
+	 *
+	 * @param connectionCode The unique code identifying the database connection.
+	 * @param fingerprint    Identifies the connection details (driver, url,
+	 *                       user, password) the pool is created with.
+	 * @param configFactory  Creates the pool configuration on a cache miss.
+	 * @return The shared HikariDataSource.
+	 * @throws Exception If the pool cannot be created.
+	 */
+	public synchronized HikariDataSource acquire(String connectionCode, String fingerprint,
+			PoolConfigFactory configFactory) throws Exception {
+
+		SharedPool pool = pools.get(connectionCode);
+
+		if ((pool != null) && !pool.fingerprint.equals(fingerprint)) {
+			log.debug("Connection details changed for code: {}. Replacing the shared pool.", connectionCode);
+			_retire(pool);
+			pool = null;
+		}
+
+		if (pool == null) {
+
+			HikariConfig config = configFactory.createConfig();
+
+			WaitTimeTracker waitTimeTracker = new WaitTimeTracker();
+			config.setMetricsTrackerFactory(waitTimeTracker);
+
+			HikariDataSource dataSource;
+			try {
+				dataSource = new HikariDataSource(config);
+			} catch (Exception e) {
+				log.error("Failed to create HikariDataSource for code '{}': {}", connectionCode, e.getMessage(), e);
+				throw new Exception("Failed to create database connection pool for code: " + connectionCode, e);
+			}
+
+			pool = new SharedPool(connectionCode, fingerprint, dataSource, waitTimeTracker);
+			pools.put(connectionCode, pool);
+			openPools.put(dataSource, pool);
+
+			log.debug("Created shared connection pool for code: {}", connectionCode);
+
+		}
+
+		pool.references++;
+
+		return pool.dataSource;
+
+	}
+
+	/**
+	 * Releases a lease obtained with acquire. The pool stays open for the next
+	 * callers unless it was invalidated in the meantime.
+	 */
+	public synchronized void release(HikariDataSource dataSource) {
+
+		SharedPool pool = openPools.get(dataSource);
+
+		if (pool == null) {
+			log.trace("release called for a pool which is already closed.");
+			return;
+		}
+
+		if (pool.references > 0)
+			pool.references--;
+
+		if (pool.retired && (pool.references == 0))
+			_close(pool);
+
+	}
+
+	/**
+	 * Drops the pool for the given connection code. Callers which currently
+	 * lease the pool can finish their work, the next acquire creates a fresh
+	 * pool with the (re)loaded connection details.
+	 */
+	public synchronized void invalidate(String connectionCode) {
+
+		SharedPool pool = pools.get(connectionCode);
+
+		if (pool != null) {
+			log.info("Invalidating the shared connection pool for code: {}", connectionCode);
+			_retire(pool);
+		}
+
+	}
+
+	public synchronized void invalidateAll() {
+
+		for (SharedPool pool : new ArrayList<>(pools.values()))
+			_retire(pool);
+
+	}
+
+	/**
+	 * Pool metrics (keyed by connection code) - active / idle / total
+	 * connections, threads waiting for a connection, leases and the time spent
+	 * waiting to obtain connections from the pool.
+	 */
+	public synchronized Map<String, Map<String, Object>> getPoolMetrics() {
+
+		Map<String, Map<String, Object>> metrics = new TreeMap<>();
+
+		for (SharedPool pool : pools.values()) {
+
+			Map<String, Object> poolMetrics = new LinkedHashMap<>();
+
+			HikariPoolMXBean poolBean = pool.dataSource.getHikariPoolMXBean();
+			if (poolBean != null) {
+				poolMetrics.put("activeConnections", poolBean.getActiveConnections());
+				poolMetrics.put("idleConnections", poolBean.getIdleConnections());
+				poolMetrics.put("totalConnections", poolBean.getTotalConnections());
+				poolMetrics.put("threadsAwaitingConnection", poolBean.getThreadsAwaitingConnection());
+			}
+
+			long acquired = pool.waitTimeTracker.acquiredCount.sum();
+			long waitNanos = pool.waitTimeTracker.acquiredNanos.sum();
+
+			poolMetrics.put("references", pool.references);
+			poolMetrics.put("connectionsAcquired", acquired);
+			poolMetrics.put("connectionTimeouts", pool.waitTimeTracker.timeoutCount.sum());
+			poolMetrics.put("totalWaitTimeMillis", waitNanos / 1_000_000L);
+			poolMetrics.put("averageWaitTimeMillis", acquired == 0 ? 0.0 : (waitNanos / 1_000_000.0) / acquired);
+			poolMetrics.put("createdAt", pool.createdAt);
+
+			metrics.put(pool.connectionCode, poolMetrics);
+
+		}
+
+		return metrics;
+
+	}
+
+	/**
+	 * Closes all the pools, leased or not. Called when the JVM shuts down.
+	 */
+	public synchronized void shutdown() {
+
+		List<SharedPool> all = new ArrayList<>(openPools.values());
+
+		for (SharedPool pool : all)
+			_close(pool);
+
+		pools.clear();
+
+	}
+
+	private void _retire(SharedPool pool) {
+
+		if (pools.get(pool.connectionCode) == pool)
+			pools.remove(pool.connectionCode);
+
+		pool.retired = true;
+
+		if (pool.references == 0)
+			_close(pool);
+
+	}
+
+	private void _close(SharedPool pool) {
+
+		openPools.remove(pool.dataSource);
+
+		try {
+			if (!pool.dataSource.isClosed()) {
+				log.debug("Closing shared connection pool for code: {}", pool.connectionCode);
+				pool.dataSource.close();
+			}
+		} catch (Exception e) {
+			log.error("Error closing connection pool for code '{}': {}", pool.connectionCode, e.getMessage(), e);
+		}
+
+	}
+
+	private static class SharedPool {
+
+		private final String connectionCode;
+		private final String fingerprint;
+		private final HikariDataSource dataSource;
+		private final WaitTimeTracker waitTimeTracker;
+		private final long createdAt = System.currentTimeMillis();
+
+		// guarded by the registry lock
+		private int references;
+		private boolean retired;
+
+		private SharedPool(String connectionCode, String fingerprint, HikariDataSource dataSource,
+				WaitTimeTracker waitTimeTracker) {
+			this.connectionCode = connectionCode;
+			this.fingerprint = fingerprint;
+			this.dataSource = dataSource;
+			this.waitTimeTracker = waitTimeTracker;
+		}
+
+	}
+
+	// Hikari reports how long each getConnection() call waited for a connection
+	private static class WaitTimeTracker implements MetricsTrackerFactory, IMetricsTracker {
+
+		private final LongAdder acquiredCount = new LongAdder();
+		private final LongAdder acquiredNanos = new LongAdder();
+		private final LongAdder timeoutCount = new LongAdder();
+
+		@Override
+		public IMetricsTracker create(String poolName, PoolStats poolStats) {
+			return this;
+		}
+
+		@Override
+		public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+			acquiredCount.increment();
+			acquiredNanos.add(elapsedAcquiredNanos);
+		}
+
+		@Override
+		public void recordConnectionTimeout() {
+			timeoutCount.increment();
+		}
+
+	}
+
+}
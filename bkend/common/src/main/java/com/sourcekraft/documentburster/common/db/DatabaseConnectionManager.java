@@ -1,7 +1,9 @@
 package com.sourcekraft.documentburster.common.db;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.util.HexFormat;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -25,12 +27,24 @@ import com.zaxxer.hikari.HikariDataSource;
  * Manages database connections using HikariCP connection pooling. Prioritizes
  * using pre-loaded primary connection details from Settings, falling back to
  * file loading for other connection codes. DataSources and Jdbi instances are
- * cached.
+ * cached, the underlying pools are leased from the process-wide
+ * {@link ConnectionPoolRegistry}.
+ *
+ * All the callers (REST requests, burst jobs, getJdbcConnection) share at most
+ * MAX_POOL_SIZE connections per connection code (-Drb.db.pool.max-size, 10 by
+ * default). A caller waiting for a free connection gives up after
+ * CONNECTION_TIMEOUT_MILLIS (SQLTransientConnectionException), so code which
+ * holds a connection while borrowing another one from the same connection code
+ * fails instead of waiting forever when the pool is exhausted.
  */
 public class DatabaseConnectionManager implements AutoCloseable {
 
 	private static final Logger log = LoggerFactory.getLogger(DatabaseConnectionManager.class);
 
+	public static final int MAX_POOL_SIZE = Integer.getInteger("rb.db.pool.max-size", 10);
+
+	public static final long CONNECTION_TIMEOUT_MILLIS = 30_000;
+
 	private final Settings settings;
 
 	// Cache for DataSource pools (Connection Code -> DataSource)
@@ -78,6 +92,13 @@ public class DatabaseConnectionManager implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * Borrows a connection from the shared pool of the given connection code (or
+	 * of the primary reporting connection if the code is blank). Callers must
+	 * close() the connection, which gives it back to the pool, and should not
+	 * borrow a second connection of the same code while holding this one (see
+	 * MAX_POOL_SIZE).
+	 */
 	public Connection getJdbcConnection(String connectionCode) throws Exception {
 
 		String cCode = StringUtils.EMPTY;
@@ -87,23 +108,7 @@ public class DatabaseConnectionManager implements AutoCloseable {
 		else
 			cCode = this.settings.getReportingPrimaryDatabaseConnectionCode();
 
-		ConnectionDatabaseSettings settings = getConnectionSettings(cCode);
-
-		settings.databaseserver.ensureDriverAndUrl();
-
-		String driverClass = getDriverClass(settings.databaseserver.type);
-		Class.forName(driverClass);
-
-		// Decrypt password at the exact moment of use — never store plaintext
-		String decryptedPassword = settings.databaseserver.userpassword;
-		try {
-			decryptedPassword = SecretsCipher.getInstance(Settings.PORTABLE_EXECUTABLE_DIR_PATH)
-					.decrypt(settings.databaseserver.userpassword);
-		} catch (Exception e) {
-			log.warn("Failed to decrypt database password for JDBC connection: {}", e.getMessage());
-		}
-		return DriverManager.getConnection(settings.databaseserver.url, settings.databaseserver.userid,
-				decryptedPassword);
+		return getDataSource(cCode).getConnection();
 	}
 
 	/**
@@ -137,7 +142,9 @@ public class DatabaseConnectionManager implements AutoCloseable {
 	/**
 	 * Gets a pooled DataSource for the given connection code. If not already
 	 * cached, retrieves connection settings (prioritizing pre-loaded primary),
-	 * creates and configures the pool, caches it, and returns it.
+	 * leases the shared pool for those settings from the
+	 * {@link ConnectionPoolRegistry} (creating and configuring it on first use),
+	 * caches it, and returns it. The lease is given back on close().
 	 *
 	 * @param connectionCode The unique code identifying the database connection.
 	 * @return The pooled HikariDataSource instance.
@@ -156,7 +163,7 @@ public class DatabaseConnectionManager implements AutoCloseable {
 			return dataSourcePools.get(connectionCode);
 		}
 
-		log.debug("Cache miss for DataSource: {}. Creating new pool.", connectionCode);
+		log.debug("Cache miss for DataSource: {}. Leasing shared pool.", connectionCode);
 		// Get settings using the new logic
 		ConnectionDatabaseSettings connSettings = getConnectionSettings(connectionCode);
 		if (connSettings == null || connSettings.databaseserver == null) {
@@ -167,12 +174,6 @@ public class DatabaseConnectionManager implements AutoCloseable {
 
 		connSettings.databaseserver.ensureDriverAndUrl();
 
-		// System.out.println("connSettings: " + connSettings.toString());
-
-		// Create DataSource using HikariCP
-		log.trace("Creating HikariConfig for code: {}", connectionCode);
-		HikariConfig config = new HikariConfig();
-
 		// In DatabaseConnectionManager.java
 		if (StringUtils.isBlank(connSettings.databaseserver.driver)) {
 			// Try to determine driver from database type
@@ -183,8 +184,25 @@ public class DatabaseConnectionManager implements AutoCloseable {
 			}
 		}
 
-		// System.out.println("connSettings.databaseserver.driver: " +
-		// connSettings.databaseserver.driver);
+		// The shared pool is replaced if any of these changed since it was created
+		String fingerprint = String.join("|", connSettings.databaseserver.type, connSettings.databaseserver.driver,
+				connSettings.databaseserver.url, connSettings.databaseserver.userid,
+				_hash(connSettings.databaseserver.userpassword));
+
+		HikariDataSource dataSource = ConnectionPoolRegistry.getInstance().acquire(connectionCode, fingerprint,
+				() -> createPoolConfig(connectionCode, connSettings));
+
+		// Cache it
+		dataSourcePools.put(connectionCode, dataSource);
+		log.trace("Exiting getDataSource (leased) for code: {}", connectionCode);
+		return dataSource;
+	}
+
+	private HikariConfig createPoolConfig(String connectionCode, ConnectionDatabaseSettings connSettings) {
+
+		// Create DataSource using HikariCP
+		log.trace("Creating HikariConfig for code: {}", connectionCode);
+		HikariConfig config = new HikariConfig();
 
 		config.setDriverClassName(connSettings.databaseserver.driver);
 		config.setJdbcUrl(connSettings.databaseserver.url);
@@ -204,8 +222,12 @@ public class DatabaseConnectionManager implements AutoCloseable {
 				StringUtils.isNotEmpty(connSettings.databaseserver.userpassword));
 
 		// Add common pool properties (can be customized further)
-		config.setMaximumPoolSize(10);
+		config.setMaximumPoolSize(MAX_POOL_SIZE);
+		config.setConnectionTimeout(CONNECTION_TIMEOUT_MILLIS);
 		config.setMinimumIdle(0); // connections opened on demand, not at pool creation
+		// the pool outlives this manager, give idle connections (and the file locks
+		// of embedded databases) back after a minute without use
+		config.setIdleTimeout(60_000);
 		config.setPoolName("HikariPool-" + connectionCode);
 
 		// Prepared statement cache — MySQL/MariaDB only; other drivers reject these properties
@@ -217,22 +239,17 @@ public class DatabaseConnectionManager implements AutoCloseable {
 		}
 		log.trace("Hikari pool properties set for code: {}", connectionCode);
 
-		HikariDataSource dataSource = null;
-		try {
-			log.trace("Creating HikariDataSource instance for code: {}", connectionCode);
-			dataSource = new HikariDataSource(config);
-			log.debug("HikariDataSource instance created successfully for code: {}", connectionCode);
-		} catch (Exception e) {
-			log.error("Failed to create HikariDataSource for code '{}': {}", connectionCode, e.getMessage(), e);
-			throw new Exception("Failed to create database connection pool for code: " + connectionCode, e);
-		}
+		return config;
+	}
+
+	// the password is not kept as it is in the fingerprint
+	private static String _hash(String password) throws Exception {
+
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+		return HexFormat.of()
+				.formatHex(digest.digest(StringUtils.defaultString(password).getBytes(StandardCharsets.UTF_8)));
 
-		// Cache it
-		dataSourcePools.put(connectionCode, dataSource);
-		// log.info("Created and cached new DataSource pool for code: {}",
-		// connectionCode);
-		log.trace("Exiting getDataSource (created) for code: {}", connectionCode);
-		return dataSource;
 	}
 
 	// In DatabaseConnectionManager
@@ -284,27 +301,24 @@ public class DatabaseConnectionManager implements AutoCloseable {
 	}
 
 	/**
-	 * Closes all managed connection pools. Should be called during application
-	 * shutdown.
+	 * Releases the connection pools leased by this manager back to the
+	 * {@link ConnectionPoolRegistry}. The pools themselves stay open (and warm)
+	 * for the next callers.
 	 */
 	public synchronized void shutdownConnections() {
-		log.info("Shutting down all managed database connection pools...");
+		log.debug("Releasing all leased database connection pools...");
 		dataSourcePools.forEach((code, ds) -> {
 			try {
-				if (ds != null && !ds.isClosed()) {
-					log.debug("Closing DataSource pool for code: {}", code);
-					ds.close();
-				} else {
-					log.trace("DataSource pool for code '{}' was already null or closed.", code);
-				}
+				log.trace("Releasing DataSource pool for code: {}", code);
+				ConnectionPoolRegistry.getInstance().release(ds);
 			} catch (Exception e) {
-				log.error("Error closing DataSource pool for code '{}': {}", code, e.getMessage(), e);
+				log.error("Error releasing DataSource pool for code '{}': {}", code, e.getMessage(), e);
 			}
 		});
 		dataSourcePools.clear();
 		jdbiInstances.clear(); // Clear Jdbi cache as well
 		loadedConnectionDetails.clear(); // Clear connection settings cache
-		log.info("All connection pools shut down and caches cleared.");
+		log.debug("All connection pools released and caches cleared.");
 	}
 
 	@Override
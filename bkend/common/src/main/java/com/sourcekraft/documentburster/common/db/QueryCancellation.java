@@ -0,0 +1,70 @@
+package com.sourcekraft.documentburster.common.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jdbi.v3.core.statement.StatementContext;
+import org.jdbi.v3.core.statement.StatementCustomizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cancels the JDBC statements of a request which is no longer needed (the
+ * client went away or the request timed out). Added as a customizer to the
+ * JDBI queries, the running statements are registered before their execution
+ * and Statement.cancel() is called on them when cancel() is called (from any
+ * thread), so the database stops working on the query and the connection
+ * goes back to the pool.
+ */
+public class QueryCancellation implements StatementCustomizer {
+
+	private static final Logger log = LoggerFactory.getLogger(QueryCancellation.class);
+
+	private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+
+	private volatile boolean cancelled = false;
+
+	@Override
+	public void beforeExecution(PreparedStatement stmt, StatementContext ctx) throws SQLException {
+
+		if (cancelled)
+			throw new SQLException("The query was cancelled");
+
+		statements.add(stmt);
+		ctx.addCleanable(() -> statements.remove(stmt));
+
+		// cancel() was called while the statement was being registered
+		if (cancelled)
+			_cancel(stmt);
+
+	}
+
+	public void cancel() {
+
+		cancelled = true;
+
+		for (Statement stmt : statements)
+			_cancel(stmt);
+
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	private void _cancel(Statement stmt) {
+
+		try {
+			stmt.cancel();
+			log.info("Cancelled the running query");
+		} catch (SQLException e) {
+			// the statement already completed or the driver does not support cancel
+			log.debug("Statement.cancel() failed: {}", e.getMessage());
+		}
+
+	}
+
+}
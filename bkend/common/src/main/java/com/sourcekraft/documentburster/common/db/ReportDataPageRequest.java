@@ -0,0 +1,66 @@
+package com.sourcekraft.documentburster.common.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sourcekraft.documentburster.utils.DumpToString;
+
+/**
+ * The server-side operations (Tabulator remote pagination, sorting and
+ * filtering) requested for the report data. Reporters which can do the work in
+ * the data source (e.g. SqlReporter) fetch only the requested page, the other
+ * data sources are filtered, sorted and sliced in memory after the full data
+ * was fetched.
+ */
+public class ReportDataPageRequest extends DumpToString {
+
+	private static final long serialVersionUID = 4212553198176631457L;
+
+	/** 1-based page number (Tabulator convention), null when not paginated */
+	public Integer page;
+
+	/** Rows per page, null when not paginated */
+	public Integer size;
+
+	public List<Sorter> sorters = new ArrayList<>();
+	public List<Filter> filters = new ArrayList<>();
+
+	public static class Sorter extends DumpToString {
+
+		private static final long serialVersionUID = -2519462470870310412L;
+
+		public String field;
+
+		/** asc or desc */
+		public String dir = "asc";
+
+	}
+
+	public static class Filter extends DumpToString {
+
+		private static final long serialVersionUID = 6880951137454622953L;
+
+		public String field;
+
+		/** =, !=, like, starts, ends, <, >, <= or >= */
+		public String type;
+
+		public String value;
+
+	}
+
+	public boolean isPaginated() {
+		return (page != null) && (size != null) && (size > 0);
+	}
+
+	/** Total pages (at least 1) for the number of rows which passed the filters */
+	public int getLastPage(int totalRows) {
+
+		if (!isPaginated())
+			return 1;
+
+		return Math.max(1, (int) Math.ceil((double) totalRows / size));
+
+	}
+
+}
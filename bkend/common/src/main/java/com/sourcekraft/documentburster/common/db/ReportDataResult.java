@@ -3,6 +3,7 @@ package com.sourcekraft.documentburster.common.db;
 import java.util.LinkedHashMap;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.sourcekraft.documentburster.utils.DumpToString;
 
@@ -16,6 +17,11 @@ public class ReportDataResult extends DumpToString {
 	public int lastPage;  // total pages for remote pagination (ceil(totalRows / pageSize))
 	public boolean truncated;
 
+	// true when the data source already filtered, sorted and paginated reportData
+	// (see ReportDataPageRequest), totalRows is then the number of matching rows
+	@JsonIgnore
+	public boolean pageRequestApplied;
+
 	// Entity-specific rendering fields
 	public String entityCode;
 	public String renderedHtml;
@@ -0,0 +1,18 @@
+package com.sourcekraft.documentburster.common.db;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives the report data row by row (see CliJob.doStreamData) instead of the
+ * full List of rows of ReportDataResult, e.g. to write each row to the HTTP
+ * response as soon as it is read from the data source.
+ */
+public interface ReportDataRowHandler {
+
+	/** Called once, before the first row (also when there are no rows) */
+	void columns(List<String> columnNames) throws Exception;
+
+	void row(Map<String, Object> row) throws Exception;
+
+}
@@ -191,18 +191,11 @@ public class SqlExecutor {
 			}
 			if (!scalarParams.isEmpty()) query.bindMap(scalarParams);
 		}
-		// Use getColumnLabel() directly so aliases like AS "Revenue" are preserved
-		// as-is, matching the case the published Groovy script returns via JDBC.
+		// Use the column labels so aliases like AS "Revenue" are preserved as-is,
+		// matching the case the published Groovy script returns via JDBC.
 		// JDBI's default mapToMap() lowercases all keys, which breaks rb-value/rb-chart
 		// field lookups in published dashboards.
-		return query.map((rs, ctx) -> {
-			java.sql.ResultSetMetaData meta = rs.getMetaData();
-			Map<String, Object> row = new java.util.LinkedHashMap<>();
-			for (int i = 1; i <= meta.getColumnCount(); i++) {
-				row.put(meta.getColumnLabel(i), rs.getObject(i));
-			}
-			return row;
-		}).list();
+		return query.map(new ColumnLabelRowMapper()).collect(java.util.stream.Collectors.toList());
 	}
 
 	/**
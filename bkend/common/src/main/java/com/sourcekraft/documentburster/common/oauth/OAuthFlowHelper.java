@@ -17,6 +17,7 @@ import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -31,6 +32,18 @@ public class OAuthFlowHelper {
 
     private static final Logger log = LoggerFactory.getLogger(OAuthFlowHelper.class);
 
+    // used when the token endpoint does not return expires_in
+    private static final long DEFAULT_EXPIRES_IN_SECONDS = 300;
+
+    // cached access tokens are refreshed this long before they expire
+    private static final long EARLY_REFRESH_SECONDS = 120;
+
+    private static final HttpClient HTTP_CLIENT = HttpClient.newHttpClient();
+
+    // access tokens minted from refresh tokens, keyed by a hash of provider, tenant,
+    // client, token url, scope and refresh token (see getAccessToken)
+    private static final Map<String, CachedAccessToken> ACCESS_TOKENS = new ConcurrentHashMap<>();
+
     public static class PkceChallenge {
         public final String verifier;
         public final String challenge;
@@ -197,6 +210,70 @@ public class OAuthFlowHelper {
     public static String refreshAccessToken(String provider, String tenantId, String clientId,
             String customTokenUrl, String customScope, String refreshToken) throws Exception {
 
+        return requestAccessToken(provider, tenantId, clientId, customTokenUrl, customScope, refreshToken).accessToken;
+    }
+
+    /**
+     * Returns an access token for the stored refresh token, reusing the one minted by a previous
+     * call (of any job in this process) until shortly before it expires (expires_in).
+     * Concurrent callers asking for the same token while it is being refreshed wait for that single
+     * token request instead of sending their own. Failed requests are not cached.
+     *
+     * The arguments are the same as for refreshAccessToken.
+     */
+    public static String getAccessToken(String provider, String tenantId, String clientId,
+            String customTokenUrl, String customScope, String refreshToken) throws Exception {
+
+        String key = accessTokenCacheKey(provider, tenantId, clientId, customTokenUrl, customScope, refreshToken);
+        CachedAccessToken cached = ACCESS_TOKENS.computeIfAbsent(key, k -> new CachedAccessToken());
+
+        synchronized (cached) {
+            long now = System.currentTimeMillis();
+            if (cached.accessToken != null && now < cached.refreshAtMillis)
+                return cached.accessToken;
+
+            AccessToken token = requestAccessToken(provider, tenantId, clientId, customTokenUrl, customScope,
+                    refreshToken);
+
+            long expiresIn = token.expiresInSeconds > 0 ? token.expiresInSeconds : DEFAULT_EXPIRES_IN_SECONDS;
+            long earlyRefresh = Math.min(EARLY_REFRESH_SECONDS, expiresIn / 2);
+
+            cached.accessToken = token.accessToken;
+            cached.refreshAtMillis = now + (expiresIn - earlyRefresh) * 1000;
+
+            log.debug("Minted OAuth2 access token for provider {} (expires in {} s)", provider, expiresIn);
+
+            return cached.accessToken;
+        }
+    }
+
+    /**
+     * Forgets the cached access tokens, e.g. after the OAuth2 settings were changed.
+     */
+    public static void clearAccessTokenCache() {
+        ACCESS_TOKENS.clear();
+    }
+
+    // ── helpers ───────────────────────────────────────────────────────────────
+
+    private static class AccessToken {
+        final String accessToken;
+        final long expiresInSeconds;
+
+        AccessToken(String accessToken, long expiresInSeconds) {
+            this.accessToken = accessToken;
+            this.expiresInSeconds = expiresInSeconds;
+        }
+    }
+
+    private static class CachedAccessToken {
+        String accessToken;
+        long refreshAtMillis;
+    }
+
+    private static AccessToken requestAccessToken(String provider, String tenantId, String clientId,
+            String customTokenUrl, String customScope, String refreshToken) throws Exception {
+
         String resolvedTokenUrl;
         String resolvedScope;
 
@@ -223,23 +300,47 @@ public class OAuthFlowHelper {
         );
 
         String responseBody = postForm(resolvedTokenUrl, body);
-        // Parse only the access_token from the response
+        // Parse only the access_token (and its lifetime) from the response
         Map<String, Object> json = parseJson(responseBody);
         if (json.containsKey("error"))
             throw new RuntimeException("Token refresh error: " + json.get("error") + " — " + json.get("error_description"));
-        return (String) json.get("access_token");
+
+        String accessToken = (String) json.get("access_token");
+        if (StringUtils.isBlank(accessToken))
+            throw new RuntimeException("Token refresh error: no access_token in the response");
+
+        Object expiresIn = json.get("expires_in");
+        long expiresInSeconds = -1;
+        if (expiresIn instanceof Long)
+            expiresInSeconds = (Long) expiresIn;
+        else if (expiresIn instanceof String && StringUtils.isNumeric((String) expiresIn))
+            expiresInSeconds = Long.parseLong((String) expiresIn);
+
+        return new AccessToken(accessToken, expiresInSeconds);
     }
 
-    // ── helpers ───────────────────────────────────────────────────────────────
+    // the refresh token is a secret, only its hash is kept as (part of) the key
+    private static String accessTokenCacheKey(String provider, String tenantId, String clientId,
+            String customTokenUrl, String customScope, String refreshToken) throws Exception {
+
+        String key = String.join("\n", StringUtils.defaultString(provider).toUpperCase(),
+                StringUtils.defaultString(tenantId), StringUtils.defaultString(clientId),
+                StringUtils.defaultString(customTokenUrl), StringUtils.defaultString(customScope),
+                StringUtils.defaultString(refreshToken));
+
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
 
     private static String postForm(String url, String body) throws IOException, InterruptedException {
-        HttpClient client = HttpClient.newHttpClient();
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .header("Content-Type", "application/x-www-form-urlencoded")
                 .POST(HttpRequest.BodyPublishers.ofString(body))
                 .build();
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = HTTP_CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200)
+            throw new RuntimeException("OAuth2 token request failed (HTTP " + response.statusCode() + "): " + response.body());
         return response.body();
     }
 
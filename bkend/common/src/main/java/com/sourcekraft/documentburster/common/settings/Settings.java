@@ -54,6 +54,7 @@ import com.sourcekraft.documentburster.common.settings.model.SendFiles;
 import com.sourcekraft.documentburster.common.settings.model.ServerDatabaseSettings;
 import com.sourcekraft.documentburster.common.settings.model.ServerEmailSettings;
 import com.sourcekraft.documentburster.common.settings.model.Attachments;
+import com.sourcekraft.documentburster.common.settings.model.AsyncDistribution;
 import com.sourcekraft.documentburster.common.settings.model.Items;
 import com.sourcekraft.documentburster.common.settings.model.Archive;
 import com.sourcekraft.documentburster.common.settings.model.BurstTokenDelimiters;
@@ -130,6 +131,7 @@ public class Settings extends DumpToString {
 		if (s.freemarker == null) s.freemarker = new FreeMarkerSettings();
 		if (s.bursttokendelimiters == null) s.bursttokendelimiters = new BurstTokenDelimiters();
 		if (s.retrypolicy == null) s.retrypolicy = new RetryPolicy();
+		if (s.asyncdistribution == null) s.asyncdistribution = new AsyncDistribution();
 		if (s.emailserver == null) s.emailserver = new ServerEmailSettings();
 		if (s.simplejavamail == null) s.simplejavamail = new SimpleJavaMail();
 		if (s.uploadsettings == null) s.uploadsettings = new UploadSettings();
@@ -150,8 +152,12 @@ public class Settings extends DumpToString {
 		if (s.reusetokenswhennotfound == null) s.reusetokenswhennotfound = Boolean.FALSE;
 		if (s.failjobifanydistributionfails == null) s.failjobifanydistributionfails = Boolean.FALSE;
 		if (s.enableretrypolicy == null) s.enableretrypolicy = Boolean.FALSE;
+		if (s.enableasyncdistribution == null) s.enableasyncdistribution = Boolean.FALSE;
 		if (s.split2ndtime == null) s.split2ndtime = Boolean.FALSE;
 		if (s.dumprecorddataasxml == null) s.dumprecorddataasxml = Boolean.FALSE;
+		if (s.streamexceloutput == null) s.streamexceloutput = Boolean.FALSE;
+		if (s.prunepdfresources == null) s.prunepdfresources = Boolean.FALSE;
+		if (s.linkmergebackupfiles == null) s.linkmergebackupfiles = Boolean.FALSE;
 		if (s.enableincubatingfeatures == null) s.enableincubatingfeatures = Boolean.FALSE;
 
 		// Numeric defaults
@@ -159,6 +165,12 @@ public class Settings extends DumpToString {
 		if (s.spacingtolerancevalue == null) s.spacingtolerancevalue = Float.valueOf(0.0f);
 		if (s.numberofuservariables == null) s.numberofuservariables = Integer.valueOf(0);
 		if (s.delayeachdistributionby == null) s.delayeachdistributionby = Double.valueOf(0.0);
+		if (s.numberofburstworkers == null) s.numberofburstworkers = Integer.valueOf(1);
+		if (s.numberofparseworkers == null) s.numberofparseworkers = Integer.valueOf(1);
+
+		// Upload defaults
+		if (s.uploadsettings.nativeupload == null) s.uploadsettings.nativeupload = Boolean.TRUE;
+		if (s.uploadsettings.nativeuploadconnections == null) s.uploadsettings.nativeuploadconnections = Integer.valueOf(4);
 
 		// SimpleJavaMail defaults
 		SimpleJavaMail sjm = s.simplejavamail;
@@ -900,6 +912,34 @@ public class Settings extends DumpToString {
 		docSettings.settings.delayeachdistributionby = delayEachDistributionBy;
 	}
 
+	public int getNumberOfBurstWorkers() {
+		return docSettings.settings.numberofburstworkers;
+	}
+
+	public void setNumberOfBurstWorkers(int numberOfBurstWorkers) {
+		docSettings.settings.numberofburstworkers = numberOfBurstWorkers;
+	}
+
+	public int getNumberOfParseWorkers() {
+		return docSettings.settings.numberofparseworkers;
+	}
+
+	public void setNumberOfParseWorkers(int numberOfParseWorkers) {
+		docSettings.settings.numberofparseworkers = numberOfParseWorkers;
+	}
+
+	public boolean isEnableAsyncDistribution() {
+		return docSettings.settings.enableasyncdistribution;
+	}
+
+	public void setEnableAsyncDistribution(boolean enableAsyncDistribution) {
+		docSettings.settings.enableasyncdistribution = enableAsyncDistribution;
+	}
+
+	public AsyncDistribution getAsyncDistribution() {
+		return docSettings.settings.asyncdistribution;
+	}
+
 	public boolean isReuseTokensWhenNotFound() {
 		return docSettings.settings.reusetokenswhennotfound;
 	}
@@ -1049,6 +1089,14 @@ public class Settings extends DumpToString {
 		return docSettings.settings.mergefilename;
 	}
 
+	public boolean isLinkMergeBackupFiles() {
+		return docSettings.settings.linkmergebackupfiles;
+	}
+
+	public void setLinkMergeBackupFiles(boolean linkMergeBackupFiles) {
+		docSettings.settings.linkmergebackupfiles = linkMergeBackupFiles;
+	}
+
 	public void setSendFilesEmail(boolean sendFilesEmail) {
 		docSettings.settings.sendfiles.email = sendFilesEmail;
 	}
@@ -1237,6 +1285,22 @@ public class Settings extends DumpToString {
 		docSettings.settings.dumprecorddataasxml = dumprecorddataasxml;
 	}
 
+	public boolean isStreamExcelOutput() {
+		return docSettings.settings.streamexceloutput;
+	}
+
+	public void setStreamExcelOutput(boolean streamExcelOutput) {
+		docSettings.settings.streamexceloutput = streamExcelOutput;
+	}
+
+	public boolean isPrunePdfResources() {
+		return docSettings.settings.prunepdfresources;
+	}
+
+	public void setPrunePdfResources(boolean prunePdfResources) {
+		docSettings.settings.prunepdfresources = prunePdfResources;
+	}
+
 	public void setEndBurstTokenDelimiter(String endDelimiter) {
 		docSettings.settings.bursttokendelimiters.end = endDelimiter;
 	}
@@ -34,6 +34,8 @@ public class BursterSettings extends DumpToString {
 
 	public String mergefilename;
 
+	public Boolean linkmergebackupfiles;
+
 	@XmlJavaTypeAdapter(TrimmedStringAdapter.class)
 	public String outputfolder;
 
@@ -91,6 +93,13 @@ public class BursterSettings extends DumpToString {
 	public Integer numberofuservariables;
 	public Double delayeachdistributionby;
 
+	public Integer numberofburstworkers;
+	public Integer numberofparseworkers;
+
+	public Boolean enableasyncdistribution;
+
+	public AsyncDistribution asyncdistribution;
+
 	public Boolean reusetokenswhennotfound;
 	public Boolean failjobifanydistributionfails;
 
@@ -103,6 +112,10 @@ public class BursterSettings extends DumpToString {
 	
 	public Boolean dumprecorddataasxml;
 
+	public Boolean streamexceloutput;
+
+	public Boolean prunepdfresources;
+
 	public Boolean enableincubatingfeatures;
 
 	public String notes;
@@ -64,6 +64,23 @@ public class ReportSettings extends DumpToString {
 			public String scriptname = "";
 			// public String querypath = "";
 			public String idcolumn = "notused";
+
+			/**
+			 * One token (document) for all the rows having the same idcolumn value, the
+			 * rows are available to the templates as reportData (when streaming, the
+			 * query should be sorted by the idcolumn)
+			 */
+			public boolean groupbyidcolumn = false;
+
+			/**
+			 * Burst the rows while they are read from a JDBC cursor instead of fetching
+			 * all of them first (only when no template / script needs the full
+			 * reportData)
+			 */
+			public boolean streaming = false;
+
+			/** JDBC fetch size used when streaming, 0 keeps the driver default */
+			public int fetchsize = 1000;
 		}
 
 		public static class ScriptOptions extends DumpToString {
@@ -101,6 +118,13 @@ public class ReportSettings extends DumpToString {
 
 			/** Optional: Trim whitespace from text content */
 			public boolean ignoreleadingwhitespace = true;
+
+			/**
+			 * Read the repeating nodes with a StAX parser, one at a time, instead of
+			 * loading the whole DOM (only for simple absolute repeatingnodexpath values,
+			 * e.g. /root/records/record)
+			 */
+			public boolean streaming = false;
 		}
 
 		public static class CSVOptions extends DumpToString {
@@ -121,6 +145,15 @@ public class ReportSettings extends DumpToString {
 
 			public String idcolumn = "notused"; // Updated to match XML (no hyphen)
 
+			/** One token (document) for all the rows having the same idcolumn value */
+			public boolean groupbyidcolumn = false;
+
+			/**
+			 * Burst the rows while they are read from the file instead of reading all of
+			 * them first (only when no template / script needs the full reportData)
+			 */
+			public boolean streaming = false;
+
 			public LinesRegExValidator linesregexvalidator = new LinesRegExValidator();
 
 			static class LinesRegExValidator extends DumpToString {
@@ -155,6 +188,12 @@ public class ReportSettings extends DumpToString {
 
 			public String idcolumn = "notused"; // Updated to match XML (no hyphen)
 
+			/**
+			 * Burst the rows while they are read from the file instead of reading all of
+			 * them first (only when no template / script needs the full reportData)
+			 */
+			public boolean streaming = false;
+
 		}
 
 		public static class ExcelOptions extends DumpToString {
@@ -167,6 +206,12 @@ public class ReportSettings extends DumpToString {
 			public String idcolumn = "notused"; // Updated to match XML (no hyphen)
 			public int sheetindex = 0;
 			public boolean useformularesults = true;
+
+			/**
+			 * Read the .xlsx rows with a SAX parser, one row at a time, instead of
+			 * loading the whole workbook (for large files)
+			 */
+			public boolean streaming = false;
 		}
 	}
 
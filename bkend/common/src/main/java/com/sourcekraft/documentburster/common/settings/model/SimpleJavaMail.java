@@ -45,6 +45,9 @@ public class SimpleJavaMail extends DumpToString {
 
 	public Proxy proxy;
 
+	// SMTP connection pool, used when maxsize > 0
+	public ConnectionPool connectionpool;
+
 	// start not yet used
 
 	public Boolean async = false;
@@ -52,8 +55,6 @@ public class SimpleJavaMail extends DumpToString {
 	public Integer poolsize = -1;
 	public Integer poolsizekeepalivetime = -1;
 
-	public ConnectionPool connectionpool;
-
 	public Integer sessiontimeoutmillis = -1;
 
 	public Boolean trustallhosts;
@@ -30,4 +30,9 @@ public class UploadSettings extends DumpToString {
     public String httpcommand;
     public String cloudcommand;
 
+    // FTP / FTPS / SFTP commands are executed in process (and not by cURL), reusing
+    // up to nativeuploadconnections connections per server for the whole job
+    public Boolean nativeupload;
+    public Integer nativeuploadconnections;
+
 }
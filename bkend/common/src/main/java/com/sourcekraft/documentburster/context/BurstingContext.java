@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.sourcekraft.documentburster.common.db.DatabaseConnectionManager;
 import com.sourcekraft.documentburster.common.db.SqlExecutor;
@@ -95,6 +96,9 @@ public class BurstingContext extends DumpToString {
 
 	public int numberOfPages = -1;
 
+	// tokens read when the data is streamed (ctx.burstTokens is not populated)
+	public int numberOfStreamedTokens = 0;
+
 	public int numberOfExtractedFiles = 0;
 	public int numberOfDistributedFiles = 0;
 	public int numberOfMessagesSent = 0;
@@ -120,6 +124,11 @@ public class BurstingContext extends DumpToString {
 	// Cache for extra Sql connections opened via getConnection()
 	public transient Map<String, Sql> namedDbSql;
 
+	// Connections which the senders keep open for the whole job (e.g. pooled SMTP
+	// mailers), shared with the parallel burst workers and closed by
+	// closeDistributionSessions() when the job is done
+	public transient Map<String, AutoCloseable> distributionSessions = new ConcurrentHashMap<String, AutoCloseable>();
+
 	/*
 	 * public List<String> getBurstTokens() { return burstTokens; }
 	 * 
@@ -249,6 +258,123 @@ public class BurstingContext extends DumpToString {
 		this.lastException = lastException;
 	}
 
+	/**
+	 * Per-token view of this context used by the parallel burst workers. Shared
+	 * job state (settings, tokens, report data, connections) is referenced, while
+	 * the per-token state and the counters start fresh so that they can be merged
+	 * back with mergeWorkerResults once the worker is done.
+	 */
+	public BurstingContext copyForWorker() {
+
+		BurstingContext copy = new BurstingContext();
+
+		copy.burstTokens = burstTokens;
+		copy.reportData = reportData;
+		copy.reportColumnNames = reportColumnNames;
+
+		copy.configurationFilePath = configurationFilePath;
+		copy.inputDocumentFilePath = inputDocumentFilePath;
+
+		copy.dbManager = dbManager;
+		copy.sql = sql;
+
+		copy.settings = settings;
+		copy.emailConnection = emailConnection;
+
+		copy.variables = (variables != null) ? variables.copyForWorker() : null;
+		copy.scripts = scripts;
+
+		copy.numberOfPages = numberOfPages;
+
+		copy.outputFolder = outputFolder;
+		copy.backupFolder = backupFolder;
+		copy.quarantineFolder = quarantineFolder;
+		copy.tempFolder = tempFolder;
+		copy.logsFolder = logsFolder;
+		copy.logsArchivesFolder = logsArchivesFolder;
+
+		copy.extractedFilePathsAfterSplitting2ndTime = new HashMap<String, String>(
+				extractedFilePathsAfterSplitting2ndTime);
+
+		copy.additionalInformation = additionalInformation;
+
+		copy.isQARunningMode = isQARunningMode;
+		copy.testName = testName;
+
+		copy.dbSql = dbSql;
+		copy.namedDbSql = namedDbSql;
+
+		copy.distributionSessions = distributionSessions;
+
+		return copy;
+
+	}
+
+	/**
+	 * Snapshot of the current token (extracted document, attachments and
+	 * variables) which is distributed asynchronously while this context moves on
+	 * to the next tokens. The counters start fresh and are merged back with
+	 * mergeWorkerResults once the document is distributed.
+	 */
+	public BurstingContext copyForDistribution() {
+
+		BurstingContext copy = copyForWorker();
+
+		copy.variables = (variables != null) ? variables.copyForDistribution(token) : null;
+
+		copy.token = token;
+		copy.extractedFilePath = extractedFilePath;
+
+		copy.attachments = new ArrayList<String>(attachments);
+		copy.archiveFilePath = archiveFilePath;
+
+		copy.skipCurrentFileDistribution = skipCurrentFileDistribution;
+
+		return copy;
+
+	}
+
+	/**
+	 * Adds the counters and the extracted file paths of a finished parallel burst
+	 * worker to this (job level) context.
+	 */
+	public synchronized void mergeWorkerResults(BurstingContext worker) {
+
+		numberOfExtractedFiles += worker.numberOfExtractedFiles;
+		numberOfDistributedFiles += worker.numberOfDistributedFiles;
+		numberOfMessagesSent += worker.numberOfMessagesSent;
+
+		numberOfSkippedFiles += worker.numberOfSkippedFiles;
+		numberOfQuarantinedFiles += worker.numberOfQuarantinedFiles;
+
+		extractedFilePaths.putAll(worker.extractedFilePaths);
+
+		if (worker.lastException != null)
+			lastException = worker.lastException;
+
+	}
+
+	/**
+	 * Closes the connections which were kept open by the senders during the job.
+	 * Errors are only logged, the documents were already distributed.
+	 */
+	public void closeDistributionSessions() {
+
+		if (distributionSessions == null)
+			return;
+
+		for (Map.Entry<String, AutoCloseable> entry : distributionSessions.entrySet()) {
+			try {
+				entry.getValue().close();
+			} catch (Exception e) {
+				log.warn("Failed to close the distribution session '" + entry.getKey() + "'", e);
+			}
+		}
+
+		distributionSessions.clear();
+
+	}
+
 	/**
 	 * Stores a dataset for visualization reports (charts, tabulators, pivot tables).
 	 * Called from Groovy scripts as: ctx.reportData('salesGrid', sql.rows("..."))
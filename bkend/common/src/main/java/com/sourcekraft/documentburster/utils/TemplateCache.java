@@ -0,0 +1,218 @@
+package com.sourcekraft.documentburster.utils;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.antlr.stringtemplate.StringTemplate;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sourcekraft.documentburster.variables.DateRenderer;
+import com.sourcekraft.documentburster.variables.UserVariablesView;
+import com.sourcekraft.documentburster.variables.Variables;
+
+import freemarker.template.Template;
+
+/**
+ * Process-wide cache of parsed templates, shared by all the tokens and all the
+ * jobs.
+ *
+ * - inline templates (burst file name, output / quarantine folders, email
+ * fields, upload commands, etc.) are keyed by their text; strings without any
+ * placeholder are detected once and returned as they are, without going
+ * through the template engines
+ *
+ * - template files (report templates) are keyed by their path and re-parsed
+ * only when the file's last modified time (or size) changes
+ *
+ * FreeMarker templates are thread safe once parsed, the formatting settings
+ * (locale, number / date formats) are read from FREE_MARKER_CFG at processing
+ * time so they can be changed after the templates are cached.
+ */
+public final class TemplateCache {
+
+	private static Logger log = LoggerFactory.getLogger(TemplateCache.class);
+
+	private static final int MAX_INLINE_TEMPLATES = 2000;
+	private static final int MAX_FILE_TEMPLATES = 200;
+
+	private static final Map<String, InlineTemplate> INLINE_TEMPLATES = Collections
+			.synchronizedMap(new LruMap<>(MAX_INLINE_TEMPLATES));
+
+	private static final Map<String, FileTemplate> FILE_TEMPLATES = Collections
+			.synchronizedMap(new LruMap<>(MAX_FILE_TEMPLATES));
+
+	private TemplateCache() {
+	}
+
+	/**
+	 * Resolves an inline template, either FreeMarker (${...}) or StringTemplate
+	 * ($...$), against the user variables of the token.
+	 */
+	public static String getStringFromTemplate(String template, Variables variables, String token) throws Exception {
+
+		if (template == null)
+			return null;
+
+		InlineTemplate inlineTemplate = INLINE_TEMPLATES.get(template);
+
+		if (inlineTemplate == null) {
+			inlineTemplate = _parseInlineTemplate(template);
+			INLINE_TEMPLATES.put(template, inlineTemplate);
+		}
+
+		if (inlineTemplate.isFixed())
+			return template;
+
+		if (inlineTemplate.freemarkerTemplate != null)
+			return _process(inlineTemplate.freemarkerTemplate, variables.getUserVariables(token));
+
+		// StringTemplate instances hold their attributes so each call works on its
+		// own instance, sharing the parsed template
+		StringTemplate engine = inlineTemplate.stringTemplate.getInstanceOf();
+		engine.registerRenderer(Date.class, new DateRenderer());
+		engine.setAttributes(variables.getUserVariables(token));
+
+		return engine.toString();
+
+	}
+
+	/**
+	 * Returns the parsed FreeMarker template for the given file, reading and
+	 * parsing the file only when it changed since the last call.
+	 */
+	public static Template getFreemarkerTemplate(String templatePath) throws Exception {
+
+		File templateFile = new File(templatePath);
+		String key = templateFile.getAbsolutePath();
+
+		long lastModified = templateFile.lastModified();
+		long length = templateFile.length();
+
+		FileTemplate fileTemplate = FILE_TEMPLATES.get(key);
+
+		if ((fileTemplate != null) && (fileTemplate.lastModified == lastModified) && (fileTemplate.length == length))
+			return fileTemplate.template;
+
+		String source = FileUtils.readFileToString(templateFile, "UTF-8");
+		Template template = new Template("template", source, DocumentBursterFreemarkerInitializer.FREE_MARKER_CFG);
+
+		FILE_TEMPLATES.put(key, new FileTemplate(lastModified, length, template));
+
+		log.debug("Parsed FreeMarker template '{}'", key);
+
+		return template;
+
+	}
+
+	/**
+	 * Processes the (cached) FreeMarker template file with the given data model.
+	 */
+	public static String processFreemarkerTemplate(String templatePath, Object dataModel) throws Exception {
+
+		return _process(getFreemarkerTemplate(templatePath), dataModel);
+
+	}
+
+	public static void clear() {
+
+		INLINE_TEMPLATES.clear();
+		FILE_TEMPLATES.clear();
+
+	}
+
+	private static String _process(Template template, Object dataModel) throws Exception {
+
+		// the user variables view is resolved by FreeMarker directly, without going
+		// through the object wrapper's Map adapter
+		if (dataModel instanceof UserVariablesView)
+			dataModel = ((UserVariablesView) dataModel).asTemplateHashModel();
+
+		StringWriter stringWriter = new StringWriter();
+		template.process(dataModel, stringWriter);
+		stringWriter.flush();
+
+		return stringWriter.toString();
+
+	}
+
+	private static InlineTemplate _parseInlineTemplate(String template) throws Exception {
+
+		String freeMarkerTest = StringUtils.substringBetween(template, "${", "}");
+
+		String stringTemplateTest = StringUtils.EMPTY;
+
+		if (StringUtils.isEmpty(freeMarkerTest))
+			stringTemplateTest = StringUtils.substringBetween(template, "$", "$");
+
+		if (StringUtils.isEmpty(stringTemplateTest) && StringUtils.isEmpty(freeMarkerTest))
+			return new InlineTemplate(null, null);
+
+		// if StringTemplate
+		if (!StringUtils.isEmpty(stringTemplateTest) && StringUtils.isEmpty(freeMarkerTest)) {
+			StringTemplate engine = new StringTemplate();
+			engine.setTemplate(template);
+			return new InlineTemplate(null, engine);
+		}
+
+		return new InlineTemplate(
+				new Template("template", template, DocumentBursterFreemarkerInitializer.FREE_MARKER_CFG), null);
+
+	}
+
+	private static class InlineTemplate {
+
+		private final Template freemarkerTemplate;
+		private final StringTemplate stringTemplate;
+
+		private InlineTemplate(Template freemarkerTemplate, StringTemplate stringTemplate) {
+			this.freemarkerTemplate = freemarkerTemplate;
+			this.stringTemplate = stringTemplate;
+		}
+
+		// no placeholders, the text is used as it is
+		private boolean isFixed() {
+			return (freemarkerTemplate == null) && (stringTemplate == null);
+		}
+
+	}
+
+	private static class FileTemplate {
+
+		private final long lastModified;
+		private final long length;
+		private final Template template;
+
+		private FileTemplate(long lastModified, long length, Template template) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.template = template;
+		}
+
+	}
+
+	private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int maxEntries;
+
+		private LruMap(int maxEntries) {
+			super(16, 0.75f, true);
+			this.maxEntries = maxEntries;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > maxEntries;
+		}
+
+	}
+
+}
@@ -3,7 +3,6 @@ package com.sourcekraft.documentburster.utils;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
-import java.io.StringWriter;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.URLEncoder;
@@ -26,7 +25,6 @@ import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.antlr.stringtemplate.StringTemplate;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -41,11 +39,8 @@ import com.sourcekraft.documentburster.common.settings.model.SmsSettings;
 import com.sourcekraft.documentburster.common.settings.model.UploadSettings;
 import com.sourcekraft.documentburster.common.settings.model.WebUploadSettings;
 import com.sourcekraft.documentburster.context.BurstingContext;
-import com.sourcekraft.documentburster.variables.DateRenderer;
 import com.sourcekraft.documentburster.variables.Variables;
 
-import freemarker.template.Template;
-
 public class Utils {
 
 	private static Logger log = LoggerFactory.getLogger(Utils.class);
@@ -271,37 +266,11 @@ public class Utils {
 	}
 
 	public static String getStringFromTemplate(String template, Variables variables, String token) throws Exception {
-		log.debug("getStringFromTemplate(String template,Variables variables) : template=" + template + ", variables="
-				+ variables);
-
-		String freeMarkerTest = StringUtils.substringBetween(template, "${", "}");
-
-		String stringTemplateTest = StringUtils.EMPTY;
-
-		if (StringUtils.isEmpty(freeMarkerTest))
-			stringTemplateTest = StringUtils.substringBetween(template, "$", "$");
-
-		if (StringUtils.isEmpty(stringTemplateTest) && StringUtils.isEmpty(freeMarkerTest))
-			return template;
+		log.debug("getStringFromTemplate(String template,Variables variables) : template={}", template);
 
-		// if StringTemplate
-		if (!StringUtils.isEmpty(stringTemplateTest) && StringUtils.isEmpty(freeMarkerTest)) {
-			StringTemplate engine = new StringTemplate();
-			engine.registerRenderer(Date.class, new DateRenderer());
-			engine.setTemplate(template);
-			engine.setAttributes(variables.getUserVariables(token));
-			log.debug("getStringFromTemplate(String template,Variables variables) : returns = " + engine);
-			return engine.toString();
-		} else { // if (!freeMarkerTest.isEmpty() && stringTemplateTest.isEmpty())
-
-			Template engine = new Template("template", template, DocumentBursterFreemarkerInitializer.FREE_MARKER_CFG);
-
-			StringWriter stringWriter = new StringWriter();
-			engine.process(variables.getUserVariables(token), stringWriter);
-			stringWriter.flush();
-
-			return stringWriter.toString();
-		}
+		// parsed templates are cached (and strings without placeholders are
+		// recognized once) across tokens and jobs
+		return TemplateCache.getStringFromTemplate(template, variables, token);
 
 	}
 
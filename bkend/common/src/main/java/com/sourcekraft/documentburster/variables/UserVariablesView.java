@@ -0,0 +1,254 @@
+/*
+    DocumentBurster is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License, or
+    (at your option) any later version.
+
+    DocumentBurster is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with DocumentBurster.  If not, see <http://www.gnu.org/licenses/>
+ */
+package com.sourcekraft.documentburster.variables;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.sourcekraft.documentburster.utils.DocumentBursterFreemarkerInitializer;
+
+import freemarker.core.Environment;
+import freemarker.template.ObjectWrapper;
+import freemarker.template.SimpleCollection;
+import freemarker.template.TemplateCollectionModel;
+import freemarker.template.TemplateHashModelEx;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+
+/**
+ * The variables of one token, as returned by Variables.getUserVariables.
+ * Lookups (case insensitive) are resolved against the layers the variables
+ * come from:
+ *
+ * 1. the variables of the token (varN / colN / column names, skip)
+ *
+ * 2. the built-in variables (burst_token, now, num_pages, etc.)
+ *
+ * 3. the defaults - skip is "false" and varN (and the aliases) up to the
+ * configured number of user variables are ""
+ *
+ * 4. the global variables (reportData, user defined ctx.variables.set, etc.)
+ *
+ * The view is live, it always shows the current values of Variables (and not
+ * the values at the time it was created), and it is read-only with respect to
+ * Variables, changes (put / remove) are kept in a layer local to the view. It
+ * is a plain Map for StringTemplate, scripts and the other callers and
+ * asTemplateHashModel() exposes the same lookups as a FreeMarker data model
+ * (no Map adapter / copy in between).
+ * 
+ * Exact matches of the token variables are read directly, everything else
+ * (case insensitive matches, iteration, size) goes through the merged index
+ * Variables keeps for the token, which is built once and rebuilt only after
+ * the variables change.
+ */
+public final class UserVariablesView extends AbstractMap<String, Object> {
+
+	private static final Object ABSENT = new Object();
+
+	private final Variables variables;
+	private final String token;
+
+	// changes made through this view
+	private Map<String, Object> localVars;
+
+	UserVariablesView(Variables variables, String token) {
+		this.variables = variables;
+		this.token = token;
+	}
+
+	@Override
+	public Object get(Object key) {
+
+		if (!(key instanceof String))
+			return null;
+
+		Object value = _lookup((String) key);
+
+		return (value == ABSENT) ? null : value;
+
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+
+		if (!(key instanceof String))
+			return false;
+
+		return _lookup((String) key) != ABSENT;
+
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+
+		Object previous = get(key);
+
+		_getLocalVars().remove(key);
+		_getLocalVars().put(key, value);
+
+		return previous;
+
+	}
+
+	@Override
+	public Object remove(Object key) {
+
+		Object previous = get(key);
+
+		if (key instanceof String)
+			_getLocalVars().put((String) key, ABSENT);
+
+		return previous;
+
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+
+		return _snapshot().entrySet();
+
+	}
+
+	@Override
+	public int size() {
+
+		return _snapshot().size();
+
+	}
+
+	@Override
+	public boolean isEmpty() {
+
+		// the built-in variables are always there
+		return false;
+
+	}
+
+	/**
+	 * The view as a FreeMarker data model. It is a separate object (and not the
+	 * view itself) because Groovy scripts dispatch view.get("var0") dynamically
+	 * and would otherwise get FreeMarker models back.
+	 */
+	public TemplateHashModelEx asTemplateHashModel() {
+
+		return new TemplateHashModelEx() {
+
+			@Override
+			public TemplateModel get(String key) throws TemplateModelException {
+
+				Object value = _lookup(key);
+
+				if ((value == ABSENT) || (value == null))
+					return null;
+
+				return _getObjectWrapper().wrap(value);
+
+			}
+
+			@Override
+			public boolean isEmpty() {
+				return false;
+			}
+
+			@Override
+			public int size() {
+				return UserVariablesView.this.size();
+			}
+
+			@Override
+			public TemplateCollectionModel keys() {
+				return new SimpleCollection(_snapshot().keySet(), _getObjectWrapper());
+			}
+
+			@Override
+			public TemplateCollectionModel values() {
+				return new SimpleCollection(_snapshot().values(), _getObjectWrapper());
+			}
+
+		};
+
+	}
+
+	private Object _lookup(String key) {
+
+		// removed keys are kept as ABSENT
+		if ((localVars != null) && localVars.containsKey(key))
+			return localVars.get(key);
+
+		// the token variables, spelled as they were defined
+		Map<String, Object> tokenMap = variables.getTokenVars(token);
+
+		if (tokenMap != null) {
+			Object value = tokenMap.get(key);
+			if ((value != null) || tokenMap.containsKey(key))
+				return value;
+		}
+
+		Map<String, Object> index = variables.getUserVariablesIndex(token);
+
+		Object value = index.get(key);
+
+		if ((value != null) || index.containsKey(key))
+			return value;
+
+		return ABSENT;
+
+	}
+
+	// all the variables, including the changes made through this view
+	private Map<String, Object> _snapshot() {
+
+		Map<String, Object> index = variables.getUserVariablesIndex(token);
+
+		if (localVars == null)
+			return index;
+
+		Map<String, Object> userVars = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		userVars.putAll(index);
+
+		for (Entry<String, Object> entry : localVars.entrySet()) {
+			if (entry.getValue() == ABSENT)
+				userVars.remove(entry.getKey());
+			else
+				userVars.put(entry.getKey(), entry.getValue());
+		}
+
+		return userVars;
+
+	}
+
+	private Map<String, Object> _getLocalVars() {
+
+		if (localVars == null)
+			localVars = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+		return localVars;
+
+	}
+
+	private static ObjectWrapper _getObjectWrapper() {
+
+		Environment environment = Environment.getCurrentEnvironment();
+
+		if (environment != null)
+			return environment.getObjectWrapper();
+
+		return DocumentBursterFreemarkerInitializer.FREE_MARKER_CFG.getObjectWrapper();
+
+	}
+
+}
@@ -15,6 +15,7 @@
 package com.sourcekraft.documentburster.variables;
 
 import java.text.DateFormat;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -82,6 +83,22 @@ public class Variables {
 	public static final String DASHBOARD_URL = "dashboard_url";
 	public static final String SKIP = "skip";
 
+	// the full report data or, when the rows are grouped by idcolumn, the rows of
+	// the token
+	public static final String REPORT_DATA = "reportData";
+
+	// built-in variables, always available to the templates (null if not set
+	// yet); case insensitive name -> name
+	static final Map<String, String> BUILT_IN_VARIABLES = _builtInVariables(
+			INPUT_DOCUMENT_NAME, INPUT_DOCUMENT_EXTENSION, OUTPUT_TYPE_EXTENSION, BURST_TOKEN,
+			BURST_INDEX, OUTPUT_FOLDER, EXTRACTED_FILE_PATH,
+			EXTRACTED_FILE_PATHS_AFTER_SPLITTING_2ND_TIME, QUARANTINE_FOLDER, STATS_INFO, NUM_PAGES,
+			NUM_TOKENS, NUM_FILES_EXTRACTED, NUM_MESSAGES_SENT, NUM_FILES_DISTRIBUTED,
+			NUM_FILES_SKIPPED_DISTRIBUTION, NUM_FILES_QUARANTINED, NOW, NOW_DEFAULT_DATE,
+			NOW_SHORT_DATE, NOW_MEDIUM_DATE, NOW_LONG_DATE, NOW_FULL_DATE, NOW_DEFAULT_TIME,
+			NOW_SHORT_TIME, NOW_MEDIUM_TIME, NOW_LONG_TIME, NOW_FULL_TIME, NOW_QUARTER,
+			DASHBOARD_URL);
+
 	private List<String> varAliases;
 
 	// Global variables (no token prefix): system vars, dates, reportData, etc.
@@ -92,6 +109,15 @@ public class Variables {
 
 	private int numberOfUserVariables;
 
+	// bumped on each change, invalidates the cached index below
+	private int modCount;
+
+	// all the variables of the last token looked up through getUserVariables,
+	// case insensitive (see getUserVariablesIndex)
+	private String indexedToken;
+	private int indexedModCount;
+	private Map<String, Object> userVariablesIndex;
+
 	public Variables(String documentName, String language, String country, int numberOfUserVariables) {
 
 		globalVars.put(INPUT_DOCUMENT_NAME, documentName);
@@ -106,6 +132,50 @@ public class Variables {
 
 	}
 
+	/**
+	 * Returns a copy which can be used by a parallel burst worker. The global
+	 * variables (burst_token, extracted_file_path, etc.) are copied so that each
+	 * worker sees its own values while the per-token variables, which are fully
+	 * populated before the burst loop starts, are shared.
+	 */
+	public Variables copyForWorker() {
+
+		Variables copy = new Variables(this);
+		copy.globalVars = new HashMap<>(globalVars);
+
+		return copy;
+
+	}
+
+	/**
+	 * Returns a copy which can be used while the document of the token is
+	 * distributed asynchronously. Only the variables of the token are copied
+	 * since the burst thread keeps adding (and, when streaming, dropping) the
+	 * variables of the next tokens.
+	 */
+	public Variables copyForDistribution(String token) {
+
+		Variables copy = new Variables(this);
+		copy.globalVars = new HashMap<>(globalVars);
+
+		copy.tokenVars = new HashMap<>();
+
+		Map<String, Object> tokenMap = tokenVars.get(token);
+		if (tokenMap != null)
+			copy.tokenVars.put(token, new LinkedHashMap<>(tokenMap));
+
+		return copy;
+
+	}
+
+	private Variables(Variables source) {
+
+		this.varAliases = source.varAliases;
+		this.tokenVars = source.tokenVars;
+		this.numberOfUserVariables = source.numberOfUserVariables;
+
+	}
+
 	private void addDateSystemVariables(String language, String country) {
 
 		Locale locale = null;
@@ -152,10 +222,12 @@ public class Variables {
 
 	public void setVarAliases(List<String> varAliases) {
 		this.varAliases = varAliases;
+		modCount++;
 	}
 
 	public void setNumberOfUserVariables(int numberOfUserVariables) {
 		this.numberOfUserVariables = numberOfUserVariables;
+		modCount++;
 	}
 
 	public void parseUserVariables(String token, String text) {
@@ -199,6 +271,7 @@ public class Variables {
 				// Set named variable (using column name)
 				if (!isIndexedVariableOrAlias(columnName, index)) {
 					tokenMap.put(columnName, value);
+					modCount++;
 				}
 
 				index++;
@@ -224,102 +297,96 @@ public class Variables {
 		return false;
 	}
 
+	/**
+	 * The variables of the token (built-in, user and global variables).
+	 * 
+	 * The returned map is a live view and not a copy: changes made afterwards to
+	 * these variables (e.g. ctx.variables.set) are visible through it, while
+	 * changes made through it (put / remove) stay local to the view (see
+	 * UserVariablesView). Callers which need the values as they are now (e.g. to
+	 * keep them while the next token is processed) should copy the map.
+	 */
 	public Map<String, Object> getUserVariables(String token) {
 
-		// Use TreeMap with CASE_INSENSITIVE_ORDER for the map passed to Freemarker
-		Map<String, Object> userVars = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-		userVars.putAll(_getBuildInVariables());
+		return new UserVariablesView(this, token);
 
-		// O(1) lookup: get all variables for this token directly
-		Map<String, Object> tokenMap = tokenVars.get(token);
-		if (tokenMap != null) {
-			userVars.putAll(tokenMap);
-		}
+	}
 
-		// Ensure standard variables like 'skip' have default values if not present
-		if (!userVars.containsKey(SKIP)) {
-			userVars.put(SKIP, "false");
-		}
+	/**
+	 * Drops the variables of the token, used when the tokens are burst while the
+	 * data is streamed and the variables of the processed tokens are not needed
+	 * anymore.
+	 */
+	public void clearUserVariables(String token) {
+		tokenVars.remove(token);
+		modCount++;
+	}
 
-		// Ensure indexed variables (varX and aliases) exist up to
-		// numberOfUserVariables, defaulting to empty string.
-		for (int i = 0; i < numberOfUserVariables; i++) {
-			String varKey = "var" + i;
-			if (!userVars.containsKey(varKey)) {
-				userVars.put(varKey, StringUtils.EMPTY);
-			}
-			if (varAliases != null) {
-				for (String alias : varAliases) {
-					String aliasKey = alias + i;
-					if (!userVars.containsKey(aliasKey)) {
-						userVars.put(aliasKey, StringUtils.EMPTY);
-					}
-				}
-			}
-		}
+	Map<String, Object> getTokenVars(String token) {
+		return tokenVars.get(token);
+	}
 
-		// Add global variables (reportData, crosstabData, etc.)
-		for (Map.Entry<String, Object> entry : globalVars.entrySet()) {
-			if (!userVars.containsKey(entry.getKey())) {
-				userVars.put(entry.getKey(), entry.getValue());
-			}
-		}
+	/*
+	 * All the variables of the token merged in a single case insensitive map,
+	 * built once for each token and rebuilt only when the variables change. Worker
+	 * copies share the per-token variables but not this cache, that is fine since
+	 * the variables of a token do not change anymore once the token is burst.
+	 */
+	Map<String, Object> getUserVariablesIndex(String token) {
 
-		log.debug("Variables map for token '{}' before returning: {}", token, userVars);
+		if ((userVariablesIndex == null) || (indexedModCount != modCount)
+				|| !Objects.equals(indexedToken, token)) {
+			userVariablesIndex = Collections.unmodifiableMap(_buildUserVariablesIndex(token));
+			indexedToken = token;
+			indexedModCount = modCount;
+		}
 
-		return userVars;
+		return userVariablesIndex;
 
 	}
 
-	private Map<String, Object> _getBuildInVariables() {
-		Map<String, Object> builtInVars = new HashMap<String, Object>();
-
-		builtInVars.put(INPUT_DOCUMENT_NAME, globalVars.get(INPUT_DOCUMENT_NAME));
-		builtInVars.put(INPUT_DOCUMENT_EXTENSION, globalVars.get(INPUT_DOCUMENT_EXTENSION));
-		builtInVars.put(OUTPUT_TYPE_EXTENSION, globalVars.get(OUTPUT_TYPE_EXTENSION));
+	/*
+	 * The layers in the same order and with the same precedence as
+	 * UserVariablesView, the first of the keys which differ only by case wins.
+	 */
+	private Map<String, Object> _buildUserVariablesIndex(String token) {
 
-		builtInVars.put(BURST_TOKEN, globalVars.get(BURST_TOKEN));
-		builtInVars.put(BURST_INDEX, globalVars.get(BURST_INDEX));
+		Map<String, Object> userVars = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
 
-		builtInVars.put(OUTPUT_FOLDER, globalVars.get(OUTPUT_FOLDER));
-		builtInVars.put(EXTRACTED_FILE_PATH, globalVars.get(EXTRACTED_FILE_PATH));
-		builtInVars.put(EXTRACTED_FILE_PATHS_AFTER_SPLITTING_2ND_TIME,
-				globalVars.get(EXTRACTED_FILE_PATHS_AFTER_SPLITTING_2ND_TIME));
+		Map<String, Object> tokenMap = tokenVars.get(token);
+		if (tokenMap != null) {
+			for (Map.Entry<String, Object> entry : tokenMap.entrySet())
+				_putIfAbsent(userVars, entry.getKey(), entry.getValue());
+		}
 
-		builtInVars.put(QUARANTINE_FOLDER, globalVars.get(QUARANTINE_FOLDER));
+		for (String builtInVariable : BUILT_IN_VARIABLES.values())
+			_putIfAbsent(userVars, builtInVariable, globalVars.get(builtInVariable));
 
-		// stats variables
-		builtInVars.put(STATS_INFO, globalVars.get(STATS_INFO));
-		builtInVars.put(NUM_PAGES, globalVars.get(NUM_PAGES));
-		builtInVars.put(NUM_TOKENS, globalVars.get(NUM_TOKENS));
-		builtInVars.put(NUM_FILES_EXTRACTED, globalVars.get(NUM_FILES_EXTRACTED));
-		builtInVars.put(NUM_MESSAGES_SENT, globalVars.get(NUM_MESSAGES_SENT));
-		builtInVars.put(NUM_FILES_DISTRIBUTED, globalVars.get(NUM_FILES_DISTRIBUTED));
-		builtInVars.put(NUM_FILES_SKIPPED_DISTRIBUTION, globalVars.get(NUM_FILES_SKIPPED_DISTRIBUTION));
-		builtInVars.put(NUM_FILES_QUARANTINED, globalVars.get(NUM_FILES_QUARANTINED));
+		_putIfAbsent(userVars, SKIP, "false");
 
-		// Date/Time variables
-		builtInVars.put(NOW, globalVars.get(NOW));
-		builtInVars.put(NOW_DEFAULT_DATE, globalVars.get(NOW_DEFAULT_DATE));
-		builtInVars.put(NOW_SHORT_DATE, globalVars.get(NOW_SHORT_DATE));
-		builtInVars.put(NOW_MEDIUM_DATE, globalVars.get(NOW_MEDIUM_DATE));
-		builtInVars.put(NOW_LONG_DATE, globalVars.get(NOW_LONG_DATE));
-		builtInVars.put(NOW_FULL_DATE, globalVars.get(NOW_FULL_DATE));
+		for (int i = 0; i < numberOfUserVariables; i++) {
+			_putIfAbsent(userVars, "var" + i, StringUtils.EMPTY);
+			if (varAliases != null) {
+				for (String alias : varAliases)
+					_putIfAbsent(userVars, alias + i, StringUtils.EMPTY);
+			}
+		}
 
-		builtInVars.put(NOW_DEFAULT_TIME, globalVars.get(NOW_DEFAULT_TIME));
-		builtInVars.put(NOW_SHORT_TIME, globalVars.get(NOW_SHORT_TIME));
-		builtInVars.put(NOW_MEDIUM_TIME, globalVars.get(NOW_MEDIUM_TIME));
-		builtInVars.put(NOW_LONG_TIME, globalVars.get(NOW_LONG_TIME));
-		builtInVars.put(NOW_FULL_TIME, globalVars.get(NOW_FULL_TIME));
+		for (Map.Entry<String, Object> entry : globalVars.entrySet())
+			_putIfAbsent(userVars, entry.getKey(), entry.getValue());
 
-		builtInVars.put(NOW_QUARTER, globalVars.get(NOW_QUARTER));
+		return userVars;
 
-		builtInVars.put(DASHBOARD_URL, globalVars.get(DASHBOARD_URL));
+	}
 
-		return builtInVars;
+	// unlike Map.putIfAbsent, keeps the keys which are mapped to null
+	private static void _putIfAbsent(Map<String, Object> map, String key, Object value) {
+		if (!map.containsKey(key))
+			map.put(key, value);
 	}
 
 	public Object set(String key, Object value) {
+		modCount++;
 		return globalVars.put(key, value);
 	}
 
@@ -340,6 +407,7 @@ public class Variables {
 		Map<String, Object> tokenMap = tokenVars.computeIfAbsent(token, k -> new LinkedHashMap<>());
 
 		Object previousValue = tokenMap.put(key, value);
+		modCount++;
 
 		if (!Objects.isNull(varAliases)) {
 			// Handle setting varX -> update aliases
@@ -378,6 +446,17 @@ public class Variables {
 		return previousValue;
 	}
 
+	private static Map<String, String> _builtInVariables(String... names) {
+
+		Map<String, String> builtInVariables = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+		for (String name : names)
+			builtInVariables.put(name, name);
+
+		return Collections.unmodifiableMap(builtInVariables);
+
+	}
+
 	public String toString() {
 		return "globalVars=" + globalVars.toString() + ", tokenVars.size=" + tokenVars.size();
 	}
@@ -391,6 +470,7 @@ public class Variables {
 
 		if (StringUtils.isNotEmpty(skip)) {
 			tokenVars.computeIfAbsent(token, k -> new LinkedHashMap<>()).put(SKIP, skip);
+			modCount++;
 		}
 	}
 }
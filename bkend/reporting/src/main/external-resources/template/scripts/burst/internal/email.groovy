@@ -1,10 +1,4 @@
 import java.io.File
-import java.net.URI
-import java.net.http.HttpClient
-import java.net.http.HttpRequest
-import java.net.http.HttpResponse
-import java.net.URLEncoder
-import groovy.json.JsonSlurper
 
 import org.apache.commons.lang3.StringUtils
 
@@ -14,55 +8,12 @@ import org.apache.commons.mail.EmailAttachment
 import org.apache.commons.mail.resolver.DataSourceFileResolver
 import org.apache.commons.mail.resolver.DataSourceUrlResolver
 
+import com.sourcekraft.documentburster.common.oauth.OAuthFlowHelper
+
 import com.sourcekraft.documentburster.mail.SimpleJavaMailDecorator
 
 import com.sourcekraft.documentburster.utils.Utils
 
-// Resolves a fresh access token from the provider's token endpoint using the stored refresh token.
-// Called only when message.oauth2provider != "NONE".
-def mintAccessToken = { provider, tenantId, clientId, tokenUrl, scope, refreshToken ->
-	String resolvedTokenUrl
-	String resolvedScope
-	switch (provider) {
-		case "MICROSOFT":
-			String tid = StringUtils.isNotBlank(tenantId) ? tenantId : "common"
-			resolvedTokenUrl = "https://login.microsoftonline.com/${tid}/oauth2/v2.0/token"
-			resolvedScope    = "https://outlook.office.com/SMTP.Send offline_access"
-			break
-		case "GOOGLE":
-			resolvedTokenUrl = "https://oauth2.googleapis.com/token"
-			resolvedScope    = "https://mail.google.com/"
-			break
-		default: // GENERIC
-			resolvedTokenUrl = tokenUrl
-			resolvedScope    = scope
-	}
-
-	def params = [
-		"grant_type=refresh_token",
-		"client_id=${URLEncoder.encode(clientId ?: '', 'UTF-8')}",
-		"refresh_token=${URLEncoder.encode(refreshToken ?: '', 'UTF-8')}",
-		"scope=${URLEncoder.encode(resolvedScope ?: '', 'UTF-8')}"
-	].join("&")
-
-	def client   = HttpClient.newHttpClient()
-	def request  = HttpRequest.newBuilder()
-		.uri(URI.create(resolvedTokenUrl))
-		.header("Content-Type", "application/x-www-form-urlencoded")
-		.POST(HttpRequest.BodyPublishers.ofString(params))
-		.build()
-	def response = client.send(request, HttpResponse.BodyHandlers.ofString())
-
-	if (response.statusCode() != 200)
-		throw new RuntimeException("OAuth2 token refresh failed (HTTP ${response.statusCode()}): ${response.body()}")
-
-	def json = new JsonSlurper().parseText(response.body())
-	if (json.error)
-		throw new RuntimeException("OAuth2 token refresh error: ${json.error} — ${json.error_description}")
-
-	return json.access_token as String
-}
-
 if (StringUtils.isEmpty(message.htmlMessage))
 	message.isHtmlEmail = false
 else
@@ -78,9 +29,11 @@ else
 // Phase A: Resolve credentials. For OAuth2 we fetch the access token now but defer
 // the XOAUTH2 session properties until AFTER host/port/TLS/SSL are set — Commons Email's
 // getMailSession() creates the Session lazily and must see those properties at creation time.
+// The access token is minted from the stored refresh token once and then reused (process wide)
+// until shortly before it expires.
 def oauth2AccessToken = null
 if (message.oauth2provider != null && message.oauth2provider != "NONE") {
-	oauth2AccessToken = mintAccessToken(
+	oauth2AccessToken = OAuthFlowHelper.getAccessToken(
 		message.oauth2provider, message.oauth2tenantid, message.oauth2clientid,
 		message.oauth2tokenurl, message.oauth2scope, message.oauth2refreshtoken)
 	commonsEmail.setAuthentication(message.oauth2useremail, oauth2AccessToken)
@@ -157,48 +110,68 @@ for (address in message.ccs)
 for (address in message.bccs)
 	commonsEmail.addBcc(address)
 
-if ((!message.sjm) || (!message.sjm.active))
+// SMTP connection pool (simplejavamail/connectionpool/maxsize > 0) - the emails are sent
+// through Simple Java Mail, reusing the already opened (and authenticated) SMTP connections
+def isConnectionPoolEnabled = SimpleJavaMailDecorator.isConnectionPoolEnabled(message.sjm)
+
+if (((!message.sjm) || (!message.sjm.active)) && !isConnectionPoolEnabled)
 	commonsEmail.send()
-else if (message.sjm.active) {	//SimpleJavaMail starts here
+else {	//SimpleJavaMail starts here
 	
 	commonsEmail.buildMimeMessage()
 
 	def mimeMessage = commonsEmail.getMimeMessage()
 
-	def sjmMailerBuilder = SimpleJavaMailDecorator.getMailerBuilder(mimeMessage)
-
 	// start SimpleJavaMail MailerBuilder configuration
 	// see http://www.simplejavamail.org/configuration.html for more details
 
-	if (StringUtils.isNotBlank(message.sjm.customsessionproperties))
-		sjmMailerBuilder.withProperties(Utils.loadHeadersPropertiesFromText(message.sjm.customsessionproperties))
+	def configureMailer = { sjmMailerBuilder ->
+
+		if (StringUtils.isNotBlank(message.sjm.customsessionproperties))
+			sjmMailerBuilder.withProperties(Utils.loadHeadersPropertiesFromText(message.sjm.customsessionproperties))
+
+		if (oauth2AccessToken != null) {
+			def oauth2Props = new Properties()
+			oauth2Props.put("mail.smtp.auth.mechanisms", "XOAUTH2")
+			oauth2Props.put("mail.smtp.auth.login.disable", "true")
+			oauth2Props.put("mail.smtp.auth.plain.disable", "true")
+			sjmMailerBuilder.withProperties(oauth2Props)
+		}
+		
+		if (message.sjm.javaxmaildebug)
+			sjmMailerBuilder.withDebugLogging()
+		if (message.sjm.transportmodeloggingonly)
+			sjmMailerBuilder.withTransportModeLoggingOnly()
+		
+		if (message.sjm.proxy) {
+			if (StringUtils.isNotBlank(message.sjm.proxy.host))
+				sjmMailerBuilder.withProxyHost(message.sjm.proxy.host)
+			if (message.sjm.proxy.port > 0)
+				sjmMailerBuilder.withProxyPort(message.sjm.proxy.port)
+			if (StringUtils.isNotBlank(message.sjm.proxy.username))
+				sjmMailerBuilder.withProxyUsername(message.sjm.proxy.username)
+			if (StringUtils.isNotBlank(message.sjm.proxy.password))
+				sjmMailerBuilder.withProxyPassword(message.sjm.proxy.password)
+			if (message.sjm.proxy.socks5bridgeport > 0)
+				sjmMailerBuilder.withProxyBridgePort(message.sjm.proxy.socks5bridgeport)
+		}
 
-	if (oauth2AccessToken != null) {
-		def oauth2Props = new Properties()
-		oauth2Props.put("mail.smtp.auth.mechanisms", "XOAUTH2")
-		oauth2Props.put("mail.smtp.auth.login.disable", "true")
-		oauth2Props.put("mail.smtp.auth.plain.disable", "true")
-		sjmMailerBuilder.withProperties(oauth2Props)
 	}
 	
-	if (message.sjm.javaxmaildebug)
-		sjmMailerBuilder.withDebugLogging()
-	if (message.sjm.transportmodeloggingonly)
-		sjmMailerBuilder.withTransportModeLoggingOnly()
-	
-	if (StringUtils.isNotBlank(message.sjm.proxy.host))
-		sjmMailerBuilder.withProxyHost(message.sjm.proxy.host)
-	if (message.sjm.proxy.port > 0)
-		sjmMailerBuilder.withProxyPort(message.sjm.proxy.port)
-	if (StringUtils.isNotBlank(message.sjm.proxy.username))
-		sjmMailerBuilder.withProxyUsername(message.sjm.proxy.username)
-	if (StringUtils.isNotBlank(message.sjm.proxy.password))
-		sjmMailerBuilder.withProxyPassword(message.sjm.proxy.password)
-	if (message.sjm.proxy.socks5bridgeport > 0)
-		sjmMailerBuilder.withProxyBridgePort(message.sjm.proxy.socks5bridgeport)
-	
 	// end SimpleJavaMail MailerBuilder configuration
 
+	def sjmMailer
+
+	if (isConnectionPoolEnabled)
+		// the mailer (and its SMTP connections) is built once and reused for the whole job
+		sjmMailer = SimpleJavaMailDecorator.getPooledMailer(message,
+			(oauth2AccessToken != null) ? oauth2AccessToken : message.authpwd, mimeMessage, configureMailer)
+	else {
+		def sjmMailerBuilder = SimpleJavaMailDecorator.getMailerBuilder(mimeMessage)
+		configureMailer(sjmMailerBuilder)
+		sjmMailer = sjmMailerBuilder.buildMailer()
+	}
+
 	def sjmEmailBuilder = SimpleJavaMailDecorator.getEmailBuilder(mimeMessage)
 
 	// start SimpleJavaMail EmailBuilder configuration
@@ -221,7 +194,6 @@ else if (message.sjm.active) {	//SimpleJavaMail starts here
 	
 	// end SimpleJavaMail EmailBuilder configuration
 
-	def sjmMailer = sjmMailerBuilder.buildMailer()
 	def sjmEmail = sjmEmailBuilder.buildEmail()
 
 	sjmMailer.sendMail(sjmEmail)
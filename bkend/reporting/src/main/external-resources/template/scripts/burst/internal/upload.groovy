@@ -1,5 +1,15 @@
 import groovy.ant.AntBuilder
 
+import com.sourcekraft.documentburster.upload.NativeUploader
+
+/*
+ *    FTP / FTPS / SFTP commands are executed in process, reusing the same
+ *    connections for all the burst tokens (uploadsettings/nativeupload),
+ *    any other command is executed by cURL
+ */
+if (NativeUploader.upload(message))
+	return
+
 def curlOptions =  message.uploadCommand
 
 def ant = new AntBuilder()
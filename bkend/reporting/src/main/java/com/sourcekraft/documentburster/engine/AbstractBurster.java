@@ -11,9 +11,18 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.FileUtils;
@@ -37,11 +46,11 @@ import com.sourcekraft.documentburster.utils.Scripts;
 import com.sourcekraft.documentburster.utils.Utils;
 import com.sourcekraft.documentburster.variables.Variables;
 
-public abstract class AbstractBurster {
+public abstract class AbstractBurster implements Cloneable {
 
 	protected static Logger log = LoggerFactory.getLogger(AbstractBurster.class);
 
-	private static final Pattern BURSTING_PLACEHOLDER_PATTERN = Pattern.compile("\\$\\{[^}]+\\}");
+	protected static final Pattern BURSTING_PLACEHOLDER_PATTERN = Pattern.compile("\\$\\{[^}]+\\}");
 
 	private long startExecutionTime = 0;
 
@@ -54,6 +63,13 @@ public abstract class AbstractBurster {
 
 	protected boolean requestedCancelOrPauseProcessing = false;
 
+	// the tokens are burst while the data is read (see canStreamBurstTokens)
+	protected boolean streamingBursting = false;
+
+	// job level, shared by the parallel burst workers (shallow clones)
+	private DistributionRateLimiter distributionRateLimiter;
+	private DistributionQueue distributionQueue;
+
 	protected String configurationFilePath;
 
 	protected Scripting scripting;
@@ -155,6 +171,17 @@ public abstract class AbstractBurster {
 
 			initializeResources();
 
+			distributionRateLimiter = new DistributionRateLimiter(ctx.settings.getDelayEachDistributionBy());
+
+			boolean asyncDistribution = shouldSendFiles() && ctx.settings.isEnableAsyncDistribution()
+					&& !ctx.configurationFilePath.contains(Utils.SPLIT_2ND_TIME);
+
+			distributionQueue = asyncDistribution ? new DistributionQueue(ctx) : null;
+
+			// resuming a job and picking random test tokens need all the tokens upfront
+			streamingBursting = canStreamBurstTokens() && (previousJobExecutionProgressDetails == null)
+					&& (numberOfRandomTestTokens <= 0);
+
 			fetchData();
 
 			// After data is fetched but before processing
@@ -193,7 +220,12 @@ public abstract class AbstractBurster {
 				// Let it fall through to the empty token check
 			}
 
-			if (isSingleReportMode) {
+			if (streamingBursting) {
+
+				if (!this.requestedCancelOrPauseProcessing)
+					_processStreamedTokens(shouldSendFiles(), testAll, listOfTestTokens, pathToFile);
+
+			} else if (isSingleReportMode) {
 
 				log.info("Detected single report mode (Filename: '{}', reportData present). Processing once.",
 						burstFileName);
@@ -206,7 +238,7 @@ public abstract class AbstractBurster {
 					ctx.variables.setUserVariable(ctx.token, "row_number", "1");
 
 					// 2. *** Make ctx.reportData available to the template as 'reportData' ***
-					ctx.variables.set("reportData", ctx.reportData);
+					ctx.variables.set(Variables.REPORT_DATA, ctx.reportData);
 					log.debug("Made ctx.reportData available to template as 'reportData'");
 
 					// 3. Directly process the report once
@@ -226,12 +258,7 @@ public abstract class AbstractBurster {
 
 					if (_isRunningInQualityAssuranceMode(testAll, listOfTestTokens, numberOfRandomTestTokens)) {
 
-						// in QA mode make sure job will continue to run so that it can
-						// find all errors in a single execution
-						ctx.settings.setFailJobIfAnyDistributionFails(false);
-
-						ctx.testName += "quality-assurance-test-mode";
-						ctx.isQARunningMode = true;
+						_enterQualityAssuranceMode();
 
 						if (StringUtils.isNotBlank(listOfTestTokens)) {
 
@@ -259,42 +286,51 @@ public abstract class AbstractBurster {
 					String lastTokenInDocument = ctx.burstTokens.get(ctx.burstTokens.size() - 1);
 
 					this.requestedCancelOrPauseProcessing = checkIfRequestedCancelOrPauseProcessing();
-					boolean doMore = !this.requestedCancelOrPauseProcessing;
 
-					int doneCount = 0;
+					int numberOfBurstWorkers = ctx.settings.getNumberOfBurstWorkers();
 
-					for (String token : ctx.burstTokens) {
+					if ((numberOfBurstWorkers > 1) && isParallelBurstingSupported())
+						_processTokensInParallel(numberOfBurstWorkers, shouldSendFiles, testAll, listOfTestTokens,
+								numberOfRandomTestTokens);
+					else {
 
-						ctx.token = token;
+						boolean doMore = !this.requestedCancelOrPauseProcessing;
 
-						ctx.variables.set(Variables.BURST_TOKEN, ctx.token);
-						ctx.variables.set(Variables.BURST_INDEX, doneCount + 1);
+						int doneCount = 0;
 
-						if (doMore) {
+						for (String token : ctx.burstTokens) {
 
-							if (previousJobExecutionProgressDetails != null) {
+							ctx.token = token;
 
-								boolean wasAlreadyProcessed = _checkIfCurrentTokenWasAlreadyProcessedInPreviousJobExecution();
+							ctx.variables.set(Variables.BURST_TOKEN, ctx.token);
+							ctx.variables.set(Variables.BURST_INDEX, doneCount + 1);
 
-								if (!wasAlreadyProcessed)
-									_processReportForCurrentToken(shouldSendFiles, !testAll);
+							if (doMore) {
+
+								if (previousJobExecutionProgressDetails != null) {
+
+									boolean wasAlreadyProcessed = _checkIfCurrentTokenWasAlreadyProcessedInPreviousJobExecution();
+
+									if (!wasAlreadyProcessed)
+										_processReportForCurrentToken(shouldSendFiles, !testAll);
 
-							} else
-								_processReportForCurrentToken(shouldSendFiles, !testAll);
+								} else
+									_processReportForCurrentToken(shouldSendFiles, !testAll);
 
-							if (token.equals(lastTokenInDocument)) {
-								File progressFile = new File(getTempFolder() + getJobProgressFileName());
-								progressFile.delete();
-							} else
-								_updateJobProgressAndSaveToFile(testAll, listOfTestTokens, numberOfRandomTestTokens);
+								if (token.equals(lastTokenInDocument)) {
+									File progressFile = new File(getTempFolder() + getJobProgressFileName());
+									progressFile.delete();
+								} else
+									_updateJobProgressAndSaveToFile(testAll, listOfTestTokens, numberOfRandomTestTokens);
 
-							doneCount++;
+								doneCount++;
 
-							licenseLimitExceeded = (doneCount < licenseLimit) ? false : true;
-							this.requestedCancelOrPauseProcessing = checkIfRequestedCancelOrPauseProcessing();
+								licenseLimitExceeded = (doneCount < licenseLimit) ? false : true;
+								this.requestedCancelOrPauseProcessing = checkIfRequestedCancelOrPauseProcessing();
 
-							doMore = (!this.requestedCancelOrPauseProcessing) && (!licenseLimitExceeded);
+								doMore = (!this.requestedCancelOrPauseProcessing) && (!licenseLimitExceeded);
 
+							}
 						}
 					}
 
@@ -325,14 +361,29 @@ public abstract class AbstractBurster {
 
 			}
 
+			// the stats (and the endBursting script) need all the documents distributed
+			if (distributionQueue != null)
+				distributionQueue.drain();
+
 		} finally {
 
 			closeResources();
 
+			// the documents which are still being sent need the distribution sessions
+			if (distributionQueue != null)
+				distributionQueue.close();
+
+			ctx.closeDistributionSessions();
+
 			backupFile();
 
 			executeBurstingLifeCycleScript(ctx.scripts.endBursting, ctx);
 
+			if (log.isDebugEnabled())
+				for (Map.Entry<String, long[]> stats : scripting.getExecutionStats().entrySet())
+					log.debug("Script '" + stats.getKey() + "' was executed " + stats.getValue()[0] + " times in "
+							+ (stats.getValue()[1] / 1000000) + " ms");
+
 			log.info("DONE bursting document");
 
 			writeStatsFile();
@@ -341,6 +392,254 @@ public abstract class AbstractBurster {
 
 	}
 
+	/*
+	 * Fans the burst tokens out to numberOfBurstWorkers threads. Each worker is a
+	 * shallow clone of this burster holding its own per-token BurstingContext view
+	 * (see BurstingContext.copyForWorker). Everything which is job level (progress
+	 * file, pause / cancel checks, license limit, counters aggregation) stays on
+	 * the calling thread. The .progress file records the last token of the
+	 * contiguous block of finished tokens so that a resumed job does not skip
+	 * tokens which were still in flight when the job was paused.
+	 */
+	private void _processTokensInParallel(int numberOfBurstWorkers, boolean shouldSendFiles, boolean testAll,
+			String listOfTestTokens, int numberOfRandomTestTokens) throws Exception {
+
+		List<String> tokens = ctx.burstTokens;
+		int tokensCount = tokens.size();
+
+		log.info("Processing " + tokensCount + " burst tokens using " + numberOfBurstWorkers + " parallel workers");
+
+		boolean[] doneTokens = new boolean[tokensCount];
+		BurstingContext[] workerContexts = new BurstingContext[tokensCount];
+
+		int lastContiguousDoneIndex = -1;
+		int nextIndex = 0;
+		int inFlight = 0;
+		int doneCount = 0;
+
+		boolean doMore = !this.requestedCancelOrPauseProcessing;
+		Exception workerException = null;
+
+		AtomicInteger threadNumber = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfBurstWorkers,
+				runnable -> new Thread(runnable, "burst-worker-" + threadNumber.incrementAndGet()));
+		CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(executor);
+
+		try {
+
+			while (true) {
+
+				while (doMore && (workerException == null) && (inFlight < numberOfBurstWorkers)
+						&& (nextIndex < tokensCount)) {
+
+					final int index = nextIndex++;
+
+					ctx.token = tokens.get(index);
+
+					if ((previousJobExecutionProgressDetails != null)
+							&& _checkIfCurrentTokenWasAlreadyProcessedInPreviousJobExecution())
+						doneTokens[index] = true;
+					else {
+
+						final AbstractBurster worker = _newBurstWorker(ctx.token, index);
+						workerContexts[index] = worker.ctx;
+
+						completionService.submit(() -> {
+							worker._processReportForCurrentToken(shouldSendFiles, !testAll);
+							return index;
+						});
+
+						inFlight++;
+
+					}
+
+					doneCount++;
+
+					licenseLimitExceeded = (doneCount < licenseLimit) ? false : true;
+					doMore = !licenseLimitExceeded;
+
+				}
+
+				if (inFlight > 0) {
+
+					Future<Integer> finished = completionService.take();
+					inFlight--;
+
+					try {
+
+						int index = finished.get();
+
+						ctx.mergeWorkerResults(workerContexts[index]);
+						workerContexts[index] = null;
+
+						doneTokens[index] = true;
+
+					} catch (ExecutionException e) {
+
+						if (workerException == null)
+							workerException = (e.getCause() instanceof Exception) ? (Exception) e.getCause()
+									: new Exception(e.getCause());
+
+					}
+				}
+
+				int previousContiguousDoneIndex = lastContiguousDoneIndex;
+
+				while ((lastContiguousDoneIndex + 1 < tokensCount) && doneTokens[lastContiguousDoneIndex + 1])
+					lastContiguousDoneIndex++;
+
+				File progressFile = new File(getTempFolder() + getJobProgressFileName());
+
+				// once a cancel was requested the progress file is gone and should stay gone,
+				// after a pause the tokens which were still in flight are recorded as well
+				boolean keepTrackOfProgress = !this.requestedCancelOrPauseProcessing || progressFile.exists();
+
+				if ((lastContiguousDoneIndex > previousContiguousDoneIndex) && keepTrackOfProgress) {
+
+					ctx.token = tokens.get(lastContiguousDoneIndex);
+
+					if (lastContiguousDoneIndex == tokensCount - 1)
+						progressFile.delete();
+					else
+						_updateJobProgressAndSaveToFile(testAll, listOfTestTokens, numberOfRandomTestTokens);
+
+				}
+
+				this.requestedCancelOrPauseProcessing = checkIfRequestedCancelOrPauseProcessing();
+				doMore = doMore && !this.requestedCancelOrPauseProcessing;
+
+				boolean moreToSubmit = doMore && (workerException == null) && (nextIndex < tokensCount);
+
+				if ((inFlight == 0) && !moreToSubmit)
+					break;
+
+			}
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+		if (workerException != null)
+			throw workerException;
+
+	}
+
+	private AbstractBurster _newBurstWorker(String token, int index) throws CloneNotSupportedException {
+
+		AbstractBurster worker = (AbstractBurster) clone();
+
+		worker.ctx = ctx.copyForWorker();
+		worker.ctx.token = token;
+
+		worker.ctx.variables.set(Variables.BURST_TOKEN, token);
+		worker.ctx.variables.set(Variables.BURST_INDEX, index + 1);
+
+		return worker;
+
+	}
+
+	/*
+	 * Bursts the tokens one by one, while the reporter reads them (see
+	 * streamBurstTokens). Neither ctx.reportData nor ctx.burstTokens are
+	 * populated and the variables of each token are dropped once the token is
+	 * processed so that the memory used does not grow with the number of rows.
+	 * The tokens are not known upfront so no .progress file is written (a
+	 * paused job cannot be resumed) and the tokens are processed sequentially.
+	 */
+	private void _processStreamedTokens(boolean shouldSendFiles, boolean testAll, String listOfTestTokens,
+			String pathToFile) throws Exception {
+
+		Set<String> testTokens = null;
+
+		if (testAll || StringUtils.isNotBlank(listOfTestTokens)) {
+
+			_enterQualityAssuranceMode();
+
+			if (StringUtils.isNotBlank(listOfTestTokens))
+				testTokens = new HashSet<>(Arrays.asList(listOfTestTokens.split(",")));
+
+		}
+
+		Set<String> tokensToProcess = testTokens;
+		Set<String> testTokensNotFound = (testTokens != null) ? new HashSet<>(testTokens) : null;
+
+		AtomicInteger doneCount = new AtomicInteger();
+
+		log.info("Streaming the burst tokens, the data is read while bursting.");
+
+		streamBurstTokens(token -> {
+
+			ctx.numberOfStreamedTokens++;
+
+			if (tokensToProcess != null) {
+				if (!tokensToProcess.contains(token))
+					return true;
+				testTokensNotFound.remove(token);
+			}
+
+			ctx.token = token;
+
+			ctx.variables.set(Variables.BURST_TOKEN, ctx.token);
+			ctx.variables.set(Variables.BURST_INDEX, doneCount.get() + 1);
+
+			_processReportForCurrentToken(shouldSendFiles, !testAll);
+
+			licenseLimitExceeded = (doneCount.incrementAndGet() < licenseLimit) ? false : true;
+			this.requestedCancelOrPauseProcessing = checkIfRequestedCancelOrPauseProcessing();
+
+			return (!this.requestedCancelOrPauseProcessing) && (!licenseLimitExceeded);
+
+		});
+
+		if ((ctx.numberOfStreamedTokens == 0) && !this.requestedCancelOrPauseProcessing)
+			throw new Exception("No burst tokens were provided or fetched for the document : " + pathToFile);
+
+		if ((testTokensNotFound != null) && !testTokensNotFound.isEmpty() && !this.requestedCancelOrPauseProcessing
+				&& !licenseLimitExceeded)
+			throw new IllegalArgumentException("You provided the list: " + listOfTestTokens
+					+ ", which is not correct. Please provide a comma separated list of burst tokens which should be tested. Each of the elements from this"
+					+ " list should be a valid burst token from '" + pathToFile + "'!");
+
+		ctx.token = StringUtils.EMPTY;
+		ctx.extractedFilePath = StringUtils.EMPTY;
+
+		if (licenseLimitExceeded)
+			log.warn("DEMO version limit - " + "DocumentBurster DEMO version can burst and distribute up to "
+					+ licenseLimit + " reports. If you need more please "
+					+ "license DocumentBurster from https://www.pdfburst.com/store/ ");
+
+	}
+
+	/**
+	 * Reporters which can read their data row by row return true (for the current
+	 * configuration) and implement streamBurstTokens.
+	 */
+	protected boolean canStreamBurstTokens() {
+		return false;
+	}
+
+	/**
+	 * Reads the data and passes each burst token to the handler as soon as its
+	 * variables are available. Stops reading when the handler returns false.
+	 */
+	protected void streamBurstTokens(BurstTokenHandler handler) throws Exception {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " does not stream burst tokens");
+	}
+
+	@FunctionalInterface
+	protected interface BurstTokenHandler {
+		boolean process(String token) throws Exception;
+	}
+
+	/**
+	 * Burst tokens can be processed in parallel only when generating one output
+	 * document does not touch any state shared with the other tokens (i.e. the
+	 * input PDF / Excel document which is kept open while bursting).
+	 */
+	protected boolean isParallelBurstingSupported() {
+		return false;
+	}
+
 	private void validateConfigurationValues() throws Exception {
 
 		if (StringUtils.isBlank(ctx.settings.getBurstFileName()))
@@ -492,6 +791,7 @@ public abstract class AbstractBurster {
 		scripting = new Scripting();
 
 		this.requestedCancelOrPauseProcessing = false;
+		this.streamingBursting = false;
 
 	}
 
@@ -529,7 +829,9 @@ public abstract class AbstractBurster {
 		// stats variables
 		ctx.variables.set(Variables.NUM_PAGES, ctx.numberOfPages);
 
-		if (ctx.burstTokens != null)
+		if (ctx.numberOfStreamedTokens > 0)
+			ctx.variables.set(Variables.NUM_TOKENS, ctx.numberOfStreamedTokens);
+		else if (ctx.burstTokens != null)
 			ctx.variables.set(Variables.NUM_TOKENS, ctx.burstTokens.size());
 		else
 			ctx.variables.set(Variables.NUM_TOKENS, 0);
@@ -622,6 +924,17 @@ public abstract class AbstractBurster {
 
 	}
 
+	private void _enterQualityAssuranceMode() {
+
+		// in QA mode make sure job will continue to run so that it can
+		// find all errors in a single execution
+		ctx.settings.setFailJobIfAnyDistributionFails(false);
+
+		ctx.testName += "quality-assurance-test-mode";
+		ctx.isQARunningMode = true;
+
+	}
+
 	private void _processReportForCurrentToken(boolean isSendFiles, boolean executeDistribution) throws Exception {
 
 		if (this.requestedCancelOrPauseProcessing)
@@ -640,11 +953,12 @@ public abstract class AbstractBurster {
 
 			if (isSendFiles && !ctx.skipCurrentFileDistribution) {
 
-				double delay = ctx.settings.getDelayEachDistributionBy();
-				if (delay > 0)
-					Thread.sleep((long) (delay * 1000));
-
-				_distributeReport(executeDistribution);
+				if (distributionQueue != null)
+					_queueReportForDistribution(executeDistribution);
+				else {
+					distributionRateLimiter.acquire();
+					_distributeReport(executeDistribution);
+				}
 
 			} else {
 
@@ -694,7 +1008,11 @@ public abstract class AbstractBurster {
 		ctx.attachments.clear();
 		ctx.archiveFilePath = StringUtils.EMPTY;
 
-		List<Attachment> attachments = ctx.settings.getAttachments();
+		// snapshot, the list is shared between the parallel burst workers
+		List<Attachment> attachments;
+		synchronized (ctx.settings) {
+			attachments = new ArrayList<Attachment>(ctx.settings.getAttachments());
+		}
 
 		// if there are any attachments
 		if (attachments.size() > 0) {
@@ -768,6 +1086,25 @@ public abstract class AbstractBurster {
 
 	}
 
+	/*
+	 * Hands the extracted document over to the distribution queue and returns,
+	 * the document is distributed by a clone of this burster holding a snapshot
+	 * of the current token (see BurstingContext.copyForDistribution).
+	 */
+	private void _queueReportForDistribution(boolean executeDistribution) throws Exception {
+
+		AbstractBurster distributor = (AbstractBurster) clone();
+		distributor.ctx = ctx.copyForDistribution();
+
+		distributionQueue.submit(distributor.ctx, () -> {
+
+			distributionRateLimiter.acquire();
+			distributor._distributeReport(executeDistribution);
+
+		});
+
+	}
+
 	private void _distributeReport(boolean execute) throws Exception {
 
 		List<AbstractSender> senders = new ArrayList<AbstractSender>();
@@ -781,7 +1118,11 @@ public abstract class AbstractBurster {
 				for (AbstractSender sender : senders) {
 
 					sender.setScripting(scripting);
-					sender.send();
+
+					if (distributionQueue != null)
+						distributionQueue.send(sender);
+					else
+						sender.send();
 
 				}
 			}
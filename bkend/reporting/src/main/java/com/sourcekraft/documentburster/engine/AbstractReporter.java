@@ -7,16 +7,20 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.StringWriter;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
@@ -46,6 +50,9 @@ import org.slf4j.LoggerFactory;
 //import com.haulmont.yarg.structure.impl.ReportTemplateImpl;
 import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
 import com.sourcekraft.documentburster.common.db.DatabaseConnectionManager;
+import com.sourcekraft.documentburster.common.db.QueryCancellation;
+import com.sourcekraft.documentburster.common.db.ReportDataPageRequest;
+import com.sourcekraft.documentburster.common.db.ReportDataRowHandler;
 import com.sourcekraft.documentburster.common.db.SqlExecutor;
 import com.sourcekraft.documentburster.common.security.SecretsCipher;
 import com.sourcekraft.documentburster.common.settings.Settings;
@@ -57,6 +64,7 @@ import com.sourcekraft.documentburster.utils.CsvUtils;
 import com.sourcekraft.documentburster.utils.DocumentBursterFreemarkerInitializer;
 import com.sourcekraft.documentburster.utils.Utils;
 import com.sourcekraft.documentburster.utils.Scripts;
+import com.sourcekraft.documentburster.utils.TemplateCache;
 import com.sourcekraft.documentburster.variables.Variables; // Assuming Variables class exists
 
 import fr.opensagres.poi.xwpf.converter.pdf.PdfConverter;
@@ -65,7 +73,6 @@ import fr.opensagres.xdocreport.document.IXDocReport;
 import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
 import fr.opensagres.xdocreport.template.IContext;
 import fr.opensagres.xdocreport.template.TemplateEngineKind;
-import freemarker.template.Template;
 import uk.co.certait.htmlexporter.writer.excel.ExcelExporter;
 
 public abstract class AbstractReporter extends AbstractBurster {
@@ -76,6 +83,12 @@ public abstract class AbstractReporter extends AbstractBurster {
 	private boolean isPreviewMode = false;
 	protected boolean testMode = false;
 
+	private ReportDataPageRequest pageRequest;
+	private boolean pageRequestApplied = false;
+	private int pageRequestTotalRows = 0;
+
+	private QueryCancellation queryCancellation;
+
 	public AbstractReporter(String configFilePath) {
 		super(configFilePath);
 	}
@@ -104,6 +117,55 @@ public abstract class AbstractReporter extends AbstractBurster {
 		}
 	}
 
+	/**
+	 * Same as fetchDataOnly but the rows are passed to the handler one by one.
+	 * Reporters which can read their data row by row (see canStreamData) do not
+	 * keep the rows in memory, the other ones (and the reports having a
+	 * transformFetchedData script) fetch all the data first.
+	 */
+	public void streamDataOnly(String pathToFile, ReportDataRowHandler rowHandler) throws Exception {
+		filePath = pathToFile;
+		fileName = FilenameUtils.getName(pathToFile);
+
+		_initializeBursting();
+		ctx.inputDocumentFilePath = pathToFile;
+
+		try {
+			setUpScriptingRoots();
+			executeController();
+			initializeResources();
+
+			if (canStreamData() && !scripting.scriptHasContent(ctx.scripts.transformFetchedData)) {
+				// fetchData only prepares the reading, the rows are read in streamData
+				streamingBursting = true;
+				fetchData();
+
+				AtomicBoolean columnsSent = new AtomicBoolean();
+
+				streamData(row -> {
+					if (columnsSent.compareAndSet(false, true))
+						rowHandler.columns(new ArrayList<>(row.keySet()));
+					rowHandler.row(row);
+					return true;
+				});
+
+				if (!columnsSent.get())
+					rowHandler.columns(ctx.reportColumnNames != null ? ctx.reportColumnNames : new ArrayList<>());
+			} else {
+				fetchData();
+				executeBurstingLifeCycleScript(ctx.scripts.transformFetchedData, ctx);
+
+				rowHandler.columns(ctx.reportColumnNames != null ? ctx.reportColumnNames : new ArrayList<>());
+				if (ctx.reportData != null) {
+					for (LinkedHashMap<String, Object> row : ctx.reportData)
+						rowHandler.row(row);
+				}
+			}
+		} finally {
+			closeResources();
+		}
+	}
+
 	public void setReportParameters(Map<String, String> reportParameters) {
 
 		// // System.out.println("[DEBUG] AbstractReporter.setReportParameters called with:
@@ -112,6 +174,61 @@ public abstract class AbstractReporter extends AbstractBurster {
 		this.reportParameters = reportParameters;
 	}
 
+	/**
+	 * The paging / sorting / filtering requested by "View Data" (fetchDataOnly),
+	 * reporters which can do it in the data source fetch only the requested page
+	 * and call setPageRequestApplied.
+	 */
+	public void setPageRequest(ReportDataPageRequest pageRequest) {
+		this.pageRequest = pageRequest;
+	}
+
+	public boolean isPageRequestApplied() {
+		return pageRequestApplied;
+	}
+
+	/** The number of rows which passed the filters (of all the pages) */
+	public int getPageRequestTotalRows() {
+		return pageRequestTotalRows;
+	}
+
+	/**
+	 * The page request to be applied by the data source, null when there is none
+	 * or when the transformFetchedData script needs all the fetched data.
+	 */
+	protected ReportDataPageRequest getPageRequestToApply() {
+
+		if (pageRequest == null)
+			return null;
+
+		if (scripting.scriptHasContent(ctx.scripts.transformFetchedData)) {
+			log.info("The page request is applied in memory, the '{}' script needs all the fetched data.",
+					ctx.scripts.transformFetchedData);
+			return null;
+		}
+
+		return pageRequest;
+
+	}
+
+	protected void setPageRequestApplied(int totalRows) {
+		this.pageRequestApplied = true;
+		this.pageRequestTotalRows = totalRows;
+	}
+
+	/**
+	 * Cancels the queries of "View Data" when the request is no longer needed
+	 * (client gone, timeout), reporters which run JDBC queries add it to their
+	 * statements.
+	 */
+	public void setQueryCancellation(QueryCancellation queryCancellation) {
+		this.queryCancellation = queryCancellation;
+	}
+
+	protected QueryCancellation getQueryCancellation() {
+		return queryCancellation;
+	}
+
 	@Override
 	protected void processAttachments() throws Exception {
 		// Assuming Variables.EXTRACTED_FILE_PATH exists as a constant string
@@ -129,7 +246,10 @@ public abstract class AbstractReporter extends AbstractBurster {
 
 		if (ctx.settings.getReportTemplate().outputtype.equals(CsvUtils.OUTPUT_TYPE_NONE)
 				|| ctx.settings.getReportTemplate().outputtype.equals(CsvUtils.OUTPUT_TYPE_DASHBOARD))
-			ctx.settings.getAttachments().removeIf(attachment -> attachment.path.contains(finalExtractedFilePathVar));
+			synchronized (ctx.settings) {
+				ctx.settings.getAttachments()
+						.removeIf(attachment -> attachment.path.contains(finalExtractedFilePathVar));
+			}
 
 		super.processAttachments();
 	}
@@ -208,6 +328,257 @@ public abstract class AbstractReporter extends AbstractBurster {
 			return;
 		}
 
+		String idColumnSetting = _getResolvedIdColumnSetting();
+
+		ctx.burstTokens = new ArrayList<>();
+
+		if (_isGroupByIdColumn()) {
+			_parseGroupedBurstingMetaData(idColumnSetting);
+			return;
+		}
+
+		int index = 0;
+
+		for (Map<String, Object> row : ctx.reportData) {
+			String token = _getBurstToken(row, index, idColumnSetting);
+
+			_parseTokenVariables(token, row, index);
+
+			ctx.burstTokens.add(token);
+			index++;
+		}
+		log.debug("Generated {} burst tokens.", ctx.burstTokens.size());
+	}
+
+	/*
+	 * One token for all the rows having the same idcolumn value (master-detail),
+	 * the tokens keep the order in which they are first found.
+	 */
+	private void _parseGroupedBurstingMetaData(String idColumnSetting) {
+
+		Map<String, List<Map<String, Object>>> groups = new LinkedHashMap<>();
+
+		int index = 0;
+
+		for (Map<String, Object> row : ctx.reportData) {
+			String token = _getBurstToken(row, index, idColumnSetting);
+			groups.computeIfAbsent(token, k -> new ArrayList<>()).add(row);
+			index++;
+		}
+
+		int groupIndex = 0;
+
+		for (Map.Entry<String, List<Map<String, Object>>> group : groups.entrySet()) {
+			_parseGroupVariables(group.getKey(), group.getValue(), groupIndex);
+			ctx.burstTokens.add(group.getKey());
+			groupIndex++;
+		}
+
+		log.debug("Grouped {} rows into {} burst tokens.", index, ctx.burstTokens.size());
+
+	}
+
+	/**
+	 * Streaming is used when the reporter can read its rows one by one (see
+	 * isStreamingConfigured / streamData), the burst file name is built from the
+	 * per row variables (a single report needs the full reportData) and there is
+	 * no transformFetchedData script (it works on the full reportData).
+	 */
+	@Override
+	protected boolean canStreamBurstTokens() {
+
+		if (!isStreamingConfigured())
+			return false;
+
+		String burstFileName = ctx.settings.getBurstFileName();
+
+		if (StringUtils.isBlank(burstFileName) || !BURSTING_PLACEHOLDER_PATTERN.matcher(burstFileName).find()) {
+			log.info("Streaming is not used, the burst file name '{}' generates a single report.", burstFileName);
+			return false;
+		}
+
+		if (scripting.scriptHasContent(ctx.scripts.transformFetchedData)) {
+			log.info("Streaming is not used, the '{}' script needs all the fetched data.",
+					ctx.scripts.transformFetchedData);
+			return false;
+		}
+
+		return true;
+
+	}
+
+	/**
+	 * Reporters which can read their data row by row (see streamData) return
+	 * true when streaming is enabled in their data source options.
+	 */
+	protected boolean isStreamingConfigured() {
+		return false;
+	}
+
+	/**
+	 * Reporters which can read their data row by row for streamDataOnly, also
+	 * when streaming is not enabled in their data source options.
+	 */
+	protected boolean canStreamData() {
+		return isStreamingConfigured();
+	}
+
+	/**
+	 * Reads the data row by row, passing each row to the handler. Stops reading
+	 * when the handler returns false.
+	 */
+	protected void streamData(RowHandler rowHandler) throws Exception {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " does not stream its data");
+	}
+
+	@FunctionalInterface
+	protected interface RowHandler {
+		boolean process(LinkedHashMap<String, Object> row) throws Exception;
+	}
+
+	@Override
+	protected void streamBurstTokens(BurstTokenHandler handler) throws Exception {
+
+		String idColumnSetting = _getResolvedIdColumnSetting();
+
+		if (_isGroupByIdColumn()) {
+			GroupingRowHandler groupingRowHandler = new GroupingRowHandler(idColumnSetting, handler);
+			streamData(groupingRowHandler);
+			groupingRowHandler.finish();
+			return;
+		}
+
+		AtomicInteger index = new AtomicInteger();
+
+		streamData(row -> {
+
+			int rowIndex = index.getAndIncrement();
+
+			String token = _getBurstToken(row, rowIndex, idColumnSetting);
+
+			_parseTokenVariables(token, row, rowIndex);
+
+			try {
+				return handler.process(token);
+			} finally {
+				// the variables of the processed tokens are not kept around
+				ctx.variables.clearUserVariables(token);
+			}
+
+		});
+
+	}
+
+	/*
+	 * Gathers the consecutive rows having the same token (the data should be
+	 * sorted by idcolumn), each group is burst as soon as the first row of the
+	 * next group (or the end of the data) is read so only one group is kept in
+	 * memory. The tokens already burst are remembered, a token showing up again
+	 * means the data is not sorted and fails the job (otherwise its second group
+	 * would overwrite the document of the first one).
+	 */
+	private class GroupingRowHandler implements RowHandler {
+
+		private final String idColumnSetting;
+		private final BurstTokenHandler handler;
+
+		private String groupToken;
+		private List<Map<String, Object>> groupRows = new ArrayList<>();
+
+		private final Set<String> processedTokens = new HashSet<>();
+
+		private int rowIndex = 0;
+		private int groupIndex = 0;
+
+		private boolean doMore = true;
+
+		private GroupingRowHandler(String idColumnSetting, BurstTokenHandler handler) {
+			this.idColumnSetting = idColumnSetting;
+			this.handler = handler;
+		}
+
+		@Override
+		public boolean process(LinkedHashMap<String, Object> row) throws Exception {
+
+			String token = _getBurstToken(row, rowIndex, idColumnSetting);
+			rowIndex++;
+
+			if ((groupToken != null) && !token.equals(groupToken)) {
+				doMore = _processGroup();
+				if (!doMore)
+					return false;
+			}
+
+			if (!token.equals(groupToken) && processedTokens.contains(token))
+				throw new IllegalStateException("The rows of the burst token '" + token
+						+ "' are not consecutive, the query must be ORDER BY " + idColumnSetting
+						+ " when streaming (the data must be sorted by " + idColumnSetting + ").");
+
+			groupToken = token;
+			groupRows.add(row);
+
+			return true;
+
+		}
+
+		private void finish() throws Exception {
+
+			if (doMore && (groupToken != null))
+				doMore = _processGroup();
+
+		}
+
+		private boolean _processGroup() throws Exception {
+
+			String token = groupToken;
+			List<Map<String, Object>> rows = groupRows;
+
+			groupToken = null;
+			groupRows = new ArrayList<>();
+
+			processedTokens.add(token);
+
+			_parseGroupVariables(token, rows, groupIndex);
+			groupIndex++;
+
+			try {
+				return handler.process(token);
+			} finally {
+				ctx.variables.clearUserVariables(token);
+			}
+
+		}
+
+	}
+
+	/*
+	 * The variables of the first row of the group plus the rows of the group as
+	 * reportData (row_index / row_number are the index of the group).
+	 */
+	private void _parseGroupVariables(String token, List<Map<String, Object>> rows, int groupIndex) {
+
+		_parseTokenVariables(token, rows.get(0), groupIndex);
+		ctx.variables.setUserVariable(token, Variables.REPORT_DATA, rows);
+
+	}
+
+	private boolean _isGroupByIdColumn() {
+
+		String typeString = ctx.settings.reportingSettings.report.datasource.type;
+
+		ReportSettings.DataSource dataSource = ctx.settings.getReportDataSource();
+
+		if (typeString.equalsIgnoreCase("ds.sqlquery"))
+			return (dataSource.sqloptions != null) && dataSource.sqloptions.groupbyidcolumn;
+		else if (typeString.equalsIgnoreCase("ds.csvfile") || typeString.equalsIgnoreCase("ds.tsvfile"))
+			return (dataSource.csvoptions != null) && dataSource.csvoptions.groupbyidcolumn;
+
+		return false;
+
+	}
+
+	private String _getResolvedIdColumnSetting() {
+
 		// Resolve idColumn from whichever dataSource options present
 		String idColumnSetting = getIdColumnSetting(); // Use helper method
 		if (StringUtils.isEmpty(idColumnSetting)) {
@@ -215,117 +586,122 @@ public abstract class AbstractReporter extends AbstractBurster {
 		}
 		log.debug("Resolved idColumn setting: {}", idColumnSetting);
 
-		ctx.burstTokens = new ArrayList<>();
-		int index = 0;
-		String lowerIdColumnSetting = idColumnSetting.toLowerCase(); // Lowercase once for comparisons
+		return idColumnSetting;
 
-		for (Map<String, Object> row : ctx.reportData) {
-			String token = null; // Initialize token for this row
-
-			switch (lowerIdColumnSetting) {
-			case CsvUtils.NOT_USED:
-				// token = String.valueOf(index + 1);
-				token = String.valueOf(index);
-				log.trace("Using index as token (idcolumn=notused): {}", token);
-				break;
-			case CsvUtils.COLUMN_FIRST:
-				if (!row.isEmpty()) {
-					// Fallback to index if value is null
-					token = Objects.toString(row.values().iterator().next(), String.valueOf(index + 1));
-				} else {
-					token = String.valueOf(index + 1); // Fallback if row is empty
-				}
-				log.trace("Using first column value as token: {}", token);
-				break;
-			case CsvUtils.COLUMN_LAST:
-				Object lastValue = null;
-				if (!row.isEmpty()) {
-					for (Object v : row.values()) {
-						lastValue = v;
-					}
-					// Fallback to index if value is null
-					token = Objects.toString(lastValue, String.valueOf(index + 1));
-				} else {
-					token = String.valueOf(index + 1); // Fallback if row is empty
+	}
+
+	private String _getBurstToken(Map<String, Object> row, int index, String idColumnSetting) {
+
+		String lowerIdColumnSetting = idColumnSetting.toLowerCase();
+
+		String token = null; // Initialize token for this row
+
+		switch (lowerIdColumnSetting) {
+		case CsvUtils.NOT_USED:
+			// token = String.valueOf(index + 1);
+			token = String.valueOf(index);
+			log.trace("Using index as token (idcolumn=notused): {}", token);
+			break;
+		case CsvUtils.COLUMN_FIRST:
+			if (!row.isEmpty()) {
+				// Fallback to index if value is null
+				token = Objects.toString(row.values().iterator().next(), String.valueOf(index + 1));
+			} else {
+				token = String.valueOf(index + 1); // Fallback if row is empty
+			}
+			log.trace("Using first column value as token: {}", token);
+			break;
+		case CsvUtils.COLUMN_LAST:
+			Object lastValue = null;
+			if (!row.isEmpty()) {
+				for (Object v : row.values()) {
+					lastValue = v;
 				}
-				log.trace("Using last column value as token: {}", token);
-				break;
-			default:
-				// Handle numeric index case
-				if (StringUtils.isNumeric(idColumnSetting)) {
-					try {
-						List<String> keys = new ArrayList<>(row.keySet());
-						int pos = Integer.parseInt(idColumnSetting);
-						if (pos >= 0 && pos < keys.size()) {
-							String key = keys.get(pos);
-							token = Objects.toString(row.get(key), String.valueOf(index + 1)); // Fallback to index
-							log.trace("Using numeric index {} (key='{}') as token: {}", pos, key, token);
-						} else {
-							log.warn(
-									"Numeric idcolumn index {} out of bounds for row with {} columns. Falling back to index.",
-									pos, keys.size());
-							token = String.valueOf(index + 1);
-						}
-					} catch (NumberFormatException e) {
-						log.error("Error parsing numeric idcolumn '{}'. Falling back to index.", idColumnSetting, e);
+				// Fallback to index if value is null
+				token = Objects.toString(lastValue, String.valueOf(index + 1));
+			} else {
+				token = String.valueOf(index + 1); // Fallback if row is empty
+			}
+			log.trace("Using last column value as token: {}", token);
+			break;
+		default:
+			// Handle numeric index case
+			if (StringUtils.isNumeric(idColumnSetting)) {
+				try {
+					List<String> keys = new ArrayList<>(row.keySet());
+					int pos = Integer.parseInt(idColumnSetting);
+					if (pos >= 0 && pos < keys.size()) {
+						String key = keys.get(pos);
+						token = Objects.toString(row.get(key), String.valueOf(index + 1)); // Fallback to index
+						log.trace("Using numeric index {} (key='{}') as token: {}", pos, key, token);
+					} else {
+						log.warn(
+								"Numeric idcolumn index {} out of bounds for row with {} columns. Falling back to index.",
+								pos, keys.size());
 						token = String.valueOf(index + 1);
 					}
+				} catch (NumberFormatException e) {
+					log.error("Error parsing numeric idcolumn '{}'. Falling back to index.", idColumnSetting, e);
+					token = String.valueOf(index + 1);
 				}
-				// Handle named column case (case-insensitive)
-				else {
-					boolean found = false;
-					for (Map.Entry<String, Object> entry : row.entrySet()) {
-						String currentKey = entry.getKey();
-						if (currentKey != null && currentKey.toLowerCase().equals(lowerIdColumnSetting)) {
-							token = Objects.toString(entry.getValue(), String.valueOf(index + 1)); // Fallback to
-																									// index
-							log.trace("Found token using case-insensitive idcolumn '{}' (original key '{}'): {}",
-									idColumnSetting, currentKey, token);
-							found = true;
-							break; // Found the key, stop searching this row
-						}
-					}
-					// Fallback if named column not found
-					if (!found) {
-						log.warn("idcolumn '{}' not found (case-insensitive) in row keys {}. Falling back to index.",
-								idColumnSetting, row.keySet());
-						token = String.valueOf(index + 1);
+			}
+			// Handle named column case (case-insensitive)
+			else {
+				boolean found = false;
+				for (Map.Entry<String, Object> entry : row.entrySet()) {
+					String currentKey = entry.getKey();
+					if (currentKey != null && currentKey.toLowerCase().equals(lowerIdColumnSetting)) {
+						token = Objects.toString(entry.getValue(), String.valueOf(index + 1)); // Fallback to
+																								// index
+						log.trace("Found token using case-insensitive idcolumn '{}' (original key '{}'): {}",
+								idColumnSetting, currentKey, token);
+						found = true;
+						break; // Found the key, stop searching this row
 					}
 				}
-				break; // End of default case
-			} // End of switch
-
-			// Ensure token is never null (should be handled by fallbacks, but as a
-			// safeguard)
-			if (token == null) {
-				log.error("Token became null unexpectedly for row index {}. Using index as fallback.", index);
-				token = String.valueOf(index + 1);
+				// Fallback if named column not found
+				if (!found) {
+					log.warn("idcolumn '{}' not found (case-insensitive) in row keys {}. Falling back to index.",
+							idColumnSetting, row.keySet());
+					token = String.valueOf(index + 1);
+				}
 			}
+			break; // End of default case
+		} // End of switch
+
+		// Ensure token is never null (should be handled by fallbacks, but as a
+		// safeguard)
+		if (token == null) {
+			log.error("Token became null unexpectedly for row index {}. Using index as fallback.", index);
+			token = String.valueOf(index + 1);
+		}
 
-			// *** Revert to original variable parsing method ***
-			// This assumes parseUserVariablesFromMap handles setting all necessary
-			// variables
-			// including burst_token, row_index, row_number, varX, colX, and named ones.
-			// You might need to adjust this call or the implementation of
-			// parseUserVariablesFromMap if it doesn't cover all requirements.
-			try {
-				ctx.variables.parseUserVariablesFromMap(token, row);
-				// Optionally, explicitly set standard variables if parseUserVariablesFromMap
-				// doesn't
-				ctx.variables.setUserVariable(token, "burst_token", token); // Assuming setUserVariable exists
-				ctx.variables.setUserVariable(token, "row_index", String.valueOf(index));
-				ctx.variables.setUserVariable(token, "row_number", String.valueOf(index + 1));
-				log.trace("Populated variables for token '{}' using parseUserVariablesFromMap.", token);
-			} catch (Exception e) {
-				log.error("Error calling parseUserVariablesFromMap for token '{}'. Variables might be incomplete.",
-						token, e);
-				// Fallback or rethrow depending on desired behavior
-			}
+		return token;
 
-			ctx.burstTokens.add(token);
-			index++;
+	}
+
+	private void _parseTokenVariables(String token, Map<String, Object> row, int index) {
+
+		// *** Revert to original variable parsing method ***
+		// This assumes parseUserVariablesFromMap handles setting all necessary
+		// variables
+		// including burst_token, row_index, row_number, varX, colX, and named ones.
+		// You might need to adjust this call or the implementation of
+		// parseUserVariablesFromMap if it doesn't cover all requirements.
+		try {
+			ctx.variables.parseUserVariablesFromMap(token, row);
+			// Optionally, explicitly set standard variables if parseUserVariablesFromMap
+			// doesn't
+			ctx.variables.setUserVariable(token, "burst_token", token); // Assuming setUserVariable exists
+			ctx.variables.setUserVariable(token, "row_index", String.valueOf(index));
+			ctx.variables.setUserVariable(token, "row_number", String.valueOf(index + 1));
+			log.trace("Populated variables for token '{}' using parseUserVariablesFromMap.", token);
+		} catch (Exception e) {
+			log.error("Error calling parseUserVariablesFromMap for token '{}'. Variables might be incomplete.",
+					token, e);
+			// Fallback or rethrow depending on desired behavior
 		}
-		log.debug("Generated {} burst tokens.", ctx.burstTokens.size());
+
 	}
 
 	private String getIdColumnSetting() {
@@ -504,6 +880,12 @@ public abstract class AbstractReporter extends AbstractBurster {
 		}
 	}
 
+	@Override
+	protected boolean isParallelBurstingSupported() {
+		// each token is rendered from its own variables into its own output file
+		return true;
+	}
+
 	protected Object toObject(String value) {
 		if (value == null || value.trim().isEmpty()) {
 			return value;
@@ -544,13 +926,9 @@ public abstract class AbstractReporter extends AbstractBurster {
 
 	private void generateFileFromFreemarkerTemplate(String extractedFilePath, String templatePath,
 			Map<String, Object> userVariables, String bType) throws Exception {
-		String template = FileUtils.readFileToString(new File(templatePath), "UTF-8");
-		Template engine = new Template("template", template, DocumentBursterFreemarkerInitializer.FREE_MARKER_CFG);
-		StringWriter stringWriter = new StringWriter();
-		engine.process(userVariables, stringWriter);
-		stringWriter.flush();
-
-		String htmlContent = stringWriter.toString();
+		// the template is parsed once and re-used for all the tokens (and jobs)
+		// until the template file changes
+		String htmlContent = TemplateCache.processFreemarkerTemplate(templatePath, userVariables);
 
 		if (!bType.equals("none")) {
 			// Assuming com.sourcekraft.documentburster.common.utils.Utils.ibContent exists
@@ -566,13 +944,7 @@ public abstract class AbstractReporter extends AbstractBurster {
 
 	private String generateFileContentFromFreemarkerTemplate(String templatePath, Map<String, Object> userVariables)
 			throws Exception {
-		String template = FileUtils.readFileToString(new File(templatePath), "UTF-8");
-		Template engine = new Template("template", template, DocumentBursterFreemarkerInitializer.FREE_MARKER_CFG);
-		StringWriter stringWriter = new StringWriter();
-		engine.process(userVariables, stringWriter);
-		stringWriter.flush();
-
-		return stringWriter.toString();
+		return TemplateCache.processFreemarkerTemplate(templatePath, userVariables);
 
 	}
 
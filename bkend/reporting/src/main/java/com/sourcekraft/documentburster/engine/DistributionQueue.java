@@ -0,0 +1,208 @@
+package com.sourcekraft.documentburster.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sourcekraft.documentburster.common.settings.model.AsyncDistribution;
+import com.sourcekraft.documentburster.context.BurstingContext;
+import com.sourcekraft.documentburster.sender.AbstractSender;
+import com.sourcekraft.documentburster.sender.EmailSender;
+import com.sourcekraft.documentburster.sender.SmsSender;
+import com.sourcekraft.documentburster.sender.UploadSender;
+import com.sourcekraft.documentburster.sender.WebUploadSender;
+
+/**
+ * Distributes the generated documents on separate threads while the burst
+ * thread(s) move on to generate the next documents ({enableasyncdistribution}).
+ *
+ * At most {capacity} documents wait to be distributed, submit blocks once the
+ * limit is reached so that generation cannot run too far ahead of the
+ * distribution. The number of documents sent at the same time is limited per
+ * channel (email, upload, web, sms). The first error thrown while distributing
+ * stops the distribution of the documents still waiting and it is thrown
+ * again to the burst thread by the next submit or by drain.
+ */
+class DistributionQueue {
+
+	private static Logger log = LoggerFactory.getLogger(DistributionQueue.class);
+
+	@FunctionalInterface
+	interface DistributionTask {
+		void distribute() throws Exception;
+	}
+
+	private final BurstingContext jobCtx;
+
+	private final ExecutorService executor;
+
+	private final Semaphore capacity;
+	private final Map<String, Semaphore> channels = new HashMap<String, Semaphore>();
+
+	private volatile Exception failure;
+	private volatile boolean closed = false;
+
+	DistributionQueue(BurstingContext jobCtx) {
+
+		this.jobCtx = jobCtx;
+
+		AsyncDistribution settings = jobCtx.settings.getAsyncDistribution();
+
+		channels.put("email", new Semaphore(Math.max(1, settings.emailworkers), true));
+		channels.put("upload", new Semaphore(Math.max(1, settings.uploadworkers), true));
+		channels.put("web", new Semaphore(Math.max(1, settings.webworkers), true));
+		channels.put("sms", new Semaphore(Math.max(1, settings.smsworkers), true));
+
+		int numberOfWorkers = Math.max(1, settings.emailworkers) + Math.max(1, settings.uploadworkers)
+				+ Math.max(1, settings.webworkers) + Math.max(1, settings.smsworkers);
+
+		this.capacity = new Semaphore(Math.max(1, settings.capacity), true);
+
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(numberOfWorkers,
+				runnable -> new Thread(runnable, "distribution-worker-" + threadNumber.incrementAndGet()));
+
+		log.info("Distributing the documents asynchronously (capacity " + settings.capacity + ", email "
+				+ settings.emailworkers + ", upload " + settings.uploadworkers + ", web " + settings.webworkers
+				+ ", sms " + settings.smsworkers + ")");
+
+	}
+
+	/**
+	 * Queues the distribution of the document held by ctx (a snapshot of the
+	 * current token, see BurstingContext.copyForDistribution). The counters of
+	 * ctx are merged into the job context once the document is distributed.
+	 */
+	void submit(BurstingContext ctx, DistributionTask task) throws Exception {
+
+		_throwIfFailed();
+
+		capacity.acquire();
+
+		// the document before might have failed while waiting
+		if (failure != null) {
+			capacity.release();
+			throw failure;
+		}
+
+		try {
+
+			executor.execute(() -> {
+
+				try {
+
+					if (!closed && (failure == null))
+						task.distribute();
+
+				} catch (Throwable e) {
+
+					synchronized (this) {
+						if (failure == null)
+							failure = (e instanceof Exception) ? (Exception) e : new Exception(e);
+					}
+
+				} finally {
+
+					jobCtx.mergeWorkerResults(ctx);
+					capacity.release();
+
+				}
+
+			});
+
+		} catch (RejectedExecutionException e) {
+			capacity.release();
+			throw e;
+		}
+
+	}
+
+	/**
+	 * Sends the document using the sender, waiting while the channel of the
+	 * sender is at its limit.
+	 */
+	void send(AbstractSender sender) throws Exception {
+
+		Semaphore channel = channels.get(_getChannel(sender));
+
+		if (channel == null) {
+			sender.send();
+			return;
+		}
+
+		channel.acquire();
+
+		try {
+			sender.send();
+		} finally {
+			channel.release();
+		}
+
+	}
+
+	/**
+	 * Waits until all the queued documents are distributed and throws the first
+	 * error, if any.
+	 */
+	void drain() throws Exception {
+
+		executor.shutdown();
+
+		while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+			log.debug("Waiting for the documents which are still being distributed");
+
+		_throwIfFailed();
+
+	}
+
+	/**
+	 * Drops the documents still waiting (used when the job failed or drain was
+	 * already called) and waits for the ones which are being sent.
+	 */
+	void close() {
+
+		closed = true;
+
+		executor.shutdown();
+
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+				log.debug("Waiting for the documents which are still being distributed");
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+	}
+
+	private void _throwIfFailed() throws Exception {
+
+		if (failure != null)
+			throw failure;
+
+	}
+
+	private String _getChannel(AbstractSender sender) {
+
+		if (sender instanceof EmailSender)
+			return "email";
+		else if (sender instanceof WebUploadSender)
+			return "web";
+		else if (sender instanceof UploadSender)
+			return "upload";
+		else if (sender instanceof SmsSender)
+			return "sms";
+
+		return null;
+
+	}
+
+}
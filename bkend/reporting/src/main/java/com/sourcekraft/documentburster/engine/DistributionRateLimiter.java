@@ -0,0 +1,48 @@
+package com.sourcekraft.documentburster.engine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces the distributions of a job by {delayeachdistributionby} seconds. The
+ * slots are handed out in order to all the threads which distribute documents
+ * (burst workers, asynchronous distribution workers) and only the thread which
+ * is about to distribute waits for its slot.
+ */
+class DistributionRateLimiter {
+
+	private final long intervalNanos;
+
+	private long nextSlot;
+
+	DistributionRateLimiter(double delayInSeconds) {
+
+		this.intervalNanos = (delayInSeconds > 0) ? (long) (delayInSeconds * 1000000000L) : 0;
+
+		// the first distribution is delayed as well
+		this.nextSlot = System.nanoTime() + intervalNanos;
+
+	}
+
+	void acquire() throws InterruptedException {
+
+		if (intervalNanos <= 0)
+			return;
+
+		long waitNanos;
+
+		synchronized (this) {
+
+			long now = System.nanoTime();
+			long slot = Math.max(now, nextSlot);
+
+			nextSlot = slot + intervalNanos;
+			waitNanos = slot - now;
+
+		}
+
+		if (waitNanos > 0)
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+
+	}
+
+}
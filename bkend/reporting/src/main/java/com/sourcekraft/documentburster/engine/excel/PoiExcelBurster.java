@@ -1,8 +1,9 @@
 package com.sourcekraft.documentburster.engine.excel;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -25,6 +26,7 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 
 import com.sourcekraft.documentburster.engine.AbstractBurster;
+import com.sourcekraft.documentburster.engine.excel.extractor.DistinctColumnValuesIndex;
 import com.sourcekraft.documentburster.engine.excel.extractor.PoiExcelExtractor;
 
 public class PoiExcelBurster extends AbstractBurster {
@@ -35,6 +37,11 @@ public class PoiExcelBurster extends AbstractBurster {
 
 	private ExcelBurstMetaData burstMetaData = new ExcelBurstMetaData();
 
+	// distinct-column-values(-copy), the input workbook parsed by
+	// parseBurstingMetaData is indexed when the first token is extracted
+	private Workbook inputWorkBook;
+	private DistinctColumnValuesIndex distinctColumnValuesIndex;
+
 	public PoiExcelBurster(String configFilePath) {
 		super(configFilePath);
 	}
@@ -46,6 +53,13 @@ public class PoiExcelBurster extends AbstractBurster {
 
 	protected void closeResources() throws Exception {
 
+		distinctColumnValuesIndex = null;
+
+		if (inputWorkBook != null) {
+			inputWorkBook.close();
+			inputWorkBook = null;
+		}
+
 		if (!burstMetaData.getBurstMethod().equals("distinct-sheets")) {
 			File tempWorkBook = new File(tempWorkBookPath);
 			if (tempWorkBook.exists())
@@ -86,8 +100,11 @@ public class PoiExcelBurster extends AbstractBurster {
 
 	protected void parseBurstingMetaData() throws Exception {
 
-		InputStream input = new FileInputStream(new File(filePath));
-		Workbook workBook = WorkbookFactory.create(input);
+		Workbook workBook;
+
+		try (InputStream input = new FileInputStream(new File(filePath))) {
+			workBook = WorkbookFactory.create(input);
+		}
 
 		String burstMethod = getBurstMethod(workBook);
 		validateBurstMethod(burstMethod);
@@ -106,6 +123,13 @@ public class PoiExcelBurster extends AbstractBurster {
 
 		log.debug("Excel burstMetaData : " + burstMetaData);
 
+		// the rows are indexed from the same parsed workbook, distinct-sheets reads
+		// the input document for each token
+		if (burstMethod.equals("distinct-sheets"))
+			workBook.close();
+		else
+			inputWorkBook = workBook;
+
 	}
 
 	private List<String> getBurstTokensAndParseBurstMetaData(Workbook workBook, Sheet burstMetaDataSheet)
@@ -243,91 +267,87 @@ public class PoiExcelBurster extends AbstractBurster {
 			extractor.doExtractSheet();
 		else {
 
-			int burstSheetIndex = burstMetaData.getBurstSheetIndex();
-			int burstColumnIndex = burstMetaData.getBurstColumnIndex();
-
-			if (!(new File(tempWorkBookPath)).exists()) {
-				evaluateAllInputFormula();
-				createEmptyWorkbookTemplate(burstSheetIndex);
-			}
-
-			log.debug("tempWorkBookPath = " + tempWorkBookPath);
+			if (distinctColumnValuesIndex == null)
+				distinctColumnValuesIndex = createDistinctColumnValuesIndex(burstMetaData.getBurstSheetIndex(),
+						burstMetaData.getBurstColumnIndex());
 
-			extractor.setTempWorkbookPath(tempWorkBookPath);
-			extractor.doExtractForDistinctColumnValueCopy(burstSheetIndex, burstColumnIndex);
+			extractor.doExtractForDistinctColumnValueCopy(distinctColumnValuesIndex,
+					ctx.settings.isStreamExcelOutput());
 
 		}
 	}
 
-	private void evaluateAllInputFormula() throws Exception {
+	/*
+	 * Parses the input workbook once for all the burst tokens: the formulas are
+	 * evaluated (and saved back to the input workbook), the empty workbook
+	 * template is created from the evaluated workbook and the rows of the burst
+	 * sheet are indexed by the value of the burst column.
+	 */
+	private DistinctColumnValuesIndex createDistinctColumnValuesIndex(int burstSheetIndex, int burstColumnIndex)
+			throws Exception {
 
-		log.debug("evaluateAllInputFormula()");
+		log.debug("burstSheetIndex = " + burstSheetIndex + ", burstColumnIndex = " + burstColumnIndex);
 
-		InputStream input = null;
-		FileOutputStream fileOut = null;
+		Workbook workBook = inputWorkBook;
 
-		try {
+		evaluateAllFormula(workBook);
 
-			input = new FileInputStream(new File(filePath));
+		byte[] evaluatedWorkBook = toByteArray(workBook);
 
-			Workbook workBook = WorkbookFactory.create(input);
+		FileUtils.writeByteArrayToFile(new File(filePath), evaluatedWorkBook);
 
-			FormulaEvaluator evaluator = workBook.getCreationHelper().createFormulaEvaluator();
+		byte[] templateWorkBook = createEmptyWorkbookTemplate(evaluatedWorkBook, burstSheetIndex);
 
-			for (int sheetNum = 0; sheetNum < workBook.getNumberOfSheets(); sheetNum++) {
-				Sheet sheet = workBook.getSheetAt(sheetNum);
-				for (Row row : sheet) {
-					for (Cell cell : row) {
-						if (cell.getCellType() == CellType.FORMULA) {
-							evaluator.evaluateFormulaCell(cell);
-						}
-					}
-				}
-			}
+		log.debug("tempWorkBookPath = " + tempWorkBookPath);
 
-			fileOut = new FileOutputStream(filePath);
-			workBook.write(fileOut);
-			fileOut.flush();
+		FileUtils.writeByteArrayToFile(new File(tempWorkBookPath), templateWorkBook);
 
-		} finally {
-			closeResources(input, fileOut);
-		}
+		return new DistinctColumnValuesIndex(workBook, templateWorkBook, burstSheetIndex, burstColumnIndex);
 
 	}
 
-	private void closeResources(InputStream input, FileOutputStream fileOut) throws IOException {
-		if (fileOut != null)
-			fileOut.close();
+	private void evaluateAllFormula(Workbook workBook) {
 
-		if (input != null)
-			input.close();
-	}
+		log.debug("evaluateAllFormula()");
+
+		FormulaEvaluator evaluator = workBook.getCreationHelper().createFormulaEvaluator();
 
-	private void createEmptyWorkbookTemplate(int burstSheetIndex) throws Exception {
+		for (int sheetNum = 0; sheetNum < workBook.getNumberOfSheets(); sheetNum++) {
+			Sheet sheet = workBook.getSheetAt(sheetNum);
+			for (Row row : sheet) {
+				for (Cell cell : row) {
+					if (cell.getCellType() == CellType.FORMULA) {
+						evaluator.evaluateFormulaCell(cell);
+					}
+				}
+			}
+		}
 
-		log.debug("burstSheetIndex = " + burstSheetIndex);
+	}
 
-		InputStream input = null;
-		FileOutputStream fileOut = null;
+	private byte[] createEmptyWorkbookTemplate(byte[] evaluatedWorkBook, int burstSheetIndex) throws Exception {
 
-		try {
-			input = new FileInputStream(new File(filePath));
+		try (Workbook workBook = WorkbookFactory.create(new ByteArrayInputStream(evaluatedWorkBook))) {
 
-			Workbook workBook = WorkbookFactory.create(input);
 			cleanSheet(workBook.getSheetAt(burstSheetIndex));
 			int numberOfSheets = workBook.getNumberOfSheets();
 			workBook.removeSheetAt(numberOfSheets - 1);
 
-			fileOut = new FileOutputStream(tempWorkBookPath);
-			workBook.write(fileOut);
-			fileOut.flush();
+			return toByteArray(workBook);
 
-		} finally {
-			closeResources(input, fileOut);
 		}
 
 	}
 
+	private byte[] toByteArray(Workbook workBook) throws IOException {
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		workBook.write(output);
+
+		return output.toByteArray();
+
+	}
+
 	protected String getTempWorkBookPath() {
 
 		String baseName = FilenameUtils.getBaseName(filePath);
@@ -0,0 +1,439 @@
+package com.sourcekraft.documentburster.engine.excel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads the rows of a .xlsx sheet with a SAX parser, one row at a time, so the
+ * memory used does not depend on the number of rows (the POI usermodel keeps
+ * the whole workbook in memory, many times the size of the file).
+ *
+ * The package is opened read only (the entries are read from the zip file as
+ * they are needed), the shared strings are held by a ReadOnlySharedStringsTable
+ * (plain strings, no rich text objects) and the styles are used only to
+ * recognize the date formatted numbers.
+ */
+public class XlsxStreamingReader {
+
+	private static Logger log = LoggerFactory.getLogger(XlsxStreamingReader.class);
+
+	@FunctionalInterface
+	public interface RowHandler {
+		boolean process(StreamedRow row) throws Exception;
+	}
+
+	/**
+	 * A cell as it is stored in the sheet XML. For formula cells type is the type
+	 * of the cached result.
+	 */
+	public static class StreamedCell {
+
+		public CellType type = CellType.BLANK;
+
+		public boolean formula = false;
+		public String formulaText = StringUtils.EMPTY;
+
+		public String stringValue;
+		public double numericValue;
+		public boolean booleanValue;
+		public String errorValue;
+
+		public boolean dateFormatted = false;
+
+		private boolean date1904;
+
+		public Date getDateValue() {
+			return DateUtil.getJavaDate(numericValue, date1904);
+		}
+
+		/**
+		 * The same text as ExcelUtils.getCellValueAsString returns for the cell.
+		 */
+		public String getText() {
+
+			switch (type) {
+			case STRING:
+				return stringValue;
+			case NUMERIC:
+				return dateFormatted ? getDateValue().toString() : NumberToTextConverter.toText(numericValue);
+			case BOOLEAN:
+				return Boolean.toString(booleanValue);
+			case ERROR:
+				if (formula)
+					return StringUtils.EMPTY;
+				try {
+					return "ERROR: " + FormulaError.forString(errorValue).getCode();
+				} catch (IllegalArgumentException e) {
+					return "ERROR: " + errorValue;
+				}
+			default:
+				return StringUtils.EMPTY;
+			}
+
+		}
+
+	}
+
+	/**
+	 * A physical row of the sheet (a row element of the sheet XML).
+	 */
+	public static class StreamedRow {
+
+		private int rowNum;
+		private List<StreamedCell> cells = new ArrayList<StreamedCell>();
+
+		public int getRowNum() {
+			return rowNum;
+		}
+
+		/**
+		 * Same as Row.getLastCellNum, the index of the last cell plus one.
+		 */
+		public int getLastCellNum() {
+			return cells.size();
+		}
+
+		/**
+		 * Null for the missing cells.
+		 */
+		public StreamedCell getCell(int i) {
+
+			if ((i < 0) || (i >= cells.size()))
+				return null;
+
+			return cells.get(i);
+
+		}
+
+	}
+
+	/**
+	 * True if the file is an OOXML (.xlsx, .xlsm) package.
+	 */
+	public static boolean isXlsx(String filePath) {
+
+		try (InputStream input = FileMagic.prepareToCheckMagic(new FileInputStream(filePath))) {
+			return FileMagic.valueOf(input) == FileMagic.OOXML;
+		} catch (Exception e) {
+			log.debug("Could not check the type of '" + filePath + "'", e);
+			return false;
+		}
+
+	}
+
+	/**
+	 * Passes the rows of the sheet (0 based sheetIndex) to the handler, stops
+	 * reading when the handler returns false.
+	 */
+	public static void read(String filePath, int sheetIndex, RowHandler rowHandler) throws Exception {
+
+		try (OPCPackage pkg = OPCPackage.open(new File(filePath), PackageAccess.READ)) {
+
+			XSSFReader reader = new XSSFReader(pkg);
+
+			ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+			StylesTable styles = reader.getStylesTable();
+
+			boolean date1904 = _isDate1904(reader);
+
+			XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+
+			int numberOfSheets = 0;
+
+			while (sheets.hasNext()) {
+
+				try (InputStream sheet = sheets.next()) {
+
+					if (numberOfSheets == sheetIndex) {
+
+						log.debug("Streaming the rows of sheet '{}' at index {}.", sheets.getSheetName(), sheetIndex);
+
+						XMLReader parser = XMLHelper.newXMLReader();
+						parser.setContentHandler(new SheetHandler(sharedStrings, styles, date1904, rowHandler));
+
+						try {
+							parser.parse(new InputSource(sheet));
+						} catch (StopReadingException e) {
+							log.debug("Stopped reading the rows of sheet '{}'.", sheets.getSheetName());
+						}
+
+						return;
+
+					}
+
+				}
+
+				numberOfSheets++;
+
+			}
+
+			throw new IllegalArgumentException(
+					"Invalid sheet index: " + sheetIndex + ". Workbook has " + numberOfSheets + " sheets.");
+
+		}
+
+	}
+
+	private static boolean _isDate1904(XSSFReader reader) throws Exception {
+
+		boolean[] date1904 = new boolean[1];
+
+		try (InputStream workbook = reader.getWorkbookData()) {
+
+			XMLReader parser = XMLHelper.newXMLReader();
+
+			parser.setContentHandler(new DefaultHandler() {
+				@Override
+				public void startElement(String uri, String localName, String qName, Attributes attributes)
+						throws SAXException {
+					if ("workbookPr".equals(localName)) {
+						String value = attributes.getValue("date1904");
+						date1904[0] = "1".equals(value) || "true".equalsIgnoreCase(value);
+						throw new StopReadingException();
+					} else if ("sheets".equals(localName))
+						throw new StopReadingException();
+				}
+			});
+
+			try {
+				parser.parse(new InputSource(workbook));
+			} catch (StopReadingException e) {
+				// workbookPr (if any) comes before the sheets
+			}
+
+		}
+
+		return date1904[0];
+
+	}
+
+	private static class StopReadingException extends SAXException {
+
+		private static final long serialVersionUID = -1871520960521458213L;
+
+	}
+
+	private static class SheetHandler extends DefaultHandler {
+
+		private final ReadOnlySharedStringsTable sharedStrings;
+		private final StylesTable styles;
+		private final boolean date1904;
+
+		private final RowHandler rowHandler;
+
+		private StreamedRow row;
+		private int lastRowNum = -1;
+
+		private StreamedCell cell;
+		private int cellIndex;
+		private String cellType;
+		private int cellStyle;
+
+		private StringBuilder text = new StringBuilder();
+		private boolean readingText = false;
+
+		private String value;
+		private StringBuilder inlineString;
+		private boolean insidePhoneticRun = false;
+
+		private SheetHandler(ReadOnlySharedStringsTable sharedStrings, StylesTable styles, boolean date1904,
+				RowHandler rowHandler) {
+
+			this.sharedStrings = sharedStrings;
+			this.styles = styles;
+			this.date1904 = date1904;
+			this.rowHandler = rowHandler;
+
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attributes)
+				throws SAXException {
+
+			switch (localName) {
+			case "row":
+				String r = attributes.getValue("r");
+				row = new StreamedRow();
+				row.rowNum = (r != null) ? Integer.parseInt(r) - 1 : lastRowNum + 1;
+				lastRowNum = row.rowNum;
+				break;
+			case "c":
+				String reference = attributes.getValue("r");
+				cellIndex = (reference != null) ? new CellReference(reference).getCol() : row.cells.size();
+				cellType = attributes.getValue("t");
+				String s = attributes.getValue("s");
+				cellStyle = (s != null) ? Integer.parseInt(s) : 0;
+				cell = new StreamedCell();
+				cell.date1904 = date1904;
+				value = null;
+				inlineString = null;
+				break;
+			case "f":
+				if (cell != null)
+					cell.formula = true;
+				_startText();
+				break;
+			case "v":
+				_startText();
+				break;
+			case "is":
+				inlineString = new StringBuilder();
+				break;
+			case "rPh":
+				insidePhoneticRun = true;
+				break;
+			case "t":
+				if ((inlineString != null) && !insidePhoneticRun)
+					_startText();
+				break;
+			default:
+				break;
+			}
+
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException {
+
+			switch (localName) {
+			case "f":
+				if (cell != null)
+					cell.formulaText = text.toString();
+				readingText = false;
+				break;
+			case "v":
+				value = text.toString();
+				readingText = false;
+				break;
+			case "t":
+				if ((inlineString != null) && readingText)
+					inlineString.append(text);
+				readingText = false;
+				break;
+			case "rPh":
+				insidePhoneticRun = false;
+				break;
+			case "c":
+				_endCell();
+				break;
+			case "row":
+				_endRow();
+				break;
+			default:
+				break;
+			}
+
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) throws SAXException {
+
+			if (readingText)
+				text.append(ch, start, length);
+
+		}
+
+		private void _startText() {
+
+			text.setLength(0);
+			readingText = true;
+
+		}
+
+		private void _endCell() {
+
+			if ((cell == null) || (row == null))
+				return;
+
+			if ("inlineStr".equals(cellType)) {
+				cell.type = CellType.STRING;
+				cell.stringValue = (inlineString != null) ? inlineString.toString() : StringUtils.EMPTY;
+			} else if (value == null || value.isEmpty())
+				cell.type = CellType.BLANK;
+			else if ("s".equals(cellType)) {
+				cell.type = CellType.STRING;
+				cell.stringValue = sharedStrings.getItemAt(Integer.parseInt(value)).getString();
+			} else if ("str".equals(cellType)) {
+				cell.type = CellType.STRING;
+				cell.stringValue = value;
+			} else if ("b".equals(cellType)) {
+				cell.type = CellType.BOOLEAN;
+				cell.booleanValue = "1".equals(value) || "true".equalsIgnoreCase(value);
+			} else if ("e".equals(cellType)) {
+				cell.type = CellType.ERROR;
+				cell.errorValue = value;
+			} else {
+				cell.type = CellType.NUMERIC;
+				cell.numericValue = Double.parseDouble(value);
+				cell.dateFormatted = _isDateFormatted(cell.numericValue);
+			}
+
+			while (row.cells.size() <= cellIndex)
+				row.cells.add(null);
+
+			row.cells.set(cellIndex, cell);
+
+			cell = null;
+
+		}
+
+		private boolean _isDateFormatted(double numericValue) {
+
+			if ((styles == null) || (cellStyle >= styles.getNumCellStyles()))
+				return false;
+
+			XSSFCellStyle style = styles.getStyleAt(cellStyle);
+
+			if (style == null)
+				return false;
+
+			return DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString())
+					&& DateUtil.isValidExcelDate(numericValue);
+
+		}
+
+		private void _endRow() throws SAXException {
+
+			StreamedRow processedRow = row;
+			row = null;
+
+			try {
+				if (!rowHandler.process(processedRow))
+					throw new StopReadingException();
+			} catch (SAXException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new SAXException(e);
+			}
+
+		}
+
+	}
+
+}
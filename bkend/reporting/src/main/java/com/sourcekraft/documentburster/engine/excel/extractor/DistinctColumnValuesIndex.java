@@ -0,0 +1,141 @@
+package com.sourcekraft.documentburster.engine.excel.extractor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import com.sourcekraft.documentburster.engine.excel.ExcelUtils;
+
+/**
+ * The rows of the burst sheet grouped by the value of the burst column (and
+ * the merged regions grouped by their first row), built once from the input
+ * workbook so that the workbook of each burst token is written without parsing
+ * and scanning the input workbook again. The rows without a value (or with the
+ * 'keep-row' value) are copied for all the burst tokens.
+ */
+public class DistinctColumnValuesIndex {
+
+    private static final String KEEP_ROW = "keep-row";
+
+    private Sheet inputSheet;
+    private int sheetIndex;
+
+    // the input workbook without the rows of the burst sheet and without the
+    // 'burst' metadata sheet
+    private byte[] templateWorkbook;
+
+    private List<Row> keepRows = new ArrayList<Row>();
+    private Map<String, List<Row>> tokenRows = new HashMap<String, List<Row>>();
+
+    private Map<Integer, List<CellRangeAddress>> mergedRegions = new HashMap<Integer, List<CellRangeAddress>>();
+
+    public DistinctColumnValuesIndex(Workbook inputWorkbook, byte[] templateWorkbook, int sheetIndex,
+            int columnIndex) {
+
+        this.inputSheet = inputWorkbook.getSheetAt(sheetIndex);
+        this.sheetIndex = sheetIndex;
+        this.templateWorkbook = templateWorkbook;
+
+        indexRows(columnIndex);
+        indexMergedRegions();
+
+    }
+
+    public int getSheetIndex() {
+        return sheetIndex;
+    }
+
+    public byte[] getTemplateWorkbook() {
+        return templateWorkbook;
+    }
+
+    /**
+     * The rows which are copied for the token, in the order of the input sheet.
+     */
+    public List<Row> getRows(String token) {
+
+        List<Row> rows = tokenRows.get(token);
+
+        if (rows == null)
+            return keepRows;
+
+        // both lists are in the order of the input sheet
+        List<Row> merged = new ArrayList<Row>(keepRows.size() + rows.size());
+
+        int i = 0;
+        int j = 0;
+
+        while (i < keepRows.size() || j < rows.size()) {
+            if (j >= rows.size() || (i < keepRows.size() && keepRows.get(i).getRowNum() < rows.get(j).getRowNum()))
+                merged.add(keepRows.get(i++));
+            else
+                merged.add(rows.get(j++));
+        }
+
+        return merged;
+
+    }
+
+    /**
+     * The merged regions which start on the row.
+     */
+    public List<CellRangeAddress> getMergedRegions(int rowNum) {
+
+        List<CellRangeAddress> regions = mergedRegions.get(rowNum);
+
+        if (regions == null)
+            return Collections.emptyList();
+
+        return regions;
+
+    }
+
+    private void indexRows(int columnIndex) {
+
+        int burstColumnIndex = -1;
+
+        for (Row inputRow : inputSheet) {
+
+            // as many columns as the first row, at most
+            if (burstColumnIndex == -1)
+                burstColumnIndex = Math.min(columnIndex, inputRow.getLastCellNum() - 1);
+
+            Cell burstCell = inputRow.getCell(burstColumnIndex);
+
+            String cellValue = StringUtils.EMPTY;
+
+            if (burstCell != null)
+                cellValue = ExcelUtils.getCellValueAsString(burstCell);
+
+            if (StringUtils.isEmpty(cellValue))
+                cellValue = KEEP_ROW;
+
+            cellValue = cellValue.trim();
+
+            if (cellValue.equals(KEEP_ROW))
+                keepRows.add(inputRow);
+            else
+                tokenRows.computeIfAbsent(cellValue, value -> new ArrayList<Row>()).add(inputRow);
+
+        }
+
+    }
+
+    private void indexMergedRegions() {
+
+        for (CellRangeAddress cellRangeAddress : inputSheet.getMergedRegions())
+            mergedRegions.computeIfAbsent(cellRangeAddress.getFirstRow(), row -> new ArrayList<CellRangeAddress>())
+                    .add(cellRangeAddress);
+
+    }
+
+}
@@ -1,16 +1,14 @@
 package com.sourcekraft.documentburster.engine.excel.extractor;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
-import com.sourcekraft.documentburster.engine.excel.ExcelUtils;
-
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.poi.ss.usermodel.Cell;
@@ -21,21 +19,24 @@ import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 //import org.perf4j.aop.Profiled;
 
 public class PoiExcelExtractor {
 
     private Logger log = LoggerFactory.getLogger(PoiExcelExtractor.class);
 
-    private List<CellStyle> destStyles = new ArrayList<CellStyle>();
+    private static final int SXSSF_ROW_ACCESS_WINDOW_SIZE = 100;
+
+    // the styles cloned into the token workbook (see copyCellStyle)
+    private Map<Integer, CellStyle> destStyles = new HashMap<Integer, CellStyle>();
 
     private String inputFilePath;
     private String outputFilePath;
 
     private String token;
 
-    private String tempWorkbookPath;
-
     public PoiExcelExtractor(String inputFilePath, String outputFilePath, String token) {
 
         log.debug("inputFilePath = " + ", outputFilePath = " + outputFilePath + ", token = " + token);
@@ -46,30 +47,38 @@ public class PoiExcelExtractor {
 
     }
 
+    /**
+     * Writes the workbook of the token from the rows found in the index, the
+     * input workbook is not parsed again. With streamOutput the .xlsx rows are
+     * written using SXSSF, keeping only a window of rows in memory.
+     */
     //@Profiled
-    public void doExtractForDistinctColumnValueCopy(int sheetIndex, int columnIndex) throws Exception {
+    public void doExtractForDistinctColumnValueCopy(DistinctColumnValuesIndex index, boolean streamOutput)
+            throws Exception {
+
+        int sheetIndex = index.getSheetIndex();
 
-        log.debug("sheetIndex = " + sheetIndex + ", columnIndex = " + columnIndex);
+        log.debug("sheetIndex = " + sheetIndex + ", streamOutput = " + streamOutput);
 
-        InputStream dest;
+        Workbook destWorkbook = WorkbookFactory.create(new ByteArrayInputStream(index.getTemplateWorkbook()));
+
+        if (streamOutput && (destWorkbook instanceof XSSFWorkbook))
+            destWorkbook = new SXSSFWorkbook((XSSFWorkbook) destWorkbook, SXSSF_ROW_ACCESS_WINDOW_SIZE);
 
         FileOutputStream fileOut = null;
-        InputStream input = null;
 
         try {
 
-            dest = new FileInputStream(new File(tempWorkbookPath));
-            Workbook destWorkbook = WorkbookFactory.create(dest);
             Sheet destSheet = destWorkbook.getSheetAt(sheetIndex);
 
-            input = new FileInputStream(new File(inputFilePath));
-            Workbook inputWorkbook = WorkbookFactory.create(input);
-            Sheet inputSheet = inputWorkbook.getSheetAt(sheetIndex);
+            int destRowNum = 0;
 
-            copyMatchingRows(columnIndex, destWorkbook, destSheet, inputSheet);
+            for (Row inputRow : index.getRows(token)) {
+                copyRow(destWorkbook, index, destSheet, inputRow, destRowNum);
+                destRowNum++;
+            }
 
             destWorkbook.setActiveSheet(sheetIndex);
-            setActiveCell(destSheet);
 
             fileOut = new FileOutputStream(outputFilePath);
 
@@ -78,43 +87,15 @@ public class PoiExcelExtractor {
 
         } finally {
 
-            closeResources(fileOut, input);
-
-        }
-
-    }
+            closeResources(fileOut, null);
 
-    private void copyMatchingRows(int columnIndex, Workbook destWorkbook, Sheet destSheet, Sheet inputSheet) {
-        int burstColumnIndex = -1;
-        int destRowNum = 0;
+            if (destWorkbook instanceof SXSSFWorkbook)
+                ((SXSSFWorkbook) destWorkbook).dispose();
 
-        for (Row inputRow : inputSheet) {
-
-            if (burstColumnIndex == -1) {
-                burstColumnIndex = getBurstColumnIndex(columnIndex, inputRow);
-            }
-
-            Cell burstCell = null;
-
-            if (inputRow != null)
-                burstCell = inputRow.getCell(burstColumnIndex);
-
-            String cellValue = StringUtils.EMPTY;
-
-            if (burstCell != null)
-                cellValue = ExcelUtils.getCellValueAsString(burstCell);
-
-            if (StringUtils.isEmpty(cellValue))
-                cellValue = "keep-row";
-
-            cellValue = cellValue.trim();
-
-            if (cellValue.equals("keep-row") || cellValue.equals(token)) {
-                copyRow(destWorkbook, inputSheet, destSheet, inputRow, destRowNum);
-                destRowNum++;
-            }
+            destWorkbook.close();
 
         }
+
     }
 
     private void closeResources(FileOutputStream fileOut, InputStream input) throws IOException {
@@ -127,31 +108,6 @@ public class PoiExcelExtractor {
 
     }
 
-    private void setActiveCell(Sheet destSheet) {
-
-        Row activeRow = destSheet.getRow(0);
-        if (activeRow != null) {
-            Cell activeCell = activeRow.getCell(0);
-            if (activeCell != null)
-                activeCell.setAsActiveCell();
-        }
-
-    }
-
-    private int getBurstColumnIndex(int columnIndex, Row inputRow) {
-        int burstColumnIndex;
-        int lastCellIndex = 0;
-
-        if (inputRow != null)
-            lastCellIndex = inputRow.getLastCellNum() - 1;
-
-        if (columnIndex > lastCellIndex)
-            burstColumnIndex = lastCellIndex;
-        else
-            burstColumnIndex = columnIndex;
-        return burstColumnIndex;
-    }
-
     //@Profiled
     public void doExtractSheet() throws Exception {
 
@@ -188,15 +144,9 @@ public class PoiExcelExtractor {
 
     }
 
-    public void setTempWorkbookPath(String tempWorkbookPath) {
-        this.tempWorkbookPath = tempWorkbookPath;
-    }
-
-    private void copyRow(Workbook destWorkbook, Sheet sourceWorkSheet, Sheet destWorkSheet, Row sourceRow,
+    private void copyRow(Workbook destWorkbook, DistinctColumnValuesIndex index, Sheet destWorkSheet, Row sourceRow,
             int destinationRowNum) {
 
-        cacheStyles(destWorkbook);
-
         Row newRow = destWorkSheet.createRow(destinationRowNum);
 
         for (int i = 0; i < sourceRow.getLastCellNum(); i++) {
@@ -213,30 +163,29 @@ public class PoiExcelExtractor {
 
                 copyCellContent(oldCell, newCell);
 
+                if ((destinationRowNum == 0) && (i == 0))
+                    newCell.setAsActiveCell();
+
             }
 
         }
 
-        copyMergedRegions(sourceWorkSheet, destWorkSheet, sourceRow, newRow);
+        copyMergedRegions(index, destWorkSheet, sourceRow, newRow);
 
     }
 
-    private void copyMergedRegions(Sheet sourceWorkSheet, Sheet destWorkSheet, Row sourceRow, Row newRow) {
+    private void copyMergedRegions(DistinctColumnValuesIndex index, Sheet destWorkSheet, Row sourceRow, Row newRow) {
 
-        for (int i = 0; i < sourceWorkSheet.getNumMergedRegions(); i++) {
+        for (CellRangeAddress cellRangeAddress : index.getMergedRegions(sourceRow.getRowNum())) {
 
-            log.debug("New merged region found in the sourceWorkSheet - i = " + i);
+            log.debug("New merged region matched for sourceRow.getRowNum() = " + sourceRow.getRowNum());
 
-            CellRangeAddress cellRangeAddress = sourceWorkSheet.getMergedRegion(i);
+            CellRangeAddress newCellRangeAddress =
+                    new CellRangeAddress(newRow.getRowNum(), newRow.getRowNum()
+                            + (cellRangeAddress.getFirstRow() - cellRangeAddress.getLastRow()),
+                            cellRangeAddress.getFirstColumn(), cellRangeAddress.getLastColumn());
+            destWorkSheet.addMergedRegion(newCellRangeAddress);
 
-            if (cellRangeAddress.getFirstRow() == sourceRow.getRowNum()) {
-                log.debug("New merged region matched for sourceRow.getRowNum() = " + sourceRow.getRowNum());
-                CellRangeAddress newCellRangeAddress =
-                        new CellRangeAddress(newRow.getRowNum(), newRow.getRowNum()
-                                + (cellRangeAddress.getFirstRow() - cellRangeAddress.getLastRow()),
-                                cellRangeAddress.getFirstColumn(), cellRangeAddress.getLastColumn());
-                destWorkSheet.addMergedRegion(newCellRangeAddress);
-            }
         }
 
     }
@@ -250,15 +199,28 @@ public class PoiExcelExtractor {
     }
 
     private void copyCellStyle(Workbook destWorkbook, Cell oldCell, Cell newCell) {
+
         CellStyle sourceCellStyle = oldCell.getCellStyle();
-        if (destStyles.contains(sourceCellStyle)) {
-            newCell.setCellStyle((CellStyle) destStyles.get(destStyles.indexOf(sourceCellStyle)));
-        } else {
-            CellStyle newCellStyle = destWorkbook.createCellStyle();
-            newCellStyle.cloneStyleFrom(oldCell.getCellStyle());
-            newCell.setCellStyle(newCellStyle);
-            destStyles.add(newCellStyle);
+
+        // the template is a copy of the input workbook and it already has all the
+        // styles of the input workbook, at the same indexes
+        int styleIndex = sourceCellStyle.getIndex();
+
+        if (styleIndex < destWorkbook.getNumCellStyles()) {
+            newCell.setCellStyle(destWorkbook.getCellStyleAt(styleIndex));
+            return;
         }
+
+        CellStyle newCellStyle = destStyles.get(styleIndex);
+
+        if (newCellStyle == null) {
+            newCellStyle = destWorkbook.createCellStyle();
+            newCellStyle.cloneStyleFrom(sourceCellStyle);
+            destStyles.put(styleIndex, newCellStyle);
+        }
+
+        newCell.setCellStyle(newCellStyle);
+
     }
 
     private void copyCellContent(Cell oldCell, Cell newCell) {
@@ -283,14 +245,4 @@ public class PoiExcelExtractor {
         }
     }
 
-    private void cacheStyles(Workbook destWorkbook) {
-        if (destStyles.size() == 0) {
-            int numberOfStyles = destWorkbook.getNumCellStyles();
-            for (short i = 0; i < numberOfStyles; i++) {
-                destStyles.add(destWorkbook.getCellStyleAt(i));
-            }
-
-        }
-    }
-
 }
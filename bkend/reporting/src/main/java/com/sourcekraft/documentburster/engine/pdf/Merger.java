@@ -1,11 +1,11 @@
 package com.sourcekraft.documentburster.engine.pdf;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.InputStream;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
@@ -18,6 +18,7 @@ import com.lowagie.text.Document;
 import com.lowagie.text.pdf.PdfCopy;
 import com.lowagie.text.pdf.PdfReader;
 import com.lowagie.text.pdf.PdfSmartCopy;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
 import com.sourcekraft.documentburster.common.settings.Settings;
 import com.sourcekraft.documentburster.utils.Utils;
 import com.sourcekraft.documentburster.variables.Variables;
@@ -35,7 +36,7 @@ public class Merger {
 	private String outputFileName;
 	private String mergedFilePath;
 
-	private List<InputStream> streamOfPDFFiles = new ArrayList<InputStream>();
+	private List<String> backupFilePaths = new ArrayList<String>();
 
 	public Merger(Settings settings) {
 
@@ -69,9 +70,36 @@ public class Merger {
 
 			String fileName = FilenameUtils.getName(filePath);
 			File file = new File(backupFolder + "/" + fileName);
-			FileUtils.copyFile(new File(filePath), file);
+			_backupFile(new File(filePath), file);
 
-			streamOfPDFFiles.add(new FileInputStream(file));
+			backupFilePaths.add(file.getAbsolutePath());
+		}
+
+	}
+
+	/*
+	 * Copies the input file into the backup folder. With linkmergebackupfiles the
+	 * input file is hard linked instead (no data is copied), the backup is then
+	 * the same file as the input, which is fine only as long as the input is not
+	 * rewritten in place. Falls back to a copy when the file system does not
+	 * support links (or the backup folder is on another volume).
+	 */
+	private void _backupFile(File inputFile, File backupFile) throws Exception {
+
+		if (backupFile.exists() && Files.isSameFile(inputFile.toPath(), backupFile.toPath()))
+			return;
+
+		if (!settings.isLinkMergeBackupFiles()) {
+			FileUtils.copyFile(inputFile, backupFile);
+			return;
+		}
+
+		try {
+			Files.deleteIfExists(backupFile.toPath());
+			Files.createLink(backupFile.toPath(), inputFile.getAbsoluteFile().toPath());
+		} catch (IOException | UnsupportedOperationException | SecurityException e) {
+			log.debug("Could not link '" + inputFile + "' into the backup folder, the file is copied: " + e);
+			FileUtils.copyFile(inputFile, backupFile);
 		}
 
 	}
@@ -95,37 +123,34 @@ public class Merger {
 
 		mergedFilePath = outputFolder + "/" + this.outputFileName;
 
-		List<InputStream> pdfs = streamOfPDFFiles;
-		Iterator<InputStream> iteratorPDFs = pdfs.iterator();
-
-		List<PdfReader> readers = new ArrayList<PdfReader>();
-
-		while (iteratorPDFs.hasNext()) {
-			InputStream pdf = iteratorPDFs.next();
-			PdfReader pdfReader = new PdfReader(pdf);
-			readers.add(pdfReader);
-			pdf.close();
-		}
-
 		PdfCopy copy = null;
 		Document document = new Document();
 
 		try {
 
-			copy = new PdfSmartCopy(document, new FileOutputStream(mergedFilePath));
+			copy = new PdfSmartCopy(document, new BufferedOutputStream(new FileOutputStream(mergedFilePath)));
 
 			document.open();
 
-			Iterator<PdfReader> iteratorPDFReaders = readers.iterator();
-
-			while (iteratorPDFReaders.hasNext()) {
-				PdfReader pdfReader = iteratorPDFReaders.next();
-				int n = pdfReader.getNumberOfPages();
-				for (int page = 0; page < n;) {
-					copy.addPage(copy.getImportedPage(pdfReader, ++page));
+			// one input at a time: each file is read on demand (partial read, only
+			// the objects of the copied pages are loaded), its pages are written
+			// to the output and then the reader is released before opening the
+			// next file. PdfSmartCopy keeps only a digest of the already written
+			// streams (fonts, images shared by the inputs are written once).
+			for (String backupFilePath : backupFilePaths) {
+
+				PdfReader pdfReader = new PdfReader(new RandomAccessFileOrArray(backupFilePath, false, true), null);
+
+				try {
+					int n = pdfReader.getNumberOfPages();
+					for (int page = 0; page < n;) {
+						copy.addPage(copy.getImportedPage(pdfReader, ++page));
+					}
+					copy.freeReader(pdfReader);
+				} finally {
+					pdfReader.close();
 				}
-				copy.freeReader(pdfReader);
-				pdfReader.close();
+
 			}
 
 		} finally {
@@ -1,11 +1,23 @@
 package com.sourcekraft.documentburster.engine.pdf;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -17,6 +29,7 @@ import org.apache.pdfbox.text.PDFTextStripper;
 
 import com.sourcekraft.documentburster.engine.AbstractBurster;
 import com.sourcekraft.documentburster.engine.pdf.extractor.PdfExtractor;
+import com.sourcekraft.documentburster.engine.pdf.extractor.PdfResourcesCache;
 import com.sourcekraft.documentburster.utils.Utils;
 
 public class PdfBurster extends AbstractBurster {
@@ -28,8 +41,13 @@ public class PdfBurster extends AbstractBurster {
 	private static final String CFG_START_LONG = "<config>";
 	private static final String CFG_END_LONG = "</config>";
 
+	// pages extracted by a parse worker in one go
+	private static final int PARSE_CHUNK_SIZE = 50;
+
 	private PDDocument document;
 
+	private PdfResourcesCache resourcesCache;
+
 	protected Map<String, List<PDPage>> burstDocuments;
 
 	private PDPage currentPage;
@@ -47,10 +65,18 @@ public class PdfBurster extends AbstractBurster {
 
 		document = PDDocument.load(new File(filePath));
 
+		if (ctx.settings.isPrunePdfResources())
+			resourcesCache = new PdfResourcesCache();
+
 	}
 
 	protected void closeResources() throws Exception {
 
+		if (resourcesCache != null) {
+			resourcesCache.logStatistics();
+			resourcesCache = null;
+		}
+
 		if (document != null)
 			document.close();
 
@@ -68,22 +94,27 @@ public class PdfBurster extends AbstractBurster {
 
 		this.requestedCancelOrPauseProcessing = checkIfRequestedCancelOrPauseProcessing();
 
-		for (int i = 1; i < numberOfPages + 1; i++) {
+		int numberOfParseWorkers = ctx.settings.getNumberOfParseWorkers();
 
-			if (!requestedCancelOrPauseProcessing) {
+		if (!requestedCancelOrPauseProcessing && (numberOfPages > 1) && (numberOfParseWorkers > 1))
+			_parsePagesInParallel(numberOfParseWorkers, numberOfPages);
+		else if (!requestedCancelOrPauseProcessing && (numberOfPages > 0)) {
 
-				ctx.currentPageIndex = i;
+			SinglePassTextStripper stripper = new SinglePassTextStripper();
+			_configureTextExtraction(stripper);
 
-				scripting.executeBurstingLifeCycleScript(ctx.scripts.startParsePage, ctx);
-				processPage(i);
-				scripting.executeBurstingLifeCycleScript(ctx.scripts.endParsePage, ctx);
+			// walks the page tree once, the pages are parsed as their text is
+			// extracted (see SinglePassTextStripper.endPage)
+			stripper.writeText(document, stripper.pageText);
 
-				ctx.previousPageText = ctx.currentPageText;
-				ctx.currentPageText = StringUtils.EMPTY;
+			if (stripper.exception != null)
+				throw stripper.exception;
 
-				this.requestedCancelOrPauseProcessing = checkIfRequestedCancelOrPauseProcessing();
+			// trailing pages without any content are not visited by the stripper
+			stripper.parsePagesWithoutContentUpTo(numberOfPages + 1);
 
-			}
+			if (stripper.exception != null)
+				throw stripper.exception;
 
 		}
 
@@ -96,31 +127,258 @@ public class PdfBurster extends AbstractBurster {
 			log.info("No burst tokens were found in the document -> Burting the document into " + numberOfPages
 					+ " documents of one page each...");
 
-			for (int i = 1; i <= numberOfPages; i++) {
+			int i = 1;
+
+			for (PDPage page : document.getPages()) {
 				String token = Integer.toString(i);
 
 				ctx.burstTokens.add(token);
 
 				List<PDPage> pages = new ArrayList<PDPage>();
-				pages.add(((PDPage) document.getDocumentCatalog().getPages().get(i - 1)));
+				pages.add(page);
 				burstDocuments.put(token, pages);
 
+				i++;
 			}
 		}
 
 	}
 
-	// @Profiled
-	public void processPage(int pageIndex) throws Exception {
+	/*
+	 * Extracts the text of all the pages in one pass, with one configured
+	 * stripper (the per page getText calls were configuring a new stripper and
+	 * walking the page tree again for each page). PDFTextStripper does not
+	 * visit the pages without content so these are parsed with an empty text.
+	 */
+	private class SinglePassTextStripper extends PDFTextStripper {
+
+		private final StringWriter pageText = new StringWriter();
+
+		private int lastParsedPageIndex = 0;
+
+		private Exception exception;
+
+		private SinglePassTextStripper() throws IOException {
+			super();
+		}
+
+		@Override
+		protected void startPage(PDPage page) throws IOException {
+
+			parsePagesWithoutContentUpTo(getCurrentPageNo());
+
+			pageText.getBuffer().setLength(0);
+
+			super.startPage(page);
+
+		}
+
+		@Override
+		protected void endPage(PDPage page) throws IOException {
+
+			super.endPage(page);
+
+			if (exception == null)
+				_parsePage(getCurrentPageNo(), page, pageText.toString());
+
+		}
+
+		private void parsePagesWithoutContentUpTo(int pageIndex) {
+
+			for (int i = lastParsedPageIndex + 1; (i < pageIndex) && (exception == null); i++)
+				_parsePage(i, document.getPage(i - 1), StringUtils.EMPTY);
+
+		}
+
+		private void _parsePage(int pageIndex, PDPage page, String text) {
+
+			lastParsedPageIndex = pageIndex;
+
+			if (requestedCancelOrPauseProcessing)
+				return;
+
+			try {
+
+				PdfBurster.this._parsePage(pageIndex, page, text);
+
+				// the custom configuration file (if any) is read from the first page
+				if (pageIndex == 1)
+					_configureTextExtraction(this);
+
+			} catch (Exception e) {
+				exception = e;
+			}
+
+			// the remaining pages are skipped (not parsed anymore)
+			if (requestedCancelOrPauseProcessing || (exception != null))
+				setEndPage(pageIndex);
+
+		}
+
+	}
+
+	/*
+	 * The first page is parsed before starting the workers since it can point to
+	 * a custom configuration file (with different text extraction options). The
+	 * remaining pages are split in chunks, the workers extract the text of the
+	 * chunks (each worker with its own PDDocument) while this thread parses the
+	 * pages (scripts, tokens, variables) in page order, as soon as their text is
+	 * available - the token assignments are the same as when parsing
+	 * sequentially.
+	 */
+	private void _parsePagesInParallel(int numberOfParseWorkers, int numberOfPages) throws Exception {
+
+		log.info("Extracting the text of " + numberOfPages + " pages using " + numberOfParseWorkers
+				+ " parallel workers");
+
+		Iterator<PDPage> pages = document.getPages().iterator();
+
+		PDFTextStripper firstPageStripper = new PDFTextStripper();
+		_configureTextExtraction(firstPageStripper);
+		firstPageStripper.setStartPage(1);
+		firstPageStripper.setEndPage(1);
+
+		_parsePage(1, pages.next(), firstPageStripper.getText(document));
+
+		if (requestedCancelOrPauseProcessing)
+			return;
+
+		List<PDDocument> workerDocuments = Collections.synchronizedList(new ArrayList<PDDocument>());
+		ThreadLocal<PDDocument> workerDocument = new ThreadLocal<PDDocument>();
+
+		AtomicInteger workerCount = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfParseWorkers, runnable -> {
+			Thread thread = new Thread(runnable, "pdf-parse-worker-" + workerCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+
+			// at most maxChunksInFlight chunks are extracted (or wait to be parsed)
+			// at a time, so the text held in memory does not grow with the document
+			int maxChunksInFlight = numberOfParseWorkers * 2;
+
+			Deque<Future<String[]>> chunks = new ArrayDeque<Future<String[]>>();
+
+			int nextStartPage = 2;
+			int pageIndex = 2;
+
+			while (pageIndex <= numberOfPages) {
 
-		PDFTextStripper stripper;
+				while ((chunks.size() < maxChunksInFlight) && (nextStartPage <= numberOfPages)) {
 
-		stripper = new PDFTextStripper() {
-			protected void endPage(PDPage page) {
-				currentPage = page;
+					int chunkStartPage = nextStartPage;
+					int chunkEndPage = Math.min(nextStartPage + PARSE_CHUNK_SIZE - 1, numberOfPages);
+
+					chunks.add(executor.submit(
+							() -> _extractText(workerDocument, workerDocuments, chunkStartPage, chunkEndPage)));
+
+					nextStartPage = chunkEndPage + 1;
+
+				}
+
+				String[] pageTexts;
+
+				try {
+					pageTexts = chunks.poll().get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception)
+						throw (Exception) e.getCause();
+					throw e;
+				}
+
+				for (String pageText : pageTexts) {
+
+					if (requestedCancelOrPauseProcessing)
+						return;
+
+					_parsePage(pageIndex, pages.next(), pageText);
+					pageIndex++;
+
+				}
+
+			}
+
+		} finally {
+
+			executor.shutdownNow();
+
+			if (!executor.awaitTermination(60, TimeUnit.SECONDS))
+				log.warn("The PDF parse workers did not finish in time");
+
+			for (PDDocument workerPdf : workerDocuments)
+				workerPdf.close();
+
+		}
+
+	}
+
+	/*
+	 * Runs on the parse workers, returns the text of each page in the chunk
+	 * (empty for the pages without content).
+	 */
+	private String[] _extractText(ThreadLocal<PDDocument> workerDocument, List<PDDocument> workerDocuments,
+			int startPage, int endPage) throws IOException {
+
+		PDDocument workerPdf = workerDocument.get();
+
+		if (workerPdf == null) {
+			workerPdf = PDDocument.load(new File(filePath));
+			workerDocument.set(workerPdf);
+			workerDocuments.add(workerPdf);
+		}
+
+		String[] pageTexts = new String[endPage - startPage + 1];
+		Arrays.fill(pageTexts, StringUtils.EMPTY);
+
+		StringWriter output = new StringWriter();
+
+		PDFTextStripper stripper = new PDFTextStripper() {
+
+			@Override
+			protected void startPage(PDPage page) throws IOException {
+				output.getBuffer().setLength(0);
+				super.startPage(page);
+			}
+
+			@Override
+			protected void endPage(PDPage page) throws IOException {
+				super.endPage(page);
+				pageTexts[getCurrentPageNo() - startPage] = output.toString();
 			}
+
 		};
 
+		_configureTextExtraction(stripper);
+
+		stripper.setStartPage(startPage);
+		stripper.setEndPage(endPage);
+
+		stripper.writeText(workerPdf, output);
+
+		return pageTexts;
+
+	}
+
+	private void _parsePage(int pageIndex, PDPage page, String text) throws Exception {
+
+		ctx.currentPageIndex = pageIndex;
+
+		scripting.executeBurstingLifeCycleScript(ctx.scripts.startParsePage, ctx);
+		processPage(pageIndex, page, text);
+		scripting.executeBurstingLifeCycleScript(ctx.scripts.endParsePage, ctx);
+
+		ctx.previousPageText = ctx.currentPageText;
+		ctx.currentPageText = StringUtils.EMPTY;
+
+		this.requestedCancelOrPauseProcessing = checkIfRequestedCancelOrPauseProcessing();
+
+	}
+
+	private void _configureTextExtraction(PDFTextStripper stripper) {
+
 		/* start text extraction options */
 		if (ctx.settings.getAverageCharTolerance() > 0)
 			stripper.setAverageCharTolerance(ctx.settings.getAverageCharTolerance());
@@ -133,17 +391,19 @@ public class PdfBurster extends AbstractBurster {
 		stripper.setShouldSeparateByBeads(ctx.settings.isShouldSeparateByBeads());
 		/* end text extraction options */
 
-		stripper.setStartPage(pageIndex);
-		stripper.setEndPage(pageIndex);
+	}
+
+	// @Profiled
+	protected void processPage(int pageIndex, PDPage page, String pageText) throws Exception {
+
+		currentPage = page;
 
-		ctx.currentPageText = stripper.getText(document);
+		ctx.currentPageText = pageText;
 
 		if (pageIndex == 1) {
 			checkForCustomConfigFile();
 		}
 
-		stripper = null;
-
 		scripting.executeBurstingLifeCycleScript(ctx.scripts.parsePageTokens, ctx);
 
 		if (ctx.settings.isReuseTokensWhenNotFound()) {
@@ -162,11 +422,14 @@ public class PdfBurster extends AbstractBurster {
 
 				if (token.length() > 0) {
 
-					if (ctx.burstTokens.contains(token))
-						burstDocuments.get(token).add(currentPage);
+					// hash lookup, ctx.burstTokens keeps the order of the tokens
+					List<PDPage> pages = burstDocuments.get(token);
+
+					if (pages != null)
+						pages.add(currentPage);
 					else {
 						ctx.burstTokens.add(token);
-						List<PDPage> pages = new ArrayList<PDPage>();
+						pages = new ArrayList<PDPage>();
 						pages.add(currentPage);
 						burstDocuments.put(token, pages);
 					}
@@ -227,7 +490,7 @@ public class PdfBurster extends AbstractBurster {
 	protected PdfExtractor getPdfExtractor(PDDocument pdf, String outputFileName, String token) {
 
 		log.debug("outputFileName = " + outputFileName + ", token = " + token);
-		return new PdfExtractor(pdf, ctx.settings, outputFileName, token);
+		return new PdfExtractor(pdf, ctx.settings, outputFileName, token, resourcesCache);
 
 	}
 
@@ -39,8 +39,22 @@ public class PdfExtractor {
 	private String token;
 	private Settings settings;
 
+	private PdfResourcesCache resourcesCache;
+	private PdfResourcesCache.DocumentResources documentResources;
+
 	public PdfExtractor(PDDocument pdfDocument, Settings settings, String outputFileName, String token) {
 
+		this(pdfDocument, settings, outputFileName, token, null);
+
+	}
+
+	/**
+	 * With a resourcesCache the pages are extracted with only the fonts and
+	 * XObjects they use.
+	 */
+	public PdfExtractor(PDDocument pdfDocument, Settings settings, String outputFileName, String token,
+			PdfResourcesCache resourcesCache) {
+
 		log.debug("settings = " + settings + ", outputFileName = " + outputFileName + ", token = " + token);
 
 		this.originalPdfDocument = pdfDocument;
@@ -49,6 +63,8 @@ public class PdfExtractor {
 		this.outputFileName = outputFileName;
 		this.token = token;
 
+		this.resourcesCache = resourcesCache;
+
 	}
 
 	//@Profiled
@@ -67,6 +83,9 @@ public class PdfExtractor {
 
 		outputDocument.save(outputFileName);
 
+		if (resourcesCache != null)
+			resourcesCache.documentSaved(documentResources);
+
 		outputDocument.getDocument().close();
 		outputDocument.close();
 
@@ -87,6 +106,9 @@ public class PdfExtractor {
 
 		outputDocument = new PDDocument();
 
+		if (resourcesCache != null)
+			documentResources = resourcesCache.newDocument();
+
 		outputDocument.setDocumentInformation(docInformation);
 		outputDocument.getDocumentCatalog()
 				.setViewerPreferences(originalPdfDocument.getDocumentCatalog().getViewerPreferences());
@@ -99,7 +121,10 @@ public class PdfExtractor {
 		PDPage imported = outputDocument.importPage(page);
 		imported.setCropBox(page.getCropBox());
 		imported.setMediaBox(page.getMediaBox());
-		imported.setResources(page.getResources());
+		if (resourcesCache != null)
+			imported.setResources(resourcesCache.getPageResources(page, documentResources));
+		else
+			imported.setResources(page.getResources());
 		imported.setRotation(page.getRotation());
 
 	}
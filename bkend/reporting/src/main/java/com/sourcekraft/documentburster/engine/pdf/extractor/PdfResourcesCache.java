@@ -0,0 +1,303 @@
+/*
+    DocumentBurster is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License, or
+    (at your option) any later version.
+
+    DocumentBurster is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with DocumentBurster.  If not, see <http://www.gnu.org/licenses/>
+ */
+package com.sourcekraft.documentburster.engine.pdf.extractor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The pages of a PDF report often share a single resources dictionary holding
+ * the fonts and images of the whole report, each burst document would then
+ * contain all of them. This cache gives the burst pages resources holding only
+ * the fonts and XObjects which are used by their content. The pruned
+ * dictionaries are computed once per burst run (the pages having the same
+ * resources and using the same names share the same dictionary) and the
+ * retained entries keep pointing to the original objects, so the fonts /
+ * images which are used are still written only once per document.
+ */
+public class PdfResourcesCache {
+
+	private Logger log = LoggerFactory.getLogger(PdfResourcesCache.class);
+
+	private static final COSName[] PRUNED_CATEGORIES = { COSName.XOBJECT, COSName.FONT };
+
+	private static final COSName[] FONT_FILES = { COSName.FONT_FILE, COSName.FONT_FILE2, COSName.FONT_FILE3 };
+
+	private Map<COSDictionary, Map<Set<COSName>, PrunedResources>> prunedResources = new IdentityHashMap<COSDictionary, Map<Set<COSName>, PrunedResources>>();
+
+	private Map<COSBase, Long> encodedLengths = new IdentityHashMap<COSBase, Long>();
+
+	private long numberOfPrunedDocuments = 0;
+	private long bytesSaved = 0;
+
+	private static class PrunedResources {
+
+		private PDResources resources;
+
+		private List<COSBase> keptObjects = new ArrayList<COSBase>();
+		private List<COSBase> droppedObjects = new ArrayList<COSBase>();
+
+	}
+
+	/**
+	 * The resources written with the pages of a single burst document.
+	 */
+	public static class DocumentResources {
+
+		private Set<COSBase> keptObjects = Collections.newSetFromMap(new IdentityHashMap<COSBase, Boolean>());
+		private Set<COSBase> droppedObjects = Collections.newSetFromMap(new IdentityHashMap<COSBase, Boolean>());
+
+	}
+
+	public DocumentResources newDocument() {
+		return new DocumentResources();
+	}
+
+	/**
+	 * The resources to be used by the burst copy of the page (the original
+	 * resources when the page content cannot be analyzed).
+	 */
+	public PDResources getPageResources(PDPage page, DocumentResources document) {
+
+		PDResources resources = page.getResources();
+
+		if (resources == null)
+			return null;
+
+		Set<COSName> usedNames = getUsedNames(page);
+
+		if ((usedNames == null) || usesInheritedResources(resources, usedNames))
+			return resources;
+
+		Map<Set<COSName>, PrunedResources> pagesResources = prunedResources.get(resources.getCOSObject());
+
+		if (pagesResources == null) {
+			pagesResources = new HashMap<Set<COSName>, PrunedResources>();
+			prunedResources.put(resources.getCOSObject(), pagesResources);
+		}
+
+		PrunedResources pruned = pagesResources.get(usedNames);
+
+		if (pruned == null) {
+			pruned = prune(resources, usedNames);
+			pagesResources.put(usedNames, pruned);
+		}
+
+		document.keptObjects.addAll(pruned.keptObjects);
+		document.droppedObjects.addAll(pruned.droppedObjects);
+
+		return pruned.resources;
+
+	}
+
+	/**
+	 * Called once the burst document was saved, adds the resources which were
+	 * not written to the run totals.
+	 */
+	public void documentSaved(DocumentResources document) {
+
+		long documentBytesSaved = 0;
+
+		for (COSBase droppedObject : document.droppedObjects)
+			if (!document.keptObjects.contains(droppedObject))
+				documentBytesSaved += getEncodedLength(droppedObject);
+
+		if (documentBytesSaved > 0) {
+			numberOfPrunedDocuments++;
+			bytesSaved += documentBytesSaved;
+		}
+
+	}
+
+	public long getBytesSaved() {
+		return bytesSaved;
+	}
+
+	public void logStatistics() {
+
+		log.info("Unused PDF resources were pruned from " + numberOfPrunedDocuments
+				+ " burst documents, saving " + bytesSaved + " bytes of fonts and images");
+
+	}
+
+	/*
+	 * The names of the XObjects (Do operator) and fonts (Tf operator) used by the
+	 * page content, null when the content cannot be parsed.
+	 */
+	private Set<COSName> getUsedNames(PDPage page) {
+
+		Set<COSName> usedNames = new HashSet<COSName>();
+
+		try {
+
+			PDFStreamParser parser = new PDFStreamParser(page);
+			parser.parse();
+
+			List<COSBase> operands = new ArrayList<COSBase>();
+
+			for (Object token : parser.getTokens()) {
+				if (token instanceof Operator) {
+					String operator = ((Operator) token).getName();
+					if (("Do".equals(operator) || "Tf".equals(operator)) && !operands.isEmpty()
+							&& (operands.get(0) instanceof COSName))
+						usedNames.add((COSName) operands.get(0));
+					operands.clear();
+				} else if (token instanceof COSBase)
+					operands.add((COSBase) token);
+			}
+
+		} catch (Exception e) {
+			log.debug("Could not parse the page content, the page resources are not pruned: " + e);
+			return null;
+		}
+
+		return usedNames;
+
+	}
+
+	/*
+	 * Form XObjects without their own resources use the resources of the page,
+	 * the names they use are not known.
+	 */
+	private boolean usesInheritedResources(PDResources resources, Set<COSName> usedNames) {
+
+		COSBase xObjects = resources.getCOSObject().getDictionaryObject(COSName.XOBJECT);
+
+		if (!(xObjects instanceof COSDictionary))
+			return false;
+
+		for (COSName name : usedNames) {
+			COSBase xObject = ((COSDictionary) xObjects).getDictionaryObject(name);
+			if ((xObject instanceof COSStream) && COSName.FORM.equals(((COSStream) xObject).getCOSName(COSName.SUBTYPE))
+					&& (((COSStream) xObject).getDictionaryObject(COSName.RESOURCES) == null))
+				return true;
+		}
+
+		return false;
+
+	}
+
+	private PrunedResources prune(PDResources resources, Set<COSName> usedNames) {
+
+		PrunedResources pruned = new PrunedResources();
+
+		COSDictionary resourcesDictionary = new COSDictionary(resources.getCOSObject());
+
+		for (COSName category : PRUNED_CATEGORIES) {
+
+			COSBase entries = resources.getCOSObject().getDictionaryObject(category);
+
+			if (!(entries instanceof COSDictionary))
+				continue;
+
+			COSDictionary keptEntries = new COSDictionary();
+
+			for (Map.Entry<COSName, COSBase> entry : ((COSDictionary) entries).entrySet()) {
+				// keep the (indirect) reference so the object is shared, not copied
+				COSBase object = unwrap(entry.getValue());
+				if (usedNames.contains(entry.getKey())) {
+					keptEntries.setItem(entry.getKey(), entry.getValue());
+					pruned.keptObjects.add(object);
+				} else
+					pruned.droppedObjects.add(object);
+			}
+
+			resourcesDictionary.setItem(category, keptEntries);
+
+		}
+
+		pruned.resources = new PDResources(resourcesDictionary);
+
+		return pruned;
+
+	}
+
+	private long getEncodedLength(COSBase object) {
+
+		Long length = encodedLengths.get(object);
+
+		if (length == null) {
+			length = computeEncodedLength(object);
+			encodedLengths.put(object, length);
+		}
+
+		return length;
+
+	}
+
+	/*
+	 * The length of the encoded (filtered) stream of an XObject, or of the
+	 * embedded font files of a font.
+	 */
+	private long computeEncodedLength(COSBase object) {
+
+		object = unwrap(object);
+
+		if (object instanceof COSStream)
+			return ((COSStream) object).getLength();
+
+		if (!(object instanceof COSDictionary))
+			return 0;
+
+		COSDictionary font = (COSDictionary) object;
+
+		long length = 0;
+
+		COSBase fontDescriptor = font.getDictionaryObject(COSName.FONT_DESC);
+		if (fontDescriptor instanceof COSDictionary)
+			for (COSName fontFile : FONT_FILES) {
+				COSBase fontFileStream = ((COSDictionary) fontDescriptor).getDictionaryObject(fontFile);
+				if (fontFileStream instanceof COSStream)
+					length += ((COSStream) fontFileStream).getLength();
+			}
+
+		COSBase descendantFonts = font.getDictionaryObject(COSName.DESCENDANT_FONTS);
+		if (descendantFonts instanceof COSArray)
+			for (COSBase descendantFont : (COSArray) descendantFonts)
+				length += computeEncodedLength(descendantFont);
+
+		return length;
+
+	}
+
+	private static COSBase unwrap(COSBase object) {
+
+		if (object instanceof COSObject)
+			return ((COSObject) object).getObject();
+
+		return object;
+
+	}
+
+}
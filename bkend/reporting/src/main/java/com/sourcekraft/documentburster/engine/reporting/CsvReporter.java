@@ -6,9 +6,11 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -24,16 +26,34 @@ public class CsvReporter extends AbstractReporter {
 
 	private static final Logger log = LoggerFactory.getLogger(CsvReporter.class);
 
+	private char separatorChar;
+	private boolean ignoreLeadingWhitespace;
+	private int skipLines;
+	private boolean hasHeader;
+
+	private com.opencsv.CSVParser parser;
+
 	public CsvReporter(String configFilePath) {
 		super(configFilePath);
 	}
 
+	/* fetchData reads the file line by line through streamData anyway */
+	@Override
+	protected boolean canStreamData() {
+		return true;
+	}
+
+	@Override
+	protected boolean isStreamingConfigured() {
+		return ctx.settings.getReportDataSource().csvoptions.streaming;
+	}
+
 	@Override
 	protected void fetchData() throws Exception {
 		log.trace("Entering fetchData...");
 
 		// --- Read CSV Options ---
-		char separatorChar = CsvUtils.DEFAULT_SEPARATOR;
+		separatorChar = CsvUtils.DEFAULT_SEPARATOR;
 		String sSeparator = ctx.settings.getReportDataSource().csvoptions.separatorchar;
 		if (StringUtils.isNotEmpty(sSeparator)) {
 			if (sSeparator.equals(CsvUtils.AUTODETECT)) {
@@ -60,12 +80,12 @@ public class CsvReporter extends AbstractReporter {
 		}
 		log.debug("Using escape character: '{}'", escapeChar);
 
-		boolean ignoreLeadingWhitespace = ctx.settings.getReportDataSource().csvoptions.ignoreleadingwhitespace;
+		ignoreLeadingWhitespace = ctx.settings.getReportDataSource().csvoptions.ignoreleadingwhitespace;
 		boolean strictQuotes = ctx.settings.getReportDataSource().csvoptions.strictquotations;
 		boolean ignoreQuotations = ctx.settings.getReportDataSource().csvoptions.ignorequotations;
 		// User-defined lines to skip *before* reading data. Header is within these
 		// lines if hasHeader=true.
-		int skipLines = ctx.settings.getReportDataSource().csvoptions.skiplines;
+		skipLines = ctx.settings.getReportDataSource().csvoptions.skiplines;
 		String headerSetting = ctx.settings.getReportDataSource().csvoptions.header;
 
 		// Ensure skipLines is non-negative
@@ -75,7 +95,7 @@ public class CsvReporter extends AbstractReporter {
 		}
 
 		// Determine if a header row is expected based on settings
-		boolean hasHeader = !CsvUtils.HEADER_NOHEADER.equalsIgnoreCase(headerSetting);
+		hasHeader = !CsvUtils.HEADER_NOHEADER.equalsIgnoreCase(headerSetting);
 		// If header=firstline or header=multiline, the header is assumed to be the
 		// *first* line of the file.
 		// If header=noheader, there's no header row to read.
@@ -85,80 +105,100 @@ public class CsvReporter extends AbstractReporter {
 				headerSetting, skipLines, hasHeader, ignoreLeadingWhitespace, strictQuotes, ignoreQuotations);
 
 		// --- Build CSV Parser ---
-		com.opencsv.CSVParser parser = new CSVParserBuilder().withSeparator(separatorChar).withQuoteChar(quotationChar)
+		parser = new CSVParserBuilder().withSeparator(separatorChar).withQuoteChar(quotationChar)
 				.withEscapeChar(escapeChar).withStrictQuotes(strictQuotes).withIgnoreQuotations(ignoreQuotations)
 				.withIgnoreLeadingWhiteSpace(ignoreLeadingWhitespace).build();
 
 		ctx.reportData = new ArrayList<>(); // Initialize reportData
 		ctx.reportColumnNames = new ArrayList<>(); // Initialize reportColumnNames
+
+		if (streamingBursting) {
+			// the rows are read (and burst) one by one in streamData
+			log.debug("Streaming the rows of '{}', the data will be read while bursting.", filePath);
+			return;
+		}
+
+		// single pass, the same reading as when streaming
+		streamData(row -> ctx.reportData.add(row));
+
+		log.info("CSV data fetched successfully. Headers: {}. Data rows: {}", ctx.reportColumnNames.size(),
+				ctx.reportData.size());
+		log.trace("Exiting fetchData.");
+	}
+
+	/**
+	 * Reads the file once: the header (first line), the skipped lines and the data
+	 * rows. The row keys (duplicate headers renamed) are computed once, each row
+	 * is then a pre-sized map filled by column index.
+	 */
+	@Override
+	protected void streamData(RowHandler rowHandler) throws Exception {
+
 		String[] headers = null;
+		String[] columnKeys = null;
+		int dataSkipLines = skipLines;
 
-		// --- Read Header Row (if applicable) ---
-		// The header is always the *first* line if hasHeader is true.
-		// It is read regardless of skipLines, but skipLines determines where data
-		// starts.
-		if (hasHeader) {
-			log.debug("Attempting to read header from the first line of the file.");
-			try (BufferedReader bufferedReader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8);
-					// Use a reader that skips 0 lines to get the very first line
-					CSVReader headerReader = new CSVReaderBuilder(bufferedReader).withCSVParser(parser).withSkipLines(0) // Always
-																															// read
-																															// the
-																															// first
-																															// line
-																															// for
-																															// the
-																															// header
-							.build()) {
-
-				headers = headerReader.readNext(); // Read the first line
+		try (BufferedReader bufferedReader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8);
+				CSVReader reader = new CSVReaderBuilder(bufferedReader).withCSVParser(parser).build()) {
 
-				if (headers == null) {
-					log.warn(
-							"Could not read header from the first line. File might be empty. Will attempt to generate generic headers from data.");
-				} else {
-					log.debug("Successfully read header from first line ({} columns): {}", headers.length,
-							Arrays.toString(headers));
-					// Basic check for separator issues based on header
-					if (headers.length == 1 && headers[0].contains(String.valueOf(separatorChar))) {
-						log.warn(
-								"Header row ('{}') only has one column and contains the separator '{}'. Check if separator is correct.",
-								headers[0], separatorChar);
-					}
-					// Ensure skipLines is at least 1 if a header exists, as the header itself must
-					// be skipped before data
-					if (skipLines < 1) {
+			// --- Read Header Row (if applicable) ---
+			// The header is always the *first* line if hasHeader is true.
+			// It is read regardless of skipLines, but skipLines determines where data
+			// starts.
+			if (hasHeader) {
+				log.debug("Attempting to read header from the first line of the file.");
+				try {
+					headers = reader.readNext(); // Read the first line
+
+					if (headers == null) {
 						log.warn(
-								"Header setting implies at least one line (the header) should be skipped, but skipLines is {}. Adjusting skipLines to 1.",
-								skipLines);
-						skipLines = 1;
+								"Could not read header from the first line. File might be empty. Will attempt to generate generic headers from data.");
+					} else {
+						log.debug("Successfully read header from first line ({} columns): {}", headers.length,
+								Arrays.toString(headers));
+						// Basic check for separator issues based on header
+						if (headers.length == 1 && headers[0].contains(String.valueOf(separatorChar))) {
+							log.warn(
+									"Header row ('{}') only has one column and contains the separator '{}'. Check if separator is correct.",
+									headers[0], separatorChar);
+						}
+						// Ensure skipLines is at least 1 if a header exists, as the header itself must
+						// be skipped before data
+						if (dataSkipLines < 1) {
+							log.warn(
+									"Header setting implies at least one line (the header) should be skipped, but skipLines is {}. Adjusting skipLines to 1.",
+									dataSkipLines);
+							dataSkipLines = 1;
+						}
+						columnKeys = _storeColumnNames(headers);
 					}
+				} catch (Exception e) {
+					log.error(
+							"Error reading header from the first line of file '{}'. Will attempt to generate generic headers from data.",
+							filePath, e);
+					headers = null; // Ensure headers is null if reading failed
 				}
-			} catch (Exception e) {
-				log.error(
-						"Error reading header from the first line of file '{}'. Will attempt to generate generic headers from data.",
-						filePath, e);
-				headers = null; // Ensure headers is null if reading failed
+			} else {
+				log.debug("Header setting is 'noheader'. No header row will be read.");
+				// skipLines remains as configured by the user.
 			}
-		} else {
-			log.debug("Header setting is 'noheader'. No header row will be read.");
-			// skipLines remains as configured by the user.
-		}
 
-		// --- Read Data Rows ---
-		// Data reading *always* starts after skipping exactly 'skipLines'.
-		log.debug("Configuring main CSVReader to skip {} lines before reading data.", skipLines);
-		try (BufferedReader bufferedReader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8);
-				CSVReader dataReader = new CSVReaderBuilder(bufferedReader).withCSVParser(parser)
-						.withSkipLines(skipLines) // Skip exactly 'skipLines' lines before reading the first data row
-						.build()) {
+			// --- Skip Lines ---
+			// Data reading *always* starts after skipping exactly 'skipLines' lines (the
+			// header lines included).
+			long linesToSkip = dataSkipLines - reader.getLinesRead();
+			if (linesToSkip > 0) {
+				log.debug("Skipping {} more lines before reading data.", linesToSkip);
+				reader.skip((int) linesToSkip);
+			}
 
+			// --- Read Data Rows ---
 			String[] row;
 			int dataRowIndex = 0; // 0-based index relative to the *start* of data reading
 
-			while ((row = dataReader.readNext()) != null) {
+			while ((row = reader.readNext()) != null) {
 				log.trace("Reading data row index: {} (physical line approx {})", dataRowIndex,
-						skipLines + dataRowIndex + 1);
+						dataSkipLines + dataRowIndex + 1);
 
 				// --- START: Workaround for OpenCSV ignoreleadingwhitespace bug ---
 				// If ignoreleadingwhitespace is true, trim both leading/trailing whitespace
@@ -176,16 +216,13 @@ public class CsvReporter extends AbstractReporter {
 
 				// Generate generic headers if needed (only on the first data row read if no
 				// headers were successfully read/set)
-				if (headers == null && dataRowIndex == 0) {
+				if (headers == null) {
 					headers = new String[row.length];
 					for (int i = 0; i < row.length; i++) {
 						headers[i] = "col" + i;
 					}
 					log.debug("Generated generic headers based on first data row read: {}", Arrays.toString(headers));
-				} else if (headers == null) {
-					// Should not happen if there's data after the first row, but safeguard
-					log.error("Headers are null but reading subsequent data row {}. Stopping data read.", dataRowIndex);
-					break;
+					columnKeys = _storeColumnNames(headers);
 				}
 
 				// Check for potential separator issues on the first data row read
@@ -195,52 +232,65 @@ public class CsvReporter extends AbstractReporter {
 							row[0], separatorChar);
 				}
 
-				// Create map using headers
-				LinkedHashMap<String, Object> rowMap = new LinkedHashMap<>();
-				for (int j = 0; j < headers.length; j++) {
-					String headerName = headers[j];
+				// Create map using the (unique) column keys
+				LinkedHashMap<String, Object> rowMap = new LinkedHashMap<>(columnKeys.length * 4 / 3 + 1);
+				for (int j = 0; j < columnKeys.length; j++) {
 					String value = (j < row.length) ? row[j] : ""; // Handle rows shorter than header
-					// Handle potential duplicate header names
-					String uniqueHeaderName = headerName;
-					int duplicateCount = 2;
-					while (rowMap.containsKey(uniqueHeaderName)) {
-						uniqueHeaderName = headerName + "_" + duplicateCount++;
-					}
-					if (!uniqueHeaderName.equals(headerName)) {
-						log.trace("Duplicate header '{}' found, using '{}' instead for this row.", headerName,
-								uniqueHeaderName);
-					}
-					rowMap.put(uniqueHeaderName, toObject(value));
+					rowMap.put(columnKeys[j], toObject(value));
 				}
-				ctx.reportData.add(rowMap);
-				log.trace("Added data row map: {}", rowMap);
+				log.trace("Read data row map: {}", rowMap);
 				dataRowIndex++;
+
+				if (!rowHandler.process(rowMap))
+					break;
 			}
 			log.info("Finished reading CSV data. Total data rows processed: {}", dataRowIndex);
 
 		}
 
-		// Store final headers in context if they exist
-		if (headers != null) {
-			// Handle potential duplicates in the final header list
-			List<String> finalHeaders = new ArrayList<>();
-			Map<String, Integer> headerCounts = new LinkedHashMap<>();
-			for (String header : headers) {
-				int count = headerCounts.getOrDefault(header, 0) + 1;
-				headerCounts.put(header, count);
-				String uniqueHeader = (count > 1) ? header + "_" + count : header;
-				finalHeaders.add(uniqueHeader);
-			}
-			ctx.reportColumnNames.addAll(finalHeaders);
-			log.debug("Stored final column names (duplicates adjusted): {}", ctx.reportColumnNames);
-		} else if (!ctx.reportData.isEmpty()) {
-			log.warn("No headers were read or generated, but data rows exist. Column names context will be empty.");
-		} else {
+		if (headers == null)
 			log.debug("No headers found and no data rows processed.");
+
+	}
+
+	/*
+	 * Stores the column names (duplicates adjusted) in the context and returns the
+	 * keys of the row maps, a header repeated in the same row gets a _2, _3 ...
+	 * suffix.
+	 */
+	private String[] _storeColumnNames(String[] headers) {
+
+		// Handle potential duplicates in the final header list
+		List<String> finalHeaders = new ArrayList<>();
+		Map<String, Integer> headerCounts = new LinkedHashMap<>();
+		for (String header : headers) {
+			int count = headerCounts.getOrDefault(header, 0) + 1;
+			headerCounts.put(header, count);
+			String uniqueHeader = (count > 1) ? header + "_" + count : header;
+			finalHeaders.add(uniqueHeader);
 		}
+		ctx.reportColumnNames.clear();
+		ctx.reportColumnNames.addAll(finalHeaders);
+		log.debug("Stored final column names (duplicates adjusted): {}", ctx.reportColumnNames);
+
+		String[] columnKeys = new String[headers.length];
+		Set<String> usedKeys = new HashSet<>();
+		for (int j = 0; j < headers.length; j++) {
+			String headerName = headers[j];
+			// Handle potential duplicate header names
+			String uniqueHeaderName = headerName;
+			int duplicateCount = 2;
+			while (usedKeys.contains(uniqueHeaderName)) {
+				uniqueHeaderName = headerName + "_" + duplicateCount++;
+			}
+			if (!uniqueHeaderName.equals(headerName)) {
+				log.trace("Duplicate header '{}' found, using '{}' instead.", headerName, uniqueHeaderName);
+			}
+			usedKeys.add(uniqueHeaderName);
+			columnKeys[j] = uniqueHeaderName;
+		}
+
+		return columnKeys;
 
-		log.info("CSV data fetched successfully. Headers: {}. Data rows: {}", ctx.reportColumnNames.size(),
-				ctx.reportData.size());
-		log.trace("Exiting fetchData.");
 	}
 }
\ No newline at end of file
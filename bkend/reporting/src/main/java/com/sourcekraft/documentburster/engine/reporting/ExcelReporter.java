@@ -17,8 +17,12 @@ import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.sourcekraft.documentburster.common.settings.model.ReportSettings;
 import com.sourcekraft.documentburster.engine.AbstractReporter;
 import com.sourcekraft.documentburster.engine.excel.ExcelUtils;
+import com.sourcekraft.documentburster.engine.excel.XlsxStreamingReader;
+import com.sourcekraft.documentburster.engine.excel.XlsxStreamingReader.StreamedCell;
+import com.sourcekraft.documentburster.engine.excel.XlsxStreamingReader.StreamedRow;
 import com.sourcekraft.documentburster.utils.CsvUtils;
 
 public class ExcelReporter extends AbstractReporter {
@@ -28,52 +32,73 @@ public class ExcelReporter extends AbstractReporter {
 	public ExcelReporter(String configFilePath) {
 		super(configFilePath);
 	}
+
+    /**
+     * exceloptions.streaming is honoured only for .xlsx / .xlsm files, .xls files
+     * are always loaded with the usermodel.
+     */
+    @Override
+    protected boolean isStreamingConfigured() {
+        return ctx.settings.getReportDataSource().exceloptions.streaming && XlsxStreamingReader.isXlsx(filePath);
+    }
+
 	@Override
     protected void fetchData() throws Exception {
         log.trace("Entering fetchData..."); // Added logging
 
-        // --- Read Excel Options ---
-        String idColumn = ctx.settings.getReportDataSource().exceloptions.idcolumn;
-        String headerSetting = ctx.settings.getReportDataSource().exceloptions.header;
-        int userSkipLines = ctx.settings.getReportDataSource().exceloptions.skiplines;
-        boolean ignoreLeadingWhitespace = ctx.settings.getReportDataSource().exceloptions.ignoreleadingwhitespace;
-        boolean useFormulaResults = ctx.settings.getReportDataSource().exceloptions.useformularesults;
-        int sheetIndex = ctx.settings.getReportDataSource().exceloptions.sheetindex;
+        ExcelRowsParser parser = new ExcelRowsParser(ctx.settings.getReportDataSource().exceloptions);
 
-        // --- Validate idColumn --- (Kept from original)
-        if (StringUtils.isEmpty(idColumn)) {
-            throw new IllegalArgumentException(
-                    "idcolumn setting must be configured - use 'notused' for sequential numbering");
-        }
-        if (!idColumn.equalsIgnoreCase(CsvUtils.NOT_USED) && !idColumn.equalsIgnoreCase(CsvUtils.COLUMN_FIRST)
-                && !idColumn.equalsIgnoreCase(CsvUtils.COLUMN_LAST) && !StringUtils.isNumeric(idColumn)) {
-            // Allow header names later? For now, stick to original validation.
-            // Consider adding check if header name exists if hasHeader is true.
-            log.warn("idcolumn validation passed for: {}", idColumn);
-            throw new IllegalArgumentException(
-             		"idcolumn must be 'first', 'last', 'notused' or a numeric column index (e.g., 0, 1, ...)");
+        // Initialize results
+        ctx.reportData = new ArrayList<>();
+        ctx.reportColumnNames = new ArrayList<>(); // Initialize reportColumnNames list
+
+        if (streamingBursting) {
+            // the rows are read (and burst) one by one in streamData
+            log.debug("Streaming the rows of '{}', the data will be read while bursting.", filePath);
+            return;
         }
 
-        // Ensure skipLines is non-negative
-        if (userSkipLines < 0) {
-            log.warn("Invalid negative skipLines ({}) provided. Defaulting to 0.", userSkipLines);
-            userSkipLines = 0;
+        if (isStreamingConfigured()) {
+            XlsxStreamingReader.read(filePath, parser.sheetIndex, streamedRow -> {
+                LinkedHashMap<String, Object> rowMap = parser.parse(new StreamedExcelRow(streamedRow, parser));
+                if (rowMap != null)
+                    ctx.reportData.add(rowMap);
+                return true;
+            });
+        } else
+            _readWorkbook(parser);
+
+        parser.finish();
+
+        // Basic validation check (kept from original) - Consider if this is still needed/correct
+        if (!ctx.reportData.isEmpty() && ctx.reportData.get(0).size() == 1) {
+            log.warn("Validation check: Excel file appears to contain only 1 column with value: '{}'", ctx.reportData.get(0).values().iterator().next());
+            // throw new IllegalArgumentException("Excel file appears to contain only 1 column with value: '"
+            // 		+ ctx.reportData.get(0).values().iterator().next() + "'");
         }
 
-        // Determine if a header row is expected based on settings
-        // Correctly interpret 'firstline' and 'multiline' as having a header on the first line.
-        boolean hasHeader = CsvUtils.HEADER_FIRSTLINE.equalsIgnoreCase(headerSetting) ||
-                            CsvUtils.HEADER_MULTILINE.equalsIgnoreCase(headerSetting);
+        log.info("Excel data fetched successfully. Headers: {}. Data rows: {}", ctx.reportColumnNames.size(),
+                ctx.reportData.size());
+        log.trace("Exiting fetchData.");
+    }
 
-        log.debug(
-                "Excel Options: headerSetting={}, userSkipLines={}, hasHeader={}, ignoreLeadingWhitespace={}, useFormulaResults={}, sheetIndex={}",
-                headerSetting, userSkipLines, hasHeader, ignoreLeadingWhitespace, useFormulaResults, sheetIndex);
+    @Override
+    protected void streamData(RowHandler rowHandler) throws Exception {
 
-        // Initialize results
-        ctx.reportData = new ArrayList<>();
-        ctx.reportColumnNames = new ArrayList<>(); // Initialize reportColumnNames list
-        String[] headers = null;
-        int maxColsBasedOnHeader = 0; // Track header width if read
+        ExcelRowsParser parser = new ExcelRowsParser(ctx.settings.getReportDataSource().exceloptions);
+
+        XlsxStreamingReader.read(filePath, parser.sheetIndex, streamedRow -> {
+            LinkedHashMap<String, Object> rowMap = parser.parse(new StreamedExcelRow(streamedRow, parser));
+            return (rowMap == null) || rowHandler.process(rowMap);
+        });
+
+        parser.finish();
+
+        log.info("Streamed {} Excel data rows", parser.dataRowCounter);
+
+    }
+
+    private void _readWorkbook(ExcelRowsParser parser) throws Exception {
 
         try (FileInputStream excelFile = new FileInputStream(filePath);
                 Workbook workbook = WorkbookFactory.create(excelFile)) {
@@ -81,86 +106,291 @@ public class ExcelReporter extends AbstractReporter {
             // Get sheet based on settings
             Sheet sheet;
             try {
-                sheet = workbook.getSheetAt(sheetIndex);
+                sheet = workbook.getSheetAt(parser.sheetIndex);
                 if (sheet == null) {
                     throw new IllegalArgumentException(
-                            "Sheet index " + sheetIndex + " does not exist in the workbook.");
+                            "Sheet index " + parser.sheetIndex + " does not exist in the workbook.");
                 }
             } catch (IllegalArgumentException e) { // Catch index out of bounds
-                throw new IllegalArgumentException(
-                        "Invalid sheet index: " + sheetIndex + ". Workbook has " + workbook.getNumberOfSheets() + " sheets.", e);
+                throw new IllegalArgumentException("Invalid sheet index: " + parser.sheetIndex + ". Workbook has "
+                        + workbook.getNumberOfSheets() + " sheets.", e);
             }
-            log.debug("Selected sheet '{}' at index {}.", sheet.getSheetName(), sheetIndex);
+            log.debug("Selected sheet '{}' at index {}.", sheet.getSheetName(), parser.sheetIndex);
 
+            Iterator<Row> rowIterator = sheet.iterator();
+            while (rowIterator.hasNext()) {
+                LinkedHashMap<String, Object> rowMap = parser.parse(new WorkbookExcelRow(rowIterator.next(), parser));
+                if (rowMap != null)
+                    ctx.reportData.add(rowMap);
+            }
 
-            // --- Read Header Row (if applicable) ---
-            // The header is always the *first* row (index 0) if hasHeader is true.
-            if (hasHeader) {
-                log.debug("Attempting to read header from the first row (index 0).");
-                Row headerRow = sheet.getRow(0); // Get the first row directly
-                if (headerRow == null) {
-                    log.warn(
-                            "Header row (index 0) is null or physically missing, but header setting was '{}'. Will attempt to generate generic headers from data.", headerSetting);
+        } // End try-with-resources (Workbook)
+
+    }
+
+    /*
+     * A physical row of the sheet, either read from the workbook (usermodel) or
+     * streamed from the sheet XML.
+     */
+    private interface ExcelRow {
+
+        int getRowNum();
+
+        int getLastCellNum();
+
+        /* the header text, same as ExcelUtils.getCellValueAsString */
+        String getText(int i);
+
+        /* the typed value of the cell (Double, Date, Boolean, String or null) */
+        Object getValue(int i) throws Exception;
+
+    }
+
+    private static class WorkbookExcelRow implements ExcelRow {
+
+        private final Row row;
+        private final ExcelRowsParser parser;
+
+        private WorkbookExcelRow(Row row, ExcelRowsParser parser) {
+            this.row = row;
+            this.parser = parser;
+        }
+
+        public int getRowNum() {
+            return row.getRowNum();
+        }
+
+        public int getLastCellNum() {
+            return row.getLastCellNum();
+        }
+
+        public String getText(int i) {
+            // Always get header as string, don't evaluate formulas here
+            return ExcelUtils.getCellValueAsString(row.getCell(i, Row.MissingCellPolicy.CREATE_NULL_AS_BLANK));
+        }
+
+        public Object getValue(int i) throws Exception {
+
+            Cell cell = row.getCell(i, Row.MissingCellPolicy.CREATE_NULL_AS_BLANK);
+            Object cellValue = null;
+
+            // Get typed value based on cell type (kept original logic)
+            switch (cell.getCellType()) {
+            case NUMERIC:
+                if (DateUtil.isCellDateFormatted(cell)) {
+                    cellValue = cell.getDateCellValue();
                 } else {
-                    // Determine the number of cells in the header row
-                    maxColsBasedOnHeader = headerRow.getLastCellNum();
-                    if (maxColsBasedOnHeader < 0) maxColsBasedOnHeader = 0; // Handle empty header row
-
-                    if (maxColsBasedOnHeader == 0) {
-                        log.warn("Header row (index 0) has no cells. Will attempt to generate generic headers from data.");
-                    } else {
-                        headers = new String[maxColsBasedOnHeader];
-                        log.trace("Header row has {} potential columns.", maxColsBasedOnHeader);
-                        for (int i = 0; i < maxColsBasedOnHeader; i++) {
-                            Cell cell = headerRow.getCell(i, Row.MissingCellPolicy.CREATE_NULL_AS_BLANK);
-                            // Always get header as string, don't evaluate formulas here
-                            headers[i] = ExcelUtils.getCellValueAsString(cell); // Use utility for consistency
-                            if (ignoreLeadingWhitespace && headers[i] != null) {
-                                headers[i] = headers[i].trim();
-                            }
-                            // Generate default name if header cell is blank (Original used ColumnX+1, using colX for consistency)
-                            if (StringUtils.isBlank(headers[i])) {
-                                headers[i] = "col" + i;
-                                log.trace("Header cell at index {} was blank, assigned default name '{}'.", i, headers[i]);
+                    cellValue = cell.getNumericCellValue();
+                }
+                break;
+            case BOOLEAN:
+                cellValue = cell.getBooleanCellValue();
+                break;
+            case FORMULA:
+                if (parser.useFormulaResults) {
+                    // Evaluate formula - try numeric first, then string, then fallback to formula string
+                    try {
+                        cellValue = cell.getNumericCellValue();
+                    } catch (IllegalStateException | NumberFormatException eNum) {
+                        try {
+                            cellValue = cell.getStringCellValue();
+                            if (parser.ignoreLeadingWhitespace && cellValue != null) {
+                                cellValue = ((String) cellValue).trim();
                             }
+                        } catch (IllegalStateException eStr) {
+                            log.trace("Could not evaluate formula at [{},{}] as numeric or string, using formula string.", row.getRowNum(), i, eStr);
+                            cellValue = cell.getCellFormula(); // Fallback to formula string
                         }
-                        log.debug("Successfully read header from first row ({} columns): {}", headers.length,
-                                Arrays.toString(headers));
                     }
+                } else {
+                    cellValue = cell.getCellFormula(); // Use the formula string itself
                 }
-            } else {
-                log.debug("Header setting is 'noheader'. No header row will be read.");
+                break;
+            case BLANK: // Explicitly handle BLANK as null
+                cellValue = null;
+                break;
+            case STRING: // Handle STRING separately for trimming
+                cellValue = cell.getStringCellValue();
+                if (parser.ignoreLeadingWhitespace && cellValue != null) {
+                    cellValue = ((String) cellValue).trim();
+                }
+                break;
+            default: // Fallback for other types (Error, _NONE) - treat as blank/null
+                log.trace("Unhandled cell type {} at [{},{}]. Treating as null.", cell.getCellType(), row.getRowNum(), i);
+                cellValue = null;
+                break;
             }
 
+            return cellValue;
+
+        }
+
+    }
+
+    private static class StreamedExcelRow implements ExcelRow {
+
+        private final StreamedRow row;
+        private final ExcelRowsParser parser;
+
+        private StreamedExcelRow(StreamedRow row, ExcelRowsParser parser) {
+            this.row = row;
+            this.parser = parser;
+        }
+
+        public int getRowNum() {
+            return row.getRowNum();
+        }
+
+        public int getLastCellNum() {
+            return row.getLastCellNum();
+        }
+
+        public String getText(int i) {
+
+            StreamedCell cell = row.getCell(i);
+            return (cell != null) ? cell.getText() : StringUtils.EMPTY;
+
+        }
+
+        public Object getValue(int i) throws Exception {
+
+            StreamedCell cell = row.getCell(i);
+
+            if (cell == null)
+                return null;
+
+            // same values as WorkbookExcelRow, the formula results are taken from the
+            // values cached in the file
+            if (cell.formula) {
+                if (!parser.useFormulaResults)
+                    return cell.formulaText;
+                switch (cell.type) {
+                case NUMERIC:
+                    return cell.numericValue;
+                case STRING:
+                    return parser.ignoreLeadingWhitespace ? cell.stringValue.trim() : cell.stringValue;
+                default:
+                    return cell.formulaText;
+                }
+            }
+
+            switch (cell.type) {
+            case NUMERIC:
+                return cell.dateFormatted ? cell.getDateValue() : cell.numericValue;
+            case BOOLEAN:
+                return cell.booleanValue;
+            case STRING:
+                return parser.ignoreLeadingWhitespace ? cell.stringValue.trim() : cell.stringValue;
+            default:
+                return null;
+            }
+
+        }
+
+    }
+
+    /*
+     * Turns the physical rows of the sheet (given in order) into the reportData
+     * row maps, reading the header / skipping the configured lines first.
+     */
+    private class ExcelRowsParser {
+
+        private final String headerSetting;
+        private final int userSkipLines;
+        private final boolean ignoreLeadingWhitespace;
+        private final boolean useFormulaResults;
+        private final int sheetIndex;
+
+        private final boolean hasHeader;
+        private final int dataStartRowIndex;
+
+        private String[] headers = null;
+        private int maxColsBasedOnHeader = 0; // Track header width if read
+
+        private int currentRowIndex = 0; // Physical row index (0-based)
+        private int dataRowCounter = 0; // Counter for data rows processed
+
+        private boolean columnNamesStored = false;
+
+        private ExcelRowsParser(ReportSettings.DataSource.ExcelOptions excelOptions) {
+
+        // --- Read Excel Options ---
+            String idColumn = excelOptions.idcolumn;
+            int skipLines = excelOptions.skiplines;
+
+            headerSetting = excelOptions.header;
+            ignoreLeadingWhitespace = excelOptions.ignoreleadingwhitespace;
+            useFormulaResults = excelOptions.useformularesults;
+            sheetIndex = excelOptions.sheetindex;
+
+        // --- Validate idColumn --- (Kept from original)
+        if (StringUtils.isEmpty(idColumn)) {
+            throw new IllegalArgumentException(
+                    "idcolumn setting must be configured - use 'notused' for sequential numbering");
+        }
+        if (!idColumn.equalsIgnoreCase(CsvUtils.NOT_USED) && !idColumn.equalsIgnoreCase(CsvUtils.COLUMN_FIRST)
+                && !idColumn.equalsIgnoreCase(CsvUtils.COLUMN_LAST) && !StringUtils.isNumeric(idColumn)) {
+            // Allow header names later? For now, stick to original validation.
+            // Consider adding check if header name exists if hasHeader is true.
+            log.warn("idcolumn validation passed for: {}", idColumn);
+            throw new IllegalArgumentException(
+             		"idcolumn must be 'first', 'last', 'notused' or a numeric column index (e.g., 0, 1, ...)");
+        }
+
+        // Ensure skipLines is non-negative
+            if (skipLines < 0) {
+                log.warn("Invalid negative skipLines ({}) provided. Defaulting to 0.", skipLines);
+                skipLines = 0;
+        }
+            userSkipLines = skipLines;
+
+        // Determine if a header row is expected based on settings
+        // Correctly interpret 'firstline' and 'multiline' as having a header on the first line.
+            hasHeader = CsvUtils.HEADER_FIRSTLINE.equalsIgnoreCase(headerSetting)
+                    || CsvUtils.HEADER_MULTILINE.equalsIgnoreCase(headerSetting);
+
+        log.debug(
+                "Excel Options: headerSetting={}, userSkipLines={}, hasHeader={}, ignoreLeadingWhitespace={}, useFormulaResults={}, sheetIndex={}",
+                headerSetting, userSkipLines, hasHeader, ignoreLeadingWhitespace, useFormulaResults, sheetIndex);
+
+            if (!hasHeader)
+                log.debug("Header setting is 'noheader'. No header row will be read.");
 
             // --- Calculate Data Start Row Index ---
             // If hasHeader, we must skip at least 1 row (the header itself).
             // The effective skip count is the *maximum* of userSkipLines and 1 (if header exists).
             // If no header, the effective skip count is just userSkipLines.
-            int dataStartRowIndex = hasHeader ? Math.max(userSkipLines, 1) : userSkipLines;
+            dataStartRowIndex = hasHeader ? Math.max(userSkipLines, 1) : userSkipLines;
             log.debug("Calculated data start row index (0-based): {}. (Based on hasHeader={}, userSkipLines={})",
                     dataStartRowIndex, hasHeader, userSkipLines);
 
+        }
 
-            // --- Process Data Rows ---
-            Iterator<Row> rowIterator = sheet.iterator();
-            int currentRowIndex = 0; // Physical row index (0-based)
+        /*
+         * Returns the row map of a data row, null for the header / skipped / empty
+         * rows.
+         */
+        private LinkedHashMap<String, Object> parse(ExcelRow row) throws Exception {
 
-            // Skip rows before the data start index
-            while (currentRowIndex < dataStartRowIndex && rowIterator.hasNext()) {
-                rowIterator.next(); // Consume the row
-                currentRowIndex++;
+            // --- Read Header Row (if applicable) ---
+            // The header is always the *first* row (index 0) if hasHeader is true.
+            if (hasHeader && currentRowIndex == 0) {
+                log.debug("Attempting to read header from the first row (index 0).");
+                if (row.getRowNum() != 0) {
+                    log.warn(
+                            "Header row (index 0) is null or physically missing, but header setting was '{}'. Will attempt to generate generic headers from data.", headerSetting);
+                } else
+                    _readHeader(row);
             }
 
+            // Skip rows before the data start index
             if (currentRowIndex < dataStartRowIndex) {
-                log.warn("Reached end of sheet while skipping initial rows. Expected to start data at index {}, but sheet only has {} rows.", dataStartRowIndex, currentRowIndex);
-            } else {
-                log.debug("Starting data processing from physical row index {}.", currentRowIndex);
+                currentRowIndex++;
+                if (currentRowIndex == dataStartRowIndex)
+                    log.debug("Starting data processing from physical row index {}.", currentRowIndex);
+                return null;
             }
 
-            int dataRowCounter = 0; // Counter for data rows processed
-            while (rowIterator.hasNext()) {
-                Row row = rowIterator.next();
                 log.trace("Processing physical row index: {}", currentRowIndex);
 
                 // Determine the number of columns for this specific row
@@ -172,9 +402,8 @@ public class ExcelReporter extends AbstractReporter {
                 if (headers == null && dataRowCounter == 0) {
                     if (lastColumnForRow == 0) {
                         log.warn("First data row encountered (index {}) has no cells. Cannot generate headers.", currentRowIndex);
-                        // Decide whether to continue or stop if headers are essential
                         currentRowIndex++; // Move to next potential row index
-                        continue; // Skip this empty row
+                    return null; // Skip this empty row
                     }
                     headers = new String[lastColumnForRow];
                     for (int i = 0; i < lastColumnForRow; i++) {
@@ -183,10 +412,6 @@ public class ExcelReporter extends AbstractReporter {
                     }
                     maxColsBasedOnHeader = lastColumnForRow; // Update maxCols based on generated headers
                     log.debug("Generated generic headers based on first data row read ({} columns): {}", headers.length, Arrays.toString(headers));
-                } else if (headers == null) {
-                    // Should not happen if headers were generated or read previously, but safeguard
-                    log.error("Headers are unexpectedly null while processing data row index {}. Stopping data read.", currentRowIndex);
-                    break;
                 }
 
                 // Use the header width if defined, otherwise the row's width for processing this row
@@ -197,58 +422,12 @@ public class ExcelReporter extends AbstractReporter {
                 boolean hasContent = false; // Track if the row has any non-blank content
 
                 for (int i = 0; i < colsToProcess; i++) {
-                    Cell cell = row.getCell(i, Row.MissingCellPolicy.CREATE_NULL_AS_BLANK);
                     Object cellValue = null;
                     // Use header if available and index is within bounds, otherwise generate column name
                     String columnName = (headers != null && i < headers.length) ? headers[i] : "Column" + (i + 1);
 
-                    // Get typed value based on cell type (kept original logic)
                     try { // Added try-catch around cell reading
-                        switch (cell.getCellType()) {
-                        case NUMERIC:
-                            if (DateUtil.isCellDateFormatted(cell)) {
-                                cellValue = cell.getDateCellValue();
-                            } else {
-                                cellValue = cell.getNumericCellValue();
-                            }
-                            break;
-                        case BOOLEAN:
-                            cellValue = cell.getBooleanCellValue();
-                            break;
-                        case FORMULA:
-                            if (useFormulaResults) {
-                                // Evaluate formula - try numeric first, then string, then fallback to formula string
-                                try {
-                                    cellValue = cell.getNumericCellValue();
-                                } catch (IllegalStateException | NumberFormatException eNum) {
-                                    try {
-                                        cellValue = cell.getStringCellValue();
-                                        if (ignoreLeadingWhitespace && cellValue != null) {
-                                            cellValue = ((String) cellValue).trim();
-                                        }
-                                    } catch (IllegalStateException eStr) {
-                                        log.trace("Could not evaluate formula at [{},{}] as numeric or string, using formula string.", row.getRowNum(), i, eStr);
-                                        cellValue = cell.getCellFormula(); // Fallback to formula string
-                                    }
-                                }
-                            } else {
-                                cellValue = cell.getCellFormula(); // Use the formula string itself
-                            }
-                            break;
-                        case BLANK: // Explicitly handle BLANK as null
-                            cellValue = null;
-                            break;
-                        case STRING: // Handle STRING separately for trimming
-                            cellValue = cell.getStringCellValue();
-                            if (ignoreLeadingWhitespace && cellValue != null) {
-                                cellValue = ((String) cellValue).trim();
-                            }
-                            break;
-                        default: // Fallback for other types (Error, _NONE) - treat as blank/null
-                            log.trace("Unhandled cell type {} at [{},{}]. Treating as null.", cell.getCellType(), row.getRowNum(), i);
-                            cellValue = null;
-                            break;
-                        }
+                    cellValue = row.getValue(i);
                     } catch (Exception e) {
                         log.warn("Error reading cell at [{},{}] (Header: '{}'). Using null. Error: {}", row.getRowNum(), i, columnName, e.getMessage());
                         cellValue = null; // Fallback to null on error
@@ -265,7 +444,6 @@ public class ExcelReporter extends AbstractReporter {
                     }
                     rowMap.put(uniqueHeaderName, cellValue);
 
-
                     // Check if this cell has content (null or blank strings are considered no content)
                     // Kept original check: !((cellValue instanceof String) && ((String) cellValue).trim().isEmpty())
                     if (cellValue != null
@@ -274,23 +452,75 @@ public class ExcelReporter extends AbstractReporter {
                     }
                 } // End cell processing loop
 
+            currentRowIndex++;
+
                 // Only add rows that have at least one non-empty cell (kept original logic)
-                if (hasContent) {
-                    ctx.reportData.add(rowMap);
-                    log.trace("Added data row map (physical index {}): {}", currentRowIndex, rowMap);
+            if (!hasContent) {
+                log.trace("Skipped row at physical index {} because it contained no content.", currentRowIndex - 1);
+                return null;
+            }
+
+            // the headers are final once the first data row is known, when streaming
+            // the column names must be available while bursting this row
+            if (!columnNamesStored)
+                _storeColumnNames();
+
+            log.trace("Added data row map (physical index {}): {}", currentRowIndex - 1, rowMap);
                     dataRowCounter++;
-                } else {
-                    log.trace("Skipped row at physical index {} because it contained no content.", currentRowIndex);
+
+            return rowMap;
+
                 }
-                currentRowIndex++;
-            } // End row processing loop
+
+        private void finish() {
+
+            if (currentRowIndex < dataStartRowIndex) {
+                log.warn("Reached end of sheet while skipping initial rows. Expected to start data at index {}, but sheet only has {} rows.", dataStartRowIndex, currentRowIndex);
+            }
+
             log.info("Finished reading Excel data. Total data rows processed: {}", dataRowCounter);
 
-        } // End try-with-resources (Workbook)
+            if (!columnNamesStored)
+                _storeColumnNames();
 
+        }
+
+        private void _readHeader(ExcelRow headerRow) {
+
+            // Determine the number of cells in the header row
+            maxColsBasedOnHeader = headerRow.getLastCellNum();
+            if (maxColsBasedOnHeader < 0) maxColsBasedOnHeader = 0; // Handle empty header row
+
+            if (maxColsBasedOnHeader == 0) {
+                log.warn("Header row (index 0) has no cells. Will attempt to generate generic headers from data.");
+                return;
+            }
+
+            headers = new String[maxColsBasedOnHeader];
+            log.trace("Header row has {} potential columns.", maxColsBasedOnHeader);
+            for (int i = 0; i < maxColsBasedOnHeader; i++) {
+                headers[i] = headerRow.getText(i); // Use utility for consistency
+                if (ignoreLeadingWhitespace && headers[i] != null) {
+                    headers[i] = headers[i].trim();
+                }
+                // Generate default name if header cell is blank (Original used ColumnX+1, using colX for consistency)
+                if (StringUtils.isBlank(headers[i])) {
+                    headers[i] = "col" + i;
+                    log.trace("Header cell at index {} was blank, assigned default name '{}'.", i, headers[i]);
+                }
+            }
+            log.debug("Successfully read header from first row ({} columns): {}", headers.length,
+                    Arrays.toString(headers));
+
+        }
+
+        private void _storeColumnNames() {
+
+            columnNamesStored = true;
 
         // --- Store Final Column Names ---
         if (headers != null) {
+                ctx.reportColumnNames.clear();
             // Handle potential duplicates in the final header list for ctx.reportColumnNames
             // This ensures ctx.reportColumnNames matches the keys used in the rowMaps if duplicates existed
             Map<String, Integer> headerCounts = new LinkedHashMap<>();
@@ -304,23 +534,14 @@ public class ExcelReporter extends AbstractReporter {
                 ctx.reportColumnNames.add(uniqueHeader);
             }
             log.debug("Stored final column names (duplicates adjusted): {}", ctx.reportColumnNames);
-        } else if (!ctx.reportData.isEmpty()) {
+            } else if (dataRowCounter > 0) {
             log.warn("No headers were read or generated, but data rows exist. Column names context will be empty.");
         } else {
             log.debug("No headers found and no data rows processed.");
         }
 
-
-        // Basic validation check (kept from original) - Consider if this is still needed/correct
-        if (!ctx.reportData.isEmpty() && ctx.reportData.get(0).size() == 1) {
-            log.warn("Validation check: Excel file appears to contain only 1 column with value: '{}'", ctx.reportData.get(0).values().iterator().next());
-            // throw new IllegalArgumentException("Excel file appears to contain only 1 column with value: '"
-            // 		+ ctx.reportData.get(0).values().iterator().next() + "'");
         }
 
-        log.info("Excel data fetched successfully. Headers: {}. Data rows: {}", ctx.reportColumnNames.size(),
-                ctx.reportData.size());
-        log.trace("Exiting fetchData.");
     }
 
 	
@@ -16,9 +16,38 @@ public class FixedWidthReporter extends AbstractReporter {
 		super(configFilePath);
 	}
 
+	/* same single pass reading as fetchData */
+	@Override
+	protected boolean canStreamData() {
+		return true;
+	}
+
+	@Override
+	protected boolean isStreamingConfigured() {
+		return ctx.settings.getReportDataSource().fixedwidthoptions.streaming;
+	}
+
 	@Override
 	protected void fetchData() throws Exception {
 
+		ctx.reportData = new ArrayList<>();
+		ctx.reportColumnNames = new ArrayList<>();
+
+		// the rows are read (and burst) one by one in streamData
+		if (streamingBursting)
+			return;
+
+		// single pass, the same reading as when streaming
+		streamData(row -> ctx.reportData.add(row));
+	}
+
+	/**
+	 * Parses the lines one at a time (no List<String[]> of the whole file), the
+	 * column names are resolved once and each row is a pre-sized map.
+	 */
+	@Override
+	protected void streamData(RowHandler rowHandler) throws Exception {
+
 		// Parse column definitions from settings
 		String[] columnDefs = ctx.settings.getReportDataSource().fixedwidthoptions.columns.split("\n");
 		List<Integer> lengths = new ArrayList<>();
@@ -36,6 +65,11 @@ public class FixedWidthReporter extends AbstractReporter {
 			}
 		}
 
+		ctx.reportColumnNames.clear();
+		ctx.reportColumnNames.addAll(reportColumnNames);
+
+		String[] columnKeys = reportColumnNames.toArray(new String[0]);
+
 		// Configure parser
 		FixedWidthFields fields = new FixedWidthFields(lengths.stream().mapToInt(i -> i).toArray());
 		FixedWidthParserSettings settings = new FixedWidthParserSettings(fields);
@@ -50,22 +84,28 @@ public class FixedWidthReporter extends AbstractReporter {
 			settings.setNumberOfRowsToSkip(ctx.settings.getReportDataSource().fixedwidthoptions.skiplines);
 		}
 
-		// Parse file
+		// Parse file, one line at a time
 		FixedWidthParser parser = new FixedWidthParser(settings);
-		List<String[]> rawData = parser.parseAll(new File(filePath));
+		parser.beginParsing(new File(filePath));
 
-		// Convert raw data to List<LinkedHashMap<String, Object>>
-		ctx.reportData = new ArrayList<>();
-		for (String[] row : rawData) {
-			LinkedHashMap<String, Object> rowMap = new LinkedHashMap<>();
-			for (int i = 0; i < Math.min(row.length, reportColumnNames.size()); i++) {
-				rowMap.put(reportColumnNames.get(i), toObject(row[i]));
-			}
-			// Only add non-empty rows
-			if (!rowMap.isEmpty()
-					&& rowMap.values().stream().anyMatch(v -> v != null && !v.toString().trim().isEmpty())) {
-				ctx.reportData.add(rowMap);
+		try {
+			String[] row;
+			while ((row = parser.parseNext()) != null) {
+				int size = Math.min(row.length, columnKeys.length);
+				LinkedHashMap<String, Object> rowMap = new LinkedHashMap<>(size * 4 / 3 + 1);
+				boolean hasContent = false;
+				for (int i = 0; i < size; i++) {
+					Object value = toObject(row[i]);
+					rowMap.put(columnKeys[i], value);
+					if (value != null && !value.toString().trim().isEmpty())
+						hasContent = true;
+				}
+				// Only add non-empty rows
+				if (hasContent && !rowHandler.process(rowMap))
+					break;
 			}
+		} finally {
+			parser.stopParsing();
 		}
 	}
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.sourcekraft.documentburster.engine.reporting;
 
+import java.io.FileNotFoundException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -63,9 +64,10 @@ public class ScriptedReporter extends AbstractReporter {
 			throw new IllegalArgumentException("Script name (scriptname) cannot be empty for script data source.");
 		}
 
-		// Optional: Validate if the script file actually exists in one of the roots?
-		// The GroovyScriptEngine used by 'scripting' will throw an error if not found
-		// anyway.
+		// Missing lifecycle scripts are silently skipped by 'scripting' so make sure
+		// the data source script is there
+		if (!scripting.scriptExists(scriptName))
+			throw new FileNotFoundException("Script '" + scriptName + "' was not found for the script data source.");
 
 		log.debug("Script Options: scriptName={}, conncode={}", scriptName, connectionCode);
 
@@ -0,0 +1,280 @@
+package com.sourcekraft.documentburster.engine.reporting;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.sourcekraft.documentburster.common.db.ReportDataPageRequest;
+import com.sourcekraft.documentburster.common.db.ReportDataPageRequest.Filter;
+import com.sourcekraft.documentburster.common.db.ReportDataPageRequest.Sorter;
+
+/**
+ * Wraps the report query so the database does the Tabulator filtering, sorting
+ * and pagination, i.e. SELECT * FROM (query) rb_page WHERE ... ORDER BY ...
+ * LIMIT / OFFSET (or OFFSET ... FETCH NEXT ..., depending on the database
+ * type) and a separate SELECT COUNT(*) for the total number of rows.
+ *
+ * The filter values are bound parameters and the column names are quoted
+ * identifiers, the semantics follow ReportingService.applyServerSideOperations
+ * (like / starts / ends compare the values as text ignoring the case, nulls
+ * sort first) with one difference: =, != (and <, >, <=, >=) compare the values
+ * as numbers when the filter value is a number, by the database and not as
+ * the String.valueOf text the in memory filtering compares (e.g. = 10 matches a
+ * 10.00 DECIMAL). Other filter values are compared as text. A text column
+ * compared with a number fails on the strictly typed databases (e.g.
+ * PostgreSQL), the page request is then applied in memory (see
+ * SqlReporter._fetchPage).
+ */
+class SqlPageQuery {
+
+	static final String BINDING_PREFIX = "rbPageFilter";
+
+	private static final String ALIAS = "rb_page";
+
+	private String dbType;
+
+	private String query;
+
+	private String where = "";
+	private String orderBy = "";
+
+	private Map<String, Object> bindings = new LinkedHashMap<>();
+
+	private ReportDataPageRequest pageRequest;
+
+	private SqlPageQuery(String query, String dbType, ReportDataPageRequest pageRequest) {
+		this.query = query;
+		this.dbType = dbType;
+		this.pageRequest = pageRequest;
+	}
+
+	/**
+	 * null when the page request has filters which cannot be translated to SQL
+	 * (the rows are then filtered in memory).
+	 */
+	static SqlPageQuery create(String sqlQuery, String dbType, ReportDataPageRequest pageRequest) {
+
+		String query = sqlQuery.trim();
+		while (query.endsWith(";"))
+			query = query.substring(0, query.length() - 1).trim();
+
+		SqlPageQuery pageQuery = new SqlPageQuery(query, StringUtils.defaultString(dbType).toLowerCase(),
+				pageRequest);
+
+		List<String> conditions = new ArrayList<>();
+
+		for (Filter filter : pageRequest.filters) {
+
+			if (filter.field == null || filter.type == null)
+				continue;
+
+			String condition = pageQuery._getCondition(filter, BINDING_PREFIX + pageQuery.bindings.size());
+
+			if (condition == null)
+				return null;
+
+			if (!condition.isEmpty())
+				conditions.add(condition);
+
+		}
+
+		if (!conditions.isEmpty())
+			pageQuery.where = " WHERE " + String.join(" AND ", conditions);
+
+		List<String> orders = new ArrayList<>();
+
+		for (Sorter sorter : pageRequest.sorters) {
+			if (sorter.field != null)
+				orders.add(pageQuery._getOrder(sorter));
+		}
+
+		if (!orders.isEmpty())
+			pageQuery.orderBy = " ORDER BY " + String.join(", ", orders);
+
+		return pageQuery;
+
+	}
+
+	/** The filtered, sorted and (if requested) paginated query */
+	String getPageQuery() {
+
+		StringBuilder pageQuery = new StringBuilder("SELECT * FROM (").append(query).append(") ").append(ALIAS)
+				.append(where).append(orderBy);
+
+		if (!pageRequest.isPaginated())
+			return pageQuery.toString();
+
+		long offset = (long) Math.max(0, pageRequest.page - 1) * pageRequest.size;
+
+		switch (dbType) {
+			case "oracle":
+			case "ibmdb2":
+			case "db2":
+				pageQuery.append(" OFFSET ").append(offset).append(" ROWS FETCH NEXT ").append(pageRequest.size)
+						.append(" ROWS ONLY");
+				break;
+			case "sqlserver":
+				// OFFSET / FETCH requires an ORDER BY
+				if (orderBy.isEmpty())
+					pageQuery.append(" ORDER BY (SELECT NULL)");
+				pageQuery.append(" OFFSET ").append(offset).append(" ROWS FETCH NEXT ").append(pageRequest.size)
+						.append(" ROWS ONLY");
+				break;
+			default: // postgres, mysql, mariadb, sqlite, duckdb, clickhouse, h2, supabase
+				pageQuery.append(" LIMIT ").append(pageRequest.size).append(" OFFSET ").append(offset);
+				break;
+		}
+
+		return pageQuery.toString();
+
+	}
+
+	/** The number of rows which pass the filters */
+	String getCountQuery() {
+		return "SELECT COUNT(*) FROM (" + query + ") " + ALIAS + where;
+	}
+
+	/** The values of the filters, keyed by their (named) parameter */
+	Map<String, Object> getBindings() {
+		return bindings;
+	}
+
+	/*
+	 * The SQL condition for the filter, an empty string for the filter types
+	 * which are ignored (same as in memory) and null when the filter cannot be
+	 * translated.
+	 */
+	private String _getCondition(Filter filter, String bindingName) {
+
+		String column = _quoteIdentifier(filter.field);
+		String parameter = ":" + bindingName;
+
+		switch (filter.type) {
+			case "=":
+				bindings.put(bindingName, _toComparable(StringUtils.defaultString(filter.value)));
+				return _compared(column, bindingName) + " = " + parameter;
+			case "!=":
+				bindings.put(bindingName, _toComparable(StringUtils.defaultString(filter.value)));
+				return "(" + column + " IS NULL OR " + _compared(column, bindingName) + " <> " + parameter + ")";
+			case "like":
+				return _getLikeCondition(column, bindingName, "%" + _escapeLike(filter.value) + "%");
+			case "starts":
+				return _getLikeCondition(column, bindingName, _escapeLike(filter.value) + "%");
+			case "ends":
+				return _getLikeCondition(column, bindingName, "%" + _escapeLike(filter.value));
+			case "<":
+			case ">":
+			case "<=":
+			case ">=":
+				// compared to a null value all the rows pass (or none), leave it to the in
+				// memory filtering
+				if (filter.value == null)
+					return null;
+				bindings.put(bindingName, _toComparable(filter.value));
+				return column + " " + filter.type + " " + parameter;
+			default:
+				return "";
+		}
+
+	}
+
+	private String _getLikeCondition(String column, String bindingName, String pattern) {
+
+		bindings.put(bindingName, pattern.toLowerCase());
+
+		String condition = "LOWER(" + _castToText(column) + ") LIKE :" + bindingName;
+
+		// ClickHouse escapes the LIKE wildcards with backslash and has no ESCAPE clause
+		if (!"clickhouse".equals(dbType))
+			condition += " ESCAPE '!'";
+
+		return condition;
+
+	}
+
+	private String _escapeLike(String value) {
+
+		String escape = "clickhouse".equals(dbType) ? "\\" : "!";
+
+		return StringUtils.defaultString(value).replace(escape, escape + escape).replace("%", escape + "%")
+				.replace("_", escape + "_");
+
+	}
+
+	private String _getOrder(Sorter sorter) {
+
+		boolean descending = "desc".equalsIgnoreCase(sorter.dir);
+
+		String order = _quoteIdentifier(sorter.field) + (descending ? " DESC" : " ASC");
+
+		// nulls are sorted first (as in memory), MySQL / MariaDB / SQL Server already
+		// do so and do not support NULLS FIRST / LAST
+		switch (dbType) {
+			case "mysql":
+			case "mariadb":
+			case "sqlserver":
+				return order;
+			default:
+				return order + (descending ? " NULLS LAST" : " NULLS FIRST");
+		}
+
+	}
+
+	private String _quoteIdentifier(String identifier) {
+
+		switch (dbType) {
+			case "mysql":
+			case "mariadb":
+				return "`" + identifier.replace("`", "``") + "`";
+			case "sqlserver":
+				return "[" + identifier.replace("]", "]]") + "]";
+			default:
+				return "\"" + identifier.replace("\"", "\"\"") + "\"";
+		}
+
+	}
+
+	// the column as it is when compared with a number, as text otherwise
+	private String _compared(String column, String bindingName) {
+
+		return (bindings.get(bindingName) instanceof BigDecimal) ? column : _castToText(column);
+
+	}
+
+	private String _castToText(String column) {
+
+		switch (dbType) {
+			case "mysql":
+			case "mariadb":
+				return "CAST(" + column + " AS CHAR)";
+			case "oracle":
+				return "TO_CHAR(" + column + ")";
+			case "sqlserver":
+				return "CAST(" + column + " AS NVARCHAR(MAX))";
+			case "ibmdb2":
+			case "db2":
+				return "CAST(" + column + " AS VARCHAR(4000))";
+			case "clickhouse":
+				return "toString(" + column + ")";
+			default:
+				return "CAST(" + column + " AS VARCHAR)";
+		}
+
+	}
+
+	/* numbers are compared as numbers, anything else as text */
+	private static Object _toComparable(String value) {
+
+		try {
+			return new BigDecimal(value.trim());
+		} catch (NumberFormatException e) {
+			return value;
+		}
+
+	}
+
+}
@@ -1,7 +1,8 @@
 package com.sourcekraft.documentburster.engine.reporting;
 
-import java.sql.ResultSetMetaData;
+import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,10 +10,15 @@ import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import org.jdbi.v3.core.Handle;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.result.ResultIterator;
+import org.jdbi.v3.core.statement.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.sourcekraft.documentburster.common.db.ColumnLabelRowMapper;
 import com.sourcekraft.documentburster.common.db.DatabaseHelper;
+import com.sourcekraft.documentburster.common.db.QueryCancellation;
+import com.sourcekraft.documentburster.common.db.ReportDataPageRequest;
 import com.sourcekraft.documentburster.common.settings.model.ReportSettings.DataSource.SQLOptions;
 import com.sourcekraft.documentburster.common.settings.model.ServerDatabaseSettings;
 import com.sourcekraft.documentburster.engine.AbstractReporter;
@@ -42,12 +48,212 @@ public class SqlReporter extends AbstractReporter {
 	protected void fetchData() throws Exception {
 		     
 		log.trace("Entering fetchData...");
+		SQLOptions sqlOptions = _getSqlOptions();
+		String sqlQuery = _getSqlQuery(sqlOptions);
+
+		if (streamingBursting) {
+			// the rows are read while bursting, see streamData
+			log.info("Streaming mode: the SQL rows are fetched while bursting (fetch size {}).", sqlOptions.fetchsize);
+			ctx.reportData = new ArrayList<>();
+			ctx.reportColumnNames = new ArrayList<>();
+			log.trace("Exiting fetchData.");
+			return;
+		}
+
+		ReportDataPageRequest pageRequest = getPageRequestToApply();
+
+		if ((pageRequest != null) && _fetchPage(sqlOptions, sqlQuery, pageRequest)) {
+			log.trace("Exiting fetchData.");
+			return;
+		}
+
+		// Get JDBI instance and execute query
+		Jdbi jdbiInstance = this.retrieveJdbiInstance(sqlOptions.conncode);
+
+		try (Handle handle = jdbiInstance.open()) {
+			Query query = _createQuery(handle, sqlQuery);
+
+			// Execute query and map each row preserving column label case, the
+			// column labels are resolved once (not for each row)
+			List<LinkedHashMap<String, Object>> dataRows = query.map(new ColumnLabelRowMapper()).list();
+
+			ctx.reportData = dataRows; // reportData contains only data rows (no header row)
+
+			// Store header separately if needed, or assume first row of dataRows has keys
+			if (!dataRows.isEmpty()) {
+				ctx.reportColumnNames = new ArrayList<>(dataRows.get(0).keySet()); // Store column names if needed later
+			} else {
+				ctx.reportColumnNames = new ArrayList<>();
+			}
+
+			log.info("SQL query executed. Fetched {} result rows.", ctx.reportData.size());
+		}
+		log.trace("Exiting fetchData.");
+	}
+
+	/* the rows are read from the JDBC cursor (see streamData) */
+	@Override
+	protected boolean canStreamData() {
+		return true;
+	}
+
+	@Override
+	protected boolean isStreamingConfigured() {
+
+		SQLOptions sqlOptions = ctx.settings.getReportDataSource().sqloptions;
+
+		return (sqlOptions != null) && sqlOptions.streaming;
+
+	}
+
+	/*
+	 * Reads the rows from a JDBC cursor, fetchsize rows at a time. The connection
+	 * (and the cursor) stays open until all the tokens are burst so the memory
+	 * used does not depend on the number of rows returned by the query.
+	 */
+	@Override
+	protected void streamData(RowHandler rowHandler) throws Exception {
+
+		SQLOptions sqlOptions = _getSqlOptions();
+		String sqlQuery = _getSqlQuery(sqlOptions);
+
+		ServerDatabaseSettings dbs = ctx.dbManager.getServerDatabaseSettings(sqlOptions.conncode);
+		String dbType = (dbs != null && dbs.type != null) ? dbs.type.toLowerCase() : "";
+
+		Jdbi jdbiInstance = this.retrieveJdbiInstance(sqlOptions.conncode);
+
+		// PostgreSQL (and compatible) drivers use a cursor only when auto-commit is
+		// off, otherwise the whole result set is read into memory
+		boolean useTransaction = dbType.equals("postgres") || dbType.equals("postgresql")
+				|| dbType.equals("timescaledb") || dbType.equals("supabase");
+
+		try (Handle handle = jdbiInstance.open()) {
+
+			Connection connection = handle.getConnection();
+			boolean wasReadOnly = connection.isReadOnly();
+
+			if (useTransaction) {
+				// set before the transaction starts, the drivers do not allow to change
+				// it in the middle of a transaction
+				connection.setReadOnly(true);
+				handle.begin();
+			}
+
+			try {
+
+				Query query = _createQuery(handle, sqlQuery);
+
+				if (sqlOptions.fetchsize > 0) {
+					// MySQL Connector/J streams the rows only with Integer.MIN_VALUE
+					query.setFetchSize("mysql".equals(dbType) ? Integer.MIN_VALUE : sqlOptions.fetchsize);
+				}
+
+				ColumnLabelRowMapper rowMapper = new ColumnLabelRowMapper();
+
+				int numberOfRows = 0;
+
+				try (ResultIterator<LinkedHashMap<String, Object>> rows = query.map(rowMapper).iterator()) {
+
+					ctx.reportColumnNames = rowMapper.getColumnNames();
+
+					boolean doMore = true;
+
+					while (doMore && rows.hasNext()) {
+						doMore = rowHandler.process(rows.next());
+						numberOfRows++;
+					}
+
+				}
+
+				log.info("SQL query executed. Streamed {} result rows.", numberOfRows);
+
+			} finally {
+				// read only, nothing to commit
+				if (useTransaction) {
+					handle.rollback();
+					// the connection goes back to the pool
+					connection.setReadOnly(wasReadOnly);
+				}
+			}
+
+		}
+
+	}
+
+	/*
+	 * Fetches only the requested page, the database does the filtering, sorting
+	 * and pagination (see SqlPageQuery). Returns false when the page request
+	 * cannot be translated to SQL or the wrapped query fails (e.g. a query ending
+	 * with ORDER BY on SQL Server), the full data is then fetched and the page
+	 * request is applied in memory.
+	 */
+	private boolean _fetchPage(SQLOptions sqlOptions, String sqlQuery, ReportDataPageRequest pageRequest)
+			throws Exception {
+
+		ServerDatabaseSettings dbs = ctx.dbManager.getServerDatabaseSettings(sqlOptions.conncode);
+		String dbType = (dbs != null && dbs.type != null) ? dbs.type.toLowerCase() : "";
+
+		SqlPageQuery pageQuery = SqlPageQuery.create(sqlQuery, dbType, pageRequest);
+
+		if (pageQuery == null) {
+			log.info("The page request is applied in memory, its filters cannot be translated to SQL.");
+			return false;
+		}
+
+		Jdbi jdbiInstance = this.retrieveJdbiInstance(sqlOptions.conncode);
+
+		try (Handle handle = jdbiInstance.open()) {
+
+			ColumnLabelRowMapper rowMapper = new ColumnLabelRowMapper();
+
+			List<LinkedHashMap<String, Object>> dataRows = _createQuery(handle, pageQuery.getPageQuery(),
+					pageQuery.getBindings()).map(rowMapper).list();
+
+			int totalRows = dataRows.size();
+
+			if (pageRequest.isPaginated()) {
+				// COUNT(*) is a BIGINT on most databases
+				long count = _createQuery(handle, pageQuery.getCountQuery(), pageQuery.getBindings())
+						.mapTo(Long.class).one();
+				totalRows = (int) Math.min(count, Integer.MAX_VALUE);
+			}
+
+			ctx.reportData = dataRows;
+			ctx.reportColumnNames = rowMapper.getColumnNames();
+
+			setPageRequestApplied(totalRows);
+
+			log.info("SQL query executed. Fetched {} result rows (page {} of {} matching rows).", dataRows.size(),
+					pageRequest.page, totalRows);
+
+			return true;
+
+		} catch (Exception e) {
+			// a cancelled request does not run the query again
+			QueryCancellation queryCancellation = getQueryCancellation();
+			if ((queryCancellation != null) && queryCancellation.isCancelled())
+				throw e;
+
+			log.warn("The page request is applied in memory, the paginated SQL query failed: {}", e.getMessage());
+			return false;
+		}
+
+	}
+
+	private SQLOptions _getSqlOptions() {
+
 		SQLOptions sqlOptions = ctx.settings.getReportDataSource().sqloptions;
 		if (sqlOptions == null) {
 			log.error("SQLOptions are null.");
 			throw new IllegalStateException("SQLOptions cannot be null.");
 		}
 
+		return sqlOptions;
+
+	}
+
+	private String _getSqlQuery(SQLOptions sqlOptions) throws Exception {
+
 		String connectionCode = sqlOptions.conncode;
 		String sqlQuery = sqlOptions.query;
 		
@@ -111,89 +317,67 @@ public class SqlReporter extends AbstractReporter {
 			}
 		}
 
-		// Get JDBI instance and execute query
-		Jdbi jdbiInstance = this.retrieveJdbiInstance(connectionCode);
+		return sqlQuery;
+
+	}
+
+	private Query _createQuery(Handle handle, String sqlQuery) throws Exception {
+		return _createQuery(handle, sqlQuery, Collections.emptyMap());
+	}
+
+	/*
+	 * bindings are the values of the parameters added to the report query (e.g.
+	 * the page filters), the other parameters are bound from the variables.
+	 */
+	private Query _createQuery(Handle handle, String sqlQuery, Map<String, Object> bindings) throws Exception {
+
 		String jdbiQuery = this.dbHelper.convertToJdbiParameters(sqlQuery);
 		List<String> queryParams = this.dbHelper.findQueryParameters(jdbiQuery);
-		
+
 		// Log the SQL query being executed
 		log.info("Executing SQL: {}", sqlQuery);
 		log.debug("Converted JDBI query: '{}' with params: {}", jdbiQuery, queryParams);
 
-		try (Handle handle = jdbiInstance.open()) {
-			org.jdbi.v3.core.statement.Query query = handle.createQuery(jdbiQuery);
-
-			// Bind parameters from variables
-			Map<String, Object> currentVars = ctx.variables.getUserVariables(ctx.token);
-
-			// Log parameters being used
-			if (currentVars != null && !queryParams.isEmpty()) {
-				StringBuilder paramLog = new StringBuilder("Parameters: ");
-				boolean first = true;
-				for (String paramName : queryParams) {
-					if (currentVars.containsKey(paramName)) {
-						if (!first) paramLog.append(", ");
-						paramLog.append(paramName).append("='").append(currentVars.get(paramName)).append("'");
-						first = false;
-					}
-				}
-				log.info("{}", paramLog.toString());
-			}
+		Query query = handle.createQuery(jdbiQuery);
 
-			if (currentVars != null) {
-				for (String paramName : queryParams) {
-					if (currentVars.containsKey(paramName)) {
-						query.bind(paramName, currentVars.get(paramName));
-					} else {
-						log.warn("SQL parameter :{} not found in variables.", paramName);
-					}
-				}
-			}
+		QueryCancellation queryCancellation = getQueryCancellation();
+		if (queryCancellation != null)
+			query.addCustomizer(queryCancellation);
 
-			// Execute query and store results directly
-			// Execute query and map each row preserving column label case
-			List<LinkedHashMap<String, Object>> dataRows = query.map((rs, rctx) -> {
-				ResultSetMetaData md = rs.getMetaData();
-				LinkedHashMap<String, Object> row = new LinkedHashMap<>();
-				for (int i = 1; i <= md.getColumnCount(); i++) {
-					// Use getColumnLabel for potential aliases, fallback to getColumnName
-					String columnName = md.getColumnLabel(i);
-					if (StringUtils.isBlank(columnName)) {
-						columnName = md.getColumnName(i);
-					}
-					row.put(columnName, rs.getObject(i));
+		// Bind parameters from variables
+		Map<String, Object> currentVars = ctx.variables.getUserVariables(ctx.token);
+
+		// Log parameters being used
+		if (currentVars != null && !queryParams.isEmpty()) {
+			StringBuilder paramLog = new StringBuilder("Parameters: ");
+			boolean first = true;
+			for (String paramName : queryParams) {
+				if (currentVars.containsKey(paramName)) {
+					if (!first) paramLog.append(", ");
+					paramLog.append(paramName).append("='").append(currentVars.get(paramName)).append("'");
+					first = false;
 				}
-				return row;
-			}).list();
+			}
+			log.info("{}", paramLog.toString());
+		}
 
-			//System.out.println("========================================");
-			//// System.out.println("[DEBUG] Query Results:");
-			//System.out.println("  Number of rows fetched: " + dataRows.size());
+		for (Map.Entry<String, Object> binding : bindings.entrySet())
+			query.bind(binding.getKey(), binding.getValue());
 
-			// Build header row
-			LinkedHashMap<String, Object> headerMap = new LinkedHashMap<>();
-			if (!dataRows.isEmpty()) {
-				for (String col : dataRows.get(0).keySet()) {
-					headerMap.put(col, col);
+		if (currentVars != null) {
+			for (String paramName : queryParams) {
+				if (bindings.containsKey(paramName))
+					continue;
+				if (currentVars.containsKey(paramName)) {
+					query.bind(paramName, currentVars.get(paramName));
+				} else {
+					log.warn("SQL parameter :{} not found in variables.", paramName);
 				}
 			}
-			List<LinkedHashMap<String, Object>> finalRows = new ArrayList<>();
-			// Decide whether to include header row based on a setting? For now, assume yes.
-			// if (!headerMap.isEmpty())
-			// finalRows.add(headerMap);
-			finalRows.addAll(dataRows);
-			ctx.reportData = finalRows; // reportData now contains only data rows
+		}
 
-			// Store header separately if needed, or assume first row of dataRows has keys
-			if (!dataRows.isEmpty()) {
-				ctx.reportColumnNames = new ArrayList<>(dataRows.get(0).keySet()); // Store column names if needed later
-			} else {
-				ctx.reportColumnNames = new ArrayList<>();
-			}
+		return query;
 
-			log.info("SQL query executed. Fetched {} result rows.", ctx.reportData.size());
-		}
-		log.trace("Exiting fetchData.");
 	}
 
 	protected Jdbi retrieveJdbiInstance(String connectionCode) throws Exception {
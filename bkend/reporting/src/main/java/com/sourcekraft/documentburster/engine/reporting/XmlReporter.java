@@ -38,6 +38,28 @@ public class XmlReporter extends AbstractReporter {
 		super(configFilePath);
 	}
 
+	/**
+	 * xmloptions.streaming is honoured only when repeatingnodexpath is a simple
+	 * absolute path (see XmlStreamingReader), other expressions need the DOM.
+	 */
+	@Override
+	protected boolean isStreamingConfigured() {
+
+		if (!ctx.settings.getReportDataSource().xmloptions.streaming)
+			return false;
+
+		String repeatingNodeXPath = ctx.settings.getReportDataSource().xmloptions.repeatingnodexpath;
+
+		if (XmlStreamingReader.parsePath(repeatingNodeXPath) == null) {
+			log.warn("Streaming is not used, repeatingnodexpath '{}' is not a simple absolute path (e.g. /root/records/record).",
+					repeatingNodeXPath);
+			return false;
+		}
+
+		return true;
+
+	}
+
 	@Override
 	protected void fetchData() throws Exception {
 		log.trace("Entering fetchData...");
@@ -53,12 +75,27 @@ public class XmlReporter extends AbstractReporter {
 			throw new IllegalArgumentException("repeatingnodexpath must be provided in XML options.");
 		}
 
-		boolean namespaceAware = StringUtils.isNotBlank(namespaceMappings);
+		boolean namespaceAware = _isNamespaceAware();
 
 		log.debug(
 				"XML Options: repeatingNodeXPath={}, idColumn={}, namespaceAware={}, encoding={}, ignoreLeadingWhitespace={}, namespaceMappings={}",
 				repeatingNodeXPath, idColumn, namespaceAware, encoding, ignoreLeadingWhitespace, namespaceMappings);
 
+		ctx.reportData = new ArrayList<>();
+		ctx.reportColumnNames = new ArrayList<>();
+
+		if (streamingBursting) {
+			// the repeating nodes are read (and burst) one by one in streamData
+			log.debug("Streaming the repeating nodes of '{}', the data will be read while bursting.", filePath);
+			return;
+		}
+
+		if (isStreamingConfigured()) {
+			streamData(row -> ctx.reportData.add(row));
+			log.trace("Exiting fetchData.");
+			return;
+		}
+
 		// --- Parse XML Document ---
 		DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
 		dbFactory.setNamespaceAware(namespaceAware);
@@ -71,19 +108,7 @@ public class XmlReporter extends AbstractReporter {
 
 		// --- Handle Namespace Mappings ---
 		if (namespaceAware) {
-			Map<String, String> nsMap = new HashMap<>();
-			String[] lines = namespaceMappings.split("\\r?\\n");
-			for (String line : lines) {
-				String trimmed = line.trim();
-				if (!trimmed.isEmpty()) {
-					int eq = trimmed.indexOf('=');
-					if (eq > 0 && eq < trimmed.length() - 1) {
-						String prefix = trimmed.substring(0, eq).trim();
-						String uri = trimmed.substring(eq + 1).trim();
-						nsMap.put(prefix, uri);
-					}
-				}
-			}
+			Map<String, String> nsMap = parseNamespaceMappings(namespaceMappings);
 			xpath.setNamespaceContext(new NamespaceContext() {
 				@Override
 				public String getNamespaceURI(String prefix) {
@@ -118,8 +143,6 @@ public class XmlReporter extends AbstractReporter {
 		int nodeCount = repeatingNodes.getLength();
 		log.info("Found {} repeating nodes using XPath '{}'", nodeCount, repeatingNodeXPath);
 
-		ctx.reportData = new ArrayList<>();
-		ctx.reportColumnNames = new ArrayList<>();
 		Set<String> columnSet = new LinkedHashSet<>();
 
 		// --- First pass: collect all possible column names ---
@@ -184,6 +207,89 @@ public class XmlReporter extends AbstractReporter {
 		log.trace("Exiting fetchData.");
 	}
 
+	/**
+	 * Reads the repeating nodes one at a time (single pass), the column names
+	 * grow as new attributes / child elements are found and the field mappings
+	 * are applied to each row.
+	 */
+	@Override
+	protected void streamData(RowHandler rowHandler) throws Exception {
+
+		String repeatingNodeXPath = ctx.settings.getReportDataSource().xmloptions.repeatingnodexpath;
+		String namespaceMappings = ctx.settings.getReportDataSource().xmloptions.namespacemappings;
+		boolean ignoreLeadingWhitespace = ctx.settings.getReportDataSource().xmloptions.ignoreleadingwhitespace;
+		String fm = ctx.settings.getReportDataSource().xmloptions.fieldmappings;
+
+		boolean namespaceAware = _isNamespaceAware();
+
+		Map<String, String> nsMap = namespaceAware ? parseNamespaceMappings(namespaceMappings)
+				: new HashMap<String, String>();
+		Map<String, String> mappings = StringUtils.isNotBlank(fm) ? parseFieldMappings(fm)
+				: new LinkedHashMap<String, String>();
+
+		Set<String> columnSet = new LinkedHashSet<>();
+		int[] nodeCount = { 0 };
+
+		XmlStreamingReader.read(filePath, repeatingNodeXPath, namespaceAware, nsMap, node -> {
+
+			LinkedHashMap<String, Object> rowMap = new LinkedHashMap<>();
+
+			for (Map.Entry<String, String> field : node.entrySet()) {
+				if (columnSet.add(field.getKey()))
+					ctx.reportColumnNames.add(mappings.getOrDefault(field.getKey(), field.getKey()));
+				String value = field.getValue();
+				if (ignoreLeadingWhitespace && value != null) {
+					value = value.trim();
+				}
+				rowMap.put(field.getKey(), toObject(value));
+			}
+
+			for (Map.Entry<String, String> me : mappings.entrySet()) {
+				String orig = me.getKey();
+				if (rowMap.containsKey(orig)) {
+					Object val = rowMap.remove(orig);
+					rowMap.put(me.getValue(), val);
+				}
+			}
+
+			nodeCount[0]++;
+			log.trace("Streamed data row map: {}", rowMap);
+
+			return rowHandler.process(rowMap);
+
+		});
+
+		log.info("Streamed {} repeating nodes using XPath '{}'. Columns: {}", nodeCount[0], repeatingNodeXPath,
+				ctx.reportColumnNames.size());
+
+	}
+
+	/**
+	 * The file is parsed namespace aware (both the DOM and the streaming parsing)
+	 * when namespace mappings are configured.
+	 */
+	private boolean _isNamespaceAware() {
+		return StringUtils.isNotBlank(ctx.settings.getReportDataSource().xmloptions.namespacemappings);
+	}
+
+	/** Turn the "prefix=uri" lines into a map {prefix→uri} */
+	private Map<String, String> parseNamespaceMappings(String namespaceMappings) {
+		Map<String, String> nsMap = new HashMap<>();
+		String[] lines = namespaceMappings.split("\\r?\\n");
+		for (String line : lines) {
+			String trimmed = line.trim();
+			if (!trimmed.isEmpty()) {
+				int eq = trimmed.indexOf('=');
+				if (eq > 0 && eq < trimmed.length() - 1) {
+					String prefix = trimmed.substring(0, eq).trim();
+					String uri = trimmed.substring(eq + 1).trim();
+					nsMap.put(prefix, uri);
+				}
+			}
+		}
+		return nsMap;
+	}
+
 	/**
 	 * Parse and apply field-mappings (origName:newName,…) to headers and data rows
 	 */
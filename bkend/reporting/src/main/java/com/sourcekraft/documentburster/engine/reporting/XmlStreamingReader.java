@@ -0,0 +1,234 @@
+package com.sourcekraft.documentburster.engine.reporting;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Reads the repeating nodes of an XML file with a StAX parser, one node at a
+ * time, for the repeatingnodexpath values which are simple absolute paths (e.g.
+ * /root/invoices/invoice, /ns:root/ns:invoice or /root/*). Only the node being
+ * read is kept in memory.
+ *
+ * The rows are the same as XmlReporter builds from the DOM: the attributes of
+ * the repeating node (as "@name", in name order) followed by the text content
+ * of its child elements.
+ */
+class XmlStreamingReader {
+
+	private static final Pattern SIMPLE_PATH_PATTERN = Pattern
+			.compile("(/(\\*|[A-Za-z_][\\w.\\-]*(:[A-Za-z_][\\w.\\-]*)?))+");
+
+	@FunctionalInterface
+	interface NodeHandler {
+		boolean process(LinkedHashMap<String, String> node) throws Exception;
+	}
+
+	private static class Step {
+
+		private String prefix;
+		private String localName;
+
+		private boolean matches(XMLStreamReader reader, boolean namespaceAware, Map<String, String> namespaces) {
+
+			if ("*".equals(localName))
+				return true;
+
+			// not namespace aware, the names are matched as written in the file
+			if (!namespaceAware)
+				return _getQName(reader.getPrefix(), reader.getLocalName()).equals(_getQName(prefix, localName));
+
+			if (!localName.equals(reader.getLocalName()))
+				return false;
+
+			String namespaceURI = (prefix != null) ? namespaces.getOrDefault(prefix, XMLConstants.NULL_NS_URI)
+					: XMLConstants.NULL_NS_URI;
+
+			return namespaceURI.equals(StringUtils.defaultString(reader.getNamespaceURI()));
+
+		}
+
+	}
+
+	/**
+	 * The steps of the path, null if the path is not a simple absolute path
+	 * (predicates, axes, functions, // ...).
+	 */
+	static List<String> parsePath(String repeatingNodeXPath) {
+
+		if (StringUtils.isBlank(repeatingNodeXPath))
+			return null;
+
+		String path = repeatingNodeXPath.trim();
+
+		if (!SIMPLE_PATH_PATTERN.matcher(path).matches())
+			return null;
+
+		List<String> steps = new ArrayList<String>();
+
+		for (String step : path.substring(1).split("/"))
+			steps.add(step);
+
+		return steps;
+
+	}
+
+	/**
+	 * Passes the repeating nodes to the handler, stops reading when the handler
+	 * returns false. The prefixes of the path are resolved with namespaces when
+	 * the file is read namespace aware (same as the DOM parsing).
+	 */
+	static void read(String filePath, String repeatingNodeXPath, boolean namespaceAware,
+			Map<String, String> namespaces, NodeHandler nodeHandler) throws Exception {
+
+		List<String> path = parsePath(repeatingNodeXPath);
+
+		if (path == null)
+			throw new IllegalArgumentException(
+					"repeatingnodexpath '" + repeatingNodeXPath + "' is not a simple absolute path");
+
+		List<Step> steps = new ArrayList<Step>();
+
+		for (String name : path) {
+			Step step = new Step();
+			int colon = name.indexOf(':');
+			step.prefix = (colon > 0) ? name.substring(0, colon) : null;
+			step.localName = (colon > 0) ? name.substring(colon + 1) : name;
+			steps.add(step);
+		}
+
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, namespaceAware);
+
+		try (InputStream input = Files.newInputStream(Paths.get(filePath))) {
+
+			XMLStreamReader reader = factory.createXMLStreamReader(input);
+
+			try {
+				_read(reader, steps, namespaceAware, namespaces, nodeHandler);
+			} finally {
+				reader.close();
+			}
+
+		}
+
+	}
+
+	private static void _read(XMLStreamReader reader, List<Step> steps, boolean namespaceAware,
+			Map<String, String> namespaces, NodeHandler nodeHandler) throws Exception {
+
+		int depth = 0;
+
+		// number of path steps matched by the current element and its ancestors
+		int matchedDepth = 0;
+
+		LinkedHashMap<String, String> node = null;
+
+		String childName = null;
+		StringBuilder childText = new StringBuilder();
+
+		while (reader.hasNext()) {
+
+			switch (reader.next()) {
+
+			case XMLStreamConstants.START_ELEMENT:
+
+				depth++;
+
+				if (node == null) {
+					if ((matchedDepth == depth - 1) && (depth <= steps.size())
+							&& steps.get(depth - 1).matches(reader, namespaceAware, namespaces)) {
+						matchedDepth = depth;
+						if (depth == steps.size())
+							node = _readAttributes(reader);
+					}
+				} else if (depth == steps.size() + 1) {
+					childName = _getQName(reader.getPrefix(), reader.getLocalName());
+					childText.setLength(0);
+				}
+
+				break;
+
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+
+				// the text content of the child, including its descendants
+				if ((node != null) && (childName != null))
+					childText.append(reader.getText());
+
+				break;
+
+			case XMLStreamConstants.END_ELEMENT:
+
+				if (node != null) {
+					if (depth == steps.size() + 1) {
+						node.put(childName, childText.toString());
+						childName = null;
+					} else if (depth == steps.size()) {
+						LinkedHashMap<String, String> processedNode = node;
+						node = null;
+						if (!nodeHandler.process(processedNode))
+							return;
+					}
+				}
+
+				if (matchedDepth == depth)
+					matchedDepth--;
+
+				depth--;
+
+				break;
+
+			default:
+				break;
+
+			}
+
+		}
+
+	}
+
+	/*
+	 * Same as the DOM attributes (which are ordered by name), the namespace
+	 * declarations included (they are plain attributes when the file is not
+	 * read namespace aware).
+	 */
+	private static LinkedHashMap<String, String> _readAttributes(XMLStreamReader reader) {
+
+		Map<String, String> attributes = new TreeMap<String, String>();
+
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			attributes.put("@" + (StringUtils.isEmpty(prefix) ? "xmlns" : "xmlns:" + prefix),
+					reader.getNamespaceURI(i));
+		}
+
+		for (int i = 0; i < reader.getAttributeCount(); i++)
+			attributes.put("@" + _getQName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+					reader.getAttributeValue(i));
+
+		return new LinkedHashMap<String, String>(attributes);
+
+	}
+
+	private static String _getQName(String prefix, String localName) {
+		return StringUtils.isEmpty(prefix) ? localName : prefix + ":" + localName;
+	}
+
+}
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Arrays;
 import java.util.LinkedHashMap; 
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -34,7 +35,10 @@ import com.sourcekraft.documentburster.common.ServicesManager;
 import com.sourcekraft.documentburster.engine.jasper.JasperReportRunner;
 import com.sourcekraft.documentburster.common.db.DatabaseConnectionTester;
 import com.sourcekraft.documentburster.common.db.DatabaseSchemaFetcher;
+import com.sourcekraft.documentburster.common.db.QueryCancellation;
+import com.sourcekraft.documentburster.common.db.ReportDataPageRequest;
 import com.sourcekraft.documentburster.common.db.ReportDataResult;
+import com.sourcekraft.documentburster.common.db.ReportDataRowHandler;
 import com.sourcekraft.documentburster.common.db.schema.SchemaInfo;
 import com.sourcekraft.documentburster.common.db.schema.TableSchema;
 import com.sourcekraft.documentburster.common.settings.EmailConnection;
@@ -444,12 +448,83 @@ public class CliJob {
 
 	}
 
+	/**
+	 * Same as doFetchData but the rows are passed one by one to the rowHandler
+	 * (e.g. written to the HTTP response) instead of being collected in the
+	 * result, which only has the totalRows and the executionTimeMillis. The
+	 * exceptions are thrown (there is no error row, the handler might have
+	 * already received rows).
+	 */
+	public ReportDataResult doStreamData(Map<String, String> parameters, boolean testMode,
+			ReportDataRowHandler rowHandler, QueryCancellation queryCancellation) throws Exception {
+
+		settings.setConfigurationFilePath(configurationFilePath);
+		settings.loadSettings();
+
+		this.setJobType(settings.getReportDataSource().type);
+
+		AbstractBurster burster = getBurster(configurationFilePath);
+
+		if (!(burster instanceof AbstractReporter))
+			throw new IllegalStateException("Stream data only supported for AbstractReporter-based bursters");
+
+		AbstractReporter reporter = (AbstractReporter) burster;
+		reporter.setPreviewMode(true);
+		reporter.setTestMode(testMode);
+		reporter.setReportParameters(parameters);
+		reporter.setQueryCancellation(queryCancellation);
+
+		AtomicInteger totalRows = new AtomicInteger();
+
+		long startTime = System.currentTimeMillis();
+		reporter.streamDataOnly(settings.getTemplateName(), new ReportDataRowHandler() {
+
+			@Override
+			public void columns(List<String> columnNames) throws Exception {
+				rowHandler.columns(columnNames);
+			}
+
+			@Override
+			public void row(Map<String, Object> row) throws Exception {
+				rowHandler.row(row);
+				totalRows.incrementAndGet();
+			}
+
+		});
+
+		ReportDataResult result = new ReportDataResult();
+		result.executionTimeMillis = System.currentTimeMillis() - startTime;
+		result.totalRows = totalRows.get();
+
+		return result;
+
+	}
+
 	/**
 	 * Fetch report data for preview/display purposes (read-only operation).
 	 * Does NOT create a job file since this is not a trackable job - it's just a database query.
 	 * Job files are only needed for operations with side effects (burst, merge, email, etc.).
 	 */
 	public ReportDataResult doFetchData(Map<String, String> parameters, boolean testMode) throws Exception {
+		return doFetchData(parameters, testMode, null);
+	}
+
+	/**
+	 * pageRequest is the server-side paging / sorting / filtering, when the
+	 * reporter applies it in the data source result.pageRequestApplied is true
+	 * and result.totalRows is the number of the matching rows.
+	 */
+	public ReportDataResult doFetchData(Map<String, String> parameters, boolean testMode,
+			ReportDataPageRequest pageRequest) throws Exception {
+		return doFetchData(parameters, testMode, pageRequest, null);
+	}
+
+	/**
+	 * queryCancellation (can be null) cancels the running JDBC queries when the
+	 * caller no longer needs the data (e.g. the HTTP request timed out).
+	 */
+	public ReportDataResult doFetchData(Map<String, String> parameters, boolean testMode,
+			ReportDataPageRequest pageRequest, QueryCancellation queryCancellation) throws Exception {
 
 		ReportDataResult result = new ReportDataResult();
 		AbstractBurster burster = null;
@@ -484,6 +559,9 @@ public class CliJob {
 				((AbstractReporter) burster).setReportParameters(parameters);
 				// System.out.println("doFetchData: setReportParameters called with: "
 				// + (parameters != null ? parameters.toString() : "null"));
+
+				((AbstractReporter) burster).setPageRequest(pageRequest);
+				((AbstractReporter) burster).setQueryCancellation(queryCancellation);
 			} else {
 				// System.out.println("doFetchData: burster is NOT instance of
 				// AbstractReporter");
@@ -503,6 +581,11 @@ public class CliJob {
 			result.executionTimeMillis = endTime - startTime;
 			result.totalRows = (result.reportData != null) ? result.reportData.size() : 0;
 
+			if (((AbstractReporter) burster).isPageRequestApplied()) {
+				result.pageRequestApplied = true;
+				result.totalRows = ((AbstractReporter) burster).getPageRequestTotalRows();
+			}
+
 			// System.out.println("doFetchData: reportData size = "
 			// + (result.reportData != null ? result.reportData.size() : "null"));
 			// System.out.println("doFetchData: reportColumnNames = "
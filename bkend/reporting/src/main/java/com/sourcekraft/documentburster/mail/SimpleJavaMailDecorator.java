@@ -14,16 +14,40 @@
  */
 package com.sourcekraft.documentburster.mail;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
 import javax.mail.internet.MimeMessage;
 
+import org.apache.commons.lang3.StringUtils;
 import org.simplejavamail.api.email.EmailPopulatingBuilder;
+import org.simplejavamail.api.mailer.Mailer;
 import org.simplejavamail.api.mailer.MailerFromSessionBuilder;
+import org.simplejavamail.api.mailer.config.LoadBalancingStrategy;
 import org.simplejavamail.converter.EmailConverter;
 import org.simplejavamail.mailer.MailerBuilder;
 import org.simplejavamail.mailer.internal.MailerFromSessionBuilderImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sourcekraft.documentburster.common.settings.model.ConnectionPool;
+import com.sourcekraft.documentburster.common.settings.model.SimpleJavaMail;
+import com.sourcekraft.documentburster.context.BurstingContext;
+import com.sourcekraft.documentburster.sender.model.EmailMessage;
 
 public class SimpleJavaMailDecorator {
 
+	private static Logger log = LoggerFactory.getLogger(SimpleJavaMailDecorator.class);
+
+	private static final String POOLED_MAILER_KEY_PREFIX = "smtp|";
+	private static final String RETIRED_KEY_SUFFIX = "|retired|";
+
+	private static final int SHUTDOWN_TIMEOUT_SECONDS = 60;
+
 	public static MailerFromSessionBuilder<?> getMailerBuilder(MimeMessage builtByCommonsEmailMimeMessage) {
 
 		MailerFromSessionBuilderImpl mailerBuilder = MailerBuilder.usingSession(builtByCommonsEmailMimeMessage.getSession());
@@ -44,4 +68,157 @@ public class SimpleJavaMailDecorator {
 
 	}
 
+	/**
+	 * True when an SMTP connection pool is configured (connectionpool maxsize >
+	 * 0). The emails are then sent through getPooledMailer instead of opening a
+	 * new SMTP connection for each email.
+	 */
+	public static boolean isConnectionPoolEnabled(SimpleJavaMail sjm) {
+
+		return (sjm != null) && (sjm.connectionpool != null) && (sjm.connectionpool.maxsize > 0);
+
+	}
+
+	/**
+	 * Returns the mailer kept for the SMTP connection (host, port, user, TLS /
+	 * SSL, proxy, etc.) of the message. The mailer is built, from the session of
+	 * builtByCommonsEmailMimeMessage, for the first email of the job going to that
+	 * connection and it keeps up to connectionpool maxsize SMTP connections open,
+	 * each one connected and authenticated once and then reused for all the
+	 * following emails of the job. The parallel burst workers share the same
+	 * mailer and wait (up to claimtimeoutmillis) while all its connections are
+	 * busy.
+	 *
+	 * mailerConfiguration is applied only once, when the mailer is built. When
+	 * the password changes (e.g. a new OAuth2 access token) a new pool is opened
+	 * for the following emails. The previous pool is retired, not shut down,
+	 * since other burst workers may still be sending through it. All the pools,
+	 * including the retired ones, are shut down when the job is done
+	 * (BurstingContext.closeDistributionSessions).
+	 */
+	public static Mailer getPooledMailer(EmailMessage message, String password,
+			MimeMessage builtByCommonsEmailMimeMessage, Consumer<MailerFromSessionBuilder<?>> mailerConfiguration)
+			throws Exception {
+
+		BurstingContext ctx = message.ctx;
+
+		String key = _getConnectionKey(message);
+		String credentialsHash = _getCredentialsHash(message, password);
+
+		synchronized (ctx.distributionSessions) {
+
+			PooledMailer pooledMailer = (PooledMailer) ctx.distributionSessions.get(key);
+
+			if ((pooledMailer != null) && pooledMailer.credentialsHash.equals(credentialsHash))
+				return pooledMailer.mailer;
+
+			if (pooledMailer != null) {
+				log.info("The credentials for " + message.hostName + ":" + message.smtpPort
+						+ " changed, opening a new SMTP connection pool");
+				// closed with the other sessions at the end of the job
+				ctx.distributionSessions.put(key + RETIRED_KEY_SUFFIX + UUID.randomUUID(),
+						ctx.distributionSessions.remove(key));
+			}
+
+			MailerFromSessionBuilder<?> mailerBuilder = getMailerBuilder(builtByCommonsEmailMimeMessage);
+
+			if (mailerConfiguration != null)
+				mailerConfiguration.accept(mailerBuilder);
+
+			_configureConnectionPool(mailerBuilder, message.sjm.connectionpool);
+
+			pooledMailer = new PooledMailer(credentialsHash, mailerBuilder.buildMailer());
+			ctx.distributionSessions.put(key, pooledMailer);
+
+			log.info("Opened SMTP connection pool for " + message.hostName + ":" + message.smtpPort + " (up to "
+					+ message.sjm.connectionpool.maxsize + " connections)");
+
+			return pooledMailer.mailer;
+
+		}
+
+	}
+
+	private static void _configureConnectionPool(MailerFromSessionBuilder<?> mailerBuilder, ConnectionPool pool) {
+
+		mailerBuilder.withConnectionPoolMaxSize(pool.maxsize);
+
+		if (pool.coresize > 0)
+			mailerBuilder.withConnectionPoolCoreSize(Math.min(pool.coresize, pool.maxsize));
+
+		if (pool.claimtimeoutmillis > 0)
+			mailerBuilder.withConnectionPoolClaimTimeoutMillis(pool.claimtimeoutmillis);
+
+		if (pool.expireaftermillis > 0)
+			mailerBuilder.withConnectionPoolExpireAfterMillis(pool.expireaftermillis);
+
+		if (StringUtils.isNotBlank(pool.clusterkeyuuid))
+			mailerBuilder.withClusterKey(UUID.fromString(pool.clusterkeyuuid.trim()));
+
+		if (StringUtils.isNotBlank(pool.loadbalancingstrategy))
+			mailerBuilder.withConnectionPoolLoadBalancingStrategy(
+					LoadBalancingStrategy.valueOf(pool.loadbalancingstrategy.trim().toUpperCase()));
+
+	}
+
+	/*
+	 * Everything which is used to open (and configure) the SMTP connection,
+	 * except the passwords which are only kept hashed, see
+	 * _getCredentialsHash.
+	 */
+	private static String _getConnectionKey(EmailMessage message) {
+
+		StringBuilder key = new StringBuilder(POOLED_MAILER_KEY_PREFIX);
+
+		key.append(message.hostName).append('|').append(message.smtpPort).append('|');
+		key.append(message.isTls).append('|').append(message.isSsl).append('|').append(message.isDebug).append('|');
+		key.append(message.oauth2provider).append('|');
+		key.append(message.isAuthentication ? message.authuser : StringUtils.EMPTY).append('|');
+		key.append(message.oauth2useremail).append('|');
+
+		SimpleJavaMail sjm = message.sjm;
+
+		key.append(sjm.customsessionproperties).append('|');
+		key.append(sjm.javaxmaildebug).append('|').append(sjm.transportmodeloggingonly).append('|');
+
+		if (sjm.proxy != null) {
+			key.append(sjm.proxy.host).append('|').append(sjm.proxy.port).append('|');
+			key.append(sjm.proxy.username).append('|').append(sjm.proxy.socks5bridgeport);
+		}
+
+		return key.toString();
+
+	}
+
+	private static String _getCredentialsHash(EmailMessage message, String password) throws Exception {
+
+		String proxyPassword = (message.sjm.proxy != null) ? message.sjm.proxy.password : null;
+
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+		digest.update(StringUtils.defaultString(password).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(StringUtils.defaultString(proxyPassword).getBytes(StandardCharsets.UTF_8));
+
+		return HexFormat.of().formatHex(digest.digest());
+
+	}
+
+	private static class PooledMailer implements AutoCloseable {
+
+		private final String credentialsHash;
+		private final Mailer mailer;
+
+		private PooledMailer(String credentialsHash, Mailer mailer) {
+			this.credentialsHash = credentialsHash;
+			this.mailer = mailer;
+		}
+
+		@Override
+		public void close() throws Exception {
+			mailer.shutdownConnectionPool().get(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		}
+
+	}
+
 }
\ No newline at end of file
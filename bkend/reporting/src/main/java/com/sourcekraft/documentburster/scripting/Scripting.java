@@ -2,6 +2,11 @@ package com.sourcekraft.documentburster.scripting;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,16 +14,30 @@ import org.slf4j.LoggerFactory;
 
 import com.sourcekraft.documentburster.context.BurstingContext;
 import com.sourcekraft.documentburster.sender.model.AbstractMessage;
-import com.sourcekraft.documentburster.utils.Utils;
 
 import groovy.lang.Binding;
+import groovy.lang.Script;
 import groovy.util.GroovyScriptEngine;
+import org.codehaus.groovy.runtime.InvokerHelper;
 
 public class Scripting {
 
 	private static Logger log = LoggerFactory.getLogger(Scripting.class);
 
+	// absent scripts are probed again only after this interval (lifecycle hooks
+	// are called for every page / token so probing all the roots each time adds
+	// up)
+	private static final long ABSENT_SCRIPT_RECHECK_INTERVAL_MILLIS = 2000;
+
+	// process-wide caches, shared by all the jobs which use the same engineRoots
+	private static final Map<String, GroovyScriptEngine> ENGINES = new ConcurrentHashMap<>();
+	private static final Map<String, CompiledScript> COMPILED_SCRIPTS = new ConcurrentHashMap<>();
+
 	private String[] engineRoots = resolveDefaultRoots();
+	private String engineRootsKey = Arrays.toString(engineRoots);
+
+	// per job (Scripting instance) execution statistics, keyed by script name
+	private final Map<String, ExecutionStats> executionStats = new ConcurrentHashMap<>();
 
 	private static String[] resolveDefaultRoots() {
 		String baseDir = System.getProperty("PORTABLE_EXECUTABLE_DIR", "");
@@ -45,29 +64,143 @@ public class Scripting {
 
 	}
 
+	/**
+	 * Returns true if the script can be found in any of the engine roots.
+	 */
+	public boolean scriptExists(String scriptFileName) {
+
+		return _findScriptFile(scriptFileName) != null;
+
+	}
+
+	/**
+	 * Returns true if the script can be found and it is not empty.
+	 */
+	public boolean scriptHasContent(String scriptFileName) {
+
+		File scriptFile = _findScriptFile(scriptFileName);
+
+		return (scriptFile != null) && (scriptFile.length() > 0);
+
+	}
+
+	/**
+	 * Number of executions and total execution time (in nanoseconds) for each of
+	 * the scripts executed by this instance. Scripts which are missing or empty
+	 * are counted as executions taking (almost) no time.
+	 */
+	public Map<String, long[]> getExecutionStats() {
+
+		Map<String, long[]> stats = new TreeMap<>();
+
+		for (Map.Entry<String, ExecutionStats> entry : executionStats.entrySet())
+			stats.put(entry.getKey(),
+					new long[] { entry.getValue().count.sum(), entry.getValue().totalNanos.sum() });
+
+		return Collections.unmodifiableMap(stats);
+
+	}
+
 	private void executeScript(String scriptFileName, Object context, String contextObjectName) throws Exception {
 
 		//log.debug("scriptFile=" + scriptFileName + ", context=" + context);
 
-		String scriptFilePath = engineRoots[0] + "/" + scriptFileName;
-		boolean scriptFound = false;
+		long startTime = System.nanoTime();
 
-		for (int i = 0; i < engineRoots.length && !scriptFound; i++) {
-			scriptFilePath = engineRoots[i] + "/" + scriptFileName;
-			File scriptFile = new File(scriptFilePath);
-			scriptFound = scriptFile.exists();
-		}
+		try {
 
-		if (!Utils.isEmptyFile(scriptFilePath)) {
+			CompiledScript compiledScript = _getCompiledScript(scriptFileName);
 
-			GroovyScriptEngine gse = new GroovyScriptEngine(engineRoots);
+			if (compiledScript.isNoOp())
+				return;
 
 			Binding binding = new Binding();
 			binding.setVariable(contextObjectName, context);
 			binding.setVariable("log", log);
 
-			gse.run(scriptFileName, binding);
+			Script script = InvokerHelper.createScript(compiledScript.scriptClass, binding);
+			script.run();
+
+		} finally {
+
+			ExecutionStats stats = executionStats.computeIfAbsent(scriptFileName, k -> new ExecutionStats());
+			stats.count.increment();
+			stats.totalNanos.add(System.nanoTime() - startTime);
+
+		}
+
+	}
+
+	/*
+	 * The compiled script class is reused for as long as the script file has the
+	 * same last modified time and size. Only the script itself is checked, if a
+	 * script which is imported by another script changes the main script should
+	 * be touched (or the application restarted).
+	 */
+	private CompiledScript _getCompiledScript(String scriptFileName) throws Exception {
+
+		String key = engineRootsKey + "|" + scriptFileName;
+
+		CompiledScript cached = COMPILED_SCRIPTS.get(key);
+
+		if (cached != null && cached.isUpToDate())
+			return cached;
+
+		File scriptFile = _findScriptFile(scriptFileName);
+
+		CompiledScript compiledScript;
+
+		if (scriptFile == null)
+			compiledScript = CompiledScript.absent();
+		else if (scriptFile.length() == 0)
+			compiledScript = new CompiledScript(scriptFile, null);
+		else {
+
+			long lastModified = scriptFile.lastModified();
+			long length = scriptFile.length();
+
+			GroovyScriptEngine gse = ENGINES.computeIfAbsent(engineRootsKey, k -> _newEngine());
+
+			Class<?> scriptClass = gse.loadScriptByName(scriptFileName);
+
+			compiledScript = new CompiledScript(scriptFile, lastModified, length, scriptClass);
+
+			log.debug("Compiled script '{}' ({})", scriptFileName, scriptFile.getAbsolutePath());
+
+		}
+
+		COMPILED_SCRIPTS.put(key, compiledScript);
+
+		return compiledScript;
+
+	}
+
+	private File _findScriptFile(String scriptFileName) {
+
+		for (String engineRoot : engineRoots) {
+			File scriptFile = new File(engineRoot + "/" + scriptFileName);
+			if (scriptFile.isFile())
+				return scriptFile;
+		}
+
+		return null;
+
+	}
+
+	private GroovyScriptEngine _newEngine() {
+
+		try {
+
+			GroovyScriptEngine gse = new GroovyScriptEngine(engineRoots);
 
+			// loadScriptByName is called only once the script file changed, so let the
+			// engine recompile straight away
+			gse.getConfig().setMinimumRecompilationInterval(0);
+
+			return gse;
+
+		} catch (Exception e) {
+			throw new IllegalStateException("Could not create the Groovy script engine for " + engineRootsKey, e);
 		}
 
 	}
@@ -75,6 +208,54 @@ public class Scripting {
 	public void setRoots(String[] roots) {
 
 		this.engineRoots = Arrays.copyOf(roots, roots.length);
+		this.engineRootsKey = Arrays.toString(this.engineRoots);
+
+	}
+
+	private static class CompiledScript {
+
+		private final File file;
+		private final long lastModified;
+		private final long length;
+		private final Class<?> scriptClass;
+
+		private final long checkedAt = System.currentTimeMillis();
+
+		private CompiledScript(File file, long lastModified, long length, Class<?> scriptClass) {
+			this.file = file;
+			this.lastModified = lastModified;
+			this.length = length;
+			this.scriptClass = scriptClass;
+		}
+
+		// empty script file
+		private CompiledScript(File file, Class<?> scriptClass) {
+			this(file, file.lastModified(), 0, scriptClass);
+		}
+
+		private static CompiledScript absent() {
+			return new CompiledScript(null, 0, 0, null);
+		}
+
+		private boolean isNoOp() {
+			return scriptClass == null;
+		}
+
+		private boolean isUpToDate() {
+
+			if (file == null)
+				return (System.currentTimeMillis() - checkedAt) < ABSENT_SCRIPT_RECHECK_INTERVAL_MILLIS;
+
+			return (file.lastModified() == lastModified) && (file.length() == length);
+
+		}
+
+	}
+
+	private static class ExecutionStats {
+
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
 
 	}
 
@@ -0,0 +1,262 @@
+/*
+    DocumentBurster is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License, or
+    (at your option) any later version.
+
+    DocumentBurster is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with DocumentBurster.  If not, see <http://www.gnu.org/licenses/>
+ */
+package com.sourcekraft.documentburster.upload;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.tools.ant.types.Commandline;
+
+/**
+ * The (FTP / FTPS / SFTP) upload described by a cURL upload command, e.g.
+ *
+ * -T $extracted_file_path$ --ftp-create-dirs -u user:password
+ * ftp://ftp.example.com/reports/
+ *
+ * Only the options which are needed to upload files are understood (-T, -u,
+ * --ftp-create-dirs, --ssl / --ftp-ssl and the -reqd variants, -k, the SFTP
+ * --key / --pass private key and the options which change only the output of
+ * cURL). parse returns null for any
+ * other command, which is then executed by cURL as before.
+ */
+public class CurlUploadCommand {
+
+	public static enum Protocol {
+		FTP, FTPS_EXPLICIT, FTPS_IMPLICIT, SFTP
+	}
+
+	private static final Set<String> SSL_OPTIONS = new HashSet<String>(
+			Arrays.asList("--ssl", "--ssl-reqd", "--ftp-ssl", "--ftp-ssl-reqd"));
+
+	private static final Set<String> OUTPUT_OPTIONS = new HashSet<String>(
+			Arrays.asList("-s", "--silent", "-S", "--show-error", "-sS", "-v", "--verbose", "--ftp-pasv"));
+
+	public Protocol protocol;
+
+	public String host;
+	public int port;
+
+	public String user;
+	public String password;
+
+	// the SFTP private key file (--key) and its passphrase (--pass)
+	public String privateKey;
+	public String passphrase;
+
+	// the remote directory (curl style, see getRemoteFilePath) and the remote
+	// file name, the file name is empty when the URL ends with '/'
+	public String remoteDirectory;
+	public String remoteFileName;
+
+	public boolean createDirs = false;
+	public boolean insecure = false;
+
+	public List<String> files = new ArrayList<String>();
+
+	/**
+	 * Returns null if the command uses anything which is not supported natively.
+	 */
+	public static CurlUploadCommand parse(String uploadCommand) {
+
+		if (StringUtils.isBlank(uploadCommand))
+			return null;
+
+		CurlUploadCommand command = new CurlUploadCommand();
+
+		String url = null;
+		boolean ssl = false;
+
+		// the same splitting (and quoting) rules as the ones used when cURL is
+		// executed by upload.groovy
+		String[] args = Commandline.translateCommandline(uploadCommand);
+
+		for (int i = 0; i < args.length; i++) {
+
+			String arg = args[i];
+
+			if ("-T".equals(arg) || "--upload-file".equals(arg)) {
+				if (++i >= args.length)
+					return null;
+				command.files.addAll(_parseFiles(args[i]));
+			} else if ("-u".equals(arg) || "--user".equals(arg)) {
+				if (++i >= args.length)
+					return null;
+				command.user = StringUtils.substringBefore(args[i], ":");
+				command.password = args[i].contains(":") ? StringUtils.substringAfter(args[i], ":") : null;
+			} else if ("--key".equals(arg)) {
+				if (++i >= args.length)
+					return null;
+				command.privateKey = args[i];
+			} else if ("--pass".equals(arg)) {
+				if (++i >= args.length)
+					return null;
+				command.passphrase = args[i];
+			} else if ("--ftp-create-dirs".equals(arg))
+				command.createDirs = true;
+			else if ("-k".equals(arg) || "--insecure".equals(arg))
+				command.insecure = true;
+			else if (SSL_OPTIONS.contains(arg))
+				ssl = true;
+			else if (OUTPUT_OPTIONS.contains(arg))
+				continue;
+			else if (!arg.startsWith("-") && (url == null))
+				url = arg;
+			else
+				return null;
+
+		}
+
+		if ((url == null) || command.files.isEmpty() || (command.files.size() > 1 && !url.endsWith("/")))
+			return null;
+
+		if (!_parseUrl(command, url, ssl))
+			return null;
+
+		if ((command.privateKey != null) && (command.protocol != Protocol.SFTP))
+			return null;
+
+		return command;
+
+	}
+
+	/**
+	 * The remote path of the uploaded file, as cURL resolves it: the path of an
+	 * ftp(s):// URL is relative to the login directory (unless it starts with
+	 * %2F), the path of a sftp:// URL is absolute (unless it starts with /~/).
+	 */
+	public String getRemoteFilePath(String localFilePath) {
+
+		String fileName = StringUtils.isNotEmpty(remoteFileName) ? remoteFileName
+				: new File(localFilePath).getName();
+
+		if (StringUtils.isEmpty(remoteDirectory))
+			return fileName;
+
+		return StringUtils.removeEnd(remoteDirectory, "/") + "/" + fileName;
+
+	}
+
+	/*
+	 * -T file or -T "{file1,file2}" (the cURL globbing for uploading several
+	 * files to the same URL)
+	 */
+	private static List<String> _parseFiles(String arg) {
+
+		List<String> files = new ArrayList<String>();
+
+		if (arg.startsWith("{") && arg.endsWith("}")) {
+			for (String file : StringUtils.split(arg.substring(1, arg.length() - 1), ','))
+				if (StringUtils.isNotBlank(file))
+					files.add(file.trim());
+		} else
+			files.add(arg);
+
+		return files;
+
+	}
+
+	private static boolean _parseUrl(CurlUploadCommand command, String url, boolean ssl) {
+
+		int schemeEnd = url.indexOf("://");
+
+		if (schemeEnd < 0)
+			return false;
+
+		String scheme = url.substring(0, schemeEnd).toLowerCase();
+
+		if ("ftp".equals(scheme))
+			command.protocol = ssl ? Protocol.FTPS_EXPLICIT : Protocol.FTP;
+		else if ("ftps".equals(scheme))
+			command.protocol = Protocol.FTPS_IMPLICIT;
+		else if ("sftp".equals(scheme))
+			command.protocol = Protocol.SFTP;
+		else
+			return false;
+
+		// the raw path is kept as it is, cURL does not normalize it either
+		String rest = url.substring(schemeEnd + 3);
+		int pathStart = rest.indexOf('/');
+
+		String authority = (pathStart < 0) ? rest : rest.substring(0, pathStart);
+		String path = (pathStart < 0) ? StringUtils.EMPTY : rest.substring(pathStart + 1);
+
+		if (authority.contains("@")) {
+			String userInfo = StringUtils.substringBeforeLast(authority, "@");
+			authority = StringUtils.substringAfterLast(authority, "@");
+			if (command.user == null) {
+				command.user = _decode(StringUtils.substringBefore(userInfo, ":"));
+				command.password = userInfo.contains(":") ? _decode(StringUtils.substringAfter(userInfo, ":"))
+						: null;
+			}
+		}
+
+		URI uri;
+
+		try {
+			uri = new URI(scheme + "://" + authority);
+		} catch (Exception e) {
+			return false;
+		}
+
+		if (StringUtils.isBlank(uri.getHost()) || StringUtils.isBlank(command.user))
+			return false;
+
+		command.host = uri.getHost();
+
+		if (uri.getPort() > 0)
+			command.port = uri.getPort();
+		else if (command.protocol == Protocol.SFTP)
+			command.port = 22;
+		else if (command.protocol == Protocol.FTPS_IMPLICIT)
+			command.port = 990;
+		else
+			command.port = 21;
+
+		int lastSlash = path.lastIndexOf('/');
+
+		String directory = (lastSlash < 0) ? StringUtils.EMPTY : path.substring(0, lastSlash);
+		String fileName = path.substring(lastSlash + 1);
+
+		if (command.protocol == Protocol.SFTP) {
+			// sftp://host/~/dir is relative to the home directory, anything else is
+			// absolute
+			if (directory.equals("~") || directory.startsWith("~/"))
+				directory = StringUtils.removeStart(StringUtils.removeStart(directory, "~"), "/");
+			else
+				directory = "/" + directory;
+		}
+
+		command.remoteDirectory = _decode(directory);
+		command.remoteFileName = _decode(fileName);
+
+		return true;
+
+	}
+
+	private static String _decode(String value) {
+
+		return URLDecoder.decode(value.replace("+", "%2B"), StandardCharsets.UTF_8);
+
+	}
+
+}
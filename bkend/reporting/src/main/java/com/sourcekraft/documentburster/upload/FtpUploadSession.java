@@ -0,0 +1,180 @@
+/*
+    DocumentBurster is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License, or
+    (at your option) any later version.
+
+    DocumentBurster is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with DocumentBurster.  If not, see <http://www.gnu.org/licenses/>
+ */
+package com.sourcekraft.documentburster.upload;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
+import org.apache.commons.net.ftp.FTPSClient;
+import org.apache.commons.net.util.TrustManagerUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sourcekraft.documentburster.upload.CurlUploadCommand.Protocol;
+
+/**
+ * FTP, explicit FTPS (AUTH TLS) and implicit FTPS upload session (Apache
+ * Commons Net). The files are streamed from disk in binary, passive mode.
+ *
+ * The FTPS server certificate and host name are verified unless -k
+ * (--insecure) is used.
+ */
+public class FtpUploadSession implements UploadSession {
+
+	private static Logger log = LoggerFactory.getLogger(FtpUploadSession.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int CONNECT_TIMEOUT_MILLIS = 30000;
+
+	private final String host;
+	private final FTPClient client;
+
+	// directories already created (or found) during this session
+	private final Set<String> existingDirectories = new HashSet<String>();
+
+	public FtpUploadSession(CurlUploadCommand command) throws Exception {
+
+		this.host = command.host;
+
+		if (command.protocol == Protocol.FTP)
+			client = new FTPClient();
+		else {
+			FTPSClient ftpsClient = new FTPSClient(command.protocol == Protocol.FTPS_IMPLICIT);
+			if (command.insecure)
+				ftpsClient.setTrustManager(TrustManagerUtils.getAcceptAllTrustManager());
+			else {
+				// like cURL, the certificate chain (JVM trust store) and the host
+				// name are verified
+				ftpsClient.setTrustManager(TrustManagerUtils.getDefaultTrustManager(null));
+				ftpsClient.setEndpointCheckingEnabled(true);
+			}
+			client = ftpsClient;
+		}
+
+		client.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+		client.setBufferSize(BUFFER_SIZE);
+
+		try {
+
+			client.connect(command.host, command.port);
+
+			if (!FTPReply.isPositiveCompletion(client.getReplyCode()))
+				throw new IOException("FTP server " + command.host + " refused the connection: " + _getReply());
+
+			if (!client.login(command.user, StringUtils.defaultString(command.password)))
+				throw new IOException("FTP login to " + command.host + " failed for user '" + command.user + "': "
+						+ _getReply());
+
+			if (client instanceof FTPSClient) {
+				// protect the data connections too
+				((FTPSClient) client).execPBSZ(0);
+				((FTPSClient) client).execPROT("P");
+			}
+
+			client.enterLocalPassiveMode();
+			client.setFileType(FTP.BINARY_FILE_TYPE);
+
+		} catch (Exception e) {
+			close();
+			throw e;
+		}
+
+		log.debug("Opened " + command.protocol + " session to " + command.host + ":" + command.port);
+
+	}
+
+	public void upload(File file, String remoteFilePath, boolean createDirs) throws Exception {
+
+		if (createDirs && remoteFilePath.contains("/"))
+			_createDirectories(StringUtils.substringBeforeLast(remoteFilePath, "/"));
+
+		try (InputStream input = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+			if (!client.storeFile(remoteFilePath, input))
+				throw new IOException("Failed to upload '" + file + "' to " + host + "/" + remoteFilePath + ": "
+						+ _getReply());
+		}
+
+	}
+
+	public boolean isConnected() {
+
+		return client.isConnected();
+
+	}
+
+	public void close() {
+
+		if (!client.isConnected())
+			return;
+
+		try {
+			client.logout();
+		} catch (IOException e) {
+			// the connection is closed anyway
+		}
+
+		try {
+			client.disconnect();
+		} catch (IOException e) {
+			log.debug("Failed to disconnect from " + host, e);
+		}
+
+	}
+
+	/*
+	 * Like curl --ftp-create-dirs, the missing directories are created one level
+	 * at a time, errors are ignored (the upload itself fails if the directory is
+	 * still missing).
+	 */
+	private void _createDirectories(String directory) throws IOException {
+
+		if (StringUtils.isEmpty(directory) || existingDirectories.contains(directory))
+			return;
+
+		StringBuilder path = new StringBuilder(directory.startsWith("/") ? "/" : StringUtils.EMPTY);
+
+		for (String segment : StringUtils.split(directory, '/')) {
+
+			path.append(segment);
+
+			String currentPath = path.toString();
+
+			if (!existingDirectories.contains(currentPath)) {
+				client.makeDirectory(currentPath);
+				existingDirectories.add(currentPath);
+			}
+
+			path.append('/');
+
+		}
+
+	}
+
+	private String _getReply() {
+
+		return StringUtils.trimToEmpty(client.getReplyString());
+
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+    DocumentBurster is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License, or
+    (at your option) any later version.
+
+    DocumentBurster is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with DocumentBurster.  If not, see <http://www.gnu.org/licenses/>
+ */
+package com.sourcekraft.documentburster.upload;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jcraft.jsch.JSch;
+import com.sourcekraft.documentburster.common.settings.model.UploadSettings;
+import com.sourcekraft.documentburster.context.BurstingContext;
+import com.sourcekraft.documentburster.sender.model.UploadMessage;
+import com.sourcekraft.documentburster.upload.CurlUploadCommand.Protocol;
+
+/**
+ * Executes FTP / FTPS / SFTP cURL upload commands in process (see
+ * CurlUploadCommand for the supported options). The sessions are opened once
+ * per server and reused for all the files of the job (see UploadSessionPool),
+ * instead of starting cURL (and connecting / authenticating) for each file.
+ */
+public class NativeUploader {
+
+	private static Logger log = LoggerFactory.getLogger(NativeUploader.class);
+
+	private static final String SESSION_POOL_KEY_PREFIX = "upload|";
+
+	/**
+	 * Uploads the files of the message, returns false (without uploading
+	 * anything) when native uploads are disabled or when the command is not
+	 * supported, in which case the command should be executed by cURL. Throws
+	 * if any of the files failed to upload, after trying all of them.
+	 */
+	public static boolean upload(UploadMessage message) throws Exception {
+
+		BurstingContext ctx = message.ctx;
+
+		UploadSettings uploadSettings = ctx.settings.getUploadSettings();
+
+		if (!Boolean.TRUE.equals(uploadSettings.nativeupload))
+			return false;
+
+		CurlUploadCommand command = CurlUploadCommand.parse(message.uploadCommand);
+
+		if (command == null) {
+			log.debug("The upload command is not supported natively, it will be executed by cURL");
+			return false;
+		}
+
+		if (!_hasCredentials(command)) {
+			log.debug("No password and no private key for " + command.host
+					+ ", the upload command will be executed by cURL");
+			return false;
+		}
+
+		if ((command.protocol == Protocol.SFTP) && !SftpUploadSession.canVerifyHostKey(command)) {
+			log.debug("No known_hosts file to verify the host key of " + command.host
+					+ ", the upload command will be executed by cURL");
+			return false;
+		}
+
+		UploadSessionPool sessionPool = _getSessionPool(ctx, command, uploadSettings.nativeuploadconnections);
+
+		List<String> failedFiles = new ArrayList<String>();
+		Exception lastException = null;
+
+		for (String filePath : command.files) {
+
+			String remoteFilePath = command.getRemoteFilePath(filePath);
+
+			try {
+
+				_upload(sessionPool, new File(filePath), remoteFilePath, command.createDirs);
+
+				log.info("Uploaded '" + filePath + "' to " + command.host + " as '" + remoteFilePath + "'");
+
+			} catch (Exception e) {
+
+				log.error("Failed to upload '" + filePath + "' to " + command.host + " as '" + remoteFilePath + "'",
+						e);
+
+				failedFiles.add(filePath);
+				lastException = e;
+
+			}
+
+		}
+
+		if (!failedFiles.isEmpty())
+			throw new IOException("Failed to upload " + failedFiles + " to " + command.host, lastException);
+
+		return true;
+
+	}
+
+	/*
+	 * A session which was dropped by the server while it was idle (e.g. an FTP
+	 * idle timeout) fails on its next upload, which is then retried once on a
+	 * new session.
+	 */
+	private static void _upload(UploadSessionPool sessionPool, File file, String remoteFilePath, boolean createDirs)
+			throws Exception {
+
+		if (!file.isFile())
+			throw new FileNotFoundException(file.getAbsolutePath());
+
+		for (int attempt = 1;; attempt++) {
+
+			UploadSession session = sessionPool.borrow();
+			boolean connected = true;
+
+			try {
+
+				session.upload(file, remoteFilePath, createDirs);
+
+				return;
+
+			} catch (Exception e) {
+
+				connected = session.isConnected();
+
+				if (connected || (attempt > 1))
+					throw e;
+
+				log.debug("The upload session to '" + remoteFilePath + "' was closed, reconnecting", e);
+
+			} finally {
+				sessionPool.release(session, !connected);
+			}
+
+		}
+
+	}
+
+	private static UploadSessionPool _getSessionPool(BurstingContext ctx, CurlUploadCommand command,
+			Integer maxSessions) throws Exception {
+
+		String key = SESSION_POOL_KEY_PREFIX + command.protocol + "|" + command.host + "|" + command.port + "|"
+				+ command.user + "|" + command.insecure + "|" + _hash(command.password) + "|"
+				+ StringUtils.defaultString(command.privateKey) + "|" + _hash(command.passphrase);
+
+		int max = (maxSessions != null) ? maxSessions.intValue() : 1;
+
+		return (UploadSessionPool) ctx.distributionSessions.computeIfAbsent(key,
+				k -> new UploadSessionPool(command, max));
+
+	}
+
+	/*
+	 * SFTP without a password needs a private key, otherwise cURL is left to
+	 * authenticate (e.g. with an ssh-agent).
+	 */
+	private static boolean _hasCredentials(CurlUploadCommand command) throws Exception {
+
+		if ((command.protocol != Protocol.SFTP) || StringUtils.isNotEmpty(command.password))
+			return true;
+
+		return SftpUploadSession.addIdentities(new JSch(), command) > 0;
+
+	}
+
+	// the password (passphrase) is not kept as it is in the key
+	private static String _hash(String password) throws Exception {
+
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+		return HexFormat.of()
+				.formatHex(digest.digest(StringUtils.defaultString(password).getBytes(StandardCharsets.UTF_8)));
+
+	}
+
+}
@@ -0,0 +1,216 @@
+/*
+    DocumentBurster is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License, or
+    (at your option) any later version.
+
+    DocumentBurster is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with DocumentBurster.  If not, see <http://www.gnu.org/licenses/>
+ */
+package com.sourcekraft.documentburster.upload;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+
+/**
+ * SFTP upload session (JSch), one SSH session with one SFTP channel. The files
+ * are streamed from disk by the channel.
+ *
+ * Like cURL, the host key is checked against ~/.ssh/known_hosts unless -k
+ * (--insecure) is used (without a known_hosts file the session cannot be
+ * opened, see canVerifyHostKey) and the user is authenticated with the
+ * password and / or the --key private key (by default, the private keys found
+ * in ~/.ssh).
+ */
+public class SftpUploadSession implements UploadSession {
+
+	private static Logger log = LoggerFactory.getLogger(SftpUploadSession.class);
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 30000;
+
+	private static final String[] DEFAULT_PRIVATE_KEYS = { "id_rsa", "id_ecdsa", "id_ed25519", "id_dsa" };
+
+	private final String host;
+
+	private Session session;
+	private ChannelSftp channel;
+
+	// directories already created (or found) during this session
+	private final Set<String> existingDirectories = new HashSet<String>();
+
+	public SftpUploadSession(CurlUploadCommand command) throws Exception {
+
+		this.host = command.host;
+
+		JSch jsch = new JSch();
+
+		if (!canVerifyHostKey(command))
+			throw new JSchException("No " + _getKnownHostsFile().getAbsolutePath() + " file to verify the host key of "
+					+ command.host + " (use -k / --insecure to skip the verification)");
+
+		try {
+
+			session = jsch.getSession(command.user, command.host, command.port);
+
+			addIdentities(jsch, command);
+
+			if (StringUtils.isNotEmpty(command.password))
+				session.setPassword(command.password);
+
+			if (!command.insecure) {
+				jsch.setKnownHosts(_getKnownHostsFile().getAbsolutePath());
+				session.setConfig("StrictHostKeyChecking", "yes");
+			} else
+				session.setConfig("StrictHostKeyChecking", "no");
+
+			session.connect(CONNECT_TIMEOUT_MILLIS);
+
+			channel = (ChannelSftp) session.openChannel("sftp");
+			channel.connect(CONNECT_TIMEOUT_MILLIS);
+
+		} catch (Exception e) {
+			close();
+			throw e;
+		}
+
+		log.debug("Opened SFTP session to " + command.host + ":" + command.port);
+
+	}
+
+	/**
+	 * False when the host key should be verified (no -k / --insecure) but there
+	 * is no ~/.ssh/known_hosts file to verify it against.
+	 */
+	static boolean canVerifyHostKey(CurlUploadCommand command) {
+
+		return command.insecure || _getKnownHostsFile().isFile();
+
+	}
+
+	private static File _getKnownHostsFile() {
+
+		return new File(System.getProperty("user.home"), ".ssh/known_hosts");
+
+	}
+
+	/**
+	 * Adds the --key private key or, when there is none, the default private
+	 * keys of the user (~/.ssh/id_rsa ...) which can be loaded. Returns the
+	 * number of keys added.
+	 */
+	static int addIdentities(JSch jsch, CurlUploadCommand command) throws JSchException {
+
+		byte[] passphrase = (command.passphrase != null) ? command.passphrase.getBytes(StandardCharsets.UTF_8)
+				: null;
+
+		if (StringUtils.isNotEmpty(command.privateKey)) {
+			jsch.addIdentity(command.privateKey, passphrase);
+			return 1;
+		}
+
+		int count = 0;
+
+		File sshDirectory = new File(System.getProperty("user.home"), ".ssh");
+
+		for (String name : DEFAULT_PRIVATE_KEYS) {
+
+			File privateKey = new File(sshDirectory, name);
+
+			if (!privateKey.isFile())
+				continue;
+
+			try {
+				jsch.addIdentity(privateKey.getAbsolutePath(), passphrase);
+				count++;
+			} catch (JSchException e) {
+				// e.g. a key type or format which JSch does not support
+				log.debug("Skipped the private key " + privateKey.getAbsolutePath() + ": " + e.getMessage());
+			}
+
+		}
+
+		return count;
+
+	}
+
+	public void upload(File file, String remoteFilePath, boolean createDirs) throws Exception {
+
+		if (createDirs && remoteFilePath.contains("/"))
+			_createDirectories(StringUtils.substringBeforeLast(remoteFilePath, "/"));
+
+		channel.put(file.getAbsolutePath(), remoteFilePath, ChannelSftp.OVERWRITE);
+
+	}
+
+	public boolean isConnected() {
+
+		return (session != null) && session.isConnected() && (channel != null) && channel.isConnected();
+
+	}
+
+	public void close() {
+
+		if (channel != null)
+			channel.disconnect();
+
+		if (session != null)
+			session.disconnect();
+
+		log.debug("Closed SFTP session to " + host);
+
+	}
+
+	/*
+	 * The missing directories are created one level at a time, errors are
+	 * ignored (the upload itself fails if the directory is still missing).
+	 */
+	private void _createDirectories(String directory) {
+
+		if (StringUtils.isEmpty(directory) || existingDirectories.contains(directory))
+			return;
+
+		StringBuilder path = new StringBuilder(directory.startsWith("/") ? "/" : StringUtils.EMPTY);
+
+		for (String segment : StringUtils.split(directory, '/')) {
+
+			path.append(segment);
+
+			String currentPath = path.toString();
+
+			if (!existingDirectories.contains(currentPath)) {
+				try {
+					channel.stat(currentPath);
+				} catch (SftpException notFound) {
+					try {
+						channel.mkdir(currentPath);
+					} catch (SftpException e) {
+						log.debug("Failed to create the directory " + currentPath + " on " + host, e);
+					}
+				}
+				existingDirectories.add(currentPath);
+			}
+
+			path.append('/');
+
+		}
+
+	}
+
+}
@@ -0,0 +1,32 @@
+/*
+    DocumentBurster is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License, or
+    (at your option) any later version.
+
+    DocumentBurster is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with DocumentBurster.  If not, see <http://www.gnu.org/licenses/>
+ */
+package com.sourcekraft.documentburster.upload;
+
+import java.io.File;
+
+/**
+ * An authenticated connection to an upload server which can upload any number
+ * of files, one at a time.
+ */
+public interface UploadSession extends AutoCloseable {
+
+	void upload(File file, String remoteFilePath, boolean createDirs) throws Exception;
+
+	boolean isConnected();
+
+	@Override
+	void close();
+
+}
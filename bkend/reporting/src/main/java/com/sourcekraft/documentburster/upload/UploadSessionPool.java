@@ -0,0 +1,116 @@
+/*
+    DocumentBurster is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 2 of the License, or
+    (at your option) any later version.
+
+    DocumentBurster is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with DocumentBurster.  If not, see <http://www.gnu.org/licenses/>
+ */
+package com.sourcekraft.documentburster.upload;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import com.sourcekraft.documentburster.upload.CurlUploadCommand.Protocol;
+
+/**
+ * The upload sessions opened to one server (same protocol, host, port and
+ * credentials) during a job. Up to maxSessions sessions are used in parallel
+ * (e.g. by the parallel burst workers), the callers wait while all of them are
+ * busy. Sessions are opened on demand and kept open until the job is done.
+ */
+class UploadSessionPool implements AutoCloseable {
+
+	private final CurlUploadCommand command;
+
+	private final Semaphore permits;
+
+	private final Deque<UploadSession> idleSessions = new ArrayDeque<UploadSession>();
+	private final List<UploadSession> openSessions = new ArrayList<UploadSession>();
+
+	UploadSessionPool(CurlUploadCommand command, int maxSessions) {
+
+		this.command = command;
+		this.permits = new Semaphore(Math.max(1, maxSessions), true);
+
+	}
+
+	UploadSession borrow() throws Exception {
+
+		permits.acquire();
+
+		try {
+
+			synchronized (this) {
+
+				UploadSession session;
+
+				while ((session = idleSessions.poll()) != null) {
+					if (session.isConnected())
+						return session;
+					_close(session);
+				}
+
+			}
+
+			UploadSession session = (command.protocol == Protocol.SFTP) ? new SftpUploadSession(command)
+					: new FtpUploadSession(command);
+
+			synchronized (this) {
+				openSessions.add(session);
+			}
+
+			return session;
+
+		} catch (Exception e) {
+			permits.release();
+			throw e;
+		}
+
+	}
+
+	/**
+	 * Gives the session back, broken sessions (e.g. dropped by the server) are
+	 * closed and not used again.
+	 */
+	void release(UploadSession session, boolean broken) {
+
+		synchronized (this) {
+			if (broken)
+				_close(session);
+			else
+				idleSessions.push(session);
+		}
+
+		permits.release();
+
+	}
+
+	@Override
+	public synchronized void close() {
+
+		for (UploadSession session : openSessions)
+			session.close();
+
+		openSessions.clear();
+		idleSessions.clear();
+
+	}
+
+	private void _close(UploadSession session) {
+
+		openSessions.remove(session);
+		session.close();
+
+	}
+
+}
@@ -3,6 +3,7 @@ package com.sourcekraft.documentburster.unit.documentation.userguide.distribute;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.util.Arrays;
@@ -236,6 +237,84 @@ public class EmailTest {
 		delayEmailsBy(0.5, "EmailTest-delayEmailsByHalfSecond");
 	}
 
+	@Test
+	public final void asyncDistribution() throws Exception {
+
+		AbstractBurster burster = new TestBursterFactory.PdfBurster(StringUtils.EMPTY,
+				"EmailTest-asyncDistribution") {
+			protected void executeController() throws Exception {
+
+				super.executeController();
+
+				super.setUpMockEmail();
+
+				ctx.settings.setEnableAsyncDistribution(true);
+				ctx.settings.getAsyncDistribution().capacity = 1;
+				ctx.settings.getAsyncDistribution().emailworkers = 2;
+
+				ctx.settings.setDelayEachDistributionBy(0.5);
+
+			};
+		};
+
+		long startTime = System.currentTimeMillis();
+
+		burster.burst(PAYSLIPS_REPORT_PATH, false, StringUtils.EMPTY, -1);
+
+		// the distributions are spaced even when sent by several threads
+		assertTrue(System.currentTimeMillis() - startTime >= 1500);
+
+		// all the documents are distributed (and counted) before burst returns
+		assertEquals(3, burster.getCtx().numberOfExtractedFiles);
+		assertEquals(3, burster.getCtx().numberOfDistributedFiles);
+		assertEquals(3, burster.getCtx().numberOfMessagesSent);
+		assertEquals(0, burster.getCtx().numberOfSkippedFiles);
+		assertEquals(0, burster.getCtx().numberOfQuarantinedFiles);
+
+		for (String token : PAYSLIPS_TOKENS)
+			assertTrue(new File(burster.getCtx().outputFolder + "/" + token + ".pdf").exists());
+
+	};
+
+	@Test
+	public final void asyncDistributionFailJobIfanyDistributionFailsTrue() throws Exception {
+
+		AbstractBurster burster = new TestBursterFactory.PdfBurster(StringUtils.EMPTY,
+				"EmailTest-asyncDistributionFailJobIfanyDistributionFailsTrue") {
+			protected void executeController() throws Exception {
+
+				super.executeController();
+
+				super.setUpMockEmail();
+
+				ctx.settings.setFailJobIfAnyDistributionFails(true);
+
+				// one document at a time, the job fails at the first document generated
+				// after the failed one
+				ctx.settings.setEnableAsyncDistribution(true);
+				ctx.settings.getAsyncDistribution().capacity = 1;
+
+			};
+		};
+
+		try {
+			burster.burst(FAIL_JOB_IF_ANY_DISTRIBUTION_FAILS_PATH, false, StringUtils.EMPTY, -1);
+			fail("expected the job to fail because the distribution of token2 failed");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("token2"));
+		} finally {
+
+			assertEquals(3, burster.getCtx().numberOfExtractedFiles);
+			assertEquals(1, burster.getCtx().numberOfDistributedFiles);
+			assertEquals(0, burster.getCtx().numberOfSkippedFiles);
+			assertEquals(1, burster.getCtx().numberOfQuarantinedFiles);
+
+			TestsUtils.assertBackupStatsAndLogArchivesFiles(burster);
+
+		}
+
+	};
+
 	@Test
 	public final void noAttachments() throws Exception {
 
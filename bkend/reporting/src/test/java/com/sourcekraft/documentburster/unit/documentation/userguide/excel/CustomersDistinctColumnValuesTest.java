@@ -3,9 +3,12 @@ package com.sourcekraft.documentburster.unit.documentation.userguide.excel;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
 import com.sourcekraft.documentburster._helpers.ExcelTestUtils;
+import com.sourcekraft.documentburster._helpers.TestBursterFactory;
+import com.sourcekraft.documentburster.engine.AbstractBurster;
 
 public class CustomersDistinctColumnValuesTest {
 
@@ -39,4 +42,24 @@ public class CustomersDistinctColumnValuesTest {
                 "CustomersDistinctColumnValuesTest-burst2010");
     }
 
-}
\ No newline at end of file
+    @Test
+    public final void burst2007StreamExcelOutput() throws Exception {
+
+        AbstractBurster burster = new TestBursterFactory.PoiExcelBurster(StringUtils.EMPTY,
+                "CustomersDistinctColumnValuesTest-burst2007StreamExcelOutput") {
+            protected void executeController() throws Exception {
+
+                super.executeController();
+
+                ctx.settings.setStreamExcelOutput(true);
+
+            };
+        };
+
+        burster.burst(CUSTOMERS_REPORT_PATH2007, false, StringUtils.EMPTY, -1);
+
+        ExcelTestUtils.assertDefaultDistincValuesResults(burster, tokens);
+
+    }
+
+}
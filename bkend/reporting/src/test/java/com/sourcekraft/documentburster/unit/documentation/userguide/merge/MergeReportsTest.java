@@ -3,6 +3,7 @@ package com.sourcekraft.documentburster.unit.documentation.userguide.merge;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.List;
 
@@ -60,5 +61,13 @@ public class MergeReportsTest {
 
 		tester.close();
 
+		// the inputs are kept in the backup folder, copied (not linked) by default
+		// so the backups do not change if the inputs are rewritten
+		for (String report : reportsToMerge) {
+			File backupFile = new File(merger.getBackupFolder() + "/" + FilenameUtils.getName(report));
+			assertTrue(backupFile.exists());
+			assertFalse(Files.isSameFile(new File(report).toPath(), backupFile.toPath()));
+		}
+
 	}
 }
\ No newline at end of file
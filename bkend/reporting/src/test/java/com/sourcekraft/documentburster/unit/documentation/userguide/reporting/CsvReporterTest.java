@@ -96,6 +96,34 @@ public class CsvReporterTest {
 
 	}
 
+	@Test
+	public final void generateHTMLReportsUsingParallelBurstWorkers() throws Exception {
+
+		CsvReporter burster = new TestBursterFactory.CsvReporter(StringUtils.EMPTY,
+				"CsvReporterTest-generateHTMLReportsUsingParallelBurstWorkers") {
+			protected void executeController() throws Exception {
+
+				super.executeController();
+
+				ctx.settings.getReportTemplate().outputtype = CsvUtils.OUTPUT_TYPE_HTML;
+				ctx.settings.getReportTemplate().documentpath = PAYSLIPS_HTML_TEMPLATE_PATH;
+
+				ctx.settings.setNumberOfBurstWorkers(4);
+
+			};
+		};
+
+		burster.burst(CSV_INPUT_SEPARATOR_COMMA_STANDARD_DATASOURCE_PATH, false, StringUtils.EMPTY, -1);
+
+		assertEquals(burster.getCtx().burstTokens.size(), burster.getCtx().numberOfExtractedFiles);
+
+		boolean expectAllFilesToBeGenerated = true;
+		TestBursterFactory.assertThatCorrectOutputReportsWereGenerated(burster,
+				CSV_INPUT_SEPARATOR_COMMA_STANDARD_DATASOURCE_PATH, expectAllFilesToBeGenerated,
+				CsvUtils.OUTPUT_TYPE_HTML);
+
+	}
+
 	@Test
 	public final void generatePDFReports() throws Exception {
 
@@ -299,6 +327,50 @@ public class CsvReporterTest {
 
 	}
 
+	@Test
+	public final void generateReportsFromIdColumnWithMultiLineHeaderStreaming() throws Exception {
+
+		CsvReporter[] bursters = new CsvReporter[2];
+
+		for (int i = 0; i < bursters.length; i++) {
+
+			final boolean streaming = (i == 1);
+
+			bursters[i] = new TestBursterFactory.CsvReporter(StringUtils.EMPTY,
+					"CsvReporterTest-generateReportsFromIdColumnWithMultiLineHeaderStreaming-" + streaming) {
+				@Override
+				protected void executeController() throws Exception {
+					super.executeController();
+
+					ctx.settings.getReportDataSource().csvoptions.header = "multiline";
+					ctx.settings.getReportDataSource().csvoptions.skiplines = 8;
+					ctx.settings.getReportDataSource().csvoptions.idcolumn = "lastcolumn";
+					ctx.settings.getReportDataSource().csvoptions.streaming = streaming;
+
+					ctx.settings.getReportTemplate().outputtype = CsvUtils.OUTPUT_TYPE_DOCX;
+					ctx.settings.getReportTemplate().documentpath = PAYSLIPS_DOCX_TEMPLATE_PATH;
+
+				}
+			};
+
+			bursters[i].burst(CSV_INPUT_HEADER_MULTILINE_8_DATASOURCE_PATH, false, StringUtils.EMPTY, -1);
+
+		}
+
+		CsvReporter streamingBurster = bursters[1];
+
+		// the rows are burst while they are read
+		assertTrue(streamingBurster.getCtx().reportData.isEmpty());
+		assertEquals(3, streamingBurster.getCtx().numberOfStreamedTokens);
+		assertEquals(bursters[0].getCtx().reportColumnNames, streamingBurster.getCtx().reportColumnNames);
+
+		for (String[] row : TestsUtils.toArrayRows(bursters[0].getCtx().reportData)) {
+			String expectedToken = row[row.length - 1]; // Last column
+			File outputFile = new File(streamingBurster.getCtx().outputFolder + "/" + expectedToken + ".docx");
+			assertTrue("Output file should exist: " + outputFile.getPath(), outputFile.exists());
+		}
+	}
+
 	@Test
 	public final void generateReportsFromIdColumnWithMultiLineHeader() throws Exception {
 		// This test verifies that ID column selection works correctly when combined
@@ -3,6 +3,7 @@ package com.sourcekraft.documentburster.unit.documentation.userguide.reporting;
 import static org.junit.Assert.*;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -269,6 +270,68 @@ public class ExcelReporterTest {
 		assertTrue("All cells should have leading whitespace removed", allTrimmed);
 	}
 
+	@Test
+	public final void generateReportsWithCombinedOptionsStreaming() throws Exception {
+
+		String EXCEL_INPUT_COMBINED_TEST_PATH = "src/test/resources/input/unit/reporting/excelreporter/combined-options-test.xlsx";
+
+		if (!new File(EXCEL_INPUT_COMBINED_TEST_PATH).exists()) {
+			ExcelTestUtils.generateTestExcelFile(EXCEL_INPUT_COMBINED_TEST_PATH, true, true, false, true);
+		}
+
+		// the same job, once loading the workbook and once streaming the rows
+		ExcelReporter[] reporters = new ExcelReporter[2];
+
+		for (int i = 0; i < reporters.length; i++) {
+
+			final boolean streaming = (i == 1);
+
+			reporters[i] = new TestBursterFactory.ExcelReporter(StringUtils.EMPTY,
+					"ExcelReporterTest-generateReportsWithCombinedOptionsStreaming-" + streaming) {
+				@Override
+				protected void executeController() throws Exception {
+					super.executeController();
+
+					ctx.settings.getReportDataSource().exceloptions.header = "multiline";
+					ctx.settings.getReportDataSource().exceloptions.skiplines = 2;
+					ctx.settings.getReportDataSource().exceloptions.idcolumn = "1";
+					ctx.settings.getReportDataSource().exceloptions.useformularesults = true;
+					ctx.settings.getReportDataSource().exceloptions.ignoreleadingwhitespace = true;
+					ctx.settings.getReportDataSource().exceloptions.streaming = streaming;
+
+					ctx.settings.setBurstFileName("Column1-${burst_token}.${output_type_extension}");
+
+					ctx.settings.getReportTemplate().outputtype = CsvUtils.OUTPUT_TYPE_PDF;
+					ctx.settings.getReportTemplate().documentpath = PAYSLIPS_HTML_TEMPLATE_PATH;
+
+				};
+			};
+
+			reporters[i].burst(EXCEL_INPUT_COMBINED_TEST_PATH, false, StringUtils.EMPTY, -1);
+
+		}
+
+		ExcelReporter workbookReporter = reporters[0];
+		ExcelReporter streamingReporter = reporters[1];
+
+		// nothing is materialized when streaming
+		assertEquals(6, workbookReporter.getCtx().reportData.size());
+		assertTrue("reportData should be empty when streaming", streamingReporter.getCtx().reportData.isEmpty());
+
+		assertEquals(workbookReporter.getCtx().reportColumnNames, streamingReporter.getCtx().reportColumnNames);
+		assertEquals(workbookReporter.getCtx().numberOfExtractedFiles,
+				streamingReporter.getCtx().numberOfExtractedFiles);
+
+		Set<String> workbookFiles = new HashSet<>(
+				Arrays.asList(new File(workbookReporter.getCtx().outputFolder).list()));
+		Set<String> streamingFiles = new HashSet<>(
+				Arrays.asList(new File(streamingReporter.getCtx().outputFolder).list()));
+
+		assertFalse(streamingFiles.isEmpty());
+		assertEquals(workbookFiles, streamingFiles);
+
+	}
+
 	@Test
 	public final void generateHTMLReports() throws Exception {
 		ExcelReporter reporter = new TestBursterFactory.ExcelReporter(StringUtils.EMPTY,
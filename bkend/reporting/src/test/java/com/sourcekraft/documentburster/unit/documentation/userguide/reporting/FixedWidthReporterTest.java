@@ -31,6 +31,42 @@ public class FixedWidthReporterTest {
 	private static final String FIXED_WIDTH_INPUT_NOHEADER_PATH = "src/test/resources/input/unit/reporting/fixedwidthreporter/fixed-width-noheader.txt";
 	private static final String FIXED_WIDTH_INPUT_HEADER_PATH = "src/test/resources/input/unit/reporting/fixedwidthreporter/fixed-width-header.txt";
 
+	@Test
+	public final void generateReportsFromFixedWidthWithHeaderStreaming() throws Exception {
+
+		FixedWidthReporter burster = new TestBursterFactory.FixedWidthReporter(StringUtils.EMPTY,
+				"FixedWidthReporterTest-generateReportsFromFixedWidthWithHeaderStreaming") {
+			protected void executeController() throws Exception {
+
+				super.executeController();
+
+				ctx.settings.getReportDataSource().fixedwidthoptions.columns = "col1,16\n" + "col2,3\n" + "col3,14\n"
+						+ "col4,12\n" + "col5,10\n" + "col6,23\n" + "col7,7\n" + "col8,7\n" + "col9,7\n" + "col10,7\n"
+						+ "col11,7\n" + "col12,7\n" + "col13,7\n" + "col14,7\n" + "col15,7\n" + "col16,7\n" + "col17,4";
+
+				ctx.settings.getReportDataSource().fixedwidthoptions.header = "firstline";
+				ctx.settings.getReportDataSource().fixedwidthoptions.skiplines = 1;
+				ctx.settings.getReportDataSource().fixedwidthoptions.streaming = true;
+
+				ctx.settings.getReportTemplate().outputtype = CsvUtils.OUTPUT_TYPE_DOCX;
+				ctx.settings.getReportTemplate().documentpath = PAYSLIPS_DOCX_TEMPLATE_PATH;
+			};
+		};
+
+		burster.burst(FIXED_WIDTH_INPUT_HEADER_PATH, false, StringUtils.EMPTY, -1);
+
+		// the lines are burst while they are read
+		assertTrue(burster.getCtx().reportData.isEmpty());
+		assertEquals(3, burster.getCtx().numberOfStreamedTokens);
+		assertEquals(17, burster.getCtx().reportColumnNames.size());
+
+		String outputFolder = burster.getCtx().outputFolder + "/";
+		assertEquals(3, new File(outputFolder).listFiles(UtilsTest.outputFilesFilter).length);
+
+		for (String token : new String[] { "0", "1", "2" })
+			assertTrue(new File(outputFolder + token + ".docx").exists());
+	}
+
 	@Test
 	public final void generateReportsFromFixedWidthWithHeader() throws Exception {
 
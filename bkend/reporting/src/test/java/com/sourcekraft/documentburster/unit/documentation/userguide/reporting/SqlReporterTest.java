@@ -4,12 +4,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.jdbi.v3.core.Jdbi;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -22,6 +25,8 @@ import org.slf4j.LoggerFactory;
 import com.sourcekraft.documentburster._helpers.NorthwindTestUtils;
 import com.sourcekraft.documentburster._helpers.TestBursterFactory;
 import com.sourcekraft.documentburster._helpers.TestsUtils;
+import com.sourcekraft.documentburster.common.db.ReportDataPageRequest;
+import com.sourcekraft.documentburster.common.db.ReportDataRowHandler;
 import com.sourcekraft.documentburster.utils.CsvUtils;
 
 /**
@@ -135,6 +140,274 @@ public class SqlReporterTest {
 		log.info("Test completed successfully: {}", TEST_NAME);
 	}
 
+	/**
+	 * Tests streaming mode - the rows are burst while they are read from the JDBC
+	 * cursor and neither reportData nor the per token variables are kept.
+	 */
+	@Test
+	public void testStreamingSqlReporting() throws Exception {
+		final String TEST_NAME = "SqlReporterTest-Streaming";
+		log.info("========== Starting test: {} ==========", TEST_NAME);
+
+		TestBursterFactory.SqlReporter reporter = new TestBursterFactory.SqlReporter(StringUtils.EMPTY, TEST_NAME,
+				NorthwindTestUtils.H2_URL, NorthwindTestUtils.H2_USER, NorthwindTestUtils.H2_PASS) {
+			@Override
+			protected void executeController() throws Exception {
+				super.executeController();
+
+				ctx.settings.getReportDataSource().sqloptions.conncode = NorthwindTestUtils.H2_CONN_CODE;
+				ctx.settings.getReportDataSource().sqloptions.idcolumn = "CustomerID";
+				ctx.settings
+						.getReportDataSource().sqloptions.query = "SELECT \"CustomerID\", \"CompanyName\", \"Country\" FROM \"Customers\" WHERE \"Country\" = 'Germany'";
+				ctx.settings.getReportDataSource().sqloptions.streaming = true;
+				ctx.settings.getReportDataSource().sqloptions.fetchsize = 2;
+
+				ctx.settings.getReportTemplate().outputtype = CsvUtils.OUTPUT_TYPE_DOCX;
+				ctx.settings.getReportTemplate().documentpath = NorthwindTestUtils.CUSTOMER_SUMMARY_TEMPLATE_DOCX;
+				ctx.settings.setBurstFileName("${burst_token}-${CompanyName}.docx");
+			}
+		};
+
+		reporter.burst();
+
+		// nothing is materialized
+		assertTrue("reportData should be empty when streaming", reporter.getCtx().reportData.isEmpty());
+		assertTrue("burstTokens should be empty when streaming", reporter.getCtx().burstTokens.isEmpty());
+
+		assertEquals("Unexpected number of tokens", 11, reporter.getCtx().numberOfStreamedTokens);
+		assertEquals("CustomerID", reporter.getCtx().reportColumnNames.get(0));
+		assertEquals("Country", reporter.getCtx().reportColumnNames.get(2));
+
+		assertTrue("ALFKI document should exist",
+				new File(reporter.getCtx().outputFolder + "/ALFKI-Alfreds Futterkiste.docx").exists());
+		assertEquals("Unexpected number of documents", 11, reporter.getCtx().numberOfExtractedFiles);
+
+		// the variables of the processed tokens are dropped
+		assertFalse("ALFKI".equals(reporter.getCtx().variables.getUserVariables("ALFKI").get("var0")));
+
+		log.info("Test completed successfully: {}", TEST_NAME);
+	}
+
+	/**
+	 * Tests grouping the rows by idcolumn (master-detail) - one token per customer
+	 * with the customer's orders available as reportData, both when the rows are
+	 * fetched upfront and when they are streamed.
+	 */
+	@Test
+	public void testGroupByIdColumnSqlReporting() throws Exception {
+		final String TEST_NAME = "SqlReporterTest-GroupByIdColumn";
+		log.info("========== Starting test: {} ==========", TEST_NAME);
+
+		for (final boolean streaming : new boolean[] { false, true }) {
+
+			TestBursterFactory.SqlReporter reporter = new TestBursterFactory.SqlReporter(StringUtils.EMPTY,
+					TEST_NAME + (streaming ? "-streaming" : ""), NorthwindTestUtils.H2_URL,
+					NorthwindTestUtils.H2_USER, NorthwindTestUtils.H2_PASS) {
+				@Override
+				protected void executeController() throws Exception {
+					super.executeController();
+
+					ctx.settings.getReportDataSource().sqloptions.conncode = NorthwindTestUtils.H2_CONN_CODE;
+					ctx.settings.getReportDataSource().sqloptions.idcolumn = "CustomerID";
+					ctx.settings
+							.getReportDataSource().sqloptions.query = "SELECT \"CustomerID\", \"OrderID\" FROM \"Orders\" WHERE \"CustomerID\" IN ('ALFKI', 'ANATR') ORDER BY \"CustomerID\", \"OrderID\"";
+					ctx.settings.getReportDataSource().sqloptions.groupbyidcolumn = true;
+					ctx.settings.getReportDataSource().sqloptions.streaming = streaming;
+
+					ctx.settings.getReportTemplate().outputtype = CsvUtils.OUTPUT_TYPE_NONE;
+					ctx.settings.setBurstFileName("${burst_token}.txt");
+				}
+			};
+
+			reporter.burst();
+
+			if (streaming) {
+				assertEquals("Unexpected number of tokens", 2, reporter.getCtx().numberOfStreamedTokens);
+			} else {
+				assertEquals("Unexpected tokens", java.util.Arrays.asList("ALFKI", "ANATR"),
+						reporter.getCtx().burstTokens);
+
+				Map<String, Object> userVars = reporter.getCtx().variables.getUserVariables("ALFKI");
+				assertEquals("ALFKI", userVars.get("CustomerID"));
+
+				List<?> orders = (List<?>) userVars.get("reportData");
+				assertEquals("Unexpected number of ALFKI orders",
+						NorthwindTestUtils.getOrderIdsForCustomer("ALFKI").size(), orders.size());
+			}
+		}
+
+		log.info("Test completed successfully: {}", TEST_NAME);
+	}
+
+	/**
+	 * Tests that streaming rows which are not sorted by idcolumn fails the job
+	 * instead of bursting the same token twice (the second document would
+	 * overwrite the first one).
+	 */
+	@Test
+	public void testGroupByIdColumnStreamingUnsortedRows() throws Exception {
+		final String TEST_NAME = "SqlReporterTest-GroupByIdColumnStreamingUnsortedRows";
+		log.info("========== Starting test: {} ==========", TEST_NAME);
+
+		TestBursterFactory.SqlReporter reporter = new TestBursterFactory.SqlReporter(StringUtils.EMPTY, TEST_NAME,
+				NorthwindTestUtils.H2_URL, NorthwindTestUtils.H2_USER, NorthwindTestUtils.H2_PASS) {
+			@Override
+			protected void executeController() throws Exception {
+				super.executeController();
+
+				ctx.settings.getReportDataSource().sqloptions.conncode = NorthwindTestUtils.H2_CONN_CODE;
+				ctx.settings.getReportDataSource().sqloptions.idcolumn = "CustomerID";
+				// ALFKI, ANATR, ALFKI - the rows are sorted by OrderID, not by CustomerID
+				ctx.settings
+						.getReportDataSource().sqloptions.query = "SELECT \"CustomerID\", \"OrderID\" FROM (VALUES ('ALFKI', 1), ('ANATR', 2), ('ALFKI', 3)) AS t(\"CustomerID\", \"OrderID\") ORDER BY \"OrderID\"";
+				ctx.settings.getReportDataSource().sqloptions.groupbyidcolumn = true;
+				ctx.settings.getReportDataSource().sqloptions.streaming = true;
+
+				ctx.settings.getReportTemplate().outputtype = CsvUtils.OUTPUT_TYPE_NONE;
+				ctx.settings.setBurstFileName("${burst_token}.txt");
+			}
+		};
+
+		try {
+			reporter.burst();
+			fail("The unsorted rows should fail the job");
+		} catch (Exception e) {
+			assertTrue("Unexpected error: " + e,
+					ExceptionUtils.getRootCauseMessage(e).contains("must be ORDER BY CustomerID when streaming"));
+		}
+
+		// only the first ALFKI and the ANATR groups were burst
+		assertEquals("Unexpected number of tokens", 2, reporter.getCtx().numberOfStreamedTokens);
+
+		log.info("Test completed successfully: {}", TEST_NAME);
+	}
+
+	/**
+	 * Tests the server-side paging / sorting / filtering ("View Data") being done
+	 * by the database - only the requested page is fetched and totalRows is the
+	 * number of the matching rows.
+	 */
+	@Test
+	public void testPageRequestSqlReporting() throws Exception {
+		final String TEST_NAME = "SqlReporterTest-PageRequest";
+		log.info("========== Starting test: {} ==========", TEST_NAME);
+
+		// the 11 German customers sorted by CustomerID descending, 4 per page
+		ReportDataPageRequest pageRequest = new ReportDataPageRequest();
+		pageRequest.page = 3;
+		pageRequest.size = 4;
+
+		ReportDataPageRequest.Sorter sorter = new ReportDataPageRequest.Sorter();
+		sorter.field = "CustomerID";
+		sorter.dir = "desc";
+		pageRequest.sorters.add(sorter);
+
+		TestBursterFactory.SqlReporter reporter = _fetchPage(TEST_NAME, pageRequest);
+
+		assertTrue("The page request should be applied by the database", reporter.isPageRequestApplied());
+		assertEquals("Unexpected number of matching rows", 11, reporter.getPageRequestTotalRows());
+		assertEquals("Unexpected number of rows on the last page", 3, reporter.getCtx().reportData.size());
+		assertEquals("ALFKI", reporter.getCtx().reportData.get(2).get("CustomerID"));
+		assertEquals("CustomerID", reporter.getCtx().reportColumnNames.get(0));
+		assertEquals("Country", reporter.getCtx().reportColumnNames.get(2));
+
+		// the filters are bound parameters
+		ReportDataPageRequest.Filter filter = new ReportDataPageRequest.Filter();
+		filter.field = "CompanyName";
+		filter.type = "starts";
+		filter.value = "ALFREDS";
+		pageRequest.filters.add(filter);
+		pageRequest.page = 1;
+
+		reporter = _fetchPage(TEST_NAME, pageRequest);
+
+		assertTrue("The page request should be applied by the database", reporter.isPageRequestApplied());
+		assertEquals("Unexpected number of matching rows", 1, reporter.getPageRequestTotalRows());
+		assertEquals("ALFKI", reporter.getCtx().reportData.get(0).get("CustomerID"));
+
+		// the LIKE wildcards in the values are escaped
+		ReportDataPageRequest.Filter noMatchFilter = new ReportDataPageRequest.Filter();
+		noMatchFilter.field = "CompanyName";
+		noMatchFilter.type = "like";
+		noMatchFilter.value = "%_' OR 1=1 --";
+		pageRequest.filters.add(noMatchFilter);
+
+		reporter = _fetchPage(TEST_NAME, pageRequest);
+
+		assertTrue("The page request should be applied by the database", reporter.isPageRequestApplied());
+		assertEquals("Unexpected number of matching rows", 0, reporter.getPageRequestTotalRows());
+		assertTrue("No row should match", reporter.getCtx().reportData.isEmpty());
+
+		log.info("Test completed successfully: {}", TEST_NAME);
+	}
+
+	/**
+	 * Tests the rows being passed one by one to the handler ("View Data" streamed
+	 * as NDJSON) - the columns first, the rows are not kept in reportData.
+	 */
+	@Test
+	public void testStreamDataOnlySqlReporting() throws Exception {
+		final String TEST_NAME = "SqlReporterTest-StreamDataOnly";
+		log.info("========== Starting test: {} ==========", TEST_NAME);
+
+		List<String> columns = new ArrayList<>();
+		List<Map<String, Object>> rows = new ArrayList<>();
+
+		TestBursterFactory.SqlReporter reporter = _newGermanCustomersReporter(TEST_NAME);
+		reporter.streamDataOnly("sql-report-" + TEST_NAME + ".dummy", new ReportDataRowHandler() {
+
+			@Override
+			public void columns(List<String> columnNames) {
+				assertTrue("The columns should be received before the rows", rows.isEmpty());
+				columns.addAll(columnNames);
+			}
+
+			@Override
+			public void row(Map<String, Object> row) {
+				rows.add(row);
+			}
+
+		});
+
+		assertEquals(List.of("CustomerID", "CompanyName", "Country"), columns);
+		assertEquals("Unexpected number of streamed rows", 11, rows.size());
+		assertEquals("Germany", rows.get(0).get("Country"));
+		assertTrue("The streamed rows should not be kept", reporter.getCtx().reportData.isEmpty());
+
+		log.info("Test completed successfully: {}", TEST_NAME);
+	}
+
+	private TestBursterFactory.SqlReporter _fetchPage(String testName, ReportDataPageRequest pageRequest)
+			throws Exception {
+
+		TestBursterFactory.SqlReporter reporter = _newGermanCustomersReporter(testName);
+
+		reporter.setPageRequest(pageRequest);
+		reporter.fetchDataOnly("sql-report-" + testName + ".dummy");
+
+		return reporter;
+
+	}
+
+	private TestBursterFactory.SqlReporter _newGermanCustomersReporter(String testName) throws Exception {
+
+		return new TestBursterFactory.SqlReporter(StringUtils.EMPTY, testName,
+				NorthwindTestUtils.H2_URL, NorthwindTestUtils.H2_USER, NorthwindTestUtils.H2_PASS) {
+			@Override
+			protected void executeController() throws Exception {
+				super.executeController();
+
+				ctx.settings.getReportDataSource().sqloptions.conncode = NorthwindTestUtils.H2_CONN_CODE;
+				ctx.settings.getReportDataSource().sqloptions.idcolumn = "CustomerID";
+				ctx.settings
+						.getReportDataSource().sqloptions.query = "SELECT \"CustomerID\", \"CompanyName\", \"Country\" FROM \"Customers\" WHERE \"Country\" = 'Germany';";
+
+				ctx.settings.getReportTemplate().outputtype = CsvUtils.OUTPUT_TYPE_NONE;
+			}
+		};
+
+	}
+
 	@Test
 	public void testSqlReportingWithJava8StreamTransformation() throws Exception {
 		NorthwindTestUtils.runDataTransformationTest("java8stream");
@@ -290,6 +290,69 @@ public class XmlReporterTest {
 		assertEquals(expectedTokens, burster.getCtx().burstTokens);
 	}
 
+	@Test
+	public void testNamespaceMappingsWithIdColumnStreaming() throws Exception {
+		XmlReporter burster = new TestBursterFactory.XmlReporter(StringUtils.EMPTY,
+				"XmlReporterTest-namespaceMappingsWithIdColumnStreaming") {
+			@Override
+			protected void executeController() throws Exception {
+				super.executeController();
+				ctx.settings.getReportDataSource().xmloptions.repeatingnodexpath = "/ns:root/ns:records/ns:record";
+				ctx.settings.getReportDataSource().xmloptions.idcolumn = "ns:id";
+				ctx.settings.getReportDataSource().xmloptions.namespacemappings = "ns=http://example.com/ns";
+				ctx.settings.getReportDataSource().xmloptions.streaming = true;
+				ctx.settings.getReportTemplate().outputtype = CsvUtils.OUTPUT_TYPE_HTML;
+				ctx.settings.getReportTemplate().documentpath = HTML_TEMPLATE;
+				ctx.settings.setBurstFileName("${burst_token}.${output_type_extension}");
+			}
+		};
+
+		burster.burst(XML_INPUT_NAMESPACE, false, StringUtils.EMPTY, -1);
+
+		// nothing is materialized, the records are burst while they are read
+		assertTrue(burster.getCtx().reportData.isEmpty());
+		assertEquals(2, burster.getCtx().numberOfStreamedTokens);
+		assertEquals("ns:name", burster.getCtx().reportColumnNames.get(0));
+
+		assertTrue(new File(burster.getCtx().outputFolder + "/1.html").exists());
+		assertTrue(new File(burster.getCtx().outputFolder + "/2.html").exists());
+	}
+
+	@Test
+	public void testFieldMappingsStreamingSingleReport() throws Exception {
+
+		XmlReporter[] bursters = new XmlReporter[2];
+
+		for (int i = 0; i < bursters.length; i++) {
+
+			final boolean streaming = (i == 1);
+
+			bursters[i] = new TestBursterFactory.XmlReporter(StringUtils.EMPTY,
+					"XmlReporterTest-fieldMappingsStreamingSingleReport-" + streaming) {
+				@Override
+				protected void executeController() throws Exception {
+					super.executeController();
+					ctx.settings.getReportDataSource().xmloptions.repeatingnodexpath = "/root/records/record";
+					ctx.settings.getReportDataSource().xmloptions.fieldmappings = "name:fullName,amount:total";
+					ctx.settings.getReportDataSource().xmloptions.streaming = streaming;
+					ctx.settings.getReportTemplate().outputtype = CsvUtils.OUTPUT_TYPE_HTML;
+					ctx.settings.getReportTemplate().documentpath = HTML_TEMPLATE;
+					// a single report, the streamed rows are kept in reportData
+					ctx.settings.setBurstFileName("records.html");
+				}
+			};
+
+			bursters[i].burst(XML_INPUT_FIELD_MAPPING, false, StringUtils.EMPTY, -1);
+
+		}
+
+		// same rows and columns as the DOM
+		assertEquals(2, bursters[1].getCtx().reportData.size());
+		assertEquals(bursters[0].getCtx().reportData, bursters[1].getCtx().reportData);
+		assertEquals(bursters[0].getCtx().reportColumnNames, bursters[1].getCtx().reportColumnNames);
+		assertTrue(bursters[1].getCtx().reportColumnNames.contains("fullName"));
+	}
+
 	// 4. Test encoding (with and without idcolumn)
 	@Test
 	public void testEncodingWithIdColumn() throws Exception {
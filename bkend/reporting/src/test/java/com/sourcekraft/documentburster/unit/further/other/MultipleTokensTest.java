@@ -18,15 +18,21 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.junit.Test;
 
 import com.sourcekraft.documentburster._helpers.DocumentTester;
 import com.sourcekraft.documentburster._helpers.DocumentTester.TextSearchType;
 import com.sourcekraft.documentburster._helpers.TestBursterFactory;
+import com.sourcekraft.documentburster._helpers.TestsUtils;
 import com.sourcekraft.documentburster.engine.AbstractBurster;
 import com.sourcekraft.documentburster.sender.model.EmailMessage;
 import com.sourcekraft.documentburster.common.settings.model.Attachment;
@@ -44,6 +50,200 @@ public class MultipleTokensTest {
 			"director_id 2", "director_id 3", "manager_id 1", "manager_id 2", "manager_id 3", "manager_id 4",
 			"manager_id 5", "manager_id 6", "manager_id 7", "manager_id 8", "manager_id 9", "manager_id 10");
 
+	@Test
+	public final void burstPagesWithoutContentUsingSinglePassParsing() throws Exception {
+
+		// pages 2, 5 and 7 have no content at all, the text stripper does not
+		// visit them and they are parsed with an empty text
+		String pdfPath = _generatePdf("MultipleTokensTest-burstPagesWithoutContentUsingSinglePassParsing.pdf",
+				Arrays.asList("{alpha}", null, "alpha continued", "{beta}", null, "{gamma}", null));
+
+		AbstractBurster burster = new TestBursterFactory.PdfBurster(StringUtils.EMPTY,
+				"MultipleTokensTest-burstPagesWithoutContentUsingSinglePassParsing");
+
+		burster.burst(pdfPath, false, StringUtils.EMPTY, -1);
+
+		assertEquals(7, burster.getCtx().numberOfPages);
+		assertEquals(Arrays.asList("alpha", "beta", "gamma"), burster.getCtx().burstTokens);
+
+		String outputFolder = burster.getCtx().outputFolder + "/";
+
+		// each page (with or without content) goes with the token of the previous
+		// pages
+		int[] expectedPageCounts = { 3, 2, 2 };
+
+		for (int i = 0; i < expectedPageCounts.length; i++) {
+
+			String token = burster.getCtx().burstTokens.get(i);
+
+			DocumentTester tester = new DocumentTester(outputFolder + token + ".pdf");
+
+			tester.assertPageCountEquals(expectedPageCounts[i]);
+			tester.assertContentContainsTextOnPage("{" + token + "}", 1, TextSearchType.CONTAINS);
+
+			tester.close();
+
+		}
+
+	}
+
+	@Test
+	public final void burstMultipleTokensDirectorsManagersUsingParallelParsing() throws Exception {
+
+		AbstractBurster sequentialBurster = new TestBursterFactory.PdfBurster(StringUtils.EMPTY,
+				"MultipleTokensTest-burstMultipleTokensDirectorsManagersUsingParallelParsing-sequential");
+
+		sequentialBurster.burst(MULTIPLE_TOKENS_DIRECTORS_MANAGERS_PATH, false, StringUtils.EMPTY, -1);
+
+		AbstractBurster parallelBurster = new TestBursterFactory.PdfBurster(StringUtils.EMPTY,
+				"MultipleTokensTest-burstMultipleTokensDirectorsManagersUsingParallelParsing-parallel") {
+			protected void executeController() throws Exception {
+
+				super.executeController();
+
+				ctx.settings.setNumberOfParseWorkers(3);
+
+			};
+		};
+
+		parallelBurster.burst(MULTIPLE_TOKENS_DIRECTORS_MANAGERS_PATH, false, StringUtils.EMPTY, -1);
+
+		// same tokens, in the same order
+		assertEquals(sequentialBurster.getCtx().burstTokens, parallelBurster.getCtx().burstTokens);
+
+		String outputFolder = parallelBurster.getCtx().outputFolder + "/";
+
+		assertEquals(13, new File(outputFolder).listFiles(UtilsTest.outputFilesFilter).length);
+
+		for (String token : MULTIPLE_TOKENS_DIRECTORS_MANAGERS_TOKENS) {
+
+			String path = outputFolder + token + ".pdf";
+
+			assertTrue(new File(path).exists());
+
+			DocumentTester tester = new DocumentTester(path);
+
+			// assert number of pages
+			if (token.equals("director_id 1"))
+				tester.assertPageCountEquals(4);
+			else if (token.equals("director_id 3"))
+				tester.assertPageCountEquals(6);
+			else if (!token.equals("director_id 2"))
+				tester.assertPageCountEquals(1);
+
+			// assert content
+			tester.assertContentContainsTextOnPage("{" + token + "}", 1, TextSearchType.CONTAINS);
+
+			tester.close();
+
+		}
+
+	}
+
+	@Test
+	public final void burstMultipleTokensDirectorsManagersPruningPdfResources() throws Exception {
+
+		AbstractBurster burster = new TestBursterFactory.PdfBurster(StringUtils.EMPTY,
+				"MultipleTokensTest-burstMultipleTokensDirectorsManagersPruningPdfResources-full");
+
+		burster.burst(MULTIPLE_TOKENS_DIRECTORS_MANAGERS_PATH, false, StringUtils.EMPTY, -1);
+
+		AbstractBurster pruningBurster = new TestBursterFactory.PdfBurster(StringUtils.EMPTY,
+				"MultipleTokensTest-burstMultipleTokensDirectorsManagersPruningPdfResources-pruned") {
+			protected void executeController() throws Exception {
+
+				super.executeController();
+
+				ctx.settings.setPrunePdfResources(true);
+
+			};
+		};
+
+		pruningBurster.burst(MULTIPLE_TOKENS_DIRECTORS_MANAGERS_PATH, false, StringUtils.EMPTY, -1);
+
+		String outputFolder = burster.getCtx().outputFolder + "/";
+		String prunedOutputFolder = pruningBurster.getCtx().outputFolder + "/";
+
+		assertEquals(13, new File(prunedOutputFolder).listFiles(UtilsTest.outputFilesFilter).length);
+
+		for (String token : MULTIPLE_TOKENS_DIRECTORS_MANAGERS_TOKENS) {
+
+			String path = prunedOutputFolder + token + ".pdf";
+
+			assertTrue(new File(path).exists());
+
+			// never bigger than the document having all the resources
+			assertTrue(new File(path).length() <= new File(outputFolder + token + ".pdf").length());
+
+			DocumentTester tester = new DocumentTester(path);
+
+			// the fonts used by the pages are kept
+			tester.assertContentContainsTextOnPage("{" + token + "}", 1, TextSearchType.CONTAINS);
+
+			tester.close();
+
+		}
+
+	}
+
+	@Test
+	public final void burstManyPagesUsingParallelParsing() throws Exception {
+
+		// 160 pages, i.e. page 1 plus 4 chunks of (at most) 50 pages for the parse
+		// workers; a new token every 7 pages and every 10th page without content
+		List<String> pageTexts = new ArrayList<String>();
+		List<String> expectedTokens = new ArrayList<String>();
+
+		for (int page = 1; page <= 160; page++) {
+
+			if ((page % 7) == 1) {
+				String token = "token" + page;
+				expectedTokens.add(token);
+				pageTexts.add("{" + token + "}");
+			} else if ((page % 10) == 0)
+				pageTexts.add(null);
+			else
+				pageTexts.add("page " + page);
+
+		}
+
+		String pdfPath = _generatePdf("MultipleTokensTest-burstManyPagesUsingParallelParsing.pdf", pageTexts);
+
+		AbstractBurster parallelBurster = new TestBursterFactory.PdfBurster(StringUtils.EMPTY,
+				"MultipleTokensTest-burstManyPagesUsingParallelParsing") {
+			protected void executeController() throws Exception {
+
+				super.executeController();
+
+				ctx.settings.setNumberOfParseWorkers(3);
+
+			};
+		};
+
+		parallelBurster.burst(pdfPath, false, StringUtils.EMPTY, -1);
+
+		assertEquals(160, parallelBurster.getCtx().numberOfPages);
+
+		// the tokens of all the chunks, in page order
+		assertEquals(expectedTokens, parallelBurster.getCtx().burstTokens);
+
+		String outputFolder = parallelBurster.getCtx().outputFolder + "/";
+
+		for (String token : expectedTokens) {
+
+			int firstPage = Integer.parseInt(token.substring("token".length()));
+
+			DocumentTester tester = new DocumentTester(outputFolder + token + ".pdf");
+
+			tester.assertPageCountEquals(Math.min(7, 160 - firstPage + 1));
+			tester.assertContentContainsTextOnPage("{" + token + "}", 1, TextSearchType.CONTAINS);
+
+			tester.close();
+
+		}
+
+	}
+
 	@Test
 	public final void burstMultipleTokensDirectorsManagers() throws Exception {
 
@@ -194,4 +394,40 @@ public class MultipleTokensTest {
 		}
 
 	}
+
+	/*
+	 * Writes a PDF having one line of text on each page (null for a page without
+	 * any content) and returns its path.
+	 */
+	private static String _generatePdf(String fileName, List<String> pageTexts) throws Exception {
+
+		File pdfFile = new File(TestsUtils.TESTS_OUTPUT_FOLDER + "/input/" + fileName);
+		pdfFile.getParentFile().mkdirs();
+
+		try (PDDocument document = new PDDocument()) {
+
+			for (String pageText : pageTexts) {
+
+				PDPage page = new PDPage();
+				document.addPage(page);
+
+				if (pageText != null) {
+					try (PDPageContentStream contents = new PDPageContentStream(document, page)) {
+						contents.beginText();
+						contents.setFont(PDType1Font.HELVETICA, 12);
+						contents.newLineAtOffset(72, 700);
+						contents.showText(pageText);
+						contents.endText();
+					}
+				}
+
+			}
+
+			document.save(pdfFile);
+
+		}
+
+		return pdfFile.getPath();
+
+	}
 }
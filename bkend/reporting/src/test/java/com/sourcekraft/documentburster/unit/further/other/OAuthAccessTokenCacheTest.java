@@ -0,0 +1,164 @@
+package com.sourcekraft.documentburster.unit.further.other;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sourcekraft.documentburster.common.oauth.OAuthFlowHelper;
+import com.sun.net.httpserver.HttpServer;
+
+public class OAuthAccessTokenCacheTest {
+
+	private HttpServer tokenEndpoint;
+	private String tokenUrl;
+
+	private AtomicInteger numberOfTokenRequests = new AtomicInteger();
+
+	private volatile long expiresIn = 3600;
+	private volatile boolean failTokenRequests = false;
+
+	@Before
+	public void setUp() throws Exception {
+
+		OAuthFlowHelper.clearAccessTokenCache();
+
+		tokenEndpoint = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+		tokenEndpoint.createContext("/token", exchange -> {
+
+			int requestNumber = numberOfTokenRequests.incrementAndGet();
+
+			// slow enough for the concurrent callers to pile up
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			String json = failTokenRequests ? "{\"error\":\"invalid_grant\",\"error_description\":\"expired\"}"
+					: "{\"access_token\":\"access-token-" + requestNumber + "\",\"expires_in\":" + expiresIn + "}";
+
+			byte[] body = json.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(failTokenRequests ? 400 : 200, body.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(body);
+			}
+
+		});
+
+		tokenEndpoint.setExecutor(Executors.newCachedThreadPool());
+		tokenEndpoint.start();
+
+		tokenUrl = "http://127.0.0.1:" + tokenEndpoint.getAddress().getPort() + "/token";
+
+	}
+
+	@After
+	public void tearDown() {
+
+		tokenEndpoint.stop(0);
+		OAuthFlowHelper.clearAccessTokenCache();
+
+	}
+
+	@Test
+	public final void accessTokenIsReusedUntilItExpires() throws Exception {
+
+		String accessToken = _getAccessToken("refresh-token-1");
+
+		assertEquals(accessToken, _getAccessToken("refresh-token-1"));
+		assertEquals(accessToken, _getAccessToken("refresh-token-1"));
+		assertEquals(1, numberOfTokenRequests.get());
+
+		// another refresh token - another access token
+		assertNotEquals(accessToken, _getAccessToken("refresh-token-2"));
+		assertEquals(2, numberOfTokenRequests.get());
+
+	}
+
+	@Test
+	public final void shortLivedAccessTokenIsRefreshedEarly() throws Exception {
+
+		// half of the lifetime is kept as the early refresh margin
+		expiresIn = 2;
+
+		String accessToken = _getAccessToken("refresh-token");
+		assertEquals(accessToken, _getAccessToken("refresh-token"));
+
+		Thread.sleep(1200);
+
+		assertNotEquals(accessToken, _getAccessToken("refresh-token"));
+		assertEquals(2, numberOfTokenRequests.get());
+
+	}
+
+	@Test
+	public final void concurrentCallersShareOneTokenRequest() throws Exception {
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		try {
+
+			List<Future<String>> results = new ArrayList<Future<String>>();
+
+			for (int i = 0; i < 8; i++)
+				results.add(executor.submit(new Callable<String>() {
+					public String call() throws Exception {
+						return _getAccessToken("refresh-token");
+					}
+				}));
+
+			for (Future<String> result : results)
+				assertEquals("access-token-1", result.get());
+
+			assertEquals(1, numberOfTokenRequests.get());
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+	}
+
+	@Test
+	public final void failedTokenRequestsAreNotCached() throws Exception {
+
+		failTokenRequests = true;
+
+		try {
+			_getAccessToken("refresh-token");
+			fail("the token endpoint returned an error");
+		} catch (RuntimeException e) {
+			// the HTTP status and the body of the response are reported
+			assertTrue(e.getMessage(), e.getMessage().contains("HTTP 400"));
+			assertTrue(e.getMessage(), e.getMessage().contains("invalid_grant"));
+		}
+
+		failTokenRequests = false;
+
+		assertEquals("access-token-2", _getAccessToken("refresh-token"));
+
+	}
+
+	private String _getAccessToken(String refreshToken) throws Exception {
+
+		return OAuthFlowHelper.getAccessToken("GENERIC", null, "client-id", tokenUrl, "smtp", refreshToken);
+
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.sourcekraft.documentburster.unit.further.other;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Properties;
+
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.Test;
+import org.simplejavamail.api.mailer.Mailer;
+
+import com.sourcekraft.documentburster.common.settings.model.ConnectionPool;
+import com.sourcekraft.documentburster.common.settings.model.SimpleJavaMail;
+import com.sourcekraft.documentburster.context.BurstingContext;
+import com.sourcekraft.documentburster.mail.SimpleJavaMailDecorator;
+import com.sourcekraft.documentburster.sender.model.EmailMessage;
+
+public class SimpleJavaMailConnectionPoolTest {
+
+	@Test
+	public final void connectionPoolIsEnabledOnlyWhenMaxSizeIsConfigured() throws Exception {
+
+		assertFalse(SimpleJavaMailDecorator.isConnectionPoolEnabled(null));
+
+		SimpleJavaMail sjm = new SimpleJavaMail();
+		assertFalse(SimpleJavaMailDecorator.isConnectionPoolEnabled(sjm));
+
+		sjm.connectionpool = new ConnectionPool();
+		assertFalse(SimpleJavaMailDecorator.isConnectionPoolEnabled(sjm));
+
+		sjm.connectionpool.maxsize = 4;
+		assertTrue(SimpleJavaMailDecorator.isConnectionPoolEnabled(sjm));
+
+	}
+
+	@Test
+	public final void pooledMailerIsReusedForTheSameConnection() throws Exception {
+
+		BurstingContext ctx = new BurstingContext();
+
+		EmailMessage message = _createEmailMessage(ctx, "smtp.example.com");
+		MimeMessage mimeMessage = _createMimeMessage(message);
+
+		Mailer mailer = SimpleJavaMailDecorator.getPooledMailer(message, "password", mimeMessage, null);
+
+		// same connection and same credentials - same mailer (and SMTP connections)
+		assertSame(mailer, SimpleJavaMailDecorator.getPooledMailer(message, "password", mimeMessage, null));
+		assertEquals(1, ctx.distributionSessions.size());
+
+		// another SMTP server - another pool
+		EmailMessage otherMessage = _createEmailMessage(ctx, "smtp.example.org");
+		Mailer otherMailer = SimpleJavaMailDecorator.getPooledMailer(otherMessage, "password",
+				_createMimeMessage(otherMessage), null);
+
+		assertNotSame(mailer, otherMailer);
+		assertEquals(2, ctx.distributionSessions.size());
+
+		// new credentials (e.g. a new OAuth2 access token) - a new pool, the
+		// previous one is retired (other workers may still use it) and closed
+		// only at the end of the job
+		Mailer reopenedMailer = SimpleJavaMailDecorator.getPooledMailer(message, "new-password", mimeMessage, null);
+
+		assertNotSame(mailer, reopenedMailer);
+		assertSame(reopenedMailer, SimpleJavaMailDecorator.getPooledMailer(message, "new-password", mimeMessage, null));
+		assertEquals(3, ctx.distributionSessions.size());
+
+		ctx.closeDistributionSessions();
+
+		assertTrue(ctx.distributionSessions.isEmpty());
+
+	}
+
+	private EmailMessage _createEmailMessage(BurstingContext ctx, String hostName) {
+
+		EmailMessage message = new EmailMessage();
+
+		message.ctx = ctx;
+
+		message.hostName = hostName;
+		message.smtpPort = "25";
+
+		message.isAuthentication = true;
+		message.authuser = "user";
+
+		message.sjm = new SimpleJavaMail();
+		message.sjm.connectionpool = new ConnectionPool();
+		message.sjm.connectionpool.maxsize = 2;
+
+		return message;
+
+	}
+
+	private MimeMessage _createMimeMessage(EmailMessage message) {
+
+		Properties properties = new Properties();
+
+		properties.put("mail.smtp.host", message.hostName);
+		properties.put("mail.smtp.port", message.smtpPort);
+
+		return new MimeMessage(Session.getInstance(properties));
+
+	}
+
+}
@@ -19,10 +19,15 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.util.Collections;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 
+import com.sourcekraft.documentburster._helpers.TestsUtils;
+import com.sourcekraft.documentburster.utils.TemplateCache;
 import com.sourcekraft.documentburster.utils.Utils;
+import com.sourcekraft.documentburster.variables.Variables;
 
 public class UtilsTest {
 
@@ -79,4 +84,46 @@ public class UtilsTest {
 
 	}
 
+	@Test
+	public void getStringFromTemplate() throws Exception {
+
+		Variables variables = new Variables("Payslips.pdf", "en", "US", 10);
+		variables.setUserVariable("token1", "var0", "first");
+		variables.setUserVariable("token2", "var0", "second");
+
+		// no placeholders
+		assertEquals("fixed-name.pdf", Utils.getStringFromTemplate("fixed-name.pdf", variables, "token1"));
+
+		// the parsed templates are shared between tokens
+		for (int i = 0; i < 2; i++) {
+			assertEquals("first-Payslips.pdf",
+					Utils.getStringFromTemplate("${var0}-${input_document_name}", variables, "token1"));
+			assertEquals("second-Payslips.pdf",
+					Utils.getStringFromTemplate("${var0}-${input_document_name}", variables, "token2"));
+
+			assertEquals("first-pdf", Utils.getStringFromTemplate("$var0$-$input_document_extension$", variables, "token1"));
+			assertEquals("second-pdf", Utils.getStringFromTemplate("$var0$-$input_document_extension$", variables, "token2"));
+		}
+
+	}
+
+	@Test
+	public void freemarkerTemplateFileIsParsedAgainWhenChanged() throws Exception {
+
+		File templateFile = new File(TestsUtils.TESTS_OUTPUT_FOLDER + "/UtilsTest-template-cache/template.ftl");
+		FileUtils.writeStringToFile(templateFile, "Hello ${name}", "UTF-8");
+
+		assertEquals("Hello John",
+				TemplateCache.processFreemarkerTemplate(templateFile.getPath(), Collections.singletonMap("name", "John")));
+		assertTrue(TemplateCache.getFreemarkerTemplate(templateFile.getPath()) == TemplateCache
+				.getFreemarkerTemplate(templateFile.getPath()));
+
+		FileUtils.writeStringToFile(templateFile, "Goodbye ${name}", "UTF-8");
+		templateFile.setLastModified(templateFile.lastModified() + 2000);
+
+		assertEquals("Goodbye John",
+				TemplateCache.processFreemarkerTemplate(templateFile.getPath(), Collections.singletonMap("name", "John")));
+
+	}
+
 }
@@ -0,0 +1,73 @@
+package com.sourcekraft.documentburster.unit.further.scripting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import com.sourcekraft.documentburster._helpers.TestsUtils;
+import com.sourcekraft.documentburster.context.BurstingContext;
+import com.sourcekraft.documentburster.scripting.Scripting;
+
+public class ScriptingCacheTest {
+
+	private static final String SCRIPTS_FOLDER = TestsUtils.TESTS_OUTPUT_FOLDER + "/ScriptingCacheTest";
+
+	@Test
+	public void missingAndEmptyScriptsAreNoOps() throws Exception {
+
+		File scriptsDir = new File(SCRIPTS_FOLDER + "/missingAndEmptyScriptsAreNoOps");
+		FileUtils.forceMkdir(scriptsDir);
+		FileUtils.writeStringToFile(new File(scriptsDir, "empty.groovy"), "", "UTF-8");
+
+		Scripting scripting = new Scripting();
+		scripting.setRoots(new String[] { scriptsDir.getPath() });
+
+		BurstingContext ctx = new BurstingContext();
+
+		scripting.executeBurstingLifeCycleScript("missing.groovy", ctx);
+		scripting.executeBurstingLifeCycleScript("empty.groovy", ctx);
+
+		assertFalse(scripting.scriptExists("missing.groovy"));
+		assertTrue(scripting.scriptExists("empty.groovy"));
+
+		assertEquals(1, scripting.getExecutionStats().get("missing.groovy")[0]);
+		assertEquals(1, scripting.getExecutionStats().get("empty.groovy")[0]);
+
+	}
+
+	@Test
+	public void scriptIsRecompiledWhenChanged() throws Exception {
+
+		File scriptsDir = new File(SCRIPTS_FOLDER + "/scriptIsRecompiledWhenChanged");
+		FileUtils.forceMkdir(scriptsDir);
+
+		File scriptFile = new File(scriptsDir, "token.groovy");
+		FileUtils.writeStringToFile(scriptFile, "ctx.token = 'first'", "UTF-8");
+
+		Scripting scripting = new Scripting();
+		scripting.setRoots(new String[] { scriptsDir.getPath() });
+
+		BurstingContext ctx = new BurstingContext();
+
+		for (int i = 0; i < 3; i++) {
+			ctx.token = null;
+			scripting.executeBurstingLifeCycleScript("token.groovy", ctx);
+			assertEquals("first", ctx.token);
+		}
+
+		FileUtils.writeStringToFile(scriptFile, "ctx.token = 'second changed'", "UTF-8");
+		scriptFile.setLastModified(scriptFile.lastModified() + 5000);
+
+		scripting.executeBurstingLifeCycleScript("token.groovy", ctx);
+		assertEquals("second changed", ctx.token);
+
+		assertEquals(4, scripting.getExecutionStats().get("token.groovy")[0]);
+
+	}
+
+}
@@ -1,11 +1,14 @@
 package com.sourcekraft.documentburster.unit.further.variables;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -15,6 +18,7 @@ import com.sourcekraft.documentburster._helpers.TestBursterFactory;
 import com.sourcekraft.documentburster._helpers.TestsUtils;
 import com.sourcekraft.documentburster.engine.AbstractBurster;
 import com.sourcekraft.documentburster.unit.further.other.UtilsTest;
+import com.sourcekraft.documentburster.variables.Variables;
 
 public class UserVariablesTest {
 
@@ -129,4 +133,54 @@ public class UserVariablesTest {
         }
 
     };
+
+    @Test
+    public final void userVariablesAreResolvedWithoutCopying() throws Exception {
+
+        Variables variables = new Variables("report.csv", StringUtils.EMPTY, StringUtils.EMPTY, 3);
+        variables.setVarAliases(Arrays.asList("col"));
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("Name", "Alice");
+        row.put("City", "Paris");
+        variables.parseUserVariablesFromMap("alice", row);
+
+        variables.set(Variables.BURST_TOKEN, "alice");
+        variables.set("name", "global name");
+
+        Map<String, Object> userVariables = variables.getUserVariables("alice");
+
+        // case insensitive lookups, token variables take precedence over globals
+        assertEquals("Alice", userVariables.get("name"));
+        assertEquals("Paris", userVariables.get("CITY"));
+        assertEquals("Paris", userVariables.get("col1"));
+        assertEquals("alice", userVariables.get("Burst_Token"));
+        assertEquals("report.csv", userVariables.get(Variables.INPUT_DOCUMENT_NAME));
+
+        // defaults
+        assertEquals("false", userVariables.get(Variables.SKIP));
+        assertEquals(StringUtils.EMPTY, userVariables.get("var2"));
+        assertEquals(StringUtils.EMPTY, userVariables.get("col2"));
+        assertFalse(userVariables.containsKey("var3"));
+
+        int size = userVariables.size();
+
+        // the view is live, lookups and iteration see the changes made afterwards
+        variables.set(Variables.BURST_TOKEN, "bob");
+        assertEquals("bob", userVariables.get(Variables.BURST_TOKEN));
+
+        variables.set("region", "EMEA");
+        assertEquals("EMEA", userVariables.get("Region"));
+        assertEquals(size + 1, userVariables.size());
+        assertTrue(userVariables.keySet().contains("REGION"));
+
+        // changes made through the view do not leak into the variables
+        userVariables.put("name", "changed");
+        assertEquals("changed", userVariables.get("NAME"));
+        assertEquals("Alice", variables.getUserVariables("alice").get("name"));
+
+        assertTrue(userVariables.keySet().contains("var0"));
+        assertEquals("Alice", userVariables.get("var0"));
+
+    };
 }
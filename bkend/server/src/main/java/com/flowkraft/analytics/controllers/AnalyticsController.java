@@ -1,6 +1,7 @@
 package com.flowkraft.analytics.controllers;
 
 import com.flowkraft.common.AppPaths;
+import com.flowkraft.common.NdjsonRowWriter;
 import com.flowkraft.analytics.services.ClickHouseAnalyticsService;
 import com.flowkraft.analytics.services.DuckDBAnalyticsService;
 import com.flowkraft.analytics.engine.dto.ExploreRequest;
@@ -13,8 +14,12 @@ import com.sourcekraft.documentburster.common.db.DatabaseConnectionManager;
 import com.sourcekraft.documentburster.common.settings.model.ServerDatabaseSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.nio.file.Paths;
 import java.util.HashMap;
@@ -40,6 +45,11 @@ public class AnalyticsController {
 
     private static final Logger log = LoggerFactory.getLogger(AnalyticsController.class);
 
+    private final ObjectMapper objectMapper;
+
+    public AnalyticsController(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
 
     /**
      * Resolve connectionCode and tableName from a reportCode by reading reporting.xml.
@@ -223,14 +233,7 @@ public class AnalyticsController {
                         .body(createErrorResponse("tableName is required (or provide reportCode)"));
             }
 
-            String engine;
-            if (request.getEngine() != null && !request.getEngine().isEmpty()) {
-                engine = request.getEngine().toLowerCase();
-                log.debug("Using explicitly provided engine: {}", engine);
-            } else {
-                engine = detectEngineFromConnection(request.getConnectionCode(), cm);
-                log.info("Auto-detected engine '{}' from connection '{}'", engine, request.getConnectionCode());
-            }
+            String engine = resolvePivotEngine(request, cm);
 
             if ("browser".equals(engine)) {
                 log.debug("Engine is 'browser', returning indication for client-side processing");
@@ -264,6 +267,90 @@ public class AnalyticsController {
         }
     }
 
+    /**
+     * Same as /pivot, streamed (opt-in with format=ndjson): the aggregated rows are
+     * written as they are read from the database - a header line (columns, engine),
+     * one positional array per row and an end line (totalRows, executionTimeMs,
+     * availableColumns), see NdjsonRowWriter.
+     *
+     * POST /api/analytics/pivot?format=ndjson
+     *
+     * @param request The pivot configuration
+     * @return The NDJSON stream
+     */
+    @PostMapping(value = "/pivot", params = "format=ndjson", produces = NdjsonRowWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamPivot(@RequestBody PivotRequest request) throws Exception {
+        String engine;
+        try (DatabaseConnectionManager cm = ConnectionFactory.newConnectionManager()) {
+            if (request.getReportId() != null && !request.getReportId().isEmpty()) {
+                log.info("Received streamed pivot request for reportCode: {}", request.getReportId());
+                resolveConnectionFromReportCode(request, cm);
+            }
+
+            if (request.getConnectionCode() == null || request.getConnectionCode().isEmpty()
+                    || request.getTableName() == null || request.getTableName().isEmpty()) {
+                throw new IllegalArgumentException("connectionCode and tableName are required (or provide reportCode)");
+            }
+
+            engine = resolvePivotEngine(request, cm);
+        }
+
+        if ("browser".equals(engine)) {
+            throw new IllegalArgumentException("Connection type requires client-side (browser) pivot processing");
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NdjsonRowWriter.MEDIA_TYPE))
+                .body(streamPivotBody(request, engine));
+    }
+
+    /*
+     * The rows are written after the request's connection manager is closed,
+     * the streamed body uses its own.
+     */
+    private StreamingResponseBody streamPivotBody(PivotRequest request, String engine) {
+        return NdjsonRowWriter.responseBody(objectMapper, writer -> {
+            long startTime = System.currentTimeMillis();
+            List<String> availableColumns;
+
+            try (DatabaseConnectionManager cm = ConnectionFactory.newConnectionManager()) {
+                writer.headerAttribute("engine", engine)
+                        .headerAttribute("aggregatorUsed", request.getAggregatorName());
+
+                // the available columns are read after the pivot (the script data table is created by the pivot)
+                if ("clickhouse".equals(engine)) {
+                    ClickHouseAnalyticsService clickHouseService = new ClickHouseAnalyticsService(cm);
+                    clickHouseService.streamPivot(request, writer);
+                    availableColumns = clickHouseService.getTableColumns(request.getConnectionCode(), request.getTableName());
+                } else {
+                    DuckDBAnalyticsService duckDBService = new DuckDBAnalyticsService(cm);
+                    duckDBService.streamPivot(request, writer);
+                    availableColumns = duckDBService.getTableColumns(request.getConnectionCode(), request.getTableName());
+                }
+            }
+
+            Map<String, Object> end = new HashMap<>();
+            end.put("executionTimeMs", System.currentTimeMillis() - startTime);
+            end.put("availableColumns", availableColumns);
+            writer.writeEnd(end);
+        });
+    }
+
+    /*
+     * The explicitly requested engine, otherwise detected from the connection type.
+     */
+    private String resolvePivotEngine(PivotRequest request, DatabaseConnectionManager cm) throws Exception {
+        String engine;
+        if (request.getEngine() != null && !request.getEngine().isEmpty()) {
+            engine = request.getEngine().toLowerCase();
+            log.debug("Using explicitly provided engine: {}", engine);
+        } else {
+            engine = detectEngineFromConnection(request.getConnectionCode(), cm);
+            log.info("Auto-detected engine '{}' from connection '{}'", engine, request.getConnectionCode());
+        }
+        return engine;
+    }
+
     /**
      * Execute associative exploration — compute associated/excluded values per field
      * given active selections.
@@ -380,9 +467,22 @@ public class AnalyticsController {
                 "cache", clickHouseService.getCacheStats()
             )
         ));
+        health.put("connectionPools", ConnectionFactory.getPoolMetrics());
         return ResponseEntity.ok(health);
     }
 
+    /**
+     * Metrics of the shared database connection pools (per connection code):
+     * active / idle / total connections, threads waiting for a connection and
+     * the time spent waiting for connections.
+     *
+     * GET /api/analytics/pools/stats
+     */
+    @GetMapping("/pools/stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> getPoolStats() {
+        return ResponseEntity.ok(ConnectionFactory.getPoolMetrics());
+    }
+
     @GetMapping("/cache/stats")
     public ResponseEntity<Map<String, Object>> getCacheStats(
             @RequestParam(defaultValue = "duckdb") String engine) {
@@ -395,28 +495,61 @@ public class AnalyticsController {
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * Clear the query cache of an engine (duckdb, clickhouse or all). If
+     * connectionCode is provided only the results of that connection are
+     * removed, narrowed down to the ones reading tableName if that is provided
+     * too.
+     *
+     * POST /api/analytics/cache/clear?engine=duckdb&connectionCode=my-connection&tableName=orders
+     */
     @PostMapping("/cache/clear")
     public ResponseEntity<Map<String, Object>> clearCache(
-            @RequestParam(defaultValue = "duckdb") String engine) {
+            @RequestParam(defaultValue = "duckdb") String engine,
+            @RequestParam(required = false) String connectionCode,
+            @RequestParam(required = false) String tableName) {
         Map<String, Object> response = new HashMap<>();
+        boolean partial = connectionCode != null && !connectionCode.isEmpty();
         if ("all".equalsIgnoreCase(engine)) {
-            new DuckDBAnalyticsService(null).clearCache();
-            new ClickHouseAnalyticsService(null).clearCache();
-            response.put("message", "All caches cleared successfully");
+            clearCache(new DuckDBAnalyticsService(null), connectionCode, tableName);
+            clearCache(new ClickHouseAnalyticsService(null), connectionCode, tableName);
+            response.put("message", partial ? "Cache entries invalidated successfully" : "All caches cleared successfully");
             response.put("engines", List.of("duckdb", "clickhouse"));
         } else if ("clickhouse".equalsIgnoreCase(engine)) {
-            new ClickHouseAnalyticsService(null).clearCache();
-            response.put("message", "ClickHouse cache cleared successfully");
+            clearCache(new ClickHouseAnalyticsService(null), connectionCode, tableName);
+            response.put("message", partial ? "ClickHouse cache entries invalidated successfully" : "ClickHouse cache cleared successfully");
             response.put("engine", "clickhouse");
         } else {
-            new DuckDBAnalyticsService(null).clearCache();
-            response.put("message", "DuckDB cache cleared successfully");
+            clearCache(new DuckDBAnalyticsService(null), connectionCode, tableName);
+            response.put("message", partial ? "DuckDB cache entries invalidated successfully" : "DuckDB cache cleared successfully");
             response.put("engine", "duckdb");
         }
+        if (partial) {
+            response.put("connectionCode", connectionCode);
+            if (tableName != null && !tableName.isEmpty()) {
+                response.put("tableName", tableName);
+            }
+        }
         response.put("timestamp", System.currentTimeMillis());
         return ResponseEntity.ok(response);
     }
 
+    private void clearCache(DuckDBAnalyticsService service, String connectionCode, String tableName) {
+        if (connectionCode == null || connectionCode.isEmpty()) {
+            service.clearCache();
+        } else {
+            service.invalidateCache(connectionCode, tableName);
+        }
+    }
+
+    private void clearCache(ClickHouseAnalyticsService service, String connectionCode, String tableName) {
+        if (connectionCode == null || connectionCode.isEmpty()) {
+            service.clearCache();
+        } else {
+            service.invalidateCache(connectionCode, tableName);
+        }
+    }
+
     /**
      * Query a file directly (CSV, Parquet, JSON).
      *
@@ -1,6 +1,7 @@
 package com.flowkraft.analytics.services;
 
 import com.flowkraft.analytics.engine.PivotSQLGenerator;
+import com.flowkraft.common.NdjsonRowWriter;
 import com.flowkraft.analytics.engine.clickhouse.ClickHousePivotProcessor;
 import com.flowkraft.analytics.engine.dto.AggregatorType;
 import com.flowkraft.analytics.engine.dto.PivotRequest;
@@ -47,7 +48,7 @@ public class ClickHouseAnalyticsService {
     public ClickHouseAnalyticsService(DatabaseConnectionManager connectionManager) {
         this.connectionManager = connectionManager;
         this.sqlGenerator = new ClickHousePivotProcessor();
-        this.queryCache = new QueryCache(100, 5 * 60 * 1000); // 100 entries, 5 minutes TTL
+        this.queryCache = QueryCache.forEngine("clickhouse"); // shared by all the ClickHouseAnalyticsService instances
     }
 
     /**
@@ -68,8 +69,7 @@ public class ClickHouseAnalyticsService {
         log.debug("Generated ClickHouse SQL: {}", sql);
 
         // Check cache
-        String cacheKey = QueryCache.generateKey(request.getConnectionCode(), sql);
-        PivotResponse cachedResponse = queryCache.get(cacheKey);
+        PivotResponse cachedResponse = queryCache.get(request.getConnectionCode(), sql);
         if (cachedResponse != null) {
             log.info("Returning cached result for ClickHouse query (cache hit)");
             return cachedResponse;
@@ -93,11 +93,45 @@ public class ClickHouseAnalyticsService {
                 metadata.getExecutionTimeMs(), metadata.getRowCount());
 
         // Cache the result
-        queryCache.put(cacheKey, response);
+        queryCache.put(request.getConnectionCode(), sql, request.getTableName(), response);
 
         return response;
     }
 
+    /**
+     * Same as executePivot but the rows are written to the writer as they are read
+     * from the ResultSet (format=ndjson), the streamed results are not cached.
+     *
+     * @param request The pivot configuration
+     * @param writer  The NDJSON response writer
+     * @throws Exception if query execution fails
+     */
+    public void streamPivot(PivotRequest request, NdjsonRowWriter writer) throws Exception {
+        log.info("Streaming ClickHouse pivot query for table: {}, aggregator: {}",
+                request.getTableName(), request.getAggregatorName());
+
+        String sql = sqlGenerator.generateSQL(request);
+        log.debug("Generated ClickHouse SQL: {}", sql);
+
+        PivotResponse cachedResponse = queryCache.get(request.getConnectionCode(), sql);
+        if (cachedResponse != null) {
+            log.info("Streaming cached result for ClickHouse query (cache hit)");
+            writer.headerAttribute("cached", true);
+            writer.writeRows(cachedResponse.getData());
+            return;
+        }
+
+        writer.headerAttribute("cached", false);
+
+        try (Connection conn = connectionManager.getJdbcConnection(request.getConnectionCode());
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            writer.writeResultSet(rs);
+        }
+
+        log.info("ClickHouse pivot query streamed {} rows", writer.getTotalRows());
+    }
+
     /**
      * Execute SQL query against ClickHouse and return results as list of maps.
      */
@@ -261,4 +295,16 @@ public class ClickHouseAnalyticsService {
     public void clearCache() {
         queryCache.clear();
     }
+
+    /**
+     * Remove the cached results of a connection, or only the ones reading the
+     * given table (if tableName is not null).
+     */
+    public void invalidateCache(String connectionCode, String tableName) {
+        if (tableName == null || tableName.isEmpty()) {
+            queryCache.invalidateConnection(connectionCode);
+        } else {
+            queryCache.invalidateTable(connectionCode, tableName);
+        }
+    }
 }
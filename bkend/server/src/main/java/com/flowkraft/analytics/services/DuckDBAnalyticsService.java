@@ -1,6 +1,7 @@
 package com.flowkraft.analytics.services;
 
 import com.flowkraft.common.AppPaths;
+import com.flowkraft.common.NdjsonRowWriter;
 import com.flowkraft.analytics.engine.PivotSQLGenerator;
 import com.flowkraft.analytics.engine.dto.AggregatorType;
 import com.flowkraft.analytics.engine.dto.PivotRequest;
@@ -50,7 +51,7 @@ public class DuckDBAnalyticsService {
         this.connectionManager = connectionManager;
         this.sqlGenerator = new DuckDBPivotProcessor();
         this.fileHandler = new DuckDBFileHandler();
-        this.queryCache = new QueryCache(100, 5 * 60 * 1000); // 100 entries, 5 minutes TTL
+        this.queryCache = QueryCache.forEngine("duckdb"); // shared by all the DuckDBAnalyticsService instances
     }
 
     /**
@@ -77,8 +78,7 @@ public class DuckDBAnalyticsService {
         log.debug("Generated SQL: {}", sql);
 
         // Check cache
-        String cacheKey = QueryCache.generateKey(request.getConnectionCode(), sql);
-        PivotResponse cachedResponse = queryCache.get(cacheKey);
+        PivotResponse cachedResponse = queryCache.get(request.getConnectionCode(), sql);
         if (cachedResponse != null) {
             log.info("Returning cached result for query (cache hit)");
             return cachedResponse;
@@ -102,11 +102,52 @@ public class DuckDBAnalyticsService {
                 metadata.getExecutionTimeMs(), metadata.getRowCount());
 
         // Cache the result
-        queryCache.put(cacheKey, response);
+        queryCache.put(request.getConnectionCode(), sql, request.getTableName(), response);
 
         return response;
     }
 
+    /**
+     * Same as executePivot but the rows are written to the writer as they are read
+     * from the ResultSet (format=ndjson), the streamed results are not cached. The script
+     * data is auto-plumbed first (see executePivotWithScriptData).
+     *
+     * @param request The pivot configuration
+     * @param writer  The NDJSON response writer
+     * @throws Exception if query execution fails
+     */
+    public void streamPivot(PivotRequest request, NdjsonRowWriter writer) throws Exception {
+        log.info("Streaming pivot query for table: {}, aggregator: {}",
+                request.getTableName(), request.getAggregatorName());
+
+        if ("__SCRIPT_DATA__".equals(request.getTableName())) {
+            writer.headerAttribute("cached", false);
+            writer.writeRows(executePivotWithScriptData(request).getData());
+            return;
+        }
+
+        String sql = sqlGenerator.generateSQL(request);
+        log.debug("Generated SQL: {}", sql);
+
+        PivotResponse cachedResponse = queryCache.get(request.getConnectionCode(), sql);
+        if (cachedResponse != null) {
+            log.info("Streaming cached result for query (cache hit)");
+            writer.headerAttribute("cached", true);
+            writer.writeRows(cachedResponse.getData());
+            return;
+        }
+
+        writer.headerAttribute("cached", false);
+
+        try (Connection conn = connectionManager.getJdbcConnection(request.getConnectionCode());
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            writer.writeResultSet(rs);
+        }
+
+        log.info("Pivot query streamed {} rows", writer.getTotalRows());
+    }
+
     /**
      * Execute SQL query and return results as list of maps.
      */
@@ -306,6 +347,7 @@ public class DuckDBAnalyticsService {
 
                 // Create table with schema inferred from first row
                 createTableFromData(conn, tableName, data, scriptResult.reportColumnNames);
+                queryCache.invalidateTable(request.getConnectionCode(), tableName);
                 log.info("Created table '{}' with {} rows (schema auto-inferred)", tableName, data.size());
             } else {
                 log.info("Table '{}' already exists - reusing (skipping script execution)", tableName);
@@ -653,6 +695,18 @@ public class DuckDBAnalyticsService {
         queryCache.clear();
     }
 
+    /**
+     * Remove the cached results of a connection, or only the ones reading the
+     * given table (if tableName is not null).
+     */
+    public void invalidateCache(String connectionCode, String tableName) {
+        if (tableName == null || tableName.isEmpty()) {
+            queryCache.invalidateConnection(connectionCode);
+        } else {
+            queryCache.invalidateTable(connectionCode, tableName);
+        }
+    }
+
     /**
      * Get cache statistics.
      *
@@ -1,136 +1,203 @@
 package com.flowkraft.analytics.services;
 
 import com.flowkraft.analytics.engine.dto.PivotResponse;
+import com.flowkraft.common.WeightedTtlCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Simple LRU cache for query results.
+ * Shared LRU cache for pivot query results (one instance per engine, see
+ * {@link #forEngine(String)}).
  *
  * Pragmatic caching implementation:
- * - LRU eviction policy
- * - Configurable max size
- * - Time-based expiration
- * - Thread-safe
+ * - Keyed on connection code + the full SQL text (no hash collisions)
+ * - Bounded by the (estimated) memory weight of the cached results
+ * - Approximate LRU eviction, time-based expiration
+ * - Thread-safe, lock-free reads (ConcurrentHashMap), evictions are serialized
+ * - Invalidation per connection and per table
+ * - Hit / miss / eviction statistics
+ *
+ * The weight bound, the eviction and the statistics are the ones of the
+ * {@link WeightedTtlCache} which holds the entries.
  */
 public class QueryCache {
 
     private static final Logger log = LoggerFactory.getLogger(QueryCache.class);
 
-    private final int maxSize;
-    private final long ttlMillis;
-    private final Map<String, CacheEntry> cache;
+    public static final long DEFAULT_MAX_WEIGHT_BYTES = 64L * 1024 * 1024; // 64 MB
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000; // 5 minutes
+
+    private static final Map<String, QueryCache> ENGINE_CACHES = new ConcurrentHashMap<>();
+
+    private final WeightedTtlCache<CacheKey, CacheEntry> cache;
 
     /**
-     * Cache entry with timestamp for TTL.
+     * Cache key - equality on the full SQL text.
      */
-    private static class CacheEntry {
-        final PivotResponse response;
-        final long timestamp;
+    private static final class CacheKey {
+        final String connectionCode;
+        final String sql;
+        final int hash;
+
+        CacheKey(String connectionCode, String sql) {
+            this.connectionCode = Objects.toString(connectionCode, "");
+            this.sql = sql;
+            this.hash = 31 * this.connectionCode.hashCode() + sql.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey other = (CacheKey) o;
+            return hash == other.hash && connectionCode.equals(other.connectionCode) && sql.equals(other.sql);
+        }
 
-        CacheEntry(PivotResponse response) {
-            this.response = response;
-            this.timestamp = System.currentTimeMillis();
+        @Override
+        public int hashCode() {
+            return hash;
         }
 
-        boolean isExpired(long ttlMillis) {
-            return (System.currentTimeMillis() - timestamp) > ttlMillis;
+        @Override
+        public String toString() {
+            return connectionCode;
         }
     }
 
+    /**
+     * Cache entry - holds a snapshot of the response so that callers which
+     * decorate the returned response (e.g. available columns) never touch what
+     * other threads read.
+     */
+    private static class CacheEntry {
+        final List<Map<String, Object>> data;
+        final Map<String, Object> aggregatedData;
+        final long executionTimeMs;
+        final int rowCount;
+        final String aggregatorUsed;
+        final String tableName;
+        final long weight;
+
+        CacheEntry(PivotResponse response, String tableName, long weight) {
+            this.data = Collections.unmodifiableList(response.getData());
+            this.aggregatedData = Collections.unmodifiableMap(response.getAggregatedData());
+            this.executionTimeMs = response.getMetadata().getExecutionTimeMs();
+            this.rowCount = response.getMetadata().getRowCount();
+            this.aggregatorUsed = response.getMetadata().getAggregatorUsed();
+            this.tableName = normalizeTableName(tableName);
+            this.weight = weight;
+        }
+
+        PivotResponse toResponse() {
+            PivotResponse response = new PivotResponse(data);
+            response.setAggregatedData(aggregatedData);
+
+            PivotResponse.PivotMetadata metadata = response.getMetadata();
+            metadata.setExecutionTimeMs(executionTimeMs);
+            metadata.setRowCount(rowCount);
+            metadata.setAggregatorUsed(aggregatorUsed);
+            metadata.setCached(true);
+
+            return response;
+        }
+    }
+
+    /**
+     * Returns the cache shared by all the analytics services of the given engine
+     * (duckdb, clickhouse).
+     */
+    public static QueryCache forEngine(String engine) {
+        return ENGINE_CACHES.computeIfAbsent(engine.toLowerCase(Locale.ROOT),
+                k -> new QueryCache(DEFAULT_MAX_WEIGHT_BYTES, DEFAULT_TTL_MILLIS));
+    }
+
+    /**
+     * Drops the cached results of the given connection for all the engines.
+     */
+    public static void invalidateConnectionForAllEngines(String connectionCode) {
+        ENGINE_CACHES.values().forEach(queryCache -> queryCache.invalidateConnection(connectionCode));
+    }
+
     /**
      * Create cache with default settings.
-     * Default: 100 entries, 5 minutes TTL
+     * Default: 64 MB, 5 minutes TTL
      */
     public QueryCache() {
-        this(100, 5 * 60 * 1000); // 5 minutes
+        this(DEFAULT_MAX_WEIGHT_BYTES, DEFAULT_TTL_MILLIS);
     }
 
     /**
      * Create cache with custom settings.
      *
-     * @param maxSize Maximum number of entries
+     * @param maxWeightBytes Maximum (estimated) size of the cached results, in bytes
      * @param ttlMillis Time-to-live in milliseconds
      */
-    public QueryCache(int maxSize, long ttlMillis) {
-        this.maxSize = maxSize;
-        this.ttlMillis = ttlMillis;
-
-        // LinkedHashMap with access order (LRU)
-        this.cache = new LinkedHashMap<String, CacheEntry>(maxSize, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
-                boolean shouldRemove = size() > QueryCache.this.maxSize;
-                if (shouldRemove) {
-                    log.debug("Evicting cache entry (LRU): {}", eldest.getKey());
-                }
-                return shouldRemove;
-            }
-        };
+    public QueryCache(long maxWeightBytes, long ttlMillis) {
+        this.cache = new WeightedTtlCache<>("Query cache", maxWeightBytes, ttlMillis, entry -> entry.weight);
 
-        log.info("Query cache initialized: maxSize={}, ttl={}ms", maxSize, ttlMillis);
+        log.info("Query cache initialized: maxWeightBytes={}, ttl={}ms", maxWeightBytes, ttlMillis);
     }
 
     /**
      * Get cached result.
      *
-     * @param key Cache key
-     * @return Cached response, or null if not found/expired
+     * @param connectionCode Connection code
+     * @param sql SQL query
+     * @return Cached response (marked as cached), or null if not found/expired
      */
-    public synchronized PivotResponse get(String key) {
-        CacheEntry entry = cache.get(key);
-
-        if (entry == null) {
-            log.debug("Cache MISS: {}", key);
-            return null;
-        }
-
-        if (entry.isExpired(ttlMillis)) {
-            log.debug("Cache EXPIRED: {}", key);
-            cache.remove(key);
-            return null;
-        }
-
-        log.debug("Cache HIT: {}", key);
-
-        // Mark as cached in metadata
-        PivotResponse response = entry.response;
-        response.getMetadata().setCached(true);
+    public PivotResponse get(String connectionCode, String sql) {
+        CacheEntry entry = cache.get(new CacheKey(connectionCode, sql));
 
-        return response;
+        return (entry != null) ? entry.toResponse() : null;
     }
 
     /**
      * Put result in cache.
      *
-     * @param key Cache key
+     * @param connectionCode Connection code
+     * @param sql SQL query
+     * @param tableName Table (or view) the query reads, used by invalidateTable
      * @param response Response to cache
      */
-    public synchronized void put(String key, PivotResponse response) {
-        cache.put(key, new CacheEntry(response));
-        log.debug("Cache PUT: {} (size: {})", key, cache.size());
+    public void put(String connectionCode, String sql, String tableName, PivotResponse response) {
+        long weight = estimateWeight(sql, response);
+
+        cache.put(new CacheKey(connectionCode, sql), new CacheEntry(response, tableName, weight));
     }
 
     /**
      * Clear entire cache.
      */
-    public synchronized void clear() {
-        int size = cache.size();
-        cache.clear();
-        log.info("Cache cleared: {} entries removed", size);
+    public void clear() {
+        int removed = cache.clear();
+        log.info("Cache cleared: {} entries removed", removed);
     }
 
     /**
-     * Remove specific entry.
-     *
-     * @param key Cache key
+     * Remove the cached results of the given connection.
      */
-    public synchronized void remove(String key) {
-        cache.remove(key);
-        log.debug("Cache REMOVE: {}", key);
+    public void invalidateConnection(String connectionCode) {
+        String code = Objects.toString(connectionCode, "");
+        int removed = cache.invalidateIf((key, entry) -> key.connectionCode.equals(code));
+        log.debug("Cache INVALIDATE connection: {} ({} entries)", connectionCode, removed);
+    }
+
+    /**
+     * Remove the cached results which read the given table of the given
+     * connection.
+     */
+    public void invalidateTable(String connectionCode, String tableName) {
+        String code = Objects.toString(connectionCode, "");
+        String table = normalizeTableName(tableName);
+        int removed = cache.invalidateIf((key, entry) -> key.connectionCode.equals(code) && table.equals(entry.tableName));
+        log.debug("Cache INVALIDATE table: {}.{} ({} entries)", connectionCode, tableName, removed);
     }
 
     /**
@@ -138,31 +205,45 @@ public class QueryCache {
      *
      * @return Map with cache stats
      */
-    public synchronized Map<String, Object> getStats() {
-        Map<String, Object> stats = new LinkedHashMap<>();
-        stats.put("size", cache.size());
-        stats.put("maxSize", maxSize);
-        stats.put("ttlMillis", ttlMillis);
-
-        // Count expired entries
-        long now = System.currentTimeMillis();
-        long expiredCount = cache.values().stream()
-                .filter(entry -> entry.isExpired(ttlMillis))
-                .count();
-        stats.put("expiredCount", expiredCount);
-
-        return stats;
+    public Map<String, Object> getStats() {
+        return cache.getStats();
+    }
+
+    private static String normalizeTableName(String tableName) {
+        if (tableName == null)
+            return "";
+        return tableName.replace("\"", "").replace("`", "").trim().toLowerCase(Locale.ROOT);
     }
 
     /**
-     * Generate cache key from request.
-     *
-     * @param connectionCode Connection code
-     * @param sql SQL query
-     * @return Cache key
+     * Rough estimate of the heap retained by a cached response (object headers,
+     * map entries, boxed values and strings).
      */
-    public static String generateKey(String connectionCode, String sql) {
-        // Simple hash-based key
-        return connectionCode + ":" + sql.hashCode();
+    static long estimateWeight(String sql, PivotResponse response) {
+        long weight = 128 + 2L * sql.length();
+
+        for (Map<String, Object> row : response.getData()) {
+            weight += 64;
+            for (Map.Entry<String, Object> column : row.entrySet()) {
+                // map node + value; the column name strings are shared between rows
+                weight += 32 + estimateValueWeight(column.getValue());
+            }
+        }
+
+        for (Map.Entry<String, Object> aggregate : response.getAggregatedData().entrySet())
+            weight += 32 + 40 + 2L * aggregate.getKey().length() + estimateValueWeight(aggregate.getValue());
+
+        return weight;
     }
+
+    private static long estimateValueWeight(Object value) {
+        if (value == null)
+            return 0;
+        if (value instanceof CharSequence)
+            return 40 + 2L * ((CharSequence) value).length();
+        if (value instanceof java.math.BigDecimal || value instanceof java.math.BigInteger)
+            return 64;
+        return 24;
+    }
+
 }
@@ -0,0 +1,217 @@
+package com.flowkraft.common;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sourcekraft.documentburster.common.db.ReportDataRowHandler;
+
+/**
+ * Writes tabular data as NDJSON (one JSON document per line) while it is being
+ * read, instead of building the whole List of rows and serializing it as a
+ * single document. Used by the format=ndjson mode of the report data and pivot
+ * endpoints.
+ *
+ * - Header frame: {"type":"header","columns":[{"name":"Id","sqlType":"INTEGER"},...],...}
+ *   (sqlType only when read from a JDBC ResultSet, plus the header attributes)
+ * - One line per row, a positional array in the column order: [1,"Active",10]
+ * - End frame: {"type":"end","totalRows":3,...} - a stream without it is
+ *   incomplete (the request failed while streaming)
+ *
+ * The header is flushed right away, then every FLUSH_ROWS rows. Once the
+ * writer is cancelled (the response timed out or the client went away) the
+ * next rows fail with an IOException, so a task still reading its data source
+ * stops instead of writing to a finished response.
+ */
+public class NdjsonRowWriter implements ReportDataRowHandler {
+
+	public static final String MEDIA_TYPE = "application/x-ndjson";
+
+	private static final int FLUSH_ROWS = 1000;
+
+	private final JsonGenerator generator;
+
+	private final Map<String, Object> headerAttributes = new LinkedHashMap<>();
+
+	private List<String> columnNames;
+
+	private int totalRows = 0;
+	private int unflushedRows = 0;
+
+	private volatile boolean cancelled = false;
+
+	@FunctionalInterface
+	public interface Body {
+		void writeTo(NdjsonRowWriter writer) throws Exception;
+	}
+
+	public NdjsonRowWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+		this.generator = objectMapper.createGenerator(out, JsonEncoding.UTF8);
+		this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		// the documents are separated by new lines only
+		this.generator.setRootValueSeparator(null);
+	}
+
+	/**
+	 * The streaming response body writing through a NdjsonRowWriter, the
+	 * exceptions are rethrown as IOException (StreamingResponseBody signature).
+	 */
+	public static StreamingResponseBody responseBody(ObjectMapper objectMapper, Body body) {
+		return out -> {
+			NdjsonRowWriter writer = new NdjsonRowWriter(objectMapper, out);
+			try {
+				body.writeTo(writer);
+			} catch (IOException | RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IOException(e);
+			}
+		};
+	}
+
+	/** Added to the header frame, set before the columns are written */
+	public NdjsonRowWriter headerAttribute(String name, Object value) {
+		headerAttributes.put(name, value);
+		return this;
+	}
+
+	@Override
+	public void columns(List<String> columnNames) throws IOException {
+		writeHeader(columnNames, null);
+	}
+
+	@Override
+	public void row(Map<String, Object> row) throws IOException {
+		_checkNotCancelled();
+		generator.writeStartArray();
+		for (String columnName : columnNames)
+			generator.writeObject(row.get(columnName));
+		generator.writeEndArray();
+		_endRow();
+	}
+
+	public void writeHeader(List<String> columnNames, List<String> sqlTypes) throws IOException {
+		this.columnNames = new ArrayList<>(columnNames);
+
+		generator.writeStartObject();
+		generator.writeStringField("type", "header");
+
+		generator.writeArrayFieldStart("columns");
+		for (int i = 0; i < columnNames.size(); i++) {
+			generator.writeStartObject();
+			generator.writeStringField("name", columnNames.get(i));
+			if (sqlTypes != null)
+				generator.writeStringField("sqlType", sqlTypes.get(i));
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+
+		for (Map.Entry<String, Object> attribute : headerAttributes.entrySet())
+			generator.writeObjectField(attribute.getKey(), attribute.getValue());
+
+		generator.writeEndObject();
+		generator.writeRaw('\n');
+
+		// the client gets the columns before the first rows are read
+		generator.flush();
+	}
+
+	/**
+	 * Writes the header (from the ResultSet metadata) and the rows as they are
+	 * read from the ResultSet.
+	 *
+	 * @return The number of rows written
+	 */
+	public int writeResultSet(ResultSet rs) throws Exception {
+		ResultSetMetaData metaData = rs.getMetaData();
+		int columnCount = metaData.getColumnCount();
+
+		List<String> names = new ArrayList<>(columnCount);
+		List<String> sqlTypes = new ArrayList<>(columnCount);
+		for (int i = 1; i <= columnCount; i++) {
+			names.add(metaData.getColumnName(i));
+			sqlTypes.add(metaData.getColumnTypeName(i));
+		}
+		writeHeader(names, sqlTypes);
+
+		int rows = 0;
+		while (rs.next()) {
+			_checkNotCancelled();
+			generator.writeStartArray();
+			for (int i = 1; i <= columnCount; i++)
+				generator.writeObject(rs.getObject(i));
+			generator.writeEndArray();
+			_endRow();
+			rows++;
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Writes rows which are already in memory (e.g. a cached result), the
+	 * columns are the keys of the first row.
+	 *
+	 * @return The number of rows written
+	 */
+	public int writeRows(List<Map<String, Object>> rows) throws IOException {
+		columns(rows.isEmpty() ? new ArrayList<>() : new ArrayList<>(rows.get(0).keySet()));
+
+		for (Map<String, Object> row : rows)
+			row(row);
+
+		return rows.size();
+	}
+
+	public void writeEnd(Map<String, Object> attributes) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("type", "end");
+		generator.writeNumberField("totalRows", totalRows);
+		if (attributes != null) {
+			for (Map.Entry<String, Object> attribute : attributes.entrySet())
+				generator.writeObjectField(attribute.getKey(), attribute.getValue());
+		}
+		generator.writeEndObject();
+		generator.writeRaw('\n');
+		generator.flush();
+	}
+
+	public int getTotalRows() {
+		return totalRows;
+	}
+
+	/** The next rows are not written, can be called from another thread */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	private void _checkNotCancelled() throws IOException {
+		if (cancelled)
+			throw new IOException("The NDJSON response was cancelled after " + totalRows + " rows");
+	}
+
+	private void _endRow() throws IOException {
+		generator.writeRaw('\n');
+		totalRows++;
+
+		if (++unflushedRows >= FLUSH_ROWS) {
+			generator.flush();
+			unflushedRows = 0;
+		}
+	}
+
+}
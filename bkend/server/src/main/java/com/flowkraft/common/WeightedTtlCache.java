@@ -0,0 +1,236 @@
+package com.flowkraft.common;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory cache bounded by the (estimated) memory weight of its values,
+ * shared by the pivot QueryCache and the ReportDataSnapshotCache.
+ *
+ * - The weight of each value is computed once, by the weigher, when it is put
+ * - Approximate LRU eviction, time-based expiration
+ * - Thread-safe, lock-free reads (ConcurrentHashMap), evictions are serialized
+ * - Hit / miss / eviction / expiration / invalidation statistics
+ *
+ * The keys are logged (toString) when their entries are evicted.
+ */
+public class WeightedTtlCache<K, V> {
+
+	private static final Logger log = LoggerFactory.getLogger(WeightedTtlCache.class);
+
+	private final String name;
+	private final long maxWeightBytes;
+	private final long ttlMillis;
+	private final ToLongFunction<V> weigher;
+
+	private final Map<K, Entry<V>> cache = new ConcurrentHashMap<>();
+
+	private final AtomicLong weightBytes = new AtomicLong();
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+	private final LongAdder expirationCount = new LongAdder();
+	private final LongAdder invalidationCount = new LongAdder();
+
+	private static final class Entry<V> {
+		final V value;
+		final long weight;
+		final long timestamp;
+		volatile long lastAccess;
+
+		Entry(V value, long weight) {
+			this.value = value;
+			this.weight = weight;
+			this.timestamp = System.currentTimeMillis();
+			this.lastAccess = this.timestamp;
+		}
+
+		boolean isExpired(long ttlMillis) {
+			return (System.currentTimeMillis() - timestamp) > ttlMillis;
+		}
+	}
+
+	/**
+	 * @param name           Used in the log messages
+	 * @param maxWeightBytes Maximum (estimated) size of the cached values, in bytes
+	 * @param ttlMillis      Time-to-live in milliseconds
+	 * @param weigher        The (estimated) size of a value, in bytes
+	 */
+	public WeightedTtlCache(String name, long maxWeightBytes, long ttlMillis, ToLongFunction<V> weigher) {
+		this.name = name;
+		this.maxWeightBytes = maxWeightBytes;
+		this.ttlMillis = ttlMillis;
+		this.weigher = weigher;
+	}
+
+	/**
+	 * @return The cached value, or null if not found/expired
+	 */
+	public V get(K key) {
+		Entry<V> entry = cache.get(key);
+
+		if (entry == null) {
+			missCount.increment();
+			log.debug("{} MISS: {}", name, key);
+			return null;
+		}
+
+		if (entry.isExpired(ttlMillis)) {
+			if (_remove(key, entry))
+				expirationCount.increment();
+			missCount.increment();
+			log.debug("{} EXPIRED: {}", name, key);
+			return null;
+		}
+
+		hitCount.increment();
+		entry.lastAccess = System.currentTimeMillis();
+		log.debug("{} HIT: {}", name, key);
+
+		return entry.value;
+	}
+
+	/**
+	 * @return false (and nothing is cached) when the value alone is heavier than
+	 *         the cache
+	 */
+	public boolean put(K key, V value) {
+		long weight = weigher.applyAsLong(value);
+
+		if (weight > maxWeightBytes) {
+			log.debug("{}: too large to be cached ({} bytes): {}", name, weight, key);
+			return false;
+		}
+
+		Entry<V> previous = cache.put(key, new Entry<>(value, weight));
+		weightBytes.addAndGet(weight - (previous != null ? previous.weight : 0));
+
+		log.debug("{} PUT: {} (size: {}, weight: {})", name, key, cache.size(), weightBytes.get());
+
+		if (weightBytes.get() > maxWeightBytes)
+			_evict();
+
+		return true;
+	}
+
+	/**
+	 * Clear entire cache.
+	 *
+	 * @return The number of entries removed
+	 */
+	public int clear() {
+		int removed = 0;
+		for (Map.Entry<K, Entry<V>> e : cache.entrySet()) {
+			if (_remove(e.getKey(), e.getValue()))
+				removed++;
+		}
+		return removed;
+	}
+
+	/**
+	 * Remove the entries matching the predicate (counted as invalidations).
+	 *
+	 * @return The number of entries removed
+	 */
+	public int invalidateIf(BiPredicate<K, V> predicate) {
+		int removed = 0;
+		for (Map.Entry<K, Entry<V>> e : cache.entrySet()) {
+			if (predicate.test(e.getKey(), e.getValue().value) && _remove(e.getKey(), e.getValue())) {
+				invalidationCount.increment();
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Get cache statistics.
+	 *
+	 * @return Map with cache stats
+	 */
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("size", cache.size());
+		stats.put("weightBytes", weightBytes.get());
+		stats.put("maxWeightBytes", maxWeightBytes);
+		stats.put("ttlMillis", ttlMillis);
+
+		long hits = hitCount.sum();
+		long misses = missCount.sum();
+		stats.put("hitCount", hits);
+		stats.put("missCount", misses);
+		stats.put("hitRate", (hits + misses) == 0 ? 0.0 : (double) hits / (hits + misses));
+		stats.put("evictionCount", evictionCount.sum());
+		stats.put("expirationCount", expirationCount.sum());
+		stats.put("invalidationCount", invalidationCount.sum());
+
+		// Count expired entries
+		long expiredCount = cache.values().stream()
+				.filter(entry -> entry.isExpired(ttlMillis))
+				.count();
+		stats.put("expiredCount", expiredCount);
+
+		return stats;
+	}
+
+	/*
+	 * Evicts the expired entries first, then the least recently used ones until
+	 * the cache is back under its weight limit. Only one thread evicts at a
+	 * time, the others carry on (the cache can be over its limit briefly).
+	 */
+	private void _evict() {
+		if (!evictionLock.tryLock())
+			return;
+
+		try {
+			cache.forEach((key, entry) -> {
+				if (entry.isExpired(ttlMillis) && _remove(key, entry))
+					expirationCount.increment();
+			});
+
+			if (weightBytes.get() <= maxWeightBytes)
+				return;
+
+			List<Map.Entry<K, Entry<V>>> entries = new ArrayList<>(cache.entrySet());
+			entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+
+			for (Map.Entry<K, Entry<V>> e : entries) {
+				if (weightBytes.get() <= maxWeightBytes)
+					break;
+				if (_remove(e.getKey(), e.getValue())) {
+					evictionCount.increment();
+					log.debug("{}: evicting (LRU): {}", name, e.getKey());
+				}
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	private boolean _remove(K key, Entry<V> entry) {
+		if (cache.remove(key, entry)) {
+			weightBytes.addAndGet(-entry.weight);
+			return true;
+		}
+		return false;
+	}
+
+}
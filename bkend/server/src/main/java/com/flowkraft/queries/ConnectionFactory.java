@@ -1,6 +1,10 @@
 package com.flowkraft.queries;
 
+import java.io.File;
+import java.util.Map;
+
 import com.flowkraft.common.AppPaths;
+import com.sourcekraft.documentburster.common.db.ConnectionPoolRegistry;
 import com.sourcekraft.documentburster.common.db.DatabaseConnectionManager;
 import com.sourcekraft.documentburster.common.db.SqlExecutor;
 import com.sourcekraft.documentburster.common.settings.Settings;
@@ -17,6 +21,11 @@ import com.sourcekraft.documentburster.common.settings.Settings;
  */
 public final class ConnectionFactory {
 
+	// settings.xml parsed by the last newConnectionManager() call
+	private static Settings cachedSettings;
+	private static String cachedSettingsPath;
+	private static long cachedSettingsLastModified;
+
 	private ConnectionFactory() {
 	}
 
@@ -30,9 +39,43 @@ public final class ConnectionFactory {
 		Settings.PORTABLE_EXECUTABLE_DIR_PATH = AppPaths.PORTABLE_EXECUTABLE_DIR_PATH;
 	}
 
+	/**
+	 * Returns a new (cheap) DatabaseConnectionManager. The connection pools it
+	 * hands out are shared across calls (see {@link ConnectionPoolRegistry}) and
+	 * the parsed settings.xml is reused for as long as the file is not modified.
+	 * Close the manager (try-with-resources) to release its pool leases.
+	 */
 	public static DatabaseConnectionManager newConnectionManager() throws Exception {
 		syncPath();
 		String settingsPath = AppPaths.PORTABLE_EXECUTABLE_DIR_PATH + "/config/burst/settings.xml";
+		return new DatabaseConnectionManager(getSettings(settingsPath));
+	}
+
+	public static SqlExecutor newSqlExecutor() throws Exception {
+		return new SqlExecutor(newConnectionManager());
+	}
+
+	/**
+	 * Drops the shared pool of the given connection (e.g. after its XML was
+	 * saved), the next newConnectionManager() callers get a fresh pool.
+	 */
+	public static void invalidateConnection(String connectionCode) {
+		if (connectionCode != null && !connectionCode.isBlank())
+			ConnectionPoolRegistry.getInstance().invalidate(connectionCode);
+	}
+
+	public static Map<String, Map<String, Object>> getPoolMetrics() {
+		return ConnectionPoolRegistry.getInstance().getPoolMetrics();
+	}
+
+	private static synchronized Settings getSettings(String settingsPath) throws Exception {
+		File settingsFile = new File(settingsPath);
+		long lastModified = settingsFile.lastModified();
+
+		if (cachedSettings != null && settingsPath.equals(cachedSettingsPath)
+				&& lastModified == cachedSettingsLastModified)
+			return cachedSettings;
+
 		Settings settings = new Settings(settingsPath);
 		// The Settings constructor re-derives PORTABLE_EXECUTABLE_DIR_PATH from the
 		// configFilePath (which may fall back to CWD if the file doesn't exist).
@@ -40,10 +83,11 @@ public final class ConnectionFactory {
 		// reflects the JVM-arg value, not whatever the constructor derived.
 		syncPath();
 		settings.loadSettings();
-		return new DatabaseConnectionManager(settings);
-	}
 
-	public static SqlExecutor newSqlExecutor() throws Exception {
-		return new SqlExecutor(newConnectionManager());
+		cachedSettings = settings;
+		cachedSettingsPath = settingsPath;
+		cachedSettingsLastModified = lastModified;
+
+		return settings;
 	}
 }
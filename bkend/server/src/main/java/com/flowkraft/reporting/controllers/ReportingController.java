@@ -7,6 +7,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -14,6 +15,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -21,10 +24,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.flowkraft.common.AppPaths;
+import com.flowkraft.common.NdjsonRowWriter;
 import com.flowkraft.reporting.dtos.ReportFullConfigDto;
+import com.flowkraft.reporting.services.ReportingExecutor;
 import com.flowkraft.reporting.services.ReportingService;
+import com.sourcekraft.documentburster.common.db.QueryCancellation;
+import com.sourcekraft.documentburster.common.db.ReportDataPageRequest;
 import com.sourcekraft.documentburster.common.db.ReportDataResult;
 import com.sourcekraft.documentburster.common.reportparameters.ReportParameter;
 import com.sourcekraft.documentburster.common.reportparameters.ReportParametersHelper;
@@ -48,9 +56,16 @@ public class ReportingController {
 
 	ReportingService reportingService;
 
+	ReportingExecutor reportingExecutor;
+
+	ObjectMapper objectMapper;
+
 	@Autowired
-	public ReportingController(ReportingService reportingService) {
+	public ReportingController(ReportingService reportingService, ReportingExecutor reportingExecutor,
+			ObjectMapper objectMapper) {
 		this.reportingService = reportingService;
+		this.reportingExecutor = reportingExecutor;
+		this.objectMapper = objectMapper;
 	}
 
 	@PostMapping("/parse-parameters")
@@ -62,13 +77,19 @@ public class ReportingController {
 				.replace("\\t", "\t")
 				.replace("\\\"", "\"");
 
-		List<ReportParameter> reportParameters = ReportParametersHelper.parseGroovyParametersDslCode(cleanedCode);
+		// the SQL options of the parameters are queried on the lane of their connection
+		boolean resolveSqlOptions = connectionCode != null && !connectionCode.isEmpty();
+		String lane = resolveSqlOptions ? connectionCode : ReportingExecutor.DSL_LANE;
 
-		if (connectionCode != null && !connectionCode.isEmpty()) {
-			reportingService.resolveParameterSqlOptions(reportParameters, connectionCode);
-		}
+		return reportingExecutor.execute(lane, () -> {
+			List<ReportParameter> reportParameters = ReportParametersHelper.parseGroovyParametersDslCode(cleanedCode);
+
+			if (resolveSqlOptions) {
+				reportingService.resolveParameterSqlOptions(reportParameters, connectionCode);
+			}
 
-		return Mono.just(reportParameters);
+			return reportParameters;
+		});
 	}
 
 	@PostMapping("/parse-tabulator")
@@ -77,7 +98,8 @@ public class ReportingController {
 				.replace("\\n", "\n")
 				.replace("\\t", "\t")
 				.replace("\\\"", "\"");
-		return Mono.just(TabulatorOptionsParser.parseGroovyTabulatorDslCode(cleanedCode));
+		return reportingExecutor.execute(ReportingExecutor.DSL_LANE,
+				() -> TabulatorOptionsParser.parseGroovyTabulatorDslCode(cleanedCode));
 	}
 
 	@PostMapping("/parse-chart")
@@ -86,7 +108,8 @@ public class ReportingController {
 				.replace("\\n", "\n")
 				.replace("\\t", "\t")
 				.replace("\\\"", "\"");
-		return Mono.just(ChartOptionsParser.parseGroovyChartDslCode(cleanedCode));
+		return reportingExecutor.execute(ReportingExecutor.DSL_LANE,
+				() -> ChartOptionsParser.parseGroovyChartDslCode(cleanedCode));
 	}
 
 	@PostMapping("/parse-pivot")
@@ -95,7 +118,8 @@ public class ReportingController {
 				.replace("\\n", "\n")
 				.replace("\\t", "\t")
 				.replace("\\\"", "\"");
-		return Mono.just(PivotTableOptionsParser.parseGroovyPivotTableDslCode(cleanedCode));
+		return reportingExecutor.execute(ReportingExecutor.DSL_LANE,
+				() -> PivotTableOptionsParser.parseGroovyPivotTableDslCode(cleanedCode));
 	}
 
 	@PostMapping("/parse-filterpane")
@@ -104,7 +128,8 @@ public class ReportingController {
 				.replace("\\n", "\n")
 				.replace("\\t", "\t")
 				.replace("\\\"", "\"");
-		return Mono.just(FilterPaneOptionsParser.parseGroovyFilterPaneDslCode(cleanedCode));
+		return reportingExecutor.execute(ReportingExecutor.DSL_LANE,
+				() -> FilterPaneOptionsParser.parseGroovyFilterPaneDslCode(cleanedCode));
 	}
 
 	@GetMapping("/fetch-data")
@@ -118,7 +143,11 @@ public class ReportingController {
 			cfgFilePath = Paths.get(AppPaths.PORTABLE_EXECUTABLE_DIR_PATH, configurationFilePath).toString();
 		}
 
-		return Mono.just(reportingService.fetchData(cfgFilePath, parameters, false));
+		QueryCancellation queryCancellation = new QueryCancellation();
+
+		return reportingExecutor.execute(ReportingExecutor.DEFAULT_LANE,
+				() -> reportingService.fetchData(cfgFilePath, parameters, false, null, queryCancellation),
+				queryCancellation);
 	}
 
 	/**
@@ -130,7 +159,7 @@ public class ReportingController {
 	 */
 	@GetMapping(value = "/reports/{reportCode}/config", consumes = MediaType.ALL_VALUE)
 	public Mono<ReportFullConfigDto> getReportConfig(@PathVariable String reportCode) throws Exception {
-		return Mono.just(reportingService.loadReportConfig(reportCode));
+		return reportingExecutor.execute(ReportingExecutor.DSL_LANE, () -> reportingService.loadReportConfig(reportCode));
 	}
 
 	/**
@@ -162,14 +191,107 @@ public class ReportingController {
 		log.info("GET /reports/{}/data - params={}, page={}, size={}, sort={}, filter={}, testMode={}, componentId={}",
 				reportCode, parameters, page, size, sort, filter, testMode, componentId);
 
-		ReportDataResult result = reportingService.fetchReportData(reportCode, parameters, testMode);
-		log.info("GET /reports/{}/data - SUCCESS, rows={}", reportCode,
-				result.reportData != null ? result.reportData.size() : "null");
+		// SQL reports fetch only the requested page (filtered and sorted by the database),
+		// the other data sources are fetched once and the next pages come from a cached snapshot
+		ReportDataPageRequest pageRequest = reportingService.parsePageRequest(page, size, sort, filter);
+
+		// Runs on the lane of the report's connection, a timeout or a client which went away
+		// cancels the running SQL queries
+		QueryCancellation queryCancellation = new QueryCancellation();
+
+		return executeOnReportLane(reportCode, () -> {
+			ReportDataResult result = reportingService.fetchReportData(reportCode, parameters, testMode, pageRequest,
+					queryCancellation);
+			log.info("GET /reports/{}/data - SUCCESS, rows={}, pageRequestApplied={}", reportCode,
+					result.reportData != null ? result.reportData.size() : "null", result.pageRequestApplied);
+
+			// Apply server-side filtering, sorting, and pagination (in-memory for the non SQL data sources)
+			return reportingService.applyServerSideOperations(result, pageRequest);
+		}, queryCancellation);
+	}
+
+	/**
+	 * Streamed report data (opt-in with format=ndjson): a header line with the
+	 * columns, one line per row (a positional array) written as soon as the row
+	 * is read from the data source and an end line with the totalRows, see
+	 * NdjsonRowWriter. Used for the large results, which are not paginated.
+	 *
+	 * The rows are written from the lane thread, the lane timeout
+	 * (rb.reporting.executor.timeout-seconds, 300 by default) includes the time
+	 * the client takes to download them - a slow reader holds the lane thread
+	 * (and its database connection) for the whole transfer.
+	 *
+	 * @param reportCode The report folder name
+	 * @param parameters User-provided parameter values as query params
+	 */
+	@GetMapping(value = "/reports/{reportCode}/data", params = "format=ndjson", consumes = MediaType.ALL_VALUE,
+			produces = NdjsonRowWriter.MEDIA_TYPE)
+	public ResponseEntity<StreamingResponseBody> streamReportData(
+			@PathVariable String reportCode,
+			@RequestParam(required = false, defaultValue = "false") Boolean testMode,
+			@RequestParam Map<String, String> parameters) throws Exception {
+		parameters.remove("format");
+		parameters.remove("testMode");
+
+		if (parameters.containsKey("page") || parameters.containsKey("size")
+				|| extractBracketParams(parameters, "sort") != null || extractBracketParams(parameters, "filter") != null)
+			throw new IllegalArgumentException(
+					"format=ndjson streams all the report rows, page / size / sort / filter are not supported");
+
+		log.info("GET /reports/{}/data?format=ndjson - params={}, testMode={}", reportCode, parameters, testMode);
+
+		QueryCancellation queryCancellation = new QueryCancellation();
+
+		StreamingResponseBody body = NdjsonRowWriter.responseBody(objectMapper, writer -> {
+			ReportDataResult result;
+			try {
+				result = executeOnReportLane(reportCode, () -> reportingService.streamReportData(reportCode,
+						parameters, testMode, writer, queryCancellation), queryCancellation).block();
+			} finally {
+				// after a timeout or a cancel the lane task can still be running, its next
+				// rows fail instead of being written to the finished response
+				writer.cancel();
+			}
+
+			writer.writeEnd(Map.of("executionTimeMillis", result.executionTimeMillis));
+			log.info("GET /reports/{}/data?format=ndjson - SUCCESS, rows={}", reportCode, result.totalRows);
+		});
+
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(NdjsonRowWriter.MEDIA_TYPE)).body(body);
+	}
+
+	/**
+	 * Reporting executor statistics: queue depth, active tasks and the
+	 * completed / failed / rejected / timed out / cancelled counts per
+	 * connection lane.
+	 */
+	@GetMapping(value = "/executor/stats", consumes = MediaType.ALL_VALUE)
+	public Mono<Map<String, Object>> getExecutorStats() {
+		return Mono.just(reportingExecutor.getStats());
+	}
 
-		// Apply server-side filtering, sorting, and pagination
-		result = reportingService.applyServerSideOperations(result, page, size, sort, filter);
+	/**
+	 * Drop the cached data snapshots of a report, the next data request runs its
+	 * data source again (e.g. after the input file or the script's data changed).
+	 *
+	 * @param reportCode The report folder name
+	 */
+	@DeleteMapping(value = "/reports/{reportCode}/data/snapshots", consumes = MediaType.ALL_VALUE)
+	public Mono<ResponseEntity<Void>> invalidateReportData(@PathVariable String reportCode) {
+		reportingService.invalidateReportData(reportCode);
+		return Mono.just(ResponseEntity.ok().build());
+	}
 
-		return Mono.just(result);
+	/**
+	 * Runs the task on the lane of the report's connection. The connection code
+	 * is read from the report's reporting.xml on the DSL lane, not on the
+	 * request thread.
+	 */
+	private <T> Mono<T> executeOnReportLane(String reportCode, Callable<T> task,
+			QueryCancellation queryCancellation) {
+		return reportingExecutor
+				.execute(ReportingExecutor.DSL_LANE, () -> reportingService.getReportConnectionCode(reportCode))
+				.flatMap(lane -> reportingExecutor.execute(lane, task, queryCancellation));
 	}
 
 	/**
@@ -0,0 +1,541 @@
+package com.flowkraft.reporting.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntPredicate;
+
+import com.sourcekraft.documentburster.common.db.ReportDataPageRequest;
+import com.sourcekraft.documentburster.common.db.ReportDataResult;
+
+/**
+ * The fetched report data in a compact, column oriented form: one array of
+ * values per column (instead of one LinkedHashMap per row) and, within a
+ * column, equal strings are stored once.
+ *
+ * The server-side operations work on the row numbers - the filters select the
+ * matching rows in one pass, the sorters reorder the selected row numbers and
+ * only the rows of the requested page are built back as LinkedHashMaps. The
+ * filters and sorters are compiled against the typed values of the columns
+ * (primitive doubles for the numbers, found once per column). The
+ * snapshot is read only once built, so it can be shared by the concurrent
+ * requests (see ReportDataSnapshotCache).
+ */
+public class ReportDataSnapshot {
+
+	private final String[] columnNames;
+	private final Map<String, Integer> columnIndexes;
+	private final Object[][] columns;
+	private final int rowCount;
+
+	private final long executionTimeMillis;
+	private final boolean truncated;
+
+	private final long weight;
+
+	// the typed values of the columns which were filtered / sorted (see _getColumnValues)
+	private final ColumnValues[] columnValues;
+
+	private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+	private static final int PARALLEL_SORT_GRANULARITY = 1 << 13;
+
+	@FunctionalInterface
+	private interface RowComparator {
+		int compare(int rowA, int rowB);
+	}
+
+	@FunctionalInterface
+	private interface RowPredicate {
+		boolean test(int row);
+	}
+
+	private ReportDataSnapshot(String[] columnNames, Object[][] columns, int rowCount, long executionTimeMillis,
+			boolean truncated, long weight) {
+		this.columnNames = columnNames;
+		this.columns = columns;
+		this.rowCount = rowCount;
+		this.executionTimeMillis = executionTimeMillis;
+		this.truncated = truncated;
+		this.weight = weight;
+		this.columnValues = new ColumnValues[columns.length];
+
+		this.columnIndexes = new HashMap<>();
+		for (int i = 0; i < columnNames.length; i++)
+			columnIndexes.putIfAbsent(columnNames[i], i);
+	}
+
+	/**
+	 * Builds the snapshot of the fetched data (result.reportData is not changed).
+	 */
+	public static ReportDataSnapshot of(ReportDataResult result) {
+		List<LinkedHashMap<String, Object>> rows = result.reportData;
+
+		// the rows normally have the same keys, in the order of reportColumnNames
+		Set<String> names = new LinkedHashSet<>();
+		if (result.reportColumnNames != null)
+			names.addAll(result.reportColumnNames);
+		for (Map<String, Object> row : rows)
+			if (names.size() != row.size() || !names.containsAll(row.keySet()))
+				names.addAll(row.keySet());
+
+		String[] columnNames = names.toArray(new String[0]);
+		Object[][] columns = new Object[columnNames.length][rows.size()];
+
+		long weight = 128 + 16L * rows.size();
+
+		for (int c = 0; c < columnNames.length; c++) {
+			Object[] column = columns[c];
+			Map<String, String> distinctStrings = new HashMap<>();
+			String name = columnNames[c];
+
+			weight += 16 + 8L * column.length + 40 + 2L * name.length();
+
+			for (int r = 0; r < column.length; r++) {
+				Object value = rows.get(r).get(name);
+				if (value instanceof String) {
+					String distinct = distinctStrings.putIfAbsent((String) value, (String) value);
+					if (distinct == null)
+						weight += 40 + 2L * ((String) value).length();
+					else
+						value = distinct;
+				} else if (value != null)
+					weight += (value instanceof java.math.BigDecimal || value instanceof java.math.BigInteger) ? 64 : 24;
+				column[r] = value;
+			}
+		}
+
+		return new ReportDataSnapshot(columnNames, columns, rows.size(), result.executionTimeMillis, result.truncated,
+				weight);
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/** Rough estimate of the heap retained by the snapshot, in bytes */
+	public long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * The result for the page request: the rows of the requested page (all of
+	 * them when not paginated) of the filtered and sorted data. totalRows is the
+	 * number of matching rows and pageRequestApplied is true.
+	 */
+	public ReportDataResult toResult(ReportDataPageRequest pageRequest) {
+		int[] selectedRows = select(pageRequest);
+
+		int from = 0;
+		int to = selectedRows.length;
+
+		if (pageRequest != null && pageRequest.isPaginated()) {
+			from = (int) Math.min((long) Math.max(0, pageRequest.page - 1) * pageRequest.size, selectedRows.length);
+			to = Math.min(from + pageRequest.size, selectedRows.length);
+		}
+
+		List<LinkedHashMap<String, Object>> pageRows = new ArrayList<>(to - from);
+		int capacity = (int) (columnNames.length / 0.75f) + 1;
+
+		for (int i = from; i < to; i++) {
+			LinkedHashMap<String, Object> row = new LinkedHashMap<>(capacity);
+			for (int c = 0; c < columnNames.length; c++)
+				row.put(columnNames[c], columns[c][selectedRows[i]]);
+			pageRows.add(row);
+		}
+
+		ReportDataResult result = new ReportDataResult();
+		result.reportData = pageRows;
+		result.reportColumnNames = new ArrayList<>(Arrays.asList(columnNames));
+		result.executionTimeMillis = executionTimeMillis;
+		result.truncated = truncated;
+		result.totalRows = selectedRows.length;
+		result.pageRequestApplied = true;
+
+		return result;
+	}
+
+	/*
+	 * The numbers of the rows which pass all the filters (one pass over the
+	 * rows), in the requested order.
+	 */
+	private int[] select(ReportDataPageRequest pageRequest) {
+		List<RowPredicate> predicates = new ArrayList<>();
+		List<RowComparator> comparators = new ArrayList<>();
+
+		if (pageRequest != null) {
+			for (ReportDataPageRequest.Filter filter : pageRequest.filters) {
+				if (filter.field == null || filter.type == null)
+					continue;
+				predicates.add(_getPredicate(filter));
+			}
+
+			for (ReportDataPageRequest.Sorter sorter : pageRequest.sorters) {
+				if (sorter.field == null)
+					continue;
+				comparators.add(_getComparator(sorter));
+			}
+		}
+
+		RowPredicate[] rowPredicates = predicates.toArray(new RowPredicate[0]);
+
+		int[] selectedRows = new int[rowCount];
+		int count = 0;
+
+		for (int r = 0; r < rowCount; r++) {
+			boolean matches = true;
+			for (int p = 0; matches && p < rowPredicates.length; p++)
+				matches = rowPredicates[p].test(r);
+			if (matches)
+				selectedRows[count++] = r;
+		}
+
+		if (count < rowCount)
+			selectedRows = Arrays.copyOf(selectedRows, count);
+
+		if (comparators.size() == 1)
+			_sort(selectedRows, comparators.get(0));
+		else if (!comparators.isEmpty()) {
+			RowComparator[] rowComparators = comparators.toArray(new RowComparator[0]);
+			_sort(selectedRows, (a, b) -> {
+				for (int c = 0; c < rowComparators.length; c++) {
+					int result = rowComparators[c].compare(a, b);
+					if (result != 0)
+						return result;
+				}
+				return 0;
+			});
+		}
+
+		return selectedRows;
+	}
+
+	/*
+	 * The typed values of the column, computed once per snapshot (the same
+	 * column is usually sorted / filtered by the following requests too).
+	 */
+	private ColumnValues _getColumnValues(String field) {
+		Integer index = columnIndexes.get(field);
+
+		// same as row.get(field) for a field which is not in the data
+		if (index == null)
+			return new ColumnValues(new Object[rowCount]);
+
+		ColumnValues values = columnValues[index];
+
+		if (values == null) {
+			synchronized (columnValues) {
+				values = columnValues[index];
+				if (values == null) {
+					values = new ColumnValues(columns[index]);
+					columnValues[index] = values;
+				}
+			}
+		}
+
+		return values;
+	}
+
+	private RowPredicate _getPredicate(ReportDataPageRequest.Filter filter) {
+		ColumnValues column = _getColumnValues(filter.field);
+		String value = filter.value;
+
+		switch (filter.type) {
+			case "=": {
+				String[] texts = column.getTexts();
+				return row -> texts[row] != null && texts[row].equals(value);
+			}
+			case "!=": {
+				String[] texts = column.getTexts();
+				return row -> texts[row] == null || !texts[row].equals(value);
+			}
+			case "like":
+			case "starts":
+			case "ends": {
+				String[] lowerTexts = column.getLowerTexts();
+				String lowerValue = value != null ? value.toLowerCase() : "";
+				switch (filter.type) {
+					case "like": return row -> lowerTexts[row] != null && lowerTexts[row].contains(lowerValue);
+					case "starts": return row -> lowerTexts[row] != null && lowerTexts[row].startsWith(lowerValue);
+					default: return row -> lowerTexts[row] != null && lowerTexts[row].endsWith(lowerValue);
+				}
+			}
+			case "<": return _getComparisonPredicate(column, value, result -> result < 0);
+			case ">": return _getComparisonPredicate(column, value, result -> result > 0);
+			case "<=": return _getComparisonPredicate(column, value, result -> result <= 0);
+			case ">=": return _getComparisonPredicate(column, value, result -> result >= 0);
+			default: return row -> true;
+		}
+	}
+
+	/*
+	 * Numbers are compared as numbers when the value is a number too, anything
+	 * else as text ignoring the case. null cells never match, every (non null)
+	 * cell is greater than a null value.
+	 */
+	private RowPredicate _getComparisonPredicate(ColumnValues column, String value, IntPredicate accepts) {
+		boolean[] nulls = column.nulls;
+
+		if (value == null)
+			return row -> !nulls[row] && accepts.test(1);
+
+		double number = parseNumber(value);
+
+		if (!Double.isNaN(number)) {
+			double[] numbers = column.numbers;
+			boolean[] isNumber = column.isNumber;
+			String[] texts = column.getTexts();
+			return row -> !nulls[row] && accepts.test(isNumber[row] ? Double.compare(numbers[row], number)
+					: texts[row].compareToIgnoreCase(value));
+		}
+
+		String[] texts = column.getTexts();
+		return row -> !nulls[row] && accepts.test(texts[row].compareToIgnoreCase(value));
+	}
+
+	/*
+	 * Nulls first, numbers compared as numbers and anything else as text
+	 * ignoring the case. Columns holding only numbers compare the primitive
+	 * values only.
+	 */
+	private RowComparator _getComparator(ReportDataPageRequest.Sorter sorter) {
+		ColumnValues column = _getColumnValues(sorter.field);
+		boolean[] nulls = column.nulls;
+		double[] numbers = column.numbers;
+
+		RowComparator comparator;
+
+		if (column.allNumbers)
+			comparator = (a, b) -> {
+				if (nulls[a] || nulls[b])
+					return Boolean.compare(!nulls[a], !nulls[b]);
+				return Double.compare(numbers[a], numbers[b]);
+			};
+		else {
+			boolean[] isNumber = column.isNumber;
+			String[] texts = column.getTexts();
+			comparator = (a, b) -> {
+				if (nulls[a] || nulls[b])
+					return Boolean.compare(!nulls[a], !nulls[b]);
+				if (isNumber[a] && isNumber[b])
+					return Double.compare(numbers[a], numbers[b]);
+				return texts[a].compareToIgnoreCase(texts[b]);
+			};
+		}
+
+		if ("desc".equalsIgnoreCase(sorter.dir)) {
+			RowComparator ascending = comparator;
+			return (a, b) -> ascending.compare(b, a);
+		}
+
+		return comparator;
+	}
+
+	/**
+	 * The value as a double, NaN when it is not a plain decimal number (e.g.
+	 * 12, -3.5, 1e6). Checked upfront so no NumberFormatException is thrown for
+	 * the text values.
+	 */
+	static double parseNumber(String value) {
+		String s = value.trim();
+		int length = s.length();
+		int i = 0;
+
+		if (i < length && (s.charAt(i) == '+' || s.charAt(i) == '-'))
+			i++;
+
+		int digits = 0;
+		while (i < length && _isAsciiDigit(s.charAt(i))) {
+			i++;
+			digits++;
+		}
+
+		if (i < length && s.charAt(i) == '.') {
+			i++;
+			while (i < length && _isAsciiDigit(s.charAt(i))) {
+				i++;
+				digits++;
+			}
+		}
+
+		if (digits == 0)
+			return Double.NaN;
+
+		if (i < length && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+			i++;
+			if (i < length && (s.charAt(i) == '+' || s.charAt(i) == '-'))
+				i++;
+			int exponentDigits = 0;
+			while (i < length && _isAsciiDigit(s.charAt(i))) {
+				i++;
+				exponentDigits++;
+			}
+			if (exponentDigits == 0)
+				return Double.NaN;
+		}
+
+		if (i != length)
+			return Double.NaN;
+
+		return Double.parseDouble(s);
+	}
+
+	// Character.isDigit accepts the other scripts digits, which Double.parseDouble does not
+	private static boolean _isAsciiDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/*
+	 * Stable merge sort of the row numbers (same order as Collections.sort of the
+	 * rows), without boxing them. Large inputs sort their halves in parallel.
+	 */
+	private static void _sort(int[] rows, RowComparator comparator) {
+		if (rows.length < 2)
+			return;
+
+		int[] buffer = new int[rows.length];
+
+		if (rows.length < PARALLEL_SORT_THRESHOLD)
+			_mergeSort(rows, buffer, 0, rows.length, comparator);
+		else
+			ForkJoinPool.commonPool().invoke(new ParallelMergeSort(rows, buffer, 0, rows.length, comparator));
+	}
+
+	private static void _mergeSort(int[] rows, int[] buffer, int from, int to, RowComparator comparator) {
+		if (to - from < 2)
+			return;
+
+		int middle = (from + to) >>> 1;
+
+		_mergeSort(rows, buffer, from, middle, comparator);
+		_mergeSort(rows, buffer, middle, to, comparator);
+		_merge(rows, buffer, from, middle, to, comparator);
+	}
+
+	private static void _merge(int[] rows, int[] buffer, int from, int middle, int to, RowComparator comparator) {
+		// already in order
+		if (comparator.compare(rows[middle - 1], rows[middle]) <= 0)
+			return;
+
+		System.arraycopy(rows, from, buffer, from, to - from);
+
+		int i = from, j = middle, k = from;
+		while (i < middle && j < to)
+			rows[k++] = (comparator.compare(buffer[j], buffer[i]) < 0) ? buffer[j++] : buffer[i++];
+		while (i < middle)
+			rows[k++] = buffer[i++];
+		while (j < to)
+			rows[k++] = buffer[j++];
+	}
+
+	private static class ParallelMergeSort extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] rows;
+		private final int[] buffer;
+		private final int from;
+		private final int to;
+		private final RowComparator comparator;
+
+		ParallelMergeSort(int[] rows, int[] buffer, int from, int to, RowComparator comparator) {
+			this.rows = rows;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+			this.comparator = comparator;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from < PARALLEL_SORT_GRANULARITY) {
+				_mergeSort(rows, buffer, from, to, comparator);
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+
+			invokeAll(new ParallelMergeSort(rows, buffer, from, middle, comparator),
+					new ParallelMergeSort(rows, buffer, middle, to, comparator));
+
+			_merge(rows, buffer, from, middle, to, comparator);
+		}
+
+	}
+
+	/*
+	 * A column's values as primitive numbers and / or text, the type of each
+	 * cell is found once: numbers (Number values or strings holding a plain
+	 * decimal number) and text (String.valueOf of the value, computed the first
+	 * time a filter / sorter needs it).
+	 */
+	private static final class ColumnValues {
+
+		private final Object[] values;
+
+		final boolean[] nulls;
+		final boolean[] isNumber;
+		final double[] numbers;
+		final boolean allNumbers;
+
+		private volatile String[] texts;
+		private volatile String[] lowerTexts;
+
+		ColumnValues(Object[] values) {
+			this.values = values;
+			this.nulls = new boolean[values.length];
+			this.isNumber = new boolean[values.length];
+			this.numbers = new double[values.length];
+
+			boolean allNumbers = true;
+
+			for (int r = 0; r < values.length; r++) {
+				Object value = values[r];
+				if (value == null) {
+					nulls[r] = true;
+					continue;
+				}
+				double number = (value instanceof Number) ? ((Number) value).doubleValue()
+						: parseNumber(String.valueOf(value));
+				if (!Double.isNaN(number) || value instanceof Number) {
+					isNumber[r] = true;
+					numbers[r] = number;
+				} else
+					allNumbers = false;
+			}
+
+			this.allNumbers = allNumbers;
+		}
+
+		String[] getTexts() {
+			String[] result = texts;
+			if (result == null) {
+				result = new String[values.length];
+				for (int r = 0; r < values.length; r++)
+					result[r] = (values[r] != null) ? String.valueOf(values[r]) : null;
+				texts = result;
+			}
+			return result;
+		}
+
+		String[] getLowerTexts() {
+			String[] result = lowerTexts;
+			if (result == null) {
+				String[] columnTexts = getTexts();
+				result = new String[columnTexts.length];
+				for (int r = 0; r < columnTexts.length; r++)
+					result[r] = (columnTexts[r] != null) ? columnTexts[r].toLowerCase() : null;
+				lowerTexts = result;
+			}
+			return result;
+		}
+
+	}
+
+}
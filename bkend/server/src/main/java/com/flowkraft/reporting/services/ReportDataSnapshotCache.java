@@ -0,0 +1,136 @@
+package com.flowkraft.reporting.services;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.flowkraft.common.WeightedTtlCache;
+
+/**
+ * Cache of the fetched report data snapshots (see ReportDataSnapshot) of the
+ * file data sources (CSV, TSV, fixed width, Excel, XML), so the Tabulator page
+ * / sort / filter requests which follow the first one are served from memory
+ * instead of reading the file again. The SQL and script data sources are not
+ * cached (see ReportingService.fetchReportData).
+ *
+ * Same approach (and WeightedTtlCache) as the pivot QueryCache:
+ * - Keyed on the report code + the parameter values (+ test mode)
+ * - Bounded by the (estimated) memory weight of the snapshots
+ * - Approximate LRU eviction, time-based expiration
+ * - Invalidation per report (e.g. when its configuration is saved)
+ */
+public class ReportDataSnapshotCache {
+
+	private static final Logger log = LoggerFactory.getLogger(ReportDataSnapshotCache.class);
+
+	public static final long DEFAULT_MAX_WEIGHT_BYTES = 128L * 1024 * 1024; // 128 MB
+	public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000; // 5 minutes
+
+	private static final ReportDataSnapshotCache SHARED = new ReportDataSnapshotCache();
+
+	private final WeightedTtlCache<SnapshotKey, ReportDataSnapshot> cache;
+
+	/**
+	 * Snapshot key - the parameters are compared as a sorted map so their order
+	 * in the request does not matter.
+	 */
+	private static final class SnapshotKey {
+		final String reportCode;
+		final TreeMap<String, String> parameters;
+		final boolean testMode;
+		final int hash;
+
+		SnapshotKey(String reportCode, Map<String, String> parameters, boolean testMode) {
+			this.reportCode = Objects.toString(reportCode, "");
+			this.parameters = (parameters != null) ? new TreeMap<>(parameters) : new TreeMap<>();
+			this.testMode = testMode;
+			this.hash = Objects.hash(this.reportCode, this.parameters, testMode);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof SnapshotKey)) return false;
+			SnapshotKey other = (SnapshotKey) o;
+			return hash == other.hash && testMode == other.testMode && reportCode.equals(other.reportCode)
+					&& parameters.equals(other.parameters);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public String toString() {
+			return reportCode;
+		}
+	}
+
+	/**
+	 * Returns the cache shared by the reporting services.
+	 */
+	public static ReportDataSnapshotCache shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Create cache with default settings.
+	 * Default: 128 MB, 5 minutes TTL
+	 */
+	public ReportDataSnapshotCache() {
+		this(DEFAULT_MAX_WEIGHT_BYTES, DEFAULT_TTL_MILLIS);
+	}
+
+	/**
+	 * Create cache with custom settings.
+	 *
+	 * @param maxWeightBytes Maximum (estimated) size of the cached snapshots, in bytes
+	 * @param ttlMillis Time-to-live in milliseconds
+	 */
+	public ReportDataSnapshotCache(long maxWeightBytes, long ttlMillis) {
+		this.cache = new WeightedTtlCache<>("Report data snapshot cache", maxWeightBytes, ttlMillis,
+				ReportDataSnapshot::getWeight);
+	}
+
+	/**
+	 * @return The cached snapshot, or null if not found/expired
+	 */
+	public ReportDataSnapshot get(String reportCode, Map<String, String> parameters, boolean testMode) {
+		return cache.get(new SnapshotKey(reportCode, parameters, testMode));
+	}
+
+	public void put(String reportCode, Map<String, String> parameters, boolean testMode, ReportDataSnapshot snapshot) {
+		cache.put(new SnapshotKey(reportCode, parameters, testMode), snapshot);
+	}
+
+	/**
+	 * Clear entire cache.
+	 */
+	public void clear() {
+		int removed = cache.clear();
+		log.debug("Snapshot cache cleared: {} entries removed", removed);
+	}
+
+	/**
+	 * Remove the cached snapshots of the given report (all the parameter values).
+	 */
+	public void invalidateReport(String reportCode) {
+		String code = Objects.toString(reportCode, "");
+		int removed = cache.invalidateIf((key, snapshot) -> key.reportCode.equals(code));
+		log.debug("Snapshot INVALIDATE report: {} ({} entries)", reportCode, removed);
+	}
+
+	/**
+	 * Get cache statistics.
+	 *
+	 * @return Map with cache stats
+	 */
+	public Map<String, Object> getStats() {
+		return cache.getStats();
+	}
+
+}
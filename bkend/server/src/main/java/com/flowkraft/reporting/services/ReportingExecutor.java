@@ -0,0 +1,197 @@
+package com.flowkraft.reporting.services;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.sourcekraft.documentburster.common.db.QueryCancellation;
+
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Runs the blocking work of the reporting endpoints (JDBC fetches through
+ * CliJob, Groovy DSL parsing, FreeMarker rendering) off the request threads.
+ *
+ * - One bounded elastic scheduler ("lane") per database connection, so a slow
+ *   database uses at most maxConcurrentPerConnection threads (and pooled
+ *   connections) and cannot starve the reports of the other connections
+ * - At most maxQueuedPerConnection waiting tasks per lane (counted here, the
+ *   queue cap of a bounded elastic scheduler applies to each of its backing
+ *   workers), the next ones are rejected (RejectedExecutionException) instead
+ *   of piling up
+ * - A timeout per task, a timed out or cancelled (client gone) task cancels
+ *   its running JDBC statements (QueryCancellation) and interrupts its thread.
+ *   For the streamed (NDJSON) responses the rows are written from the task, so
+ *   the timeout includes the client's download time
+ * - Queue depth, active tasks and outcome counters per lane (getStats)
+ */
+@Component
+public class ReportingExecutor {
+
+	private static final Logger log = LoggerFactory.getLogger(ReportingExecutor.class);
+
+	/** Data sources without a database connection (CSV, Excel, XML ...) */
+	public static final String DEFAULT_LANE = "_default";
+
+	/** Groovy DSL parsing and report configuration loading */
+	public static final String DSL_LANE = "_dsl";
+
+	private static final int THREAD_TTL_SECONDS = 60;
+
+	private final int maxConcurrentPerConnection;
+	private final int maxQueuedPerConnection;
+	private final Duration timeout;
+
+	private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+	private static class Lane {
+		final Scheduler scheduler;
+
+		final AtomicInteger queued = new AtomicInteger();
+		final AtomicInteger active = new AtomicInteger();
+
+		final LongAdder completedCount = new LongAdder();
+		final LongAdder failedCount = new LongAdder();
+		final LongAdder rejectedCount = new LongAdder();
+		final LongAdder timedOutCount = new LongAdder();
+		final LongAdder cancelledCount = new LongAdder();
+
+		Lane(String name, int threadCap) {
+			// the waiting tasks are capped by execute() with the queued counter
+			this.scheduler = Schedulers.newBoundedElastic(threadCap, Integer.MAX_VALUE, "reporting-" + name,
+					THREAD_TTL_SECONDS, true);
+		}
+	}
+
+	public ReportingExecutor(
+			@Value("${rb.reporting.executor.max-concurrent-per-connection:8}") int maxConcurrentPerConnection,
+			@Value("${rb.reporting.executor.max-queued-per-connection:100}") int maxQueuedPerConnection,
+			@Value("${rb.reporting.executor.timeout-seconds:300}") long timeoutSeconds) {
+		this.maxConcurrentPerConnection = maxConcurrentPerConnection;
+		this.maxQueuedPerConnection = maxQueuedPerConnection;
+		this.timeout = Duration.ofSeconds(timeoutSeconds);
+	}
+
+	public <T> Mono<T> execute(String lane, Callable<T> task) {
+		return execute(lane, task, null);
+	}
+
+	/**
+	 * Runs the task on the lane of the given connection code (DEFAULT_LANE when
+	 * empty) when the returned Mono is subscribed.
+	 *
+	 * @param queryCancellation Cancelled when the subscriber cancels or the task
+	 *                          times out, can be null
+	 */
+	public <T> Mono<T> execute(String lane, Callable<T> task, QueryCancellation queryCancellation) {
+		String laneName = StringUtils.defaultIfBlank(lane, DEFAULT_LANE);
+		Lane l = lanes.computeIfAbsent(laneName, name -> new Lane(name, maxConcurrentPerConnection));
+
+		return Mono.defer(() -> {
+			// taken once, either when the task starts or when it terminates without
+			// starting (rejected, cancelled while waiting)
+			AtomicBoolean dequeued = new AtomicBoolean();
+
+			// a task is queued until it starts, the ones which go to the free lane
+			// threads right away do not count against maxQueuedPerConnection
+			int freeThreads = maxConcurrentPerConnection - l.active.get();
+			if (l.queued.incrementAndGet() > maxQueuedPerConnection + freeThreads) {
+				l.queued.decrementAndGet();
+				l.rejectedCount.increment();
+				log.warn("Reporting task rejected, {} tasks are waiting for the '{}' connection", l.queued.get(),
+						laneName);
+				return Mono.error(new RejectedExecutionException("Too many reporting tasks are waiting for the '"
+						+ laneName + "' connection (max-queued-per-connection=" + maxQueuedPerConnection + ")"));
+			}
+
+			return Mono.fromCallable(() -> {
+				if (dequeued.compareAndSet(false, true))
+					l.queued.decrementAndGet();
+				l.active.incrementAndGet();
+				try {
+					return task.call();
+				} finally {
+					l.active.decrementAndGet();
+				}
+			})
+					.subscribeOn(l.scheduler)
+					.doOnSuccess(result -> l.completedCount.increment())
+					.doOnError(e -> {
+						if (e instanceof RejectedExecutionException) {
+							l.rejectedCount.increment();
+							log.warn("Reporting task rejected, {} tasks are waiting for the '{}' connection",
+									l.queued.get(), laneName);
+						} else {
+							l.failedCount.increment();
+						}
+					})
+					.doOnCancel(() -> {
+						l.cancelledCount.increment();
+						if (queryCancellation != null)
+							queryCancellation.cancel();
+					})
+					.doFinally(signal -> {
+						if (dequeued.compareAndSet(false, true))
+							l.queued.decrementAndGet();
+					});
+		}).timeout(timeout, Mono.defer(() -> {
+			l.timedOutCount.increment();
+			return Mono.error(new TimeoutException(
+					"The reporting task did not complete in " + timeout.getSeconds() + " seconds ('" + laneName
+							+ "' connection)"));
+		}));
+	}
+
+	/**
+	 * Get executor statistics (queue depth, active tasks and outcome counters)
+	 * per connection lane.
+	 *
+	 * @return Map with executor stats
+	 */
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("maxConcurrentPerConnection", maxConcurrentPerConnection);
+		stats.put("maxQueuedPerConnection", maxQueuedPerConnection);
+		stats.put("timeoutSeconds", timeout.getSeconds());
+
+		Map<String, Object> laneStats = new TreeMap<>();
+		lanes.forEach((name, l) -> {
+			Map<String, Object> s = new LinkedHashMap<>();
+			s.put("queued", l.queued.get());
+			s.put("active", l.active.get());
+			s.put("completedCount", l.completedCount.sum());
+			s.put("failedCount", l.failedCount.sum());
+			s.put("rejectedCount", l.rejectedCount.sum());
+			s.put("timedOutCount", l.timedOutCount.sum());
+			s.put("cancelledCount", l.cancelledCount.sum()); // includes the timed out tasks
+			laneStats.put(name, s);
+		});
+		stats.put("lanes", laneStats);
+
+		return stats;
+	}
+
+	@PreDestroy
+	public void dispose() {
+		lanes.values().forEach(l -> l.scheduler.dispose());
+		lanes.clear();
+	}
+
+}
@@ -4,12 +4,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -27,7 +26,10 @@ import com.flowkraft.queries.ConnectionFactory;
 import com.flowkraft.reporting.dtos.ReportFullConfigDto;
 import com.flowkraft.reporting.dsl.chart.ChartOptionsParser;
 import com.sourcekraft.documentburster.common.db.DatabaseConnectionManager;
+import com.sourcekraft.documentburster.common.db.QueryCancellation;
+import com.sourcekraft.documentburster.common.db.ReportDataPageRequest;
 import com.sourcekraft.documentburster.common.db.ReportDataResult;
+import com.sourcekraft.documentburster.common.db.ReportDataRowHandler;
 import com.sourcekraft.documentburster.common.db.SqlExecutor;
 import com.flowkraft.reporting.dsl.pivottable.PivotTableOptionsParser;
 import com.flowkraft.reporting.dsl.filterpane.FilterPaneOptionsParser;
@@ -51,11 +53,28 @@ public class ReportingService {
 	@Autowired
 	SamplesFrendOnlyService samplesFrendOnlyService;
 
+	private final ReportDataSnapshotCache snapshotCache = ReportDataSnapshotCache.shared();
+
+	// the file data sources, which have no server-side paging - their data is
+	// snapshotted (see fetchReportData)
+	private static final Set<String> SNAPSHOT_DS_TYPES = Set.of("ds.csvfile", "ds.tsvfile", "ds.fixedwidthfile",
+			"ds.excelfile", "ds.xmlfile");
+
 	public ReportDataResult fetchData(String configurationFilePath, Map<String, String> parameters, boolean testMode)
 			throws Exception {
+		return fetchData(configurationFilePath, parameters, testMode, null);
+	}
+
+	public ReportDataResult fetchData(String configurationFilePath, Map<String, String> parameters, boolean testMode,
+			ReportDataPageRequest pageRequest) throws Exception {
+		return fetchData(configurationFilePath, parameters, testMode, pageRequest, null);
+	}
+
+	public ReportDataResult fetchData(String configurationFilePath, Map<String, String> parameters, boolean testMode,
+			ReportDataPageRequest pageRequest, QueryCancellation queryCancellation) throws Exception {
 		CliJob cliJob = new CliJob(configurationFilePath);
 
-		return cliJob.doFetchData(parameters, testMode);
+		return cliJob.doFetchData(parameters, testMode, pageRequest, queryCancellation);
 	}
 
 	/**
@@ -507,45 +526,64 @@ public class ReportingService {
 	 * uses :entityCode as a parameter binding, guaranteeing a single row result.
 	 */
 	public ReportDataResult fetchReportData(String reportCode, Map<String, String> parameters, boolean testMode) throws Exception {
+		return fetchReportData(reportCode, parameters, testMode, null);
+	}
+
+	/**
+	 * Same as above, SQL data sources apply the pageRequest (server-side paging,
+	 * sorting and filtering) in the database and fetch only the requested page,
+	 * check result.pageRequestApplied (see applyServerSideOperations).
+	 */
+	public ReportDataResult fetchReportData(String reportCode, Map<String, String> parameters, boolean testMode,
+			ReportDataPageRequest pageRequest) throws Exception {
+		return fetchReportData(reportCode, parameters, testMode, pageRequest, null);
+	}
+
+	/**
+	 * Same as above, queryCancellation (can be null) cancels the running SQL
+	 * queries when the request is no longer needed (see ReportingExecutor).
+	 */
+	public ReportDataResult fetchReportData(String reportCode, Map<String, String> parameters, boolean testMode,
+			ReportDataPageRequest pageRequest, QueryCancellation queryCancellation) throws Exception {
 		log.debug("fetchReportData - START, reportCode=" + reportCode + ", parameters=" + parameters);
 		
 		// Build config file path
-		Path reportsDir = Paths.get(AppPaths.PORTABLE_EXECUTABLE_DIR_PATH, "config", "reports", reportCode);
-		Path samplesDir = Paths.get(AppPaths.PORTABLE_EXECUTABLE_DIR_PATH, "config", "samples", reportCode);
+		Path itemDir = resolveDataItemDir(reportCode);
+		String cfgFilePath = itemDir.resolve("settings.xml").toString();
+		log.debug("fetchReportData - cfgFilePath=" + cfgFilePath);
 		
-		log.debug("fetchReportData - reportsDir=" + reportsDir + ", exists=" + Files.exists(reportsDir));
-		log.debug("fetchReportData - samplesDir=" + samplesDir + ", exists=" + Files.exists(samplesDir));
-		
-		String cfgFilePath;
-		Path itemDir;
-		if (Files.exists(reportsDir)) {
-			cfgFilePath = Paths.get(AppPaths.PORTABLE_EXECUTABLE_DIR_PATH, "config", "reports", reportCode, "settings.xml").toString();
-			itemDir = reportsDir;
-			log.debug("fetchReportData - using reportsDir, cfgFilePath=" + cfgFilePath);
-		} else if (Files.exists(samplesDir)) {
-			cfgFilePath = Paths.get(AppPaths.PORTABLE_EXECUTABLE_DIR_PATH, "config", "samples", reportCode, "settings.xml").toString();
-			itemDir = samplesDir;
-			log.debug("fetchReportData - using samplesDir, cfgFilePath=" + cfgFilePath);
-		} else {
-			// Try frend-only samples under config/samples/_frend/{reportCode}
-			Path frendSamplesDir = Paths.get(AppPaths.PORTABLE_EXECUTABLE_DIR_PATH, "config", "samples", SamplesFrendOnlyService.FREND_SAMPLES_SUBFOLDER, reportCode);
-			log.debug("Checking frendSamplesDir (data fetch): " + frendSamplesDir + " exists=" + Files.exists(frendSamplesDir));
-			if (Files.exists(frendSamplesDir)) {
-				samplesFrendOnlyService.getOrProvisionFrendSample(reportCode);
-				cfgFilePath = Paths.get(AppPaths.PORTABLE_EXECUTABLE_DIR_PATH, "config", "samples", SamplesFrendOnlyService.FREND_SAMPLES_SUBFOLDER, reportCode, "settings.xml").toString();
-				itemDir = frendSamplesDir;
-			} else {
-				throw new RuntimeException("Report not found: " + reportCode);
+		// Check if entityCode was provided for single-entity HTML rendering
+		String entityCode = parameters != null ? parameters.get("entityCode") : null;
+
+		// The entity row is the first row of the full (single row) data
+		if (entityCode != null && !entityCode.isEmpty())
+			pageRequest = null;
+
+		// The next pages / sorts / filters of the file data sources are served from the
+		// snapshot. The SQL (and script) data sources are not snapshotted, even when the
+		// page request was applied in memory (e.g. a filter SqlPageQuery cannot translate),
+		// their data can change between the requests
+		boolean snapshotData = (pageRequest != null) && isSnapshotDataSource(extractReportingDsInputType(itemDir));
+
+		if (snapshotData) {
+			ReportDataSnapshot snapshot = snapshotCache.get(reportCode, parameters, testMode);
+			if (snapshot != null) {
+				log.debug("fetchReportData - served from the cached snapshot, rows=" + snapshot.getRowCount());
+				return snapshot.toResult(pageRequest);
 			}
 		}
-		
+
 		// Fetch the report data (entityCode flows through as a parameter to SQL/Script)
 		log.debug("fetchReportData - about to call fetchData with cfgFilePath=" + cfgFilePath);
-		ReportDataResult result = fetchData(cfgFilePath, parameters, testMode);
+		ReportDataResult result = fetchData(cfgFilePath, parameters, testMode, pageRequest, queryCancellation);
 		log.debug("fetchReportData - fetchData returned, reportData size=" + (result.reportData != null ? result.reportData.size() : "null"));
+
+		if (snapshotData && !result.pageRequestApplied && result.reportData != null && !isErrorResult(result)) {
+			ReportDataSnapshot snapshot = ReportDataSnapshot.of(result);
+			snapshotCache.put(reportCode, parameters, testMode, snapshot);
+			return snapshot.toResult(pageRequest);
+		}
 		
-		// Check if entityCode was provided for single-entity HTML rendering
-		String entityCode = parameters != null ? parameters.get("entityCode") : null;
 		log.debug("fetchReportData - entityCode=" + entityCode);
 		if (entityCode != null && !entityCode.isEmpty()) {
 			result.entityCode = entityCode;
@@ -612,109 +650,157 @@ public class ReportingService {
 	}
 	
 	/**
-	 * Apply server-side filtering, sorting, and pagination to report data in-memory.
-	 * Order: filter → sort → count → paginate.
+	 * Streams the report data rows to the rowHandler as they are read from the
+	 * data source (see CliJob.doStreamData), for the format=ndjson responses.
+	 * The rows are not cached and there is no entityCode HTML rendering nor
+	 * server-side paging in this mode.
+	 */
+	public ReportDataResult streamReportData(String reportCode, Map<String, String> parameters, boolean testMode,
+			ReportDataRowHandler rowHandler, QueryCancellation queryCancellation) throws Exception {
+		log.debug("streamReportData - START, reportCode=" + reportCode + ", parameters=" + parameters);
+
+		String cfgFilePath = resolveDataItemDir(reportCode).resolve("settings.xml").toString();
+
+		CliJob cliJob = new CliJob(cfgFilePath);
+
+		return cliJob.doStreamData(parameters, testMode, rowHandler, queryCancellation);
+	}
+
+	/*
+	 * The report folder (config/reports, config/samples or config/samples/_frend,
+	 * the _frend samples are provisioned first).
+	 */
+	private Path resolveDataItemDir(String reportCode) throws Exception {
+		Path reportsDir = Paths.get(AppPaths.PORTABLE_EXECUTABLE_DIR_PATH, "config", "reports", reportCode);
+		Path samplesDir = Paths.get(AppPaths.PORTABLE_EXECUTABLE_DIR_PATH, "config", "samples", reportCode);
+		
+		log.debug("resolveDataItemDir - reportsDir=" + reportsDir + ", exists=" + Files.exists(reportsDir));
+		log.debug("resolveDataItemDir - samplesDir=" + samplesDir + ", exists=" + Files.exists(samplesDir));
+		
+		if (Files.exists(reportsDir))
+			return reportsDir;
+		if (Files.exists(samplesDir))
+			return samplesDir;
+
+		// Try frend-only samples under config/samples/_frend/{reportCode}
+		Path frendSamplesDir = Paths.get(AppPaths.PORTABLE_EXECUTABLE_DIR_PATH, "config", "samples", SamplesFrendOnlyService.FREND_SAMPLES_SUBFOLDER, reportCode);
+		log.debug("Checking frendSamplesDir (data fetch): " + frendSamplesDir + " exists=" + Files.exists(frendSamplesDir));
+		if (Files.exists(frendSamplesDir)) {
+			samplesFrendOnlyService.getOrProvisionFrendSample(reportCode);
+			return frendSamplesDir;
+		}
+
+		throw new RuntimeException("Report not found: " + reportCode);
+	}
+
+	/**
+	 * Parse the Tabulator server-side operation params into a page request.
 	 *
-	 * @param result    The full report data result from fetchData()
 	 * @param page      1-based page number (Tabulator convention)
 	 * @param size      Page size (rows per page)
 	 * @param sortJson  JSON array: [{"field":"name","dir":"asc"}]
 	 * @param filterJson JSON array: [{"field":"age","type":">","value":"30"}]
-	 * @return Modified result with sliced data, totalRows, and lastPage set
+	 * @return The page request, null when no paging, sorting or filtering was requested
 	 */
-	public ReportDataResult applyServerSideOperations(ReportDataResult result,
-			Integer page, Integer size, String sortJson, String filterJson) throws Exception {
-		if (result.reportData == null) return result;
+	public ReportDataPageRequest parsePageRequest(Integer page, Integer size, String sortJson, String filterJson)
+			throws Exception {
+		ReportDataPageRequest pageRequest = new ReportDataPageRequest();
+		pageRequest.page = page;
+		pageRequest.size = size;
 
-		List<LinkedHashMap<String, Object>> rows = result.reportData;
 		ObjectMapper mapper = new ObjectMapper();
 
-		// 1. Apply filters
 		if (filterJson != null && !filterJson.isBlank()) {
 			List<Map<String, String>> filters = mapper.readValue(filterJson,
 					new TypeReference<List<Map<String, String>>>() {});
 			for (Map<String, String> f : filters) {
-				String field = f.get("field");
-				String type = f.get("type");
-				String value = f.get("value");
-				if (field == null || type == null) continue;
-				rows = new ArrayList<>(rows.stream().filter(row -> {
-					Object cellVal = row.get(field);
-					if (cellVal == null) return "!=".equals(type);
-					String cellStr = String.valueOf(cellVal);
-					switch (type) {
-						case "=": return cellStr.equals(value);
-						case "!=": return !cellStr.equals(value);
-						case "like": return cellStr.toLowerCase().contains(
-								value != null ? value.toLowerCase() : "");
-						case "starts": return cellStr.toLowerCase().startsWith(
-								value != null ? value.toLowerCase() : "");
-						case "ends": return cellStr.toLowerCase().endsWith(
-								value != null ? value.toLowerCase() : "");
-						case "<": return compareValues(cellVal, value) < 0;
-						case ">": return compareValues(cellVal, value) > 0;
-						case "<=": return compareValues(cellVal, value) <= 0;
-						case ">=": return compareValues(cellVal, value) >= 0;
-						default: return true;
-					}
-				}).toList());
+				ReportDataPageRequest.Filter filter = new ReportDataPageRequest.Filter();
+				filter.field = f.get("field");
+				filter.type = f.get("type");
+				filter.value = f.get("value");
+				pageRequest.filters.add(filter);
 			}
 		}
 
-		// 2. Apply sorting
 		if (sortJson != null && !sortJson.isBlank()) {
 			List<Map<String, String>> sorters = mapper.readValue(sortJson,
 					new TypeReference<List<Map<String, String>>>() {});
-			if (!sorters.isEmpty()) {
-				Comparator<LinkedHashMap<String, Object>> comparator = null;
-				for (Map<String, String> s : sorters) {
-					String field = s.get("field");
-					String dir = s.getOrDefault("dir", "asc");
-					if (field == null) continue;
-					Comparator<LinkedHashMap<String, Object>> c = (a, b) -> {
-						Object va = a.get(field);
-						Object vb = b.get(field);
-						return compareValues(va, vb);
-					};
-					if ("desc".equalsIgnoreCase(dir)) c = c.reversed();
-					comparator = (comparator == null) ? c : comparator.thenComparing(c);
-				}
-				if (comparator != null) {
-					rows = new ArrayList<>(rows);
-					Collections.sort(rows, comparator);
-				}
+			for (Map<String, String> s : sorters) {
+				ReportDataPageRequest.Sorter sorter = new ReportDataPageRequest.Sorter();
+				sorter.field = s.get("field");
+				sorter.dir = s.getOrDefault("dir", "asc");
+				pageRequest.sorters.add(sorter);
 			}
 		}
 
-		// 3. Set totalRows AFTER filtering but BEFORE pagination
-		result.totalRows = rows.size();
+		if (!pageRequest.isPaginated() && pageRequest.filters.isEmpty() && pageRequest.sorters.isEmpty())
+			return null;
 
-		// 4. Apply pagination
-		if (page != null && size != null && size > 0) {
-			result.lastPage = Math.max(1, (int) Math.ceil((double) rows.size() / size));
-			int from = Math.min((page - 1) * size, rows.size());
-			int to = Math.min(from + size, rows.size());
-			rows = new ArrayList<>(rows.subList(from, to));
-		} else {
+		return pageRequest;
+	}
+
+	/**
+	 * Apply server-side filtering, sorting, and pagination to report data in-memory.
+	 * Order: filter → sort → count → paginate.
+	 *
+	 * @param result    The full report data result from fetchData()
+	 * @param page      1-based page number (Tabulator convention)
+	 * @param size      Page size (rows per page)
+	 * @param sortJson  JSON array: [{"field":"name","dir":"asc"}]
+	 * @param filterJson JSON array: [{"field":"age","type":">","value":"30"}]
+	 * @return Modified result with sliced data, totalRows, and lastPage set
+	 */
+	public ReportDataResult applyServerSideOperations(ReportDataResult result,
+			Integer page, Integer size, String sortJson, String filterJson) throws Exception {
+		return applyServerSideOperations(result, parsePageRequest(page, size, sortJson, filterJson));
+	}
+
+	/**
+	 * Same as above. When the data source already applied the page request
+	 * (SQL push-down) only lastPage is set, otherwise (script, CSV, Excel ...
+	 * data sources) the full data is filtered, sorted and sliced in-memory.
+	 */
+	public ReportDataResult applyServerSideOperations(ReportDataResult result, ReportDataPageRequest pageRequest)
+			throws Exception {
+		if (result.reportData == null) return result;
+
+		if (result.pageRequestApplied) {
+			result.lastPage = pageRequest != null ? pageRequest.getLastPage(result.totalRows) : 1;
+			return result;
+		}
+
+		if (pageRequest == null) {
+			result.totalRows = result.reportData.size();
 			result.lastPage = 1;
+			return result;
 		}
 
-		result.reportData = new ArrayList<>(rows);
+		// filter → sort → count → paginate on the row numbers of a column oriented copy,
+		// only the rows of the page are built back
+		ReportDataResult page = ReportDataSnapshot.of(result).toResult(pageRequest);
+
+		result.reportData = page.reportData;
+		result.totalRows = page.totalRows;
+		result.lastPage = pageRequest.getLastPage(page.totalRows);
 		return result;
 	}
 
-	/** Compare two values — tries numeric first, falls back to string */
-	private static int compareValues(Object a, Object b) {
-		if (a == null && b == null) return 0;
-		if (a == null) return -1;
-		if (b == null) return 1;
-		try {
-			double da = (a instanceof Number) ? ((Number) a).doubleValue() : Double.parseDouble(String.valueOf(a));
-			double db = (b instanceof Number) ? ((Number) b).doubleValue() : Double.parseDouble(String.valueOf(b));
-			return Double.compare(da, db);
-		} catch (NumberFormatException e) {
-			return String.valueOf(a).compareToIgnoreCase(String.valueOf(b));
-		}
+	/**
+	 * Drop the cached data snapshots of the report (e.g. its configuration or
+	 * its input data changed).
+	 */
+	public void invalidateReportData(String reportCode) {
+		snapshotCache.invalidateReport(reportCode);
+	}
+
+	static boolean isSnapshotDataSource(String dsType) {
+		return SNAPSHOT_DS_TYPES.contains(dsType);
+	}
+
+	/** The error payload returned by CliJob.doFetchData is not cached */
+	private static boolean isErrorResult(ReportDataResult result) {
+		return result.reportColumnNames != null && result.reportColumnNames.size() == 1
+				&& "ERROR_MESSAGE".equals(result.reportColumnNames.get(0));
 	}
 
 	public void resolveParameterSqlOptions(List<ReportParameter> parameters, String connectionCode) throws Exception {
@@ -752,6 +838,38 @@ public class ReportingService {
 		}
 	}
 
+	/**
+	 * The database connection used by the report's data source (SQL query or
+	 * script), an empty string for the file data sources (CSV, Excel, XML ...)
+	 * and for the unknown reports.
+	 */
+	public String getReportConnectionCode(String reportCode) throws Exception {
+		Path itemDir = Paths.get(AppPaths.PORTABLE_EXECUTABLE_DIR_PATH, "config", "reports", reportCode);
+		if (!Files.exists(itemDir))
+			itemDir = Paths.get(AppPaths.PORTABLE_EXECUTABLE_DIR_PATH, "config", "samples", reportCode);
+		if (!Files.exists(itemDir))
+			itemDir = Paths.get(AppPaths.PORTABLE_EXECUTABLE_DIR_PATH, "config", "samples",
+					SamplesFrendOnlyService.FREND_SAMPLES_SUBFOLDER, reportCode);
+
+		Path reportingPath = itemDir.resolve("reporting.xml");
+		if (!Files.exists(reportingPath))
+			return "";
+
+		String content = Files.readString(reportingPath);
+		String dsType = extractXmlValue(content, "type");
+
+		String options;
+		if ("ds.sqlquery".equals(dsType)) {
+			options = extractXmlValue(content, "sqloptions");
+		} else if ("ds.scriptfile".equals(dsType) || "ds.dashboard".equals(dsType)) {
+			options = extractXmlValue(content, "scriptoptions");
+		} else {
+			return "";
+		}
+
+		return extractXmlValue(options, "conncode");
+	}
+
 	private String extractXmlValue(String content, String tag) {
 		int startPos = content.indexOf("<" + tag + ">") + tag.length() + 2;
 		int endPos = content.indexOf("</" + tag + ">");
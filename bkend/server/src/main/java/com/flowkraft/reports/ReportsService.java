@@ -16,6 +16,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,6 +24,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.flowkraft.common.AppPaths;
+import com.flowkraft.analytics.services.QueryCache;
+import com.flowkraft.reporting.services.ReportDataSnapshotCache;
+import com.flowkraft.queries.ConnectionFactory;
 import com.flowkraft.system.dtos.FindCriteriaDto;
 import com.flowkraft.system.services.FileSystemService;
 import com.flowkraft.reporting.dsl.chart.ChartOptionsParser;
@@ -878,6 +882,9 @@ public class ReportsService {
 			marshaller.marshal(settings, os);
 		}
 
+		// the cached data snapshots were fetched with the previous configuration
+		ReportDataSnapshotCache.shared().invalidateReport(Paths.get(configFilePath).getParent().getFileName().toString());
+
 	}
 
 	/**
@@ -926,6 +933,8 @@ public class ReportsService {
 			marshaller.marshal(settings, os);
 		}
 
+		ReportDataSnapshotCache.shared().invalidateReport(Paths.get(configFolderPath).getFileName().toString());
+
 	}
 
 	public Stream<ConnectionFileInfo> loadSettingsConnectionEmailAll() throws Exception {
@@ -1164,6 +1173,19 @@ public class ReportsService {
 			marshaller.marshal(dbSettings, outputStream);
 		}
 
+		// the shared connection pool (if any) was created with the previous details
+		// and the cached query results might come from a different database
+		String connectionCode = FilenameUtils.getBaseName(filePath);
+		ConnectionFactory.invalidateConnection(connectionCode);
+		QueryCache.invalidateConnectionForAllEngines(connectionCode);
+		// the connections used by the script data sources are not known
+		ReportDataSnapshotCache.shared().clear();
+		if (dbSettings.connection != null && StringUtils.isNotBlank(dbSettings.connection.code)
+				&& !dbSettings.connection.code.equals(connectionCode)) {
+			ConnectionFactory.invalidateConnection(dbSettings.connection.code);
+			QueryCache.invalidateConnectionForAllEngines(dbSettings.connection.code);
+		}
+
 	}
 
 	/**
@@ -1403,6 +1425,8 @@ public class ReportsService {
 			org.apache.commons.io.FileUtils.copyFile(defaultReporting,
 					new File(targetDir + "/reporting.xml"), true);
 		}
+
+		ReportDataSnapshotCache.shared().invalidateReport(reportId);
 	}
 
 	/**
@@ -1431,6 +1455,7 @@ public class ReportsService {
 		if (targetDir.exists() && targetDir.isDirectory()) {
 			org.apache.commons.io.FileUtils.deleteDirectory(targetDir);
 		}
+		ReportDataSnapshotCache.shared().invalidateReport(reportId);
 	}
 
 
@@ -0,0 +1,107 @@
+package com.flowkraft.analytics.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.flowkraft.analytics.engine.dto.PivotResponse;
+
+/**
+ * Unit tests for the shared pivot result cache. No database connection is
+ * needed — the cached responses are built in memory.
+ */
+public class QueryCacheTest {
+
+	@Test
+	public void testHitReturnsCachedCopyAndCountsStats() {
+		QueryCache cache = new QueryCache();
+
+		assertNull(cache.get("conn", "SELECT 1"));
+
+		cache.put("conn", "SELECT 1", "sales", newResponse(3));
+
+		PivotResponse cached = cache.get("conn", "SELECT 1");
+		assertNotNull(cached);
+		assertTrue(cached.getMetadata().isCached());
+		assertEquals(3, cached.getData().size());
+
+		// decorating the returned response must not leak into the cache
+		cached.getMetadata().setAvailableColumns(List.of("region"));
+		assertNull(cache.get("conn", "SELECT 1").getMetadata().getAvailableColumns());
+
+		Map<String, Object> stats = cache.getStats();
+		assertEquals(2L, stats.get("hitCount"));
+		assertEquals(1L, stats.get("missCount"));
+	}
+
+	@Test
+	public void testKeysUseTheFullSqlText() {
+		QueryCache cache = new QueryCache();
+
+		// "Aa" and "BB" have the same String.hashCode()
+		cache.put("conn", "SELECT 'Aa'", "sales", newResponse(1));
+
+		assertNull(cache.get("conn", "SELECT 'BB'"));
+		assertNull(cache.get("other-conn", "SELECT 'Aa'"));
+		assertNotNull(cache.get("conn", "SELECT 'Aa'"));
+	}
+
+	@Test
+	public void testInvalidationPerConnectionAndPerTable() {
+		QueryCache cache = new QueryCache();
+
+		cache.put("conn", "SELECT * FROM sales", "sales", newResponse(1));
+		cache.put("conn", "SELECT * FROM orders", "\"Orders\"", newResponse(1));
+		cache.put("other-conn", "SELECT * FROM sales", "sales", newResponse(1));
+
+		cache.invalidateTable("conn", "orders");
+		assertNull(cache.get("conn", "SELECT * FROM orders"));
+		assertNotNull(cache.get("conn", "SELECT * FROM sales"));
+
+		cache.invalidateConnection("conn");
+		assertNull(cache.get("conn", "SELECT * FROM sales"));
+		assertNotNull(cache.get("other-conn", "SELECT * FROM sales"));
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsedWhenOverWeight() throws Exception {
+		long entryWeight = QueryCache.estimateWeight("SELECT 1", newResponse(100));
+		QueryCache cache = new QueryCache(entryWeight * 2 + entryWeight / 2, 60_000);
+
+		cache.put("conn", "SELECT 1", "t", newResponse(100));
+		Thread.sleep(5);
+		cache.put("conn", "SELECT 2", "t", newResponse(100));
+		Thread.sleep(5);
+
+		// touch the first entry so the second one is the least recently used
+		assertNotNull(cache.get("conn", "SELECT 1"));
+		Thread.sleep(5);
+
+		cache.put("conn", "SELECT 3", "t", newResponse(100));
+
+		assertNotNull(cache.get("conn", "SELECT 1"));
+		assertNull(cache.get("conn", "SELECT 2"));
+		assertNotNull(cache.get("conn", "SELECT 3"));
+		assertEquals(1L, cache.getStats().get("evictionCount"));
+		assertTrue((Long) cache.getStats().get("weightBytes") <= entryWeight * 2 + entryWeight / 2);
+	}
+
+	private PivotResponse newResponse(int rows) {
+		List<Map<String, Object>> data = new ArrayList<>();
+		for (int i = 0; i < rows; i++) {
+			Map<String, Object> row = new HashMap<>();
+			row.put("region", "Region " + (i % 10));
+			row.put("revenue", i * 10.5);
+			data.add(row);
+		}
+		PivotResponse response = new PivotResponse(data);
+		response.getMetadata().setRowCount(rows);
+		return response;
+	}
+
+}
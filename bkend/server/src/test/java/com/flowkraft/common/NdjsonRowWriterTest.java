@@ -0,0 +1,92 @@
+package com.flowkraft.common;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Unit tests for the NDJSON frames: header, positional rows and end.
+ */
+public class NdjsonRowWriterTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void testHeaderRowsAndEnd() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		NdjsonRowWriter writer = new NdjsonRowWriter(objectMapper, out);
+		writer.headerAttribute("engine", "duckdb");
+		writer.columns(List.of("Id", "Status", "Amount"));
+
+		// the header is flushed before the first row is read
+		assertTrue(out.toString(StandardCharsets.UTF_8).endsWith("\n"));
+
+		Map<String, Object> row = new LinkedHashMap<>();
+		row.put("Amount", 10.5);
+		row.put("Id", 1);
+		writer.row(row); // Status is missing
+
+		writer.row(Map.of("Id", 2, "Status", "Closed", "Amount", 20));
+		writer.writeEnd(Map.of("executionTimeMillis", 7));
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(4, lines.length);
+
+		JsonNode header = objectMapper.readTree(lines[0]);
+		assertEquals("header", header.get("type").asText());
+		assertEquals("Status", header.get("columns").get(1).get("name").asText());
+		assertFalse(header.get("columns").get(1).has("sqlType"));
+		assertEquals("duckdb", header.get("engine").asText());
+
+		// positional, in the column order
+		assertEquals("[1,null,10.5]", lines[1]);
+		assertEquals("[2,\"Closed\",20]", lines[2]);
+
+		JsonNode end = objectMapper.readTree(lines[3]);
+		assertEquals("end", end.get("type").asText());
+		assertEquals(2, end.get("totalRows").asInt());
+		assertEquals(7, end.get("executionTimeMillis").asInt());
+	}
+
+	@Test
+	public void testNoRowsAfterCancel() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		NdjsonRowWriter writer = new NdjsonRowWriter(objectMapper, out);
+		writer.columns(List.of("Id"));
+		writer.row(Map.of("Id", 1));
+
+		writer.cancel();
+		assertTrue(writer.isCancelled());
+		assertThrows(IOException.class, () -> writer.row(Map.of("Id", 2)));
+
+		assertEquals(1, writer.getTotalRows());
+		assertFalse(out.toString(StandardCharsets.UTF_8).contains("[2]"));
+	}
+
+	@Test
+	public void testRowsInMemory() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		NdjsonRowWriter writer = new NdjsonRowWriter(objectMapper, out);
+		assertEquals(0, writer.writeRows(List.of()));
+		writer.writeEnd(null);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(2, lines.length);
+		assertEquals(0, objectMapper.readTree(lines[0]).get("columns").size());
+		assertEquals(0, objectMapper.readTree(lines[1]).get("totalRows").asInt());
+	}
+
+}
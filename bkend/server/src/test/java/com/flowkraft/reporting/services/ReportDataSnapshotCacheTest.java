@@ -0,0 +1,237 @@
+package com.flowkraft.reporting.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.flowkraft.common.AppPaths;
+import com.sourcekraft.documentburster.common.db.QueryCancellation;
+import com.sourcekraft.documentburster.common.db.ReportDataPageRequest;
+import com.sourcekraft.documentburster.common.db.ReportDataResult;
+
+/**
+ * Unit tests for the report data snapshots and their cache. No data source is
+ * needed — the fetched data is built in memory.
+ */
+public class ReportDataSnapshotCacheTest {
+
+	@Test
+	public void testPageOfTheFilteredAndSortedRows() {
+		ReportDataSnapshot snapshot = ReportDataSnapshot.of(newResult(10));
+
+		ReportDataPageRequest pageRequest = new ReportDataPageRequest();
+		pageRequest.page = 2;
+		pageRequest.size = 2;
+		pageRequest.filters.add(newFilter("Status", "=", "Active"));
+		pageRequest.sorters.add(newSorter("Amount", "desc"));
+
+		ReportDataResult page = snapshot.toResult(pageRequest);
+
+		// the active rows are 0, 2, 4, 6, 8 - sorted by amount descending 8, 6, 4, 2, 0
+		assertTrue(page.pageRequestApplied);
+		assertEquals(5, page.totalRows);
+		assertEquals(2, page.reportData.size());
+		assertEquals(4, page.reportData.get(0).get("Id"));
+		assertEquals(2, page.reportData.get(1).get("Id"));
+		assertEquals(List.of("Id", "Status", "Amount"), new ArrayList<>(page.reportData.get(0).keySet()));
+
+		// the snapshot is not changed by the requests
+		assertEquals(10, snapshot.toResult(null).totalRows);
+	}
+
+	@Test
+	public void testSameResultsAsTheFullData() throws Exception {
+		ReportingService reportingService = new ReportingService();
+
+		ReportDataPageRequest pageRequest = new ReportDataPageRequest();
+		pageRequest.page = 1;
+		pageRequest.size = 3;
+		pageRequest.filters.add(newFilter("Amount", ">=", "30"));
+		pageRequest.sorters.add(newSorter("Status", "asc"));
+		pageRequest.sorters.add(newSorter("Amount", "desc"));
+
+		ReportDataResult result = reportingService.applyServerSideOperations(newResult(10), pageRequest);
+
+		assertEquals(7, result.totalRows);
+		assertEquals(3, result.lastPage);
+		assertEquals(List.of(8, 6, 4), List.of(result.reportData.get(0).get("Id"), result.reportData.get(1).get("Id"),
+				result.reportData.get(2).get("Id")));
+	}
+
+	@Test
+	public void testOnlyTheFileDataSourcesAreSnapshotted(@TempDir Path portableDir) throws Exception {
+		String previousPortableDir = AppPaths.PORTABLE_EXECUTABLE_DIR_PATH;
+		AppPaths.PORTABLE_EXECUTABLE_DIR_PATH = portableDir.toString();
+
+		try {
+			// a filter the database could not apply (pageRequestApplied stays false)
+			ReportDataPageRequest pageRequest = new ReportDataPageRequest();
+			pageRequest.page = 1;
+			pageRequest.size = 2;
+			pageRequest.filters.add(newFilter("Status", "=", "Active"));
+
+			String sqlReport = "snapshot-test-sql-" + System.nanoTime();
+			String csvReport = "snapshot-test-csv-" + System.nanoTime();
+			newReport(portableDir, sqlReport, "ds.sqlquery");
+			newReport(portableDir, csvReport, "ds.csvfile");
+
+			List<String> fetched = new ArrayList<>();
+
+			ReportingService reportingService = new ReportingService() {
+				@Override
+				public ReportDataResult fetchData(String configurationFilePath, Map<String, String> parameters,
+						boolean testMode, ReportDataPageRequest pageRequest, QueryCancellation queryCancellation) {
+					fetched.add(Path.of(configurationFilePath).getParent().getFileName().toString());
+					return newResult(10);
+				}
+			};
+
+			for (int i = 0; i < 2; i++) {
+				reportingService.fetchReportData(sqlReport, Map.of(), false, pageRequest);
+				assertEquals(5, reportingService.fetchReportData(csvReport, Map.of(), false, pageRequest).totalRows);
+			}
+
+			// the SQL report runs its query for each request, the CSV file is read once
+			assertEquals(List.of(sqlReport, csvReport, sqlReport), fetched);
+
+			reportingService.invalidateReportData(csvReport);
+		} finally {
+			AppPaths.PORTABLE_EXECUTABLE_DIR_PATH = previousPortableDir;
+		}
+	}
+
+	@Test
+	public void testTypedSortAndComparisons() {
+		ReportDataResult result = new ReportDataResult();
+		result.reportColumnNames = List.of("Code", "Amount");
+		result.reportData = new ArrayList<>();
+
+		// numbers as text are compared as numbers ("9" < "10"), the text values ignoring the case
+		String[][] values = { { "b", "10" }, { "A", "9" }, { "c", null }, { "B", "-2.5e1" }, { "a", "100" } };
+		for (String[] value : values) {
+			LinkedHashMap<String, Object> row = new LinkedHashMap<>();
+			row.put("Code", value[0]);
+			row.put("Amount", value[1]);
+			result.reportData.add(row);
+		}
+
+		ReportDataSnapshot snapshot = ReportDataSnapshot.of(result);
+
+		ReportDataPageRequest byAmount = new ReportDataPageRequest();
+		byAmount.sorters.add(newSorter("Amount", "asc"));
+		assertEquals(List.of("c", "B", "A", "b", "a"), codes(snapshot.toResult(byAmount)));
+
+		// stable - the rows with the same code keep their order
+		ReportDataPageRequest byCode = new ReportDataPageRequest();
+		byCode.sorters.add(newSorter("Code", "desc"));
+		assertEquals(List.of("c", "b", "B", "A", "a"), codes(snapshot.toResult(byCode)));
+
+		ReportDataPageRequest greaterThan = new ReportDataPageRequest();
+		greaterThan.filters.add(newFilter("Amount", ">", "9"));
+		greaterThan.filters.add(newFilter("Code", "!=", "a"));
+		assertEquals(List.of("b"), codes(snapshot.toResult(greaterThan)));
+
+		ReportDataPageRequest textGreaterThan = new ReportDataPageRequest();
+		textGreaterThan.filters.add(newFilter("Code", ">=", "b"));
+		assertEquals(List.of("b", "c", "B"), codes(snapshot.toResult(textGreaterThan)));
+
+		// the digits of the other scripts are text, not numbers
+		assertEquals(-25.0, ReportDataSnapshot.parseNumber(" -2.5e1 "));
+		assertTrue(Double.isNaN(ReportDataSnapshot.parseNumber("\u0661\u0662")));
+	}
+
+	@Test
+	public void testHitInvalidationAndParameters() {
+		ReportDataSnapshotCache cache = new ReportDataSnapshotCache();
+		ReportDataSnapshot snapshot = ReportDataSnapshot.of(newResult(3));
+
+		assertNull(cache.get("sales", Map.of("region", "EU"), false));
+
+		cache.put("sales", Map.of("region", "EU", "year", "2024"), false, snapshot);
+
+		// the order of the parameters does not matter
+		Map<String, String> parameters = new LinkedHashMap<>();
+		parameters.put("year", "2024");
+		parameters.put("region", "EU");
+		assertSame(snapshot, cache.get("sales", parameters, false));
+
+		assertNull(cache.get("sales", Map.of("region", "US", "year", "2024"), false));
+		assertNull(cache.get("sales", parameters, true));
+
+		cache.invalidateReport("sales");
+		assertNull(cache.get("sales", parameters, false));
+
+		Map<String, Object> stats = cache.getStats();
+		assertEquals(1L, stats.get("hitCount"));
+		assertEquals(1L, stats.get("invalidationCount"));
+		assertEquals(0L, stats.get("weightBytes"));
+	}
+
+	@Test
+	public void testExpirationAndWeightLimit() throws Exception {
+		ReportDataSnapshot snapshot = ReportDataSnapshot.of(newResult(100));
+
+		ReportDataSnapshotCache expiringCache = new ReportDataSnapshotCache(ReportDataSnapshotCache.DEFAULT_MAX_WEIGHT_BYTES, 1);
+		expiringCache.put("sales", Map.of(), false, snapshot);
+		Thread.sleep(5);
+		assertNull(expiringCache.get("sales", Map.of(), false));
+
+		// too large to be cached
+		ReportDataSnapshotCache smallCache = new ReportDataSnapshotCache(snapshot.getWeight() - 1, 60_000);
+		smallCache.put("sales", Map.of(), false, snapshot);
+		assertNull(smallCache.get("sales", Map.of(), false));
+	}
+
+	private static ReportDataResult newResult(int rowCount) {
+		ReportDataResult result = new ReportDataResult();
+		result.reportColumnNames = List.of("Id", "Status", "Amount");
+		result.reportData = new ArrayList<>();
+
+		for (int i = 0; i < rowCount; i++) {
+			LinkedHashMap<String, Object> row = new LinkedHashMap<>();
+			row.put("Id", i);
+			row.put("Status", (i % 2 == 0) ? "Active" : "Closed");
+			row.put("Amount", i * 10);
+			result.reportData.add(row);
+		}
+
+		return result;
+	}
+
+	private static void newReport(Path portableDir, String reportCode, String dsType) throws Exception {
+		Path reportDir = Files.createDirectories(portableDir.resolve("config/reports/" + reportCode));
+		Files.writeString(reportDir.resolve("reporting.xml"),
+				"<documentburster><report><datasource><type>" + dsType + "</type></datasource></report></documentburster>");
+	}
+
+	private static List<Object> codes(ReportDataResult result) {
+		List<Object> codes = new ArrayList<>();
+		for (Map<String, Object> row : result.reportData)
+			codes.add(row.get("Code"));
+		return codes;
+	}
+
+	private static ReportDataPageRequest.Filter newFilter(String field, String type, String value) {
+		ReportDataPageRequest.Filter filter = new ReportDataPageRequest.Filter();
+		filter.field = field;
+		filter.type = type;
+		filter.value = value;
+		return filter;
+	}
+
+	private static ReportDataPageRequest.Sorter newSorter(String field, String dir) {
+		ReportDataPageRequest.Sorter sorter = new ReportDataPageRequest.Sorter();
+		sorter.field = field;
+		sorter.dir = dir;
+		return sorter;
+	}
+
+}
@@ -0,0 +1,144 @@
+package com.flowkraft.reporting.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.sourcekraft.documentburster.common.db.QueryCancellation;
+
+import reactor.core.Disposable;
+
+/**
+ * Unit tests for the reporting executor lanes: concurrency limit, queue depth,
+ * timeout and cancellation.
+ */
+public class ReportingExecutorTest {
+
+	private ReportingExecutor executor;
+
+	@AfterEach
+	public void tearDown() {
+		if (executor != null)
+			executor.dispose();
+	}
+
+	@Test
+	public void testResultAndStats() {
+		executor = new ReportingExecutor(2, 10, 30);
+
+		assertEquals("ok", executor.execute("sales-db", () -> "ok").block());
+		assertEquals("ok", executor.execute("", () -> "ok").block());
+
+		Map<String, Object> lane = laneStats("sales-db");
+		assertEquals(1L, lane.get("completedCount"));
+		assertEquals(0, lane.get("queued"));
+		assertEquals(0, lane.get("active"));
+
+		// no connection - the default lane
+		assertEquals(1L, laneStats(ReportingExecutor.DEFAULT_LANE).get("completedCount"));
+	}
+
+	@Test
+	public void testConcurrencyLimitPerConnection() throws Exception {
+		executor = new ReportingExecutor(1, 10, 30);
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Disposable first = executor.execute("sales-db", () -> {
+			started.countDown();
+			release.await();
+			return "first";
+		}).subscribe();
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		// waits for the only thread of the lane, the other connections are not blocked
+		Disposable second = executor.execute("sales-db", () -> "second").subscribe();
+		assertEquals("other", executor.execute("hr-db", () -> "other").block());
+
+		assertEquals(1, laneStats("sales-db").get("active"));
+		assertEquals(1, laneStats("sales-db").get("queued"));
+
+		release.countDown();
+		waitUntil(() -> Long.valueOf(2L).equals(laneStats("sales-db").get("completedCount")));
+		assertEquals(0, laneStats("sales-db").get("queued"));
+
+		first.dispose();
+		second.dispose();
+	}
+
+	@Test
+	public void testQueueLimitPerConnection() throws Exception {
+		executor = new ReportingExecutor(1, 2, 30);
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Disposable running = executor.execute("sales-db", () -> {
+			started.countDown();
+			release.await();
+			return "running";
+		}).subscribe();
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		Disposable firstWaiting = executor.execute("sales-db", () -> "first").subscribe();
+		Disposable secondWaiting = executor.execute("sales-db", () -> "second").subscribe();
+
+		// the lane thread is busy and 2 tasks are already waiting
+		Exception e = assertThrows(RejectedExecutionException.class,
+				() -> executor.execute("sales-db", () -> "third").block());
+		assertTrue(e.getMessage().contains("sales-db"));
+
+		assertEquals(2, laneStats("sales-db").get("queued"));
+		assertEquals(1L, laneStats("sales-db").get("rejectedCount"));
+
+		release.countDown();
+		waitUntil(() -> Long.valueOf(3L).equals(laneStats("sales-db").get("completedCount")));
+		assertEquals(0, laneStats("sales-db").get("queued"));
+
+		running.dispose();
+		firstWaiting.dispose();
+		secondWaiting.dispose();
+	}
+
+	@Test
+	public void testTimeoutCancelsTheQuery() throws Exception {
+		executor = new ReportingExecutor(2, 10, 1);
+
+		QueryCancellation queryCancellation = new QueryCancellation();
+
+		Exception e = assertThrows(RuntimeException.class, () -> executor.execute("sales-db", () -> {
+			Thread.sleep(30_000);
+			return "late";
+		}, queryCancellation).block());
+
+		assertTrue(e.getCause() instanceof TimeoutException);
+		assertTrue(queryCancellation.isCancelled());
+
+		Map<String, Object> lane = laneStats("sales-db");
+		assertEquals(1L, lane.get("timedOutCount"));
+		assertEquals(1L, lane.get("cancelledCount"));
+		waitUntil(() -> Integer.valueOf(0).equals(laneStats("sales-db").get("active")));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> laneStats(String lane) {
+		return ((Map<String, Map<String, Object>>) executor.getStats().get("lanes")).get(lane);
+	}
+
+	private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "condition not met in 5 seconds");
+			Thread.sleep(10);
+		}
+	}
+
+}